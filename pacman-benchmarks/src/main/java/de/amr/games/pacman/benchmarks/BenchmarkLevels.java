@@ -0,0 +1,39 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+
+/**
+ * Creates game levels in the state they have when the hunting starts.
+ *
+ * @author Armin Reichert
+ */
+class BenchmarkLevels {
+
+    private BenchmarkLevels() {
+    }
+
+    /**
+     * @param variant game variant
+     * @param seed    random seed of the game
+     * @return first level of a new game, guys placed at their start positions, Pac-Man steered by the autopilot
+     */
+    static GameLevel createHuntingLevel(GameVariant variant, long seed) {
+        var gameController = new GameController(variant);
+        var game = gameController.game();
+        game.setHighScorePersistent(false);
+        game.setRandomSeed(seed);
+        game.reset();
+        gameController.createAndStartLevel(1);
+        var level = game.level().orElseThrow();
+        level.pac().setUseAutopilot(true);
+        level.letsGetReadyToRumble(true);
+        level.startHuntingPhase(0);
+        return level;
+    }
+}
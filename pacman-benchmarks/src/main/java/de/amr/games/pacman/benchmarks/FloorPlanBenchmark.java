@@ -0,0 +1,54 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.model.world.ArcadeWorld;
+import de.amr.games.pacman.model.world.FloorPlan;
+import de.amr.games.pacman.model.world.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of a floor plan from the Pac-Man world and reading a floor plan from its text form, at the
+ * resolutions used by the 3D play scene.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FloorPlanBenchmark {
+
+    @Param({"4", "8"})
+    public int resolution;
+
+    private World world;
+    private byte[] floorPlanText;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = ArcadeWorld.createPacManWorld();
+        var text = new StringWriter();
+        create().print(text, false);
+        floorPlanText = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public FloorPlan create() {
+        return new FloorPlan(world, world.numCols() * resolution, world.numRows() * resolution, resolution);
+    }
+
+    @Benchmark
+    public FloorPlan read() {
+        return FloorPlan.read(new ByteArrayInputStream(floorPlanText));
+    }
+}
@@ -0,0 +1,47 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one simulation step of a level ({@link GameLevel#doHuntingStep()}) with Pac-Man steered by the autopilot.
+ * Pac-Man is immune, so the level is only restarted when all food has been eaten.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GameLevelBenchmark {
+
+    @Param({"PACMAN", "MS_PACMAN"})
+    public GameVariant variant;
+
+    private GameLevel level;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        level = BenchmarkLevels.createHuntingLevel(variant, 42);
+        level.pac().setImmune(true);
+    }
+
+    @Benchmark
+    public GameState doHuntingStep() {
+        var state = level.doHuntingStep();
+        if (state == GameState.LEVEL_COMPLETE) {
+            setUp();
+        }
+        return state;
+    }
+}
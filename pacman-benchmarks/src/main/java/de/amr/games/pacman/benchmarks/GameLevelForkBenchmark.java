@@ -0,0 +1,46 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of one copy of a level ({@link GameLevel#fork()}) as done by the Monte Carlo autopilot for
+ * every rollout. The level has been played for some seconds, so food has been eaten and the ghosts are out.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameLevelForkBenchmark {
+
+    @Param({"PACMAN", "MS_PACMAN"})
+    public GameVariant variant;
+
+    private GameLevel level;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        level = BenchmarkLevels.createHuntingLevel(variant, 42);
+        level.pac().setImmune(true);
+        for (int i = 0; i < 1200 && level.doHuntingStep() == GameState.HUNTING; ++i) {
+            level.world().energizerBlinking().tick();
+        }
+    }
+
+    @Benchmark
+    public GameLevel fork() {
+        return level.fork();
+    }
+}
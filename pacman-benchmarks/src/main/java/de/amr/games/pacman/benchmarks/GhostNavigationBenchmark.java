@@ -0,0 +1,76 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Ghost;
+import de.amr.games.pacman.model.actors.GhostState;
+import de.amr.games.pacman.model.actors.Move;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the selection of the direction towards the target tile ({@link Move#navigateTowardsTarget()}) of a ghost
+ * standing on different tiles of the maze, with changing move directions and target tiles. The ghost never moves, so
+ * every call runs the complete selection.
+ * <p>
+ * In state <code>HUNTING_PAC</code>, the accessible directions come from the precomputed masks of the world topology.
+ * In state <code>ENTERING_HOUSE</code>, the ghost takes the generic path testing each neighbor tile with
+ * {@link Ghost#canAccessTile(Vector2i)}, which outside the house gives the same directions.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GhostNavigationBenchmark {
+
+    @Param({"PACMAN", "MS_PACMAN"})
+    public GameVariant variant;
+
+    @Param({"HUNTING_PAC", "ENTERING_HOUSE"})
+    public GhostState state;
+
+    private Ghost ghost;
+    private Vector2i[] tiles;
+    private Vector2i[] targets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GameLevel level = BenchmarkLevels.createHuntingLevel(variant, 42);
+        ghost = level.ghost(GameModel.RED_GHOST);
+        ghost.setState(state);
+        var world = level.world();
+        tiles = world.tiles()
+            .filter(tile -> world.topology().isAccessible(world.index(tile)))
+            .filter(tile -> !world.belongsToPortal(tile))
+            .toArray(Vector2i[]::new);
+        // targets alternate between tiles from the other end of the list and the maze corners (like scatter targets)
+        targets = new Vector2i[tiles.length];
+        for (int i = 0; i < tiles.length; ++i) {
+            targets[i] = i % 2 == 0 ? tiles[tiles.length - 1 - i] : Vector2i.of(i % 4 < 2 ? 0 : world.numCols() - 1,
+                i % 8 < 4 ? 0 : world.numRows() - 1);
+        }
+    }
+
+    @Benchmark
+    public Direction navigateTowardsTarget() {
+        ghost.placeAtTile(tiles[next], 0, 0);
+        ghost.setMoveDir(Direction.byOrdinal(next & 3));
+        ghost.setTargetTile(targets[next]);
+        next = (next + 1) % tiles.length;
+        ghost.navigateTowardsTarget();
+        return ghost.wishDir();
+    }
+}
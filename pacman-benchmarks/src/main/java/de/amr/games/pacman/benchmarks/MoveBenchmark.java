@@ -0,0 +1,44 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Move;
+import de.amr.games.pacman.model.actors.Pac;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single move ({@link Move#tryMoving()}) of Pac-Man running through the maze. When blocked by a wall,
+ * Pac-Man turns clockwise, so moves, turns and blocked moves are all part of the measurement.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+    private Pac pac;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pac = BenchmarkLevels.createHuntingLevel(GameVariant.PACMAN, 42).pac();
+        pac.setPercentageSpeed((byte) 80);
+    }
+
+    @Benchmark
+    public boolean tryMoving() {
+        pac.tryMoving();
+        if (!pac.hasMoved()) {
+            pac.setWishDir(pac.wishDir().nextClockwise());
+        }
+        return pac.hasMoved();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.ui.fx.v3d.objimport.ObjImporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing the OBJ files of the 3D models. The file content is read into memory before, so no I/O is measured.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjImporterBenchmark {
+
+    private static final String MODEL_DIR = "/de/amr/games/pacman/ui/fx/v3d/model3D/";
+
+    @Param({"ghost.obj", "pacman.obj"})
+    public String objFile;
+
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        try (var in = ObjImporter.class.getResourceAsStream(MODEL_DIR + objFile)) {
+            if (in == null) {
+                throw new IllegalStateException("OBJ file not found: " + MODEL_DIR + objFile);
+            }
+            content = in.readAllBytes();
+        } catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+    }
+
+    @Benchmark
+    public ObjImporter parse() throws IOException {
+        return new ObjImporter(new ByteArrayInputStream(content));
+    }
+}
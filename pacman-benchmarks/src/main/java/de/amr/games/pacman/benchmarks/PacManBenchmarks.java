@@ -0,0 +1,37 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this module with the GC profiler, which reports the allocation rate
+ * (<code>gc.alloc.rate.norm</code> = bytes per operation) next to the timing results.
+ * <p>
+ * Accepts the usual JMH command line options, e.g. a regular expression selecting the benchmarks:
+ * <pre>
+ * java -jar pacman-benchmarks/target/benchmarks.jar WorldBenchmark
+ * </pre>
+ *
+ * @author Armin Reichert
+ */
+public class PacManBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var commandLineOptions = new CommandLineOptions(args);
+        var options = new OptionsBuilder()
+            .parent(commandLineOptions)
+            .addProfiler(GCProfiler.class);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            options.include(PacManBenchmarks.class.getPackageName() + "\\..*Benchmark");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Pac;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete steering decision of the autopilot ({@link RuleBasedPacSteering#steer}) for Pac-Man standing on
+ * different tiles of the maze. Pac-Man never moves, so every call runs the complete decision.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SteeringBenchmark {
+
+    @Param({"PACMAN", "MS_PACMAN"})
+    public GameVariant variant;
+
+    private RuleBasedPacSteering steering;
+    private Pac pac;
+    private Vector2i[] tiles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GameLevel level = BenchmarkLevels.createHuntingLevel(variant, 42);
+        steering = new RuleBasedPacSteering(level);
+        pac = level.pac();
+        var world = level.world();
+        // every 7th accessible tile, spread over the whole maze
+        tiles = world.tiles()
+            .filter(tile -> world.topology().isAccessible(world.index(tile)))
+            .filter(tile -> world.index(tile) % 7 == 0)
+            .toArray(Vector2i[]::new);
+    }
+
+    @Benchmark
+    public Direction steer() {
+        pac.placeAtTile(tiles[next], 0, 0);
+        next = (next + 1) % tiles.length;
+        steering.steer(pac);
+        return pac.wishDir();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.world.World;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the world queries used per simulation step by the actors and the autopilot. Each operation queries all tiles
+ * of the world once (one tile for the distance query).
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorldBenchmark {
+
+    private World world;
+    private Vector2i[] tiles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        world = BenchmarkLevels.createHuntingLevel(GameVariant.PACMAN, 42).world();
+        tiles = world.tiles().toArray(Vector2i[]::new);
+    }
+
+    @Benchmark
+    public void isWall(Blackhole bh) {
+        for (var tile : tiles) {
+            bh.consume(world.isWall(tile));
+        }
+    }
+
+    @Benchmark
+    public void isIntersection(Blackhole bh) {
+        for (var tile : tiles) {
+            bh.consume(world.isIntersection(tile));
+        }
+    }
+
+    @Benchmark
+    public void belongsToPortal(Blackhole bh) {
+        for (var tile : tiles) {
+            bh.consume(world.belongsToPortal(tile));
+        }
+    }
+
+    @Benchmark
+    public void hasFoodAt(Blackhole bh) {
+        for (var tile : tiles) {
+            bh.consume(world.hasFoodAt(tile));
+        }
+    }
+
+    @Benchmark
+    public void tileVectors(Blackhole bh) {
+        for (int y = 0; y < world.numRows(); ++y) {
+            for (int x = 0; x < world.numCols(); ++x) {
+                bh.consume(Vector2i.of(x, y));
+            }
+        }
+    }
+
+    @Benchmark
+    public void mazeDistance(Blackhole bh) {
+        var from = tiles[next];
+        next = (next + 1) % tiles.length;
+        for (var tile : tiles) {
+            bh.consume(world.mazeDistance(from, tile));
+        }
+    }
+
+    @Benchmark
+    public long uneatenFoodTiles() {
+        return world.tiles().filter(world::hasFoodAt).count();
+    }
+}
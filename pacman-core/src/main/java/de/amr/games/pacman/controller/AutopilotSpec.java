@@ -0,0 +1,140 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.lib.MonteCarloPacSteering;
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.lib.StateCodec;
+import de.amr.games.pacman.lib.Steering;
+import de.amr.games.pacman.model.GameLevel;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Describes Pac-Man's autopilot such that it can be created again, e.g. when a recorded game is replayed (see
+ * {@link InputRecording}). Set by {@link GameController#setAutopilot(AutopilotSpec)}.
+ *
+ * @param kind    kind of autopilot
+ * @param profile profile of the rule-based autopilot, only used by {@link Kind#RULE_BASED}
+ * @param config  search configuration, only used by {@link Kind#MONTE_CARLO}
+ * @author Armin Reichert
+ */
+public record AutopilotSpec(Kind kind, RuleBasedPacSteering.Profile profile, MonteCarloPacSteering.Config config) {
+
+    public enum Kind {
+        /** The autopilot of the game variant (rule-based with default profile, demo level route). */
+        DEFAULT,
+        /** A {@link RuleBasedPacSteering} with the given profile in all levels. */
+        RULE_BASED,
+        /** A {@link MonteCarloPacSteering} running its rollouts in the common fork-join pool. */
+        MONTE_CARLO
+    }
+
+    public static final AutopilotSpec DEFAULT = new AutopilotSpec(Kind.DEFAULT, null, null);
+
+    public AutopilotSpec {
+        checkNotNull(kind);
+        if (kind == Kind.RULE_BASED) {
+            checkNotNull(profile);
+        }
+        if (kind == Kind.MONTE_CARLO) {
+            checkNotNull(config);
+        }
+    }
+
+    /**
+     * @param profile profile of the rules
+     * @return specification of a rule-based autopilot with the given profile
+     */
+    public static AutopilotSpec ruleBased(RuleBasedPacSteering.Profile profile) {
+        return new AutopilotSpec(Kind.RULE_BASED, profile, null);
+    }
+
+    /**
+     * @param config search configuration
+     * @return specification of a Monte Carlo autopilot with the given configuration
+     */
+    public static AutopilotSpec monteCarlo(MonteCarloPacSteering.Config config) {
+        return new AutopilotSpec(Kind.MONTE_CARLO, null, config);
+    }
+
+    /**
+     * @return if the decisions of the autopilot only depend on the game state. A Monte Carlo autopilot with a time
+     * budget decides with the rollouts finished in time, so its decisions depend on the machine load.
+     */
+    public boolean isReproducible() {
+        return kind != Kind.MONTE_CARLO || config.timeBudgetMillis() == 0;
+    }
+
+    /**
+     * @return factory creating the autopilot for a level, <code>null</code> for the default autopilot
+     */
+    public Function<GameLevel, Steering> factory() {
+        return switch (kind) {
+            case DEFAULT -> null;
+            case RULE_BASED -> level -> new RuleBasedPacSteering(level, profile);
+            case MONTE_CARLO -> level -> new MonteCarloPacSteering(level, config, ForkJoinPool.commonPool());
+        };
+    }
+
+    /**
+     * @return number of bytes written by {@link #write(ByteBuffer)}
+     */
+    int encodedSize() {
+        return switch (kind) {
+            case DEFAULT -> 1;
+            case RULE_BASED -> 1 + 1 + 4 * RuleBasedPacSteering.Profile.NAMES.size();
+            case MONTE_CARLO -> 1 + 3 * 4;
+        };
+    }
+
+    void write(ByteBuffer out) {
+        StateCodec.putEnum(out, kind);
+        switch (kind) {
+            case DEFAULT -> {}
+            case RULE_BASED -> {
+                var vector = profile.toVector();
+                out.put((byte) vector.length);
+                for (int value : vector) {
+                    out.putInt(value);
+                }
+            }
+            case MONTE_CARLO -> {
+                out.putInt(config.rollouts());
+                out.putInt(config.depth());
+                out.putInt(config.timeBudgetMillis());
+            }
+        }
+    }
+
+    /**
+     * @param in input buffer
+     * @return specification written by {@link #write(ByteBuffer)}
+     * @throws IllegalArgumentException if the data are invalid
+     */
+    static AutopilotSpec read(ByteBuffer in) {
+        var kind = StateCodec.getEnum(in, Kind.values());
+        checkNotNull(kind);
+        return switch (kind) {
+            case DEFAULT -> DEFAULT;
+            case RULE_BASED -> {
+                int length = in.get();
+                if (length != RuleBasedPacSteering.Profile.NAMES.size()) {
+                    throw new IllegalArgumentException("Illegal profile length: " + length);
+                }
+                var vector = new int[length];
+                for (int i = 0; i < vector.length; ++i) {
+                    vector[i] = in.getInt();
+                }
+                yield ruleBased(RuleBasedPacSteering.Profile.fromVector(vector));
+            }
+            case MONTE_CARLO -> monteCarlo(new MonteCarloPacSteering.Config(in.getInt(), in.getInt(), in.getInt()));
+        };
+    }
+}
@@ -0,0 +1,189 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.event.GameEventType;
+import org.tinylog.Logger;
+
+import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
+
+/**
+ * Actions changing the game which are triggered from outside the simulation: by the user (credit, start, cheats) or by
+ * a user interface scene (e.g. a cut scene ending its game state). These actions are executed between simulation ticks
+ * via {@link GameController#execute(GameAction, int)} such that they can be recorded and replayed, see
+ * {@link InputRecorder}.
+ * <p>
+ * Sounds, flash messages and other presentation effects remain in the user interface.
+ *
+ * @author Armin Reichert
+ */
+public enum GameAction {
+
+    /** Inserts a coin and switches to the credit state. */
+    ADD_CREDIT {
+        @Override
+        void apply(GameController gameController, int arg) {
+            if (!gameController.isPlaying()) {
+                if (gameController.changeCredit(1)) {
+                    publishGameEvent(gameController.game(), GameEventType.CREDIT_ADDED);
+                }
+                if (gameController.state() != GameState.CREDIT) {
+                    gameController.changeState(GameState.CREDIT);
+                }
+            }
+        }
+    },
+
+    /** Sets the credit to the value given by the argument, e.g. from a debug control. */
+    SET_CREDIT {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.setCredit(arg);
+        }
+    },
+
+    /** Starts playing if there is credit. */
+    START_GAME {
+        @Override
+        void apply(GameController gameController, int arg) {
+            if (gameController.hasCredit()) {
+                if (gameController.state() == GameState.INTRO || gameController.state() == GameState.CREDIT) {
+                    gameController.changeState(GameState.READY);
+                } else {
+                    Logger.error("Cannot start playing when in game state {}", gameController.state());
+                }
+            }
+        }
+    },
+
+    /** Quits playing and returns to the intro. */
+    RESTART_INTRO {
+        @Override
+        void apply(GameController gameController, int arg) {
+            if (gameController.isPlaying()) {
+                gameController.changeCredit(-1);
+            }
+            gameController.restart(GameState.INTRO);
+        }
+    },
+
+    /** Argument 1 switches the autopilot on, 0 off. */
+    SET_AUTOPILOT {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.game().level().ifPresent(level -> level.pac().setUseAutopilot(arg != 0));
+        }
+    },
+
+    /** Argument 1 makes Pac-Man immune against ghost attacks, 0 not. */
+    SET_IMMUNITY {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.setPacImmune(arg != 0);
+        }
+    },
+
+    /** Adds the number of lives given by the argument. */
+    ADD_LIVES {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.game().addLives((short) arg);
+        }
+    },
+
+    /** Eats all pellets except the energizers (cheat). */
+    EAT_ALL_PELLETS {
+        @Override
+        void apply(GameController gameController, int arg) {
+            if (gameController.isPlaying() && gameController.state() == GameState.HUNTING) {
+                gameController.game().level().ifPresent(level -> {
+                    var world = level.world();
+                    world.tiles().filter(tile -> !world.isEnergizerTile(tile)).forEach(world::removeFood);
+                    publishGameEvent(gameController.game(), GameEventType.PAC_FOUND_FOOD);
+                });
+            }
+        }
+    },
+
+    /** Kills all hunting and frightened ghosts (cheat). */
+    KILL_ALL_GHOSTS {
+        @Override
+        void apply(GameController gameController, int arg) {
+            if (gameController.isPlaying() && gameController.state() == GameState.HUNTING) {
+                gameController.game().level().ifPresent(level -> {
+                    level.killAllHuntingAndFrightenedGhosts();
+                    level.eventLog().report();
+                    gameController.changeState(GameState.GHOST_DYING);
+                });
+            }
+        }
+    },
+
+    /** Eats all food and completes the level (cheat). */
+    ENTER_NEXT_LEVEL {
+        @Override
+        void apply(GameController gameController, int arg) {
+            if (gameController.isPlaying() && gameController.state() == GameState.HUNTING) {
+                gameController.game().level().ifPresent(level -> {
+                    level.world().tiles().forEach(level.world()::removeFood);
+                    gameController.changeState(GameState.LEVEL_COMPLETE);
+                });
+            }
+        }
+    },
+
+    /** Enters the level with the number given by the argument (cheat). */
+    ENTER_LEVEL {
+        @Override
+        void apply(GameController gameController, int arg) {
+            if (gameController.state() == GameState.CHANGING_TO_NEXT_LEVEL) {
+                return;
+            }
+            gameController.game().level().ifPresent(level -> {
+                if (arg > level.number()) {
+                    for (int n = level.number(); n < arg - 1; ++n) {
+                        gameController.createAndStartLevel(level.number() + 1);
+                    }
+                    gameController.changeState(GameState.CHANGING_TO_NEXT_LEVEL);
+                }
+            });
+        }
+    },
+
+    /** Terminates the current game state, e.g. at the end of the boot screen. */
+    TERMINATE_STATE {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.terminateCurrentState();
+        }
+    },
+
+    /** Expires the timer of the current game state, e.g. at the end of a cut scene. */
+    EXPIRE_STATE_TIMER {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.timer().expire();
+        }
+    },
+
+    /** Stops the timer of the current game state until it is expired, e.g. while a 3D animation is playing. */
+    LOCK_STATE_TIMER {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.timer().resetIndefinitely();
+        }
+    },
+
+    /** Restarts the timer of the current game state with the number of ticks given by the argument. */
+    RESTART_STATE_TIMER {
+        @Override
+        void apply(GameController gameController, int arg) {
+            gameController.timer().reset(arg);
+            gameController.timer().start();
+        }
+    };
+
+    abstract void apply(GameController gameController, int arg);
+}
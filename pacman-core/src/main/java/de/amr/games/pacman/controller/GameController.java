@@ -4,11 +4,13 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.controller;
 
+import de.amr.games.pacman.event.GameEventManager;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.event.GameStateChangeEvent;
 import de.amr.games.pacman.lib.Fsm;
 import de.amr.games.pacman.lib.RouteBasedSteering;
 import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.lib.Steering;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.GameVariant;
@@ -16,10 +18,13 @@ import de.amr.games.pacman.model.world.ArcadeWorld;
 import org.tinylog.Logger;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
 import static de.amr.games.pacman.lib.Globals.checkGameVariant;
 import static de.amr.games.pacman.lib.Globals.checkLevelNumber;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
 import static de.amr.games.pacman.model.world.ArcadeWorld.*;
 
 /**
@@ -29,6 +34,9 @@ import static de.amr.games.pacman.model.world.ArcadeWorld.*;
  * selected game, see {@link GameModel}. Scene selection is not controlled by this class but left to the specific user
  * interface implementations.
  * <p>
+ * Each controller instance is an independent game session: it owns the timers of the game states and the event
+ * manager with the listeners of its game model. Any number of sessions can exist in the same process.
+ * <p>
  * <li>Exact level data for Ms. Pac-Man still not available. Any hints appreciated!
  * <li>Multiple players (1up, 2up) not implemented.</li>
  * </ul>
@@ -40,37 +48,45 @@ import static de.amr.games.pacman.model.world.ArcadeWorld.*;
  * behavior</a>
  * @see <a href="http://superpacman.com/mspacman/">Ms. Pac-Man</a>
  */
-public class GameController extends Fsm<GameState, GameModel> {
-
-    private static final GameController IT = new GameController(GameVariant.PACMAN);
-
-    /**
-     * @return the game controller singleton
-     */
-    public static GameController it() {
-        return IT;
-    }
+public class GameController extends Fsm<GameState, GameController> {
 
+    private final GameEventManager eventManager = new GameEventManager();
     private GameModel game;
     private boolean playing = false;
     private boolean pacImmune = false;
     private int credit = 0;
+    private int intermissionTestNumber;
+    private InputRecorder inputRecorder;
+    private RewindBuffer rewindBuffer;
+    private Function<GameLevel, Steering> autopilotFactory;
+    private AutopilotSpec autopilotSpec = AutopilotSpec.DEFAULT;
 
-    private GameController(GameVariant variant) {
+    public GameController(GameVariant variant) {
         super(GameState.values());
         newGame(variant);
         // map FSM state change events to game events
-        addStateChangeListener((oldState, newState) -> publishGameEvent(new GameStateChangeEvent(game, oldState, newState)));
+        addStateChangeListener((oldState, newState) -> {
+            if (eventManager.hasListeners(GameEventType.GAME_STATE_CHANGED)) {
+                publishGameEvent(new GameStateChangeEvent(game, oldState, newState));
+            }
+        });
     }
 
     public void newGame(GameVariant variant) {
         checkGameVariant(variant);
-        game = new GameModel(variant);
+        game = new GameModel(variant, eventManager);
     }
 
     @Override
-    public GameModel context() {
-        return game;
+    public GameController context() {
+        return this;
+    }
+
+    /**
+     * @return the event manager of this game session
+     */
+    public GameEventManager eventManager() {
+        return eventManager;
     }
 
     public GameModel game() {
@@ -106,6 +122,36 @@ public class GameController extends Fsm<GameState, GameModel> {
 
     public void setPacImmune(boolean pacImmune) {
         this.pacImmune = pacImmune;
+        game.level().ifPresent(level -> level.pac().setImmune(pacImmune));
+    }
+
+    /**
+     * @param autopilotFactory creates Pac-Man's autopilot for each new level (including demo levels), e.g. a
+     *                         {@link de.amr.games.pacman.lib.MonteCarloPacSteering}, <code>null</code> means the default
+     *                         autopilot of the game variant
+     */
+    public void setAutopilotFactory(Function<GameLevel, Steering> autopilotFactory) {
+        this.autopilotFactory = autopilotFactory;
+        autopilotSpec = autopilotFactory == null ? AutopilotSpec.DEFAULT : null;
+    }
+
+    /**
+     * Sets Pac-Man's autopilot from a specification. Unlike an autopilot set by a custom factory, it can be recreated
+     * when a recorded game is replayed.
+     *
+     * @param autopilotSpec autopilot specification
+     */
+    public void setAutopilot(AutopilotSpec autopilotSpec) {
+        checkNotNull(autopilotSpec);
+        this.autopilotFactory = autopilotSpec.factory();
+        this.autopilotSpec = autopilotSpec;
+    }
+
+    /**
+     * @return specification of Pac-Man's autopilot, empty if it is created by a custom factory
+     */
+    public Optional<AutopilotSpec> autopilotSpec() {
+        return Optional.ofNullable(autopilotSpec);
     }
 
     public boolean isPlaying() {
@@ -116,50 +162,134 @@ public class GameController extends Fsm<GameState, GameModel> {
         this.playing = playing;
     }
 
+    /**
+     * @return number of the intermission scene currently played in state {@link GameState#INTERMISSION_TEST}
+     */
+    public int intermissionTestNumber() {
+        return intermissionTestNumber;
+    }
+
+    public void setIntermissionTestNumber(int number) {
+        intermissionTestNumber = number;
+    }
+
+    /**
+     * Updates the current game state and, if a recording is running, completes the recorded tick.
+     */
+    @Override
+    public void update() {
+        super.update();
+        if (inputRecorder != null) {
+            inputRecorder.onTickCompleted(this);
+        }
+        if (rewindBuffer != null) {
+            rewindBuffer.record(this);
+        }
+    }
+
+    /**
+     * Executes an action triggered from outside the simulation. Must be called between updates.
+     *
+     * @param action action
+     * @param arg    argument of the action, see {@link GameAction}
+     */
+    public void execute(GameAction action, int arg) {
+        checkNotNull(action);
+        if (inputRecorder != null) {
+            inputRecorder.recordAction(action, arg);
+        }
+        action.apply(this, arg);
+    }
+
+    public void execute(GameAction action) {
+        execute(action, 0);
+    }
+
+    public Optional<InputRecorder> inputRecorder() {
+        return Optional.ofNullable(inputRecorder);
+    }
+
+    /**
+     * @param inputRecorder recorder of the game inputs or <code>null</code> to stop recording
+     */
+    public void setInputRecorder(InputRecorder inputRecorder) {
+        this.inputRecorder = inputRecorder;
+    }
+
+    public Optional<RewindBuffer> rewindBuffer() {
+        return Optional.ofNullable(rewindBuffer);
+    }
+
+    /**
+     * @param rewindBuffer buffer where the state after each tick is stored or <code>null</code> to store no history
+     */
+    public void setRewindBuffer(RewindBuffer rewindBuffer) {
+        this.rewindBuffer = rewindBuffer;
+    }
+
+    /**
+     * Creates the level with the given number for the current game variant, including Pac-Man's autopilot. The level
+     * is neither set in the game model nor started.
+     *
+     * @param levelNumber level number (starting at 1)
+     * @param demoLevel   if the demo level ("attract mode") is created
+     * @return new game level
+     */
+    GameLevel createLevel(int levelNumber, boolean demoLevel) {
+        checkLevelNumber(levelNumber);
+        var level = switch (game.variant()) {
+            case MS_PACMAN -> {
+                var world = createMsPacManWorld(demoLevel ? 1 : mapNumberMsPacMan(levelNumber));
+                var msPacManLevel = new GameLevel(levelNumber, game.parameters().levelData(levelNumber), game, world, demoLevel);
+                msPacManLevel.pac().setAutopilot(new RuleBasedPacSteering(msPacManLevel));
+                yield msPacManLevel;
+            }
+            case PACMAN -> {
+                var pacManLevel = new GameLevel(levelNumber, game.parameters().levelData(levelNumber), game,
+                    createPacManWorld(), demoLevel);
+                pacManLevel.pac().setAutopilot(demoLevel
+                    ? new RouteBasedSteering(List.of(ArcadeWorld.PACMAN_DEMO_LEVEL_ROUTE))
+                    : new RuleBasedPacSteering(pacManLevel));
+                yield pacManLevel;
+            }
+        };
+        if (autopilotFactory != null) {
+            level.pac().setAutopilot(autopilotFactory.apply(level));
+        }
+        if (demoLevel) {
+            level.pac().setUseAutopilot(true);
+        }
+        level.pac().setImmune(pacImmune);
+        return level;
+    }
+
     /**
      * Starts new game level with the given number.
      *
      * @param levelNumber level number (starting at 1)
      */
     public void createAndStartLevel(int levelNumber) {
-        checkLevelNumber(levelNumber);
+        var level = createLevel(levelNumber, false);
+        game.setLevel(level);
+        Logger.info("Level {} created ({})", levelNumber, game.variant());
+        publishGameEvent(game, GameEventType.LEVEL_CREATED);
+        if (levelNumber == 1) {
+            game.clearLevelCounter();
+        }
         switch (game.variant()) {
+            // In Ms. Pac-Man, the level counter stays fixed from level 8 on and bonus symbols are created randomly
+            // (also inside a level) whenever a bonus score is reached. At least that's what I was told.
             case MS_PACMAN -> {
-                var level = new GameLevel(levelNumber, GameModel.levelData(levelNumber),game,
-                    createMsPacManWorld(mapNumberMsPacMan(levelNumber)), false);
-                level.pac().setAutopilot(new RuleBasedPacSteering(level));
-                game.setLevel(level);
-                Logger.info("Level {} created ({})", levelNumber, game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_CREATED);
-                if (levelNumber == 1) {
-                    game.clearLevelCounter();
-                }
-                // In Ms. Pac-Man, the level counter stays fixed from level 8 on and bonus symbols are created randomly
-                // (also inside a level) whenever a bonus score is reached. At least that's what I was told.
                 if (levelNumber <= 7) {
                     game.incrementLevelCounter(level.bonusSymbol(0));
                 }
-                // At this point, the animations of Pac-Man and the ghosts must have been created!
-                level.letsGetReadyToRumble(false);
-                Logger.info("Level {} started ({})", levelNumber, game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_STARTED);
-            }
-            case PACMAN -> {
-                var level = new GameLevel(levelNumber, GameModel.levelData(levelNumber), game, createPacManWorld(), false);
-                level.pac().setAutopilot(new RuleBasedPacSteering(level));
-                game.setLevel(level);
-                Logger.info("Level {} created ({})", levelNumber, game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_CREATED);
-                if (levelNumber == 1) {
-                    game.clearLevelCounter();
-                }
-                game.incrementLevelCounter(level.bonusSymbol(0));
-                // At this point, the animations of Pac-Man and the ghosts must have been created!
-                level.letsGetReadyToRumble(false);
-                Logger.info("Level {} started ({})", levelNumber, game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_STARTED);
             }
+            case PACMAN -> game.incrementLevelCounter(level.bonusSymbol(0));
         }
+        // At this point, the animations of Pac-Man and the ghosts must have been created!
+        level.letsGetReadyToRumble(false);
+        Logger.info("Level {} started ({})", levelNumber, game.variant());
+        publishGameEvent(game, GameEventType.LEVEL_STARTED);
     }
 
     /**
@@ -169,32 +299,13 @@ public class GameController extends Fsm<GameState, GameModel> {
      * does not behave as in the Arcade game but hunts the ghosts using some goal-driven algorithm.
      */
     public void createAndStartDemoLevel() {
-        switch (game.variant()) {
-            case MS_PACMAN -> {
-                GameLevel level = new GameLevel(1, GameModel.levelData(1), game,
-                    createMsPacManWorld(1),  true);
-                level.pac().setAutopilot(new RuleBasedPacSteering(level));
-                level.pac().setUseAutopilot(true);
-                game.setLevel(level);
-                Logger.info("Demo level created ({})", game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_CREATED);
-                // At this point, the animations of Pac-Man and the ghosts must have been created!
-                level.letsGetReadyToRumble(true);
-                Logger.info("Demo Level started ({})", game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_STARTED);
-            }
-            case PACMAN -> {
-                GameLevel level = new GameLevel(1, GameModel.levelData(1), game, createPacManWorld(),true);
-                level.pac().setAutopilot(new RouteBasedSteering(List.of(ArcadeWorld.PACMAN_DEMO_LEVEL_ROUTE)));
-                level.pac().setUseAutopilot(true);
-                game.setLevel(level);
-                Logger.info("Demo level created ({})", game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_CREATED);
-                // At this point, the animations of Pac-Man and the ghosts must have been created!
-                level.letsGetReadyToRumble(true);
-                Logger.info("Demo Level started ({})", game.variant());
-                publishGameEvent(game, GameEventType.LEVEL_STARTED);
-            }
-        }
+        var level = createLevel(1, true);
+        game.setLevel(level);
+        Logger.info("Demo level created ({})", game.variant());
+        publishGameEvent(game, GameEventType.LEVEL_CREATED);
+        // At this point, the animations of Pac-Man and the ghosts must have been created!
+        level.letsGetReadyToRumble(true);
+        Logger.info("Demo Level started ({})", game.variant());
+        publishGameEvent(game, GameEventType.LEVEL_STARTED);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,253 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.actors.*;
+import de.amr.games.pacman.model.world.World;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable picture of the visible game state at the end of a simulation tick: positions, states and selected
+ * animations of Pac-Man, the ghosts and the bonus plus the eaten food and the level counter.
+ * <p>
+ * Snapshots are taken by the {@link SimulationThread} and read by the renderer on another thread. As a snapshot never
+ * changes after construction, publishing it through a volatile reference is all the synchronization needed.
+ * <p>
+ * Only the 2D play scene is drawn from snapshots. The 3D play scene still reads the live game model while holding the
+ * simulation lock.
+ *
+ * @author Armin Reichert
+ */
+public final class GameSnapshot {
+
+    /**
+     * @param name           creature name
+     * @param x              x position (left-upper corner of bounding box)
+     * @param y              y position (left-upper corner of bounding box)
+     * @param moveDir        move direction
+     * @param wishDir        wish direction
+     * @param visible        if the creature is visible
+     * @param ghostState     ghost state, <code>null</code> for Pac-Man
+     * @param animation      name of the selected animation (may be <code>null</code>)
+     * @param animationIndex index passed with the animation selection
+     */
+    public record CreatureSnapshot(String name, float x, float y, Direction moveDir, Direction wishDir,
+                                   boolean visible, GhostState ghostState, String animation, int animationIndex) {
+
+        static CreatureSnapshot of(Pac pac) {
+            return new CreatureSnapshot(pac.name(), pac.posX(), pac.posY(), pac.moveDir(), pac.wishDir(),
+                pac.isVisible(), null, pac.selectedAnimation(), pac.selectedAnimationIndex());
+        }
+
+        static CreatureSnapshot of(Ghost ghost) {
+            return new CreatureSnapshot(ghost.name(), ghost.posX(), ghost.posY(), ghost.moveDir(), ghost.wishDir(),
+                ghost.isVisible(), ghost.state(), ghost.selectedAnimation(), ghost.selectedAnimationIndex());
+        }
+    }
+
+    /**
+     * @param symbol      bonus symbol
+     * @param state       bonus state, one of the <code>Bonus.STATE_</code> constants
+     * @param x           x position
+     * @param y           y position
+     * @param visible     if the bonus is visible
+     * @param elongationY vertical offset of a jumping (moving) bonus
+     */
+    public record BonusSnapshot(byte symbol, byte state, float x, float y, boolean visible, float elongationY) {
+
+        static BonusSnapshot of(Bonus bonus) {
+            var entity = bonus.entity();
+            float elongationY = bonus instanceof MovingBonus movingBonus ? movingBonus.elongationY() : 0;
+            return new BonusSnapshot(bonus.symbol(), bonus.state(), entity.posX(), entity.posY(), entity.isVisible(),
+                elongationY);
+        }
+    }
+
+    private static final long[] NO_BITS = new long[0];
+
+    /**
+     * Takes a snapshot of the current game state. Must be called by the thread running the simulation.
+     *
+     * @param gameController game controller
+     * @param tick           number of the simulation tick
+     * @return new snapshot
+     */
+    public static GameSnapshot take(GameController gameController, long tick) {
+        var game = gameController.game();
+        return new GameSnapshot(tick, gameController.state(), game.score().points(), game.lives(),
+            gameController.credit(), List.copyOf(game.levelCounter()), game.level().orElse(null));
+    }
+
+    private final long tick;
+    private final GameState state;
+    private final int score;
+    private final int lives;
+    private final int credit;
+    private final List<Byte> levelCounter;
+    private final int levelNumber;
+    private final boolean demoLevel;
+    private final CreatureSnapshot pac;
+    private final List<CreatureSnapshot> ghosts;
+    private final BonusSnapshot bonus;
+    private final long[] eatenFood;
+    private final boolean mazeFlashing;
+    private final boolean mazeFlashingOn;
+    private final boolean energizersOn;
+
+    private GameSnapshot(long tick, GameState state, int score, int lives, int credit, List<Byte> levelCounter,
+                         GameLevel level) {
+        this.tick = tick;
+        this.state = state;
+        this.score = score;
+        this.lives = lives;
+        this.credit = credit;
+        this.levelCounter = levelCounter;
+        if (level != null) {
+            World world = level.world();
+            levelNumber = level.number();
+            demoLevel = level.isDemoLevel();
+            pac = CreatureSnapshot.of(level.pac());
+            ghosts = level.ghosts().map(CreatureSnapshot::of).toList();
+            bonus = level.bonus().map(BonusSnapshot::of).orElse(null);
+            eatenFood = world.eatenFoodBits();
+            mazeFlashing = world.mazeFlashing().isRunning();
+            mazeFlashingOn = world.mazeFlashing().on();
+            energizersOn = world.energizerBlinking().on();
+        } else {
+            levelNumber = 0;
+            demoLevel = false;
+            pac = null;
+            ghosts = List.of();
+            bonus = null;
+            eatenFood = NO_BITS;
+            mazeFlashing = false;
+            mazeFlashingOn = false;
+            energizersOn = false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GameSnapshot{" +
+            "tick=" + tick +
+            ", state=" + state +
+            ", levelNumber=" + levelNumber +
+            ", score=" + score +
+            ", lives=" + lives +
+            '}';
+    }
+
+    /**
+     * @return number of the simulation tick after which this snapshot has been taken
+     */
+    public long tick() {
+        return tick;
+    }
+
+    public GameState state() {
+        return state;
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int lives() {
+        return lives;
+    }
+
+    public int credit() {
+        return credit;
+    }
+
+    /**
+     * @return bonus symbols shown in the level counter, the symbol of the current level last
+     */
+    public List<Byte> levelCounter() {
+        return levelCounter;
+    }
+
+    /**
+     * @return if a game level existed when the snapshot was taken
+     */
+    public boolean hasLevel() {
+        return levelNumber > 0;
+    }
+
+    /**
+     * @return number of the game level or 0 if there was no level
+     */
+    public int levelNumber() {
+        return levelNumber;
+    }
+
+    public boolean isDemoLevel() {
+        return demoLevel;
+    }
+
+    /**
+     * @return Pac-Man or <code>null</code> if there was no level
+     */
+    public CreatureSnapshot pac() {
+        return pac;
+    }
+
+    /**
+     * @return ghosts ordered by ID, empty if there was no level
+     */
+    public List<CreatureSnapshot> ghosts() {
+        return ghosts;
+    }
+
+    public Optional<BonusSnapshot> bonus() {
+        return Optional.ofNullable(bonus);
+    }
+
+    /**
+     * @param tileIndex tile index (see {@link World#index(int, int)})
+     * @return if the food at this tile had been eaten
+     */
+    public boolean isFoodEaten(int tileIndex) {
+        int word = tileIndex >> 6;
+        return word < eatenFood.length && (eatenFood[word] & (1L << tileIndex)) != 0;
+    }
+
+    /**
+     * Iterates over the eaten food like {@link World#nextEatenFood(int)}.
+     *
+     * @param fromIndex tile index where the search starts (inclusive)
+     * @return index of the first tile with eaten food at or after the given index or {@link World#NO_TILE}
+     */
+    public int nextEatenFood(int fromIndex) {
+        int word = fromIndex >> 6;
+        if (word >= eatenFood.length) {
+            return World.NO_TILE;
+        }
+        long bits = eatenFood[word] & (-1L << fromIndex);
+        while (bits == 0) {
+            if (++word == eatenFood.length) {
+                return World.NO_TILE;
+            }
+            bits = eatenFood[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    public boolean isMazeFlashing() {
+        return mazeFlashing;
+    }
+
+    public boolean isMazeFlashingOn() {
+        return mazeFlashingOn;
+    }
+
+    public boolean isEnergizersOn() {
+        return energizersOn;
+    }
+}
@@ -7,15 +7,10 @@ package de.amr.games.pacman.controller;
 import de.amr.games.pacman.event.GameEvent;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.FsmState;
-import de.amr.games.pacman.lib.TickTimer;
 import de.amr.games.pacman.model.GameLevel;
-import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.actors.*;
 import org.tinylog.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
 
 /**
@@ -26,54 +21,57 @@ import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
  *
  * @author Armin Reichert
  */
-public enum GameState implements FsmState<GameModel> {
+public enum GameState implements FsmState<GameController> {
 
     BOOT { // "Das muss das Boot abkönnen!"
         @Override
-        public void onEnter(GameModel game) {
-            timer.restartIndefinitely();
+        public void onEnter(GameController gameController) {
+            var game = gameController.game();
+            gameController.timer().restartIndefinitely();
             game.clearLevelCounter();
             game.score().reset();
             game.loadHighScore();
         }
 
         @Override
-        public void onUpdate(GameModel game) {
-            if (timer.hasExpired()) {
-                gameController().changeState(INTRO);
+        public void onUpdate(GameController gameController) {
+            if (gameController.timer().hasExpired()) {
+                gameController.changeState(INTRO);
             }
         }
     },
 
     INTRO {
         @Override
-        public void onEnter(GameModel game) {
-            timer.restartIndefinitely();
-            gameController().setPlaying(false);
+        public void onEnter(GameController gameController) {
+            var game = gameController.game();
+            gameController.timer().restartIndefinitely();
+            gameController.setPlaying(false);
             game.setLevel(null);
         }
 
         @Override
-        public void onUpdate(GameModel game) {
-            if (timer.hasExpired()) {
-                gameController().changeState(READY);
+        public void onUpdate(GameController gameController) {
+            if (gameController.timer().hasExpired()) {
+                gameController.changeState(READY);
             }
         }
     },
 
     CREDIT {
         @Override
-        public void onUpdate(GameModel game) {}
+        public void onUpdate(GameController gameController) {}
     },
 
     READY {
         @Override
-        public void onEnter(GameModel game) {
-            if (gameController().isPlaying()) {
+        public void onEnter(GameController gameController) {
+            var game = gameController.game();
+            if (gameController.isPlaying()) {
                 // resume running game
                 game.level().ifPresent(level -> level.letsGetReadyToRumble(true));
             }
-            else if (gameController().hasCredit()) {
+            else if (gameController.hasCredit()) {
                 // prepare new game
                 game.reset();
                 game.score().reset();
@@ -86,40 +84,41 @@ public enum GameState implements FsmState<GameModel> {
         }
 
         @Override
-        public void onUpdate(GameModel game) {
-            if (gameController().isPlaying()) {
+        public void onUpdate(GameController gameController) {
+            var game = gameController.game();
+            if (gameController.isPlaying()) {
                 // resume running game
-                if (timer.tick() == 90) {
+                if (gameController.timer().tick() == 90) {
                     game.level().ifPresent(level -> {
                         level.guys().forEach(Creature::show);
                         level.startHuntingPhase(0);
-                        gameController().changeState(GameState.HUNTING);
+                        gameController.changeState(GameState.HUNTING);
                     });
                 }
             }
-            else if (gameController().hasCredit()) {
+            else if (gameController.hasCredit()) {
                 // start new game
-                if (timer.tick() == 1) {
-                    gameController().createAndStartLevel(1);
-                    Logger.trace("Timer tick == 1, create level 1: {}", timer);
-                } else if (timer.tick() == 120) {
+                if (gameController.timer().tick() == 1) {
+                    gameController.createAndStartLevel(1);
+                    Logger.trace("Timer tick == 1, create level 1: {}", gameController.timer());
+                } else if (gameController.timer().tick() == 120) {
                     game.level().ifPresent(level -> level.guys().forEach(Creature::show));
-                } else if (timer.tick() == 260) {
+                } else if (gameController.timer().tick() == 260) {
                     game.level().ifPresent(level -> {
-                        gameController().setPlaying(true);
+                        gameController.setPlaying(true);
                         level.startHuntingPhase(0);
-                        gameController().changeState(GameState.HUNTING);
+                        gameController.changeState(GameState.HUNTING);
                     });
                 }
             }
             else {
                 // start demo level
-                if (timer.tick() == 1) {
-                    gameController().createAndStartDemoLevel();
-                } else if (timer.tick() == 120) {
+                if (gameController.timer().tick() == 1) {
+                    gameController.createAndStartDemoLevel();
+                } else if (gameController.timer().tick() == 120) {
                     game.level().ifPresent(level -> {
                         level.startHuntingPhase(0);
-                        gameController().changeState(GameState.HUNTING);
+                        gameController.changeState(GameState.HUNTING);
                     });
                 }
             }
@@ -128,7 +127,8 @@ public enum GameState implements FsmState<GameModel> {
 
     HUNTING {
         @Override
-        public void onEnter(GameModel game) {
+        public void onEnter(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
                 level.pac().startAnimation();
                 level.ghosts().forEach(Ghost::startAnimation);
@@ -138,13 +138,14 @@ public enum GameState implements FsmState<GameModel> {
         }
 
         @Override
-        public void onUpdate(GameModel game) {
+        public void onUpdate(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
                 level.world().energizerBlinking().tick();
                 GameState nextState = level.doHuntingStep();
                 level.eventLog().report();
                 if (nextState != GameState.HUNTING) {
-                    gameController().changeState(nextState);
+                    gameController.changeState(nextState);
                 }
             });
         }
@@ -152,9 +153,10 @@ public enum GameState implements FsmState<GameModel> {
 
     LEVEL_COMPLETE {
         @Override
-        public void onEnter(GameModel game) {
+        public void onEnter(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
-                timer.restartSeconds(4);
+                gameController.timer().restartSeconds(4);
                 level.pac().freeze();
                 level.ghosts().forEach(Ghost::hide);
                 level.bonus().ifPresent(Bonus::setInactive);
@@ -165,21 +167,22 @@ public enum GameState implements FsmState<GameModel> {
         }
 
         @Override
-        public void onUpdate(GameModel game) {
+        public void onUpdate(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
-                if (timer.hasExpired()) {
-                    if (!gameController().hasCredit()) { // from demo level back to intro scene
-                        gameController().changeState(INTRO);
+                if (gameController.timer().hasExpired()) {
+                    if (!gameController.hasCredit()) { // from demo level back to intro scene
+                        gameController.changeState(INTRO);
                     } else if (level.data().intermissionNumber() > 0) {
-                        gameController().changeState(INTERMISSION); // play intermission scene
+                        gameController.changeState(INTERMISSION); // play intermission scene
                     } else {
-                        gameController().changeState(CHANGING_TO_NEXT_LEVEL); // next level
+                        gameController.changeState(CHANGING_TO_NEXT_LEVEL); // next level
                     }
                 } else {
                     level.pac().stopAnimation();
                     level.pac().resetAnimation();
                     var flashing = level.world().mazeFlashing();
-                    if (timer.atSecond(1)) {
+                    if (gameController.timer().atSecond(1)) {
                         flashing.restart(2 * level.data().numFlashes());
                     } else {
                         flashing.tick();
@@ -192,24 +195,25 @@ public enum GameState implements FsmState<GameModel> {
 
     CHANGING_TO_NEXT_LEVEL {
         @Override
-        public void onEnter(GameModel game) {
-            timer.restartSeconds(1);
-            game.level().ifPresent(level -> gameController().createAndStartLevel(level.number() + 1));
+        public void onEnter(GameController gameController) {
+            gameController.timer().restartSeconds(1);
+            gameController.game().level().ifPresent(level -> gameController.createAndStartLevel(level.number() + 1));
         }
 
         @Override
-        public void onUpdate(GameModel game) {
-            if (timer.hasExpired()) {
-                gameController().changeState(READY);
+        public void onUpdate(GameController gameController) {
+            if (gameController.timer().hasExpired()) {
+                gameController.changeState(READY);
             }
         }
     },
 
     GHOST_DYING {
         @Override
-        public void onEnter(GameModel game) {
+        public void onEnter(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
-                timer.restartSeconds(1);
+                gameController.timer().restartSeconds(1);
                 level.pac().hide();
                 level.ghosts().forEach(Ghost::stopAnimation);
                 publishGameEvent(game, GameEventType.GHOST_EATEN);
@@ -217,10 +221,11 @@ public enum GameState implements FsmState<GameModel> {
         }
 
         @Override
-        public void onUpdate(GameModel game) {
+        public void onUpdate(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
-                if (timer.hasExpired()) {
-                    gameController().resumePreviousState();
+                if (gameController.timer().hasExpired()) {
+                    gameController.resumePreviousState();
                 } else {
                     level.ghosts(GhostState.EATEN, GhostState.RETURNING_TO_HOUSE, GhostState.ENTERING_HOUSE)
                         .forEach(ghost -> ghost.update(level.pac()));
@@ -230,7 +235,8 @@ public enum GameState implements FsmState<GameModel> {
         }
 
         @Override
-        public void onExit(GameModel game) {
+        public void onExit(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
                 level.pac().show();
                 level.ghosts(GhostState.EATEN).forEach(ghost -> ghost.setState(GhostState.RETURNING_TO_HOUSE));
@@ -241,145 +247,130 @@ public enum GameState implements FsmState<GameModel> {
 
     PACMAN_DYING {
         @Override
-        public void onEnter(GameModel game) {
-            timer.restartSeconds(4);
-            game.level().ifPresent(GameLevel::letPacDie);
+        public void onEnter(GameController gameController) {
+            gameController.timer().restartSeconds(4);
+            gameController.game().level().ifPresent(GameLevel::letPacDie);
         }
 
         @Override
-        public void onUpdate(GameModel game) {
+        public void onUpdate(GameController gameController) {
+            var game = gameController.game();
             game.level().ifPresent(level -> {
                 level.world().energizerBlinking().tick();
                 level.pac().update(level);
-                if (timer.atSecond(1)) {
+                if (gameController.timer().atSecond(1)) {
                     level.ghosts().forEach(Ghost::hide);
                     level.pac().selectAnimation(Pac.ANIM_DYING);
                     level.pac().resetAnimation();
-                } else if (timer.atSecond(1.4)) {
+                } else if (gameController.timer().atSecond(1.4)) {
                     level.pac().startAnimation();
                     publishGameEvent(game, GameEventType.PAC_DIED);
-                } else if (timer.atSecond(3.0)) {
+                } else if (gameController.timer().atSecond(3.0)) {
                     level.pac().hide();
                     game.loseLife();
-                } else if (timer.hasExpired()) {
-                    if (!gameController().hasCredit()) { // end of demo level
-                        gameController().changeState(INTRO);
+                } else if (gameController.timer().hasExpired()) {
+                    if (!gameController.hasCredit()) { // end of demo level
+                        gameController.changeState(INTRO);
                     } else {
-                        gameController().changeState(game.lives() == 0 ? GAME_OVER : READY);
+                        gameController.changeState(game.lives() == 0 ? GAME_OVER : READY);
                     }
                 }
             });
         }
 
         @Override
-        public void onExit(GameModel context) {
-            context.level().flatMap(GameLevel::bonus).ifPresent(Bonus::setInactive);
+        public void onExit(GameController gameController) {
+            gameController.game().level().flatMap(GameLevel::bonus).ifPresent(Bonus::setInactive);
         }
     },
 
     GAME_OVER {
         @Override
-        public void onEnter(GameModel game) {
-            timer.restartSeconds(1.25); //TODO not sure about exact duration
+        public void onEnter(GameController gameController) {
+            var game = gameController.game();
+            gameController.timer().restartSeconds(1.25); //TODO not sure about exact duration
             game.updateHighScore();
-            gameController().changeCredit(-1);
+            gameController.changeCredit(-1);
         }
 
         @Override
-        public void onUpdate(GameModel game) {
-            if (timer.hasExpired()) {
-                gameController().changeState(gameController().hasCredit() ? CREDIT : INTRO);
+        public void onUpdate(GameController gameController) {
+            if (gameController.timer().hasExpired()) {
+                gameController.changeState(gameController.hasCredit() ? CREDIT : INTRO);
             }
         }
 
         @Override
-        public void onExit(GameModel game) {
-            gameController().setPlaying(false);
-            game.setLevel(null);
+        public void onExit(GameController gameController) {
+            gameController.setPlaying(false);
+            gameController.game().setLevel(null);
         }
     },
 
     INTERMISSION {
         @Override
-        public void onEnter(GameModel game) {
-            timer.restartIndefinitely();
+        public void onEnter(GameController gameController) {
+            gameController.timer().restartIndefinitely();
         }
 
         @Override
-        public void onUpdate(GameModel game) {
-            if (timer.hasExpired()) {
-                gameController().changeState(
-                    gameController().hasCredit() && gameController().isPlaying() ? CHANGING_TO_NEXT_LEVEL : INTRO);
+        public void onUpdate(GameController gameController) {
+            if (gameController.timer().hasExpired()) {
+                gameController.changeState(
+                    gameController.hasCredit() && gameController.isPlaying() ? CHANGING_TO_NEXT_LEVEL : INTRO);
             }
         }
     },
 
     LEVEL_TEST {
-        private int lastTestedLevel;
+        @Override
+        public void onEnter(GameController gameController) {
+            gameController.timer().restartIndefinitely();
+            gameController.game().reset();
+            gameController.createAndStartLevel(1);
+        }
 
         @Override
-        public void onEnter(GameModel game) {
-            lastTestedLevel = switch (game.variant()) {
+        public void onUpdate(GameController gameController) {
+            var game = gameController.game();
+            int lastTestedLevel = switch (game.variant()) {
                 case MS_PACMAN -> 18;
                 case PACMAN -> 20;
             };
-            timer.restartIndefinitely();
-            game.reset();
-            gameController().createAndStartLevel(1);
-        }
-
-        @Override
-        public void onUpdate(GameModel game) {
-            game.level().ifPresent(level -> level.doLevelTestStep(timer, lastTestedLevel));
+            game.level().ifPresent(level -> {
+                if (level.number() > lastTestedLevel) {
+                    gameController.restart(BOOT);
+                } else if (level.doLevelTestStep(gameController.timer())) {
+                    gameController.createAndStartLevel(level.number() + 1);
+                }
+            });
         }
 
         @Override
-        public void onExit(GameModel game) {
-            game.clearLevelCounter();
+        public void onExit(GameController gameController) {
+            gameController.game().clearLevelCounter();
         }
     },
 
     INTERMISSION_TEST {
         @Override
-        public void onEnter(GameModel game) {
-            timer.restartIndefinitely();
-            setProperty("intermissionTestNumber", 1);
+        public void onEnter(GameController gameController) {
+            gameController.timer().restartIndefinitely();
+            gameController.setIntermissionTestNumber(1);
         }
 
         @Override
-        public void onUpdate(GameModel game) {
-            if (timer.hasExpired()) {
-                int number = this.<Integer>getProperty("intermissionTestNumber");
+        public void onUpdate(GameController gameController) {
+            if (gameController.timer().hasExpired()) {
+                int number = gameController.intermissionTestNumber();
                 if (number < 3) {
-                    setProperty("intermissionTestNumber", number + 1);
-                    timer.restartIndefinitely();
-                    publishGameEvent(game, GameEventType.UNSPECIFIED_CHANGE);
+                    gameController.setIntermissionTestNumber(number + 1);
+                    gameController.timer().restartIndefinitely();
+                    publishGameEvent(gameController.game(), GameEventType.UNSPECIFIED_CHANGE);
                 } else {
-                    gameController().changeState(INTRO);
+                    gameController.changeState(INTRO);
                 }
             }
         }
-    };
-
-    final TickTimer timer = new TickTimer("GameState-Timer-" + name());
-
-    GameController gameController() {
-        return GameController.it();
-    }
-
-    @Override
-    public TickTimer timer() {
-        return timer;
-    }
-
-    private final Map<String, Object> properties = new HashMap<>();
-
-    @SuppressWarnings("unchecked")
-    public <T> T getProperty(String key) {
-        return (T) properties.get(key);
-    }
-
-    public void setProperty(String key, Object value) {
-        properties.put(key, value);
     }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.lib.Steering;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Creature;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Records the inputs of a game session such that it can be replayed, see {@link InputRecording}.
+ * <p>
+ * Usage: create the recorder (this saves the current game state), set it by
+ * {@link GameController#setInputRecorder(InputRecorder)} and wrap Pac-Man's manual steering by
+ * {@link #recordingSteering(Steering)}. All actions must be executed by {@link GameController#execute(GameAction, int)}.
+ * At the end, remove the recorder from the game controller and call {@link #finish()}.
+ * <p>
+ * The recording stores Pac-Man's autopilot, so it must be set by {@link GameController#setAutopilot(AutopilotSpec)} and
+ * not by a custom factory.
+ *
+ * @author Armin Reichert
+ */
+public class InputRecorder {
+
+    public static final int DEFAULT_CHECKSUM_INTERVAL = 60;
+
+    private final GameVariant variant;
+    private final AutopilotSpec autopilot;
+    private final long seed;
+    private final byte[] initialState;
+    private final int checksumInterval;
+    private final List<InputRecording.Action> actions = new ArrayList<>();
+    private byte[] runInputs = new byte[256];
+    private int[] runLengths = new int[256];
+    private int numRuns;
+    private long[] checksums = new long[256];
+    private int numChecksums;
+    private long tick;
+    private byte tickInput = InputRecording.NO_INPUT;
+
+    /**
+     * @param gameController game controller whose current state is the start of the recording
+     * @throws IllegalStateException if Pac-Man's autopilot cannot be recreated identically on replay
+     */
+    public InputRecorder(GameController gameController) {
+        this(gameController, DEFAULT_CHECKSUM_INTERVAL);
+    }
+
+    /**
+     * @param gameController   game controller whose current state is the start of the recording
+     * @param checksumInterval number of ticks between state checksums
+     * @throws IllegalStateException if Pac-Man's autopilot cannot be recreated identically on replay: it is created by a
+     *                               custom factory or it is not reproducible, see {@link AutopilotSpec#isReproducible()}
+     */
+    public InputRecorder(GameController gameController, int checksumInterval) {
+        checkNotNull(gameController);
+        if (checksumInterval < 1) {
+            throw new IllegalArgumentException("Checksum interval must be positive but is " + checksumInterval);
+        }
+        autopilot = gameController.autopilotSpec().orElseThrow(
+            () -> new IllegalStateException("Cannot record a game whose autopilot is created by a custom factory"));
+        if (!autopilot.isReproducible()) {
+            throw new IllegalStateException("Cannot record a game whose autopilot is not reproducible: " + autopilot);
+        }
+        this.checksumInterval = checksumInterval;
+        variant = gameController.game().variant();
+        seed = gameController.game().random().state();
+        var state = SaveGame.encode(gameController);
+        initialState = new byte[state.remaining()];
+        state.get(initialState);
+        Logger.info("Input recording started ({}, seed={})", variant, seed);
+    }
+
+    /**
+     * @return number of ticks recorded so far
+     */
+    public long tick() {
+        return tick;
+    }
+
+    /**
+     * @param steering Pac-Man's manual steering
+     * @return steering which delegates to the given steering and records the wish direction changes
+     */
+    public Steering recordingSteering(Steering steering) {
+        checkNotNull(steering);
+        return new Steering() {
+            @Override
+            public void init() {
+                steering.init();
+            }
+
+            @Override
+            public void steer(Creature creature) {
+                var wishDir = creature.wishDir();
+                steering.steer(creature);
+                if (creature.wishDir() != wishDir) {
+                    tickInput = InputRecording.inputCode(creature.wishDir());
+                }
+            }
+        };
+    }
+
+    void recordAction(GameAction action, int arg) {
+        actions.add(new InputRecording.Action(tick, action, arg));
+    }
+
+    void onTickCompleted(GameController gameController) {
+        if (numRuns > 0 && runInputs[numRuns - 1] == tickInput && runLengths[numRuns - 1] < Integer.MAX_VALUE) {
+            ++runLengths[numRuns - 1];
+        } else {
+            if (numRuns == runInputs.length) {
+                runInputs = Arrays.copyOf(runInputs, 2 * numRuns);
+                runLengths = Arrays.copyOf(runLengths, 2 * numRuns);
+            }
+            runInputs[numRuns] = tickInput;
+            runLengths[numRuns] = 1;
+            ++numRuns;
+        }
+        tickInput = InputRecording.NO_INPUT;
+        ++tick;
+        if (tick % checksumInterval == 0) {
+            if (numChecksums == checksums.length) {
+                checksums = Arrays.copyOf(checksums, 2 * numChecksums);
+            }
+            checksums[numChecksums++] = InputRecording.stateChecksum(gameController);
+        }
+    }
+
+    /**
+     * @return recording of all ticks so far
+     */
+    public InputRecording finish() {
+        Logger.info("Input recording finished after {} ticks", tick);
+        return new InputRecording(variant, autopilot, seed, initialState, tick, Arrays.copyOf(runInputs, numRuns),
+            Arrays.copyOf(runLengths, numRuns), actions, checksumInterval, Arrays.copyOf(checksums, numChecksums));
+    }
+}
@@ -0,0 +1,387 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.StateCodec;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Bonus;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Recorded game session: Pac-Man's autopilot (see {@link AutopilotSpec}), the game state at the start of the recording
+ * (a {@link SaveGame} including variant and state of the random generator), the run-length encoded wish direction
+ * changes of Pac-Man's manual steering per tick, the {@link GameAction}s and state checksums taken every
+ * {@link #checksumInterval()} ticks.
+ * <p>
+ * As the simulation is deterministic, this is all it needs to re-simulate the session, see {@link ReplayPlayer}.
+ *
+ * @author Armin Reichert
+ */
+public final class InputRecording {
+
+    /**
+     * @param tick   number of ticks completed before the action was executed
+     * @param action action
+     * @param arg    argument of the action
+     */
+    public record Action(long tick, GameAction action, int arg) {
+    }
+
+    public static final int MAGIC = 0x50414352; // "PACR"
+    public static final short VERSION = 3;
+
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 4;
+    private static final int MAX_BODY_SIZE = 64 * 1024 * 1024;
+
+    /** Maximum size of a recording in bytes (more than 50 hours of play even with a direction change every tick). */
+    public static final int MAX_SIZE = HEADER_SIZE + MAX_BODY_SIZE;
+
+    /** Steering input of a tick without wish direction change. */
+    public static final byte NO_INPUT = 0;
+
+    /**
+     * @param dir new wish direction or <code>null</code>
+     * @return steering input code
+     */
+    public static byte inputCode(Direction dir) {
+        return dir == null ? NO_INPUT : (byte) (dir.ordinal() + 1);
+    }
+
+    /**
+     * @param code steering input code
+     * @return wish direction or <code>null</code> if the code is {@link #NO_INPUT}
+     */
+    public static Direction inputDirection(byte code) {
+        return code == NO_INPUT ? null : Direction.values()[code - 1];
+    }
+
+    /**
+     * Computes a checksum of the simulation state: game state and timer, score, lives, credit, random generator and the
+     * positions, directions and states of all creatures and the food. Presentation state like selected animations is
+     * not included.
+     *
+     * @param gameController game controller
+     * @return checksum
+     */
+    public static long stateChecksum(GameController gameController) {
+        var game = gameController.game();
+        long h = mix(0, gameController.state() != null ? gameController.state().ordinal() : -1);
+        h = mix(h, gameController.timer().tick());
+        h = mix(h, game.score().points());
+        h = mix(h, game.lives());
+        h = mix(h, gameController.credit());
+        h = mix(h, game.random().state());
+        var level = game.level().orElse(null);
+        if (level != null) {
+            h = mix(h, level.number());
+            var pac = level.pac();
+            h = mix(h, Float.floatToIntBits(pac.posX()));
+            h = mix(h, Float.floatToIntBits(pac.posY()));
+            h = mix(h, pac.moveDir().ordinal());
+            h = mix(h, pac.wishDir().ordinal());
+            for (var ghost : level.ghosts().toList()) {
+                h = mix(h, Float.floatToIntBits(ghost.posX()));
+                h = mix(h, Float.floatToIntBits(ghost.posY()));
+                h = mix(h, ghost.state() != null ? ghost.state().ordinal() : -1);
+            }
+            h = mix(h, level.world().eatenFoodCount());
+            h = mix(h, level.bonus().map(Bonus::state).orElse((byte) -1));
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        return Long.rotateLeft(h ^ value, 27) * 0x9E3779B97F4A7C15L;
+    }
+
+    private final GameVariant variant;
+    private final AutopilotSpec autopilot;
+    private final long seed;
+    private final byte[] initialState;
+    private final long numTicks;
+    private final byte[] runInputs;
+    private final int[] runLengths;
+    private final List<Action> actions;
+    private final int checksumInterval;
+    private final long[] checksums;
+
+    InputRecording(GameVariant variant, AutopilotSpec autopilot, long seed, byte[] initialState, long numTicks,
+                   byte[] runInputs, int[] runLengths, List<Action> actions, int checksumInterval, long[] checksums) {
+        this.variant = variant;
+        this.autopilot = autopilot;
+        this.seed = seed;
+        this.initialState = initialState;
+        this.numTicks = numTicks;
+        this.runInputs = runInputs;
+        this.runLengths = runLengths;
+        this.actions = List.copyOf(actions);
+        this.checksumInterval = checksumInterval;
+        this.checksums = checksums;
+    }
+
+    @Override
+    public String toString() {
+        return "InputRecording{" +
+            "variant=" + variant +
+            ", autopilot=" + autopilot +
+            ", seed=" + seed +
+            ", ticks=" + numTicks +
+            ", runs=" + runInputs.length +
+            ", actions=" + actions.size() +
+            ", checksums=" + checksums.length +
+            '}';
+    }
+
+    public GameVariant variant() {
+        return variant;
+    }
+
+    /**
+     * @return Pac-Man's autopilot during the recording
+     */
+    public AutopilotSpec autopilot() {
+        return autopilot;
+    }
+
+    /**
+     * @return state of the game's random generator at the start of the recording
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * @return saved game (see {@link SaveGame}) at the start of the recording
+     */
+    public ByteBuffer initialState() {
+        return ByteBuffer.wrap(initialState).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return number of recorded ticks
+     */
+    public long numTicks() {
+        return numTicks;
+    }
+
+    /**
+     * @return number of runs of equal steering inputs
+     */
+    public int numRuns() {
+        return runInputs.length;
+    }
+
+    /**
+     * @param run run index
+     * @return steering input code of the run, see {@link #inputDirection(byte)}
+     */
+    public byte runInput(int run) {
+        return runInputs[run];
+    }
+
+    /**
+     * @param run run index
+     * @return number of ticks of the run
+     */
+    public int runLength(int run) {
+        return runLengths[run];
+    }
+
+    /**
+     * @return actions ordered by tick
+     */
+    public List<Action> actions() {
+        return actions;
+    }
+
+    public int checksumInterval() {
+        return checksumInterval;
+    }
+
+    public int numChecksums() {
+        return checksums.length;
+    }
+
+    /**
+     * @param i checksum index
+     * @return state checksum after tick <code>(i + 1) * checksumInterval()</code>
+     */
+    public long checksum(int i) {
+        return checksums[i];
+    }
+
+    // Binary format
+
+    /**
+     * Saves the recording to the given file (created or overwritten).
+     *
+     * @param path file path
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        checkNotNull(path);
+        try (var channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            write(channel);
+        }
+        Logger.info("Recording saved to file '{}': {}", path, this);
+    }
+
+    /**
+     * @param path file path
+     * @return recording read from the given file
+     * @throws IOException if the file cannot be read or does not contain a valid recording
+     */
+    public static InputRecording load(Path path) throws IOException {
+        checkNotNull(path);
+        try (var channel = FileChannel.open(path, READ)) {
+            return read(channel);
+        }
+    }
+
+    /**
+     * Writes the recording: magic, version, body length, CRC32C of the body and the body.
+     *
+     * @param channel output channel
+     * @throws IOException if writing fails or the recording is larger than {@link #MAX_SIZE}
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        checkNotNull(channel);
+        long bodyLength = 1 + autopilot.encodedSize() + 8 + 8 + 4 + initialState.length + 4 + runInputs.length * 5L
+            + 4 + actions.size() * 13L + 4 + 4 + checksums.length * 8L;
+        if (bodyLength > MAX_BODY_SIZE) {
+            throw new IOException("Input recording is too large: %d bytes".formatted(HEADER_SIZE + bodyLength));
+        }
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + (int) bodyLength);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt((int) bodyLength);
+        buffer.putInt(0); // CRC, see below
+        StateCodec.putEnum(buffer, variant);
+        autopilot.write(buffer);
+        buffer.putLong(seed);
+        buffer.putLong(numTicks);
+        buffer.putInt(initialState.length);
+        buffer.put(initialState);
+        buffer.putInt(runInputs.length);
+        for (int run = 0; run < runInputs.length; ++run) {
+            buffer.put(runInputs[run]);
+            buffer.putInt(runLengths[run]);
+        }
+        buffer.putInt(actions.size());
+        for (var action : actions) {
+            buffer.putLong(action.tick());
+            StateCodec.putEnum(buffer, action.action());
+            buffer.putInt(action.arg());
+        }
+        buffer.putInt(checksumInterval);
+        buffer.putInt(checksums.length);
+        for (long checksum : checksums) {
+            buffer.putLong(checksum);
+        }
+        var crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_SIZE, (int) bodyLength));
+        buffer.putInt(10, (int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param channel input channel
+     * @return recording read from the channel
+     * @throws IOException if reading fails or the data are not a valid recording
+     */
+    public static InputRecording read(ReadableByteChannel channel) throws IOException {
+        checkNotNull(channel);
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an input recording");
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported input recording version: " + version);
+        }
+        int bodyLength = header.getInt();
+        if (bodyLength < 0 || bodyLength > MAX_BODY_SIZE) {
+            throw new IOException("Illegal body length of input recording: " + bodyLength);
+        }
+        int expectedCRC = header.getInt();
+        var in = ByteBuffer.allocate(bodyLength);
+        readFully(channel, in);
+        in.flip();
+        var crc = new CRC32C();
+        crc.update(in.duplicate());
+        if ((int) crc.getValue() != expectedCRC) {
+            throw new IOException("Input recording is corrupted (checksum mismatch)");
+        }
+        try {
+            var variant = StateCodec.getEnum(in, GameVariant.values());
+            var autopilot = AutopilotSpec.read(in);
+            long seed = in.getLong();
+            long numTicks = in.getLong();
+            if (numTicks < 0) {
+                throw new IOException("Illegal number of ticks in input recording: " + numTicks);
+            }
+            var initialState = new byte[checkCount(in.getInt(), in.remaining())];
+            in.get(initialState);
+            int numRuns = checkCount(in.getInt(), in.remaining() / 5);
+            var runInputs = new byte[numRuns];
+            var runLengths = new int[numRuns];
+            for (int run = 0; run < numRuns; ++run) {
+                runInputs[run] = in.get();
+                runLengths[run] = in.getInt();
+            }
+            int numActions = checkCount(in.getInt(), in.remaining() / 13);
+            var actions = new Action[numActions];
+            for (int i = 0; i < numActions; ++i) {
+                actions[i] = new Action(in.getLong(), StateCodec.getEnum(in, GameAction.values()), in.getInt());
+            }
+            int checksumInterval = in.getInt();
+            if (checksumInterval <= 0) {
+                throw new IOException("Illegal checksum interval in input recording: " + checksumInterval);
+            }
+            var checksums = new long[checkCount(in.getInt(), in.remaining() / 8)];
+            for (int i = 0; i < checksums.length; ++i) {
+                checksums[i] = in.getLong();
+            }
+            return new InputRecording(variant, autopilot, seed, initialState, numTicks, runInputs, runLengths,
+                List.of(actions), checksumInterval, checksums);
+        } catch (BufferUnderflowException | IllegalArgumentException | NullPointerException x) {
+            throw new IOException("Input recording is invalid", x);
+        }
+    }
+
+    private static int checkCount(int count, int max) {
+        if (count < 0 || count > max) {
+            throw new IllegalArgumentException("Illegal count: " + count);
+        }
+        return count;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new IOException("Input recording is truncated");
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@ import de.amr.games.pacman.model.actors.Pac;
 
 import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
 import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
 
 /**
  * Intermission scene 1: "They meet".
@@ -47,6 +48,7 @@ public class MsPacManIntermission1 {
     public final Ghost inky;
     public final Entity heart;
 
+    private final GameController gameController;
     private byte state;
     private final TickTimer stateTimer = new TickTimer("MsPacManIntermission1");
 
@@ -56,7 +58,9 @@ public class MsPacManIntermission1 {
         stateTimer.start();
     }
 
-    public MsPacManIntermission1() {
+    public MsPacManIntermission1(GameController gameController) {
+        checkNotNull(gameController);
+        this.gameController = gameController;
         pacMan = new Pac("Pac-Man");
         inky = new Ghost(GameModel.CYAN_GHOST, "Inky");
         msPac = new Pac("Ms. Pac-Man");
@@ -77,7 +81,7 @@ public class MsPacManIntermission1 {
                 break;
             case STATE_IN_HEAVEN:
                 if (stateTimer.hasExpired()) {
-                    GameController.it().terminateCurrentState();
+                    gameController.execute(GameAction.TERMINATE_STATE);
                     return;
                 }
                 break;
@@ -89,7 +93,7 @@ public class MsPacManIntermission1 {
 
     private void updateStateFlap() {
         if (stateTimer.atSecond(1)) {
-            publishGameEvent(GameController.it().game(), GameEventType.INTERMISSION_STARTED);
+            publishGameEvent(gameController.game(), GameEventType.INTERMISSION_STARTED);
         } else if (stateTimer.hasExpired()) {
             enterStateChasedByGhosts();
         }
@@ -11,6 +11,7 @@ import de.amr.games.pacman.model.actors.Pac;
 
 import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
 import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
 
 /**
  * Intermission scene 2: "The chase".
@@ -32,6 +33,7 @@ public class MsPacManIntermission2 {
     public final Pac pacMan;
     public final Pac msPac;
 
+    private final GameController gameController;
     private byte state;
     private final TickTimer stateTimer = new TickTimer("MsPacManIntermission2");
 
@@ -41,7 +43,9 @@ public class MsPacManIntermission2 {
         stateTimer.start();
     }
 
-    public MsPacManIntermission2() {
+    public MsPacManIntermission2(GameController gameController) {
+        checkNotNull(gameController);
+        this.gameController = gameController;
         pacMan = new Pac("Pac-Man");
         msPac = new Pac("Ms. Pac-Man");
     }
@@ -63,7 +67,7 @@ public class MsPacManIntermission2 {
 
     private void updateStateFlap() {
         if (stateTimer.hasExpired()) {
-            publishGameEvent(GameController.it().game(), GameEventType.INTERMISSION_STARTED);
+            publishGameEvent(gameController.game(), GameEventType.INTERMISSION_STARTED);
             enterStateChasing();
         }
     }
@@ -118,7 +122,7 @@ public class MsPacManIntermission2 {
             msPac.setMoveDir(Direction.RIGHT);
             msPac.setSpeed(4.0f);
         } else if (stateTimer.atSecond(23)) {
-            GameController.it().terminateCurrentState();
+            gameController.execute(GameAction.TERMINATE_STATE);
             return;
         }
         pacMan.move();
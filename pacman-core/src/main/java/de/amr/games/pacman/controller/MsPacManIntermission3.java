@@ -13,6 +13,7 @@ import de.amr.games.pacman.model.actors.Pac;
 
 import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
 import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
 
 /**
  * Intermission scene 3: "Junior".
@@ -40,6 +41,7 @@ public class MsPacManIntermission3 {
     public boolean bagOpen;
     public int numBagBounces;
 
+    private final GameController gameController;
     private byte state;
     private final TickTimer stateTimer = new TickTimer("MsPacManIntermission3");
 
@@ -49,7 +51,9 @@ public class MsPacManIntermission3 {
         stateTimer.start();
     }
 
-    public MsPacManIntermission3() {
+    public MsPacManIntermission3(GameController gameController) {
+        checkNotNull(gameController);
+        this.gameController = gameController;
         pacMan = new Pac("Pac-Man");
         msPacMan = new Pac("Ms. Pac-Man");
         stork = new Entity();
@@ -75,7 +79,7 @@ public class MsPacManIntermission3 {
 
     private void updateStateFlap() {
         if (stateTimer.atSecond(1)) {
-            publishGameEvent(GameController.it().game(), GameEventType.INTERMISSION_STARTED);
+            publishGameEvent(gameController.game(), GameEventType.INTERMISSION_STARTED);
         } else if (stateTimer.atSecond(3)) {
             enterStateDeliverJunior();
         }
@@ -133,7 +137,7 @@ public class MsPacManIntermission3 {
     private void updateStateStorkLeavesScene() {
         stork.move();
         if (stateTimer.hasExpired()) {
-            GameController.it().terminateCurrentState();
+            gameController.execute(GameAction.TERMINATE_STATE);
         }
     }
 }
\ No newline at end of file
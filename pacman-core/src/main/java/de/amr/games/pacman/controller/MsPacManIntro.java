@@ -87,7 +87,7 @@ public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro> {
             @Override
             public void onUpdate(MsPacManIntro intro) {
                 intro.marqueeTimer.advance();
-                if (timer.atSecond(1)) {
+                if (intro.timer().atSecond(1)) {
                     intro.changeState(State.GHOSTS_MARCHING_IN);
                 }
             }
@@ -151,29 +151,22 @@ public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro> {
             @Override
             public void onUpdate(MsPacManIntro intro) {
                 intro.marqueeTimer.advance();
-                if (timer.atSecond(2.0) && !gameController().hasCredit()) {
-                    gameController().changeState(GameState.READY);
+                if (intro.timer().atSecond(2.0) && !intro.gameController.hasCredit()) {
+                    intro.gameController.changeState(GameState.READY);
                     // go into demo mode
-                } else if (timer.atSecond(5)) {
-                    gameController().changeState(GameState.CREDIT);
+                } else if (intro.timer().atSecond(5)) {
+                    intro.gameController.changeState(GameState.CREDIT);
                 }
             }
         };
-
-        final TickTimer timer = new TickTimer("Timer-" + name());
-
-        @Override
-        public TickTimer timer() {
-            return timer;
-        }
-
-        GameController gameController() {
-            return GameController.it();
-        }
     }
 
-    public MsPacManIntro() {
+    private final GameController gameController;
+
+    public MsPacManIntro(GameController gameController) {
         super(State.values());
+        checkNotNull(gameController);
+        this.gameController = gameController;
     }
 
     @Override
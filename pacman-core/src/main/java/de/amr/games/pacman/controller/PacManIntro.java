@@ -14,6 +14,7 @@ import java.util.stream.Stream;
 
 import static de.amr.games.pacman.lib.Globals.HTS;
 import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
 import static de.amr.games.pacman.model.actors.GhostState.EATEN;
 import static de.amr.games.pacman.model.actors.GhostState.FRIGHTENED;
 
@@ -48,11 +49,11 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
         START {
             @Override
             public void onUpdate(PacManIntro intro) {
-                if (timer.tick() == 2) {
+                if (intro.timer().tick() == 2) {
                     intro.creditVisible = true;
-                } else if (timer.tick() == 3) {
+                } else if (intro.timer().tick() == 3) {
                     intro.titleVisible = true;
-                } else if (timer.atSecond(1)) {
+                } else if (intro.timer().atSecond(1)) {
                     intro.changeState(State.PRESENTING_GHOSTS);
                 }
             }
@@ -61,18 +62,18 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
         PRESENTING_GHOSTS {
             @Override
             public void onUpdate(PacManIntro intro) {
-                if (timer.tick() == 1) {
+                if (intro.timer().tick() == 1) {
                     intro.ghostInfo[intro.ghostIndex].pictureVisible = true;
-                } else if (timer.atSecond(1.0)) {
+                } else if (intro.timer().atSecond(1.0)) {
                     intro.ghostInfo[intro.ghostIndex].characterVisible = true;
-                } else if (timer.atSecond(1.5)) {
+                } else if (intro.timer().atSecond(1.5)) {
                     intro.ghostInfo[intro.ghostIndex].nicknameVisible = true;
-                } else if (timer.atSecond(2.0)) {
+                } else if (intro.timer().atSecond(2.0)) {
                     if (intro.ghostIndex < intro.ghostInfo.length - 1) {
-                        timer.resetIndefinitely();
+                        intro.timer().resetIndefinitely();
                     }
                     intro.ghostIndex += 1;
-                } else if (timer.atSecond(2.5)) {
+                } else if (intro.timer().atSecond(2.5)) {
                     intro.changeState(State.SHOWING_POINTS);
                 }
             }
@@ -86,7 +87,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
 
             @Override
             public void onUpdate(PacManIntro intro) {
-                if (timer.atSecond(1)) {
+                if (intro.timer().atSecond(1)) {
                     intro.changeState(State.CHASING_PAC);
                 }
             }
@@ -95,7 +96,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
         CHASING_PAC {
             @Override
             public void onEnter(PacManIntro intro) {
-                timer.restartIndefinitely();
+                intro.timer().restartIndefinitely();
                 intro.pacMan.setPosition(TS * 36, TS * 20);
                 intro.pacMan.setMoveDir(Direction.LEFT);
                 intro.pacMan.setSpeed(intro.chaseSpeed);
@@ -115,7 +116,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
 
             @Override
             public void onUpdate(PacManIntro intro) {
-                if (timer.atSecond(1)) {
+                if (intro.timer().atSecond(1)) {
                     intro.blinking.start();
                 }
                 // Pac-Man reaches the energizer at the left and turns
@@ -143,8 +144,8 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
         CHASING_GHOSTS {
             @Override
             public void onEnter(PacManIntro intro) {
-                timer.restartIndefinitely();
-                intro.ghostKilledTime = timer.tick();
+                intro.timer().restartIndefinitely();
+                intro.ghostKilledTime = intro.timer().tick();
                 intro.pacMan.setMoveDir(Direction.RIGHT);
                 intro.pacMan.setSpeed(intro.chaseSpeed);
                 intro.pacMan.victims().clear();
@@ -163,7 +164,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
                     .findFirst()
                     .ifPresent(victim -> {
                         intro.pacMan.victims().add(victim);
-                        intro.ghostKilledTime = timer.tick();
+                        intro.ghostKilledTime = intro.timer().tick();
                         intro.pacMan.hide();
                         intro.pacMan.setSpeed(0);
                         intro.ghosts().forEach(ghost -> {
@@ -175,7 +176,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
                     });
 
                 // After 50 ticks, Pac-Man and the surviving ghosts get visible again and move on
-                if (timer.tick() == intro.ghostKilledTime + 50) {
+                if (intro.timer().tick() == intro.ghostKilledTime + 50) {
                     intro.pacMan.show();
                     intro.pacMan.setSpeed(intro.chaseSpeed);
                     intro.ghosts().forEach(ghost -> {
@@ -198,27 +199,16 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
         READY_TO_PLAY {
             @Override
             public void onUpdate(PacManIntro intro) {
-                if (timer.atSecond(0.75)) {
+                if (intro.timer().atSecond(0.75)) {
                     intro.ghostInfo[3].ghost.hide();
-                    if (!gameController().hasCredit()) {
-                        gameController().changeState(GameState.READY);
+                    if (!intro.gameController.hasCredit()) {
+                        intro.gameController.changeState(GameState.READY);
                     }
-                } else if (timer.atSecond(5)) {
-                    gameController().changeState(GameState.CREDIT);
+                } else if (intro.timer().atSecond(5)) {
+                    intro.gameController.changeState(GameState.CREDIT);
                 }
             }
         };
-
-        final TickTimer timer = new TickTimer("Timer-" + name());
-
-        @Override
-        public TickTimer timer() {
-            return timer;
-        }
-
-        GameController gameController() {
-            return GameController.it();
-        }
     }
 
     public float chaseSpeed = 1.1f;
@@ -246,8 +236,12 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro> {
         return Stream.of(ghostInfo).map(info -> info.ghost);
     }
 
-    public PacManIntro() {
+    private final GameController gameController;
+
+    public PacManIntro(GameController gameController) {
         super(State.values());
+        checkNotNull(gameController);
+        this.gameController = gameController;
     }
 
     @Override
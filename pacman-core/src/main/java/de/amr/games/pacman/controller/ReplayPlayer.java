@@ -0,0 +1,131 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.lib.Steering;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.actors.Creature;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Re-simulates an {@link InputRecording} without user interface as fast as possible and verifies the state checksums.
+ * <p>
+ * The game session of the player is independent of all other sessions. The high score file is not touched.
+ *
+ * @author Armin Reichert
+ */
+public class ReplayPlayer implements GameEventListener {
+
+    /**
+     * @param ticks             number of simulated ticks
+     * @param verifiedChecksums number of checksums that matched
+     * @param mismatchTick      tick after which the first checksum did not match or -1
+     * @param nanos             duration of the replay in nanoseconds
+     */
+    public record Result(long ticks, int verifiedChecksums, long mismatchTick, long nanos) {
+
+        public boolean isValid() {
+            return mismatchTick == -1;
+        }
+
+        /**
+         * @return how many times faster than real time the replay ran
+         */
+        public double speedFactor() {
+            return nanos == 0 ? 0 : ticks * 1e9 / GameModel.FPS / nanos;
+        }
+    }
+
+    private final InputRecording recording;
+    private final GameController gameController;
+    private final Steering replaySteering = this::steer;
+    private int run;
+    private int runTicksLeft;
+    private byte tickInput;
+
+    /**
+     * @param recording recording to replay
+     */
+    public ReplayPlayer(InputRecording recording) {
+        checkNotNull(recording);
+        this.recording = recording;
+        gameController = new GameController(recording.variant());
+        gameController.setAutopilot(recording.autopilot());
+        gameController.game().setHighScorePersistent(false);
+        gameController.eventManager().addListener(this, EnumSet.of(GameEventType.LEVEL_CREATED));
+    }
+
+    /**
+     * @return game controller of the replayed session, e.g. for inspecting the state after the replay
+     */
+    public GameController gameController() {
+        return gameController;
+    }
+
+    /**
+     * Replays the recording from its start. Stops at the first checksum mismatch.
+     *
+     * @return replay result
+     * @throws IOException if the initial state of the recording is invalid
+     */
+    public Result play() throws IOException {
+        long start = System.nanoTime();
+        SaveGame.decode(gameController, recording.initialState());
+        gameController.game().setHighScorePersistent(false);
+        var actions = recording.actions();
+        int actionIndex = 0;
+        run = 0;
+        runTicksLeft = recording.numRuns() > 0 ? recording.runLength(0) : 0;
+        int checksumIndex = 0;
+        for (long tick = 0; tick < recording.numTicks(); ++tick) {
+            while (actionIndex < actions.size() && actions.get(actionIndex).tick() == tick) {
+                var action = actions.get(actionIndex++);
+                gameController.execute(action.action(), action.arg());
+            }
+            nextTickInput();
+            gameController.update();
+            if ((tick + 1) % recording.checksumInterval() == 0 && checksumIndex < recording.numChecksums()) {
+                if (InputRecording.stateChecksum(gameController) != recording.checksum(checksumIndex)) {
+                    Logger.error("Replay diverged from recording after tick {}", tick + 1);
+                    return new Result(tick + 1, checksumIndex, tick + 1, System.nanoTime() - start);
+                }
+                ++checksumIndex;
+            }
+        }
+        return new Result(recording.numTicks(), checksumIndex, -1, System.nanoTime() - start);
+    }
+
+    private void nextTickInput() {
+        while (runTicksLeft == 0 && run < recording.numRuns() - 1) {
+            runTicksLeft = recording.runLength(++run);
+        }
+        if (runTicksLeft > 0) {
+            tickInput = recording.runInput(run);
+            --runTicksLeft;
+        } else {
+            tickInput = InputRecording.NO_INPUT;
+        }
+    }
+
+    private void steer(Creature creature) {
+        var dir = InputRecording.inputDirection(tickInput);
+        if (dir != null) {
+            creature.setWishDir(dir);
+        }
+    }
+
+    @Override
+    public void onLevelCreated(GameEvent e) {
+        e.game.level().ifPresent(level -> level.pac().setManualSteering(replaySteering));
+    }
+}
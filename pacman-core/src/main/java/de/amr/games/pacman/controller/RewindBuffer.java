@@ -0,0 +1,347 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.model.GameModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-size history of the game state of the last ticks for stepping back and scrubbing through the game, e.g. in
+ * a debugging or practice session.
+ * <p>
+ * After each tick, the state is encoded as saved game (see {@link SaveGame}) and stored in a ring buffer allocated
+ * off-heap at construction time. Every {@link #keyframeInterval()} ticks (and whenever the size of the saved game
+ * changes) the complete saved game is stored as keyframe, otherwise only the runs of bytes that changed since the
+ * previous tick. A tick typically takes a few dozen bytes, so one minute of gameplay fits into a few hundred kilobytes.
+ * When the buffer is full, the oldest keyframe and its deltas are dropped. Recording a tick does not allocate any
+ * objects.
+ * <p>
+ * Entries are addressed by their position, 0 is the oldest entry, {@link #size()} - 1 the newest one. Restoring an
+ * older entry does not remove the newer ones such that one can scrub back and forth. They are dropped when the next
+ * tick is recorded, i.e. when the game continues from the restored state.
+ * <p>
+ * The buffer is not thread-safe. It is updated by {@link GameController#update()} so it must only be accessed between
+ * simulation ticks.
+ *
+ * @author Armin Reichert
+ */
+public class RewindBuffer {
+
+    public static final int DEFAULT_KEYFRAME_INTERVAL = GameModel.FPS;
+
+    /** Average number of bytes per tick reserved by {@link #ofSeconds(int)}. */
+    public static final int BYTES_PER_TICK = 128;
+
+    /** Minimum number of unchanged bytes that end a run of changed bytes in a delta. */
+    private static final int MIN_GAP = 4;
+
+    /**
+     * @param seconds number of seconds of gameplay the buffer keeps at least
+     * @return rewind buffer with capacity for the given number of seconds
+     */
+    public static RewindBuffer ofSeconds(int seconds) {
+        if (seconds < 1) {
+            throw new IllegalArgumentException("Number of seconds must be positive but is " + seconds);
+        }
+        // one extra keyframe interval as the oldest interval is dropped as a whole
+        int capacityTicks = (seconds + 1) * GameModel.FPS;
+        return new RewindBuffer(capacityTicks, capacityTicks * BYTES_PER_TICK, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    private final int capacityTicks;
+    private final int capacityBytes;
+    private final int keyframeInterval;
+    private final CRC32C crc = new CRC32C();
+
+    // ring of entries: off-heap data and primitive index arrays
+    private final ByteBuffer data;
+    private final long[] entryStart;
+    private final int[] entryLength;
+    private final boolean[] keyframe;
+    private int first;
+    private int size;
+    private int position = -1;
+    private long writePos;
+
+    // saved game at the current position, saved game of the recorded tick and encoded delta
+    private ByteBuffer previous = ByteBuffer.allocate(SaveGame.MAX_SIZE);
+    private ByteBuffer current = ByteBuffer.allocate(SaveGame.MAX_SIZE);
+    private final byte[] delta = new byte[SaveGame.MAX_SIZE + 16];
+    private int previousLength;
+    private int ticksSinceKeyframe;
+
+    /**
+     * @param capacityTicks    maximum number of ticks stored
+     * @param capacityBytes    size of the data buffer in bytes (at least {@link SaveGame#MAX_SIZE})
+     * @param keyframeInterval number of ticks between keyframes
+     */
+    public RewindBuffer(int capacityTicks, int capacityBytes, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be positive but is " + keyframeInterval);
+        }
+        if (capacityTicks <= keyframeInterval) {
+            throw new IllegalArgumentException("Capacity must exceed keyframe interval but is " + capacityTicks);
+        }
+        if (capacityBytes < SaveGame.MAX_SIZE) {
+            throw new IllegalArgumentException("Capacity must be at least %d bytes but is %d"
+                .formatted(SaveGame.MAX_SIZE, capacityBytes));
+        }
+        this.capacityTicks = capacityTicks;
+        this.capacityBytes = capacityBytes;
+        this.keyframeInterval = keyframeInterval;
+        data = ByteBuffer.allocateDirect(capacityBytes);
+        entryStart = new long[capacityTicks];
+        entryLength = new int[capacityTicks];
+        keyframe = new boolean[capacityTicks];
+    }
+
+    @Override
+    public String toString() {
+        return "RewindBuffer{" +
+            "size=" + size +
+            ", position=" + position +
+            ", bytesUsed=" + bytesUsed() +
+            ", capacityTicks=" + capacityTicks +
+            ", capacityBytes=" + capacityBytes +
+            '}';
+    }
+
+    public int capacityTicks() {
+        return capacityTicks;
+    }
+
+    public int capacityBytes() {
+        return capacityBytes;
+    }
+
+    public int keyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * @return number of stored ticks
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return position of the entry the game state corresponds to (the newest entry unless an older entry has been
+     * restored) or -1 if the buffer is empty
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return number of bytes occupied by the stored ticks
+     */
+    public int bytesUsed() {
+        return size == 0 ? 0 : (int) (writePos - entryStart[first]);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+        position = -1;
+        writePos = 0;
+        previousLength = 0;
+        ticksSinceKeyframe = 0;
+    }
+
+    /**
+     * Stores the current state of the game. If an older entry has been restored before, the entries after it are
+     * dropped first.
+     *
+     * @param gameController game controller
+     */
+    public void record(GameController gameController) {
+        if (position < size - 1) {
+            size = position + 1;
+            writePos = entryStart[index(position)] + entryLength[index(position)];
+        }
+        current.clear();
+        SaveGame.encode(gameController, current, crc);
+        int length = current.position();
+        int deltaLength = -1;
+        if (size > 0 && length == previousLength && ticksSinceKeyframe + 1 < keyframeInterval) {
+            deltaLength = encodeDelta(previous.array(), current.array(), length);
+        }
+        if (deltaLength != -1 && append(delta, deltaLength, false)) {
+            ++ticksSinceKeyframe;
+        } else {
+            append(current.array(), length, true);
+            ticksSinceKeyframe = 0;
+        }
+        var swap = previous;
+        previous = current;
+        current = swap;
+        previousLength = length;
+        position = size - 1;
+    }
+
+    /**
+     * Replaces the state of the game by the state stored at the given position. Publishes the same events as loading a
+     * saved game, see {@link SaveGame#decode(GameController, ByteBuffer)}.
+     *
+     * @param gameController game controller
+     * @param pos            entry position, 0 is the oldest entry
+     */
+    public void restore(GameController gameController, int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException("Illegal rewind position %d, size is %d".formatted(pos, size));
+        }
+        int keyframePos = pos;
+        while (!keyframe[index(keyframePos)]) {
+            --keyframePos;
+        }
+        int length = entryLength[index(keyframePos)];
+        read(keyframePos, previous.array());
+        for (int p = keyframePos + 1; p <= pos; ++p) {
+            read(p, delta);
+            applyDelta(delta, entryLength[index(p)], previous.array());
+        }
+        previousLength = length;
+        ticksSinceKeyframe = pos - keyframePos;
+        position = pos;
+        try {
+            SaveGame.decode(gameController, previous.clear().limit(length));
+        } catch (IOException x) {
+            throw new IllegalStateException("Rewind buffer is corrupted", x);
+        }
+    }
+
+    /**
+     * Restores the state the given number of ticks before the current position (or the oldest state).
+     *
+     * @param gameController game controller
+     * @param ticks          number of ticks to go back
+     * @return if there was an older state to restore
+     */
+    public boolean stepBack(GameController gameController, int ticks) {
+        if (position <= 0) {
+            return false;
+        }
+        restore(gameController, Math.max(0, position - ticks));
+        return true;
+    }
+
+    private int index(int pos) {
+        return (first + pos) % capacityTicks;
+    }
+
+    private boolean append(byte[] bytes, int length, boolean isKeyframe) {
+        while (size > 0 && (size == capacityTicks || writePos + length - entryStart[first] > capacityBytes)) {
+            dropOldestKeyframeInterval();
+        }
+        if (size == 0 && !isKeyframe) {
+            return false; // the base of the delta has been dropped
+        }
+        int i = index(size);
+        entryStart[i] = writePos;
+        entryLength[i] = length;
+        keyframe[i] = isKeyframe;
+        int offset = (int) (writePos % capacityBytes);
+        int part = Math.min(length, capacityBytes - offset);
+        data.put(offset, bytes, 0, part);
+        data.put(0, bytes, part, length - part);
+        writePos += length;
+        ++size;
+        return true;
+    }
+
+    private void dropOldestKeyframeInterval() {
+        do {
+            first = (first + 1) % capacityTicks;
+            --size;
+        } while (size > 0 && !keyframe[first]);
+    }
+
+    private void read(int pos, byte[] bytes) {
+        int i = index(pos);
+        int offset = (int) (entryStart[i] % capacityBytes);
+        int part = Math.min(entryLength[i], capacityBytes - offset);
+        data.get(offset, bytes, 0, part);
+        data.get(0, bytes, part, entryLength[i] - part);
+    }
+
+    /*
+     * Delta format: sequence of (varint number of unchanged bytes, varint number of changed bytes, changed bytes).
+     * Returns the delta length or -1 if the delta would not be smaller than the state itself.
+     */
+    private int encodeDelta(byte[] prev, byte[] curr, int length) {
+        int d = 0;
+        int runEnd = 0;
+        int i = 0;
+        while (i < length) {
+            if (prev[i] == curr[i]) {
+                ++i;
+                continue;
+            }
+            int runStart = i;
+            int gap = 0;
+            while (i < length && gap < MIN_GAP) {
+                gap = prev[i] == curr[i] ? gap + 1 : 0;
+                ++i;
+            }
+            int runLength = i - gap - runStart;
+            if (d + 6 + runLength >= length) {
+                return -1;
+            }
+            d = putVarint(delta, d, runStart - runEnd);
+            d = putVarint(delta, d, runLength);
+            System.arraycopy(curr, runStart, delta, d, runLength);
+            d += runLength;
+            runEnd = runStart + runLength;
+        }
+        return d;
+    }
+
+    private static void applyDelta(byte[] delta, int deltaLength, byte[] state) {
+        int d = 0;
+        int pos = 0;
+        while (d < deltaLength) {
+            int skip = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = delta[d++];
+                skip |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            int runLength = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = delta[d++];
+                runLength |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            pos += skip;
+            System.arraycopy(delta, d, state, pos, runLength);
+            d += runLength;
+            pos += runLength;
+        }
+    }
+
+    private static int putVarint(byte[] bytes, int d, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[d++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[d++] = (byte) value;
+        return d;
+    }
+}
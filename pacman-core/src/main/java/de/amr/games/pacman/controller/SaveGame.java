@@ -0,0 +1,288 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.event.GameStateChangeEvent;
+import de.amr.games.pacman.lib.StateCodec;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.AnimationDirector;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Binary save-state of a game session: controller state, game model and game level including the state of the random
+ * generator, such that the simulation continues exactly as if it had not been interrupted.
+ * <p>
+ * Format (big endian):
+ * <pre>
+ * int   magic ("PACS")
+ * short format version
+ * byte  game variant (ordinal)
+ * int   body length
+ * int   CRC32C of body
+ * body: controller, state machine, game model, level (if any), random generator
+ * </pre>
+ * Constant data (maze, level data) are not saved but recreated from the level number. The high score file is not
+ * touched. A saved game has about 1 KB, saving and loading (including recreation of the level) take some ten
+ * microseconds.
+ *
+ * @author Armin Reichert
+ */
+public final class SaveGame {
+
+    public static final int MAGIC = 0x50414353; // "PACS"
+    public static final short VERSION = 3;
+
+    private static final int HEADER_SIZE = 4 + 2 + 1 + 4 + 4;
+    private static final int MAX_BODY_SIZE = 16 * 1024;
+
+    /** Maximum size of a saved game in bytes. */
+    public static final int MAX_SIZE = HEADER_SIZE + MAX_BODY_SIZE;
+
+    private SaveGame() {
+    }
+
+    /**
+     * Saves the game to the given file (created or overwritten).
+     *
+     * @param gameController game controller
+     * @param path           file path
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(GameController gameController, Path path) throws IOException {
+        checkNotNull(path);
+        try (var channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            write(gameController, channel);
+        }
+        Logger.info("Game saved to file '{}'", path);
+    }
+
+    /**
+     * Loads the game from the given file.
+     *
+     * @param gameController game controller
+     * @param path           file path
+     * @throws IOException if the file cannot be read or does not contain a valid saved game
+     */
+    public static void load(GameController gameController, Path path) throws IOException {
+        checkNotNull(path);
+        try (var channel = FileChannel.open(path, READ)) {
+            read(gameController, channel);
+        }
+        Logger.info("Game loaded from file '{}'", path);
+    }
+
+    /**
+     * @param gameController game controller
+     * @param channel        channel where the saved game is written to
+     * @throws IOException if writing fails
+     */
+    public static void write(GameController gameController, WritableByteChannel channel) throws IOException {
+        checkNotNull(channel);
+        var buffer = encode(gameController);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param gameController game controller whose state is replaced by the saved game
+     * @param channel        channel providing the saved game
+     * @throws IOException if reading fails or the data are not a valid saved game
+     */
+    public static void read(GameController gameController, ReadableByteChannel channel) throws IOException {
+        checkNotNull(gameController);
+        checkNotNull(channel);
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header);
+        header.flip();
+        int bodyLength = checkHeader(header);
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        buffer.put(header.rewind());
+        readFully(channel, buffer);
+        decode(gameController, buffer.flip());
+    }
+
+    /**
+     * @param gameController game controller
+     * @return buffer (ready for reading) containing the saved game
+     */
+    public static ByteBuffer encode(GameController gameController) {
+        var buffer = ByteBuffer.allocate(MAX_SIZE);
+        encode(gameController, buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Writes the saved game into the given buffer starting at its position. The position is advanced to the end of the
+     * saved game. Besides the checksum computation, no objects are allocated such that this method can be called every
+     * tick.
+     *
+     * @param gameController game controller
+     * @param buffer         buffer with at least {@link #MAX_SIZE} remaining bytes
+     */
+    public static void encode(GameController gameController, ByteBuffer buffer) {
+        encode(gameController, buffer, new CRC32C());
+    }
+
+    static void encode(GameController gameController, ByteBuffer buffer, CRC32C crc) {
+        checkNotNull(gameController);
+        checkNotNull(buffer);
+        var game = gameController.game();
+        int start = buffer.position();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        StateCodec.putEnum(buffer, game.variant());
+        buffer.position(start + HEADER_SIZE);
+        try {
+            buffer.putInt(gameController.credit());
+            StateCodec.putBoolean(buffer, gameController.isPlaying());
+            StateCodec.putBoolean(buffer, gameController.isPacImmune());
+            buffer.putInt(gameController.intermissionTestNumber());
+            gameController.writeState(buffer);
+            game.writeState(buffer);
+            var level = game.levelOrNull();
+            StateCodec.putBoolean(buffer, level != null);
+            if (level != null) {
+                buffer.putShort((short) level.number());
+                StateCodec.putBoolean(buffer, level.isDemoLevel());
+                level.writeState(buffer);
+            }
+            buffer.putLong(game.random().state());
+        } catch (BufferOverflowException x) {
+            throw new IllegalStateException("Saved game exceeds " + MAX_BODY_SIZE + " bytes", x);
+        }
+        int end = buffer.position();
+        int bodyLength = end - start - HEADER_SIZE;
+        if (bodyLength > MAX_BODY_SIZE) {
+            throw new IllegalStateException("Saved game exceeds " + MAX_BODY_SIZE + " bytes");
+        }
+        int limit = buffer.limit();
+        crc.reset();
+        crc.update(buffer.limit(end).position(start + HEADER_SIZE));
+        buffer.limit(limit);
+        buffer.putInt(start + 7, bodyLength);
+        buffer.putInt(start + 11, (int) crc.getValue());
+    }
+
+    /**
+     * Replaces the state of the given game controller by the saved game. If the game variant differs, a new game of the
+     * saved variant is created first. Afterward, {@link GameEventType#LEVEL_CREATED} (if the saved game has a level)
+     * and {@link GameEventType#GAME_STATE_CHANGED} are published such that user interfaces can update.
+     *
+     * @param gameController game controller
+     * @param buffer         buffer (ready for reading) containing the saved game
+     * @throws IOException if the buffer does not contain a valid saved game
+     */
+    public static void decode(GameController gameController, ByteBuffer buffer) throws IOException {
+        checkNotNull(gameController);
+        checkNotNull(buffer);
+        try {
+            int start = buffer.position();
+            int bodyLength = checkHeader(buffer);
+            int expectedCRC = buffer.getInt(start + 11);
+            if (buffer.remaining() < bodyLength) {
+                throw new IOException("Saved game is truncated");
+            }
+            var crc = new CRC32C();
+            crc.update(buffer.slice(buffer.position(), bodyLength));
+            if ((int) crc.getValue() != expectedCRC) {
+                throw new IOException("Saved game is corrupted (checksum mismatch)");
+            }
+            var variant = GameVariant.values()[buffer.get(start + 6)];
+            if (gameController.game().variant() != variant) {
+                gameController.newGame(variant);
+            }
+            restore(gameController, buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException x) {
+            throw new IOException("Saved game is invalid", x);
+        }
+    }
+
+    private static void restore(GameController gameController, ByteBuffer in) {
+        var game = gameController.game();
+        gameController.setCredit(in.getInt());
+        gameController.setPlaying(StateCodec.getBoolean(in));
+        gameController.setPacImmune(StateCodec.getBoolean(in));
+        gameController.setIntermissionTestNumber(in.getInt());
+        gameController.readState(in);
+        game.readState(in);
+        GameLevel level = null;
+        if (StateCodec.getBoolean(in)) {
+            short levelNumber = in.getShort();
+            boolean demoLevel = StateCodec.getBoolean(in);
+            level = gameController.createLevel(levelNumber, demoLevel);
+            level.readState(in);
+        }
+        game.setLevel(level);
+        // creating the level has consumed random numbers, so the generator state is restored last
+        game.random().setState(in.getLong());
+        if (level != null) {
+            // let the user interface create the animations, then select the saved ones again
+            var pacAnimation = level.pac().selectedAnimation();
+            int pacAnimationIndex = level.pac().selectedAnimationIndex();
+            var ghostAnimations = level.ghosts().map(AnimationDirector::selectedAnimation).toArray(String[]::new);
+            var ghostAnimationIndices = level.ghosts().mapToInt(AnimationDirector::selectedAnimationIndex).toArray();
+            publishGameEvent(game, GameEventType.LEVEL_CREATED);
+            if (pacAnimation != null) {
+                level.pac().selectAnimation(pacAnimation, pacAnimationIndex);
+            }
+            level.ghosts().forEach(ghost -> {
+                if (ghostAnimations[ghost.id()] != null) {
+                    ghost.selectAnimation(ghostAnimations[ghost.id()], ghostAnimationIndices[ghost.id()]);
+                }
+            });
+        }
+        if (gameController.eventManager().hasListeners(GameEventType.GAME_STATE_CHANGED)) {
+            publishGameEvent(new GameStateChangeEvent(game, gameController.prevState(), gameController.state()));
+        }
+    }
+
+    private static int checkHeader(ByteBuffer header) throws IOException {
+        if (header.remaining() < HEADER_SIZE) {
+            throw new IOException("Saved game is truncated");
+        }
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a saved game");
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported saved game version: " + version);
+        }
+        byte variant = header.get();
+        if (variant < 0 || variant >= GameVariant.values().length) {
+            throw new IOException("Illegal game variant in saved game: " + variant);
+        }
+        int bodyLength = header.getInt();
+        if (bodyLength < 0 || bodyLength > MAX_BODY_SIZE) {
+            throw new IOException("Illegal body length of saved game: " + bodyLength);
+        }
+        header.getInt(); // CRC
+        return bodyLength;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new IOException("Saved game is truncated");
+            }
+        }
+    }
+}
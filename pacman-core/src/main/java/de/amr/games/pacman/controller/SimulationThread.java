@@ -0,0 +1,201 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.controller;
+
+import de.amr.games.pacman.model.GameModel;
+import org.tinylog.Logger;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Runs the simulation of a game session on its own thread, decoupled from rendering.
+ * <p>
+ * The thread calls {@link GameController#update()} at a fixed rate and publishes a {@link GameSnapshot} after each
+ * tick. The renderer reads the latest snapshot by {@link #latestSnapshot()} which never blocks: snapshots are immutable,
+ * so swapping the reference is the complete hand-over (a double buffer where the back buffer is always new).
+ * <p>
+ * Every tick runs while holding the simulation lock. Code on other threads that changes the game (user actions,
+ * cheats) or reads more than the snapshot contains must run by {@link #runExclusively(Runnable)}. This includes the
+ * 3D play scene which is not drawn from snapshots.
+ * <p>
+ * Game events are published during the tick, i.e. while holding the lock. A listener on this thread therefore must
+ * never wait for another thread that may itself wait in {@link #runExclusively(Runnable)}. To deliver events to such a
+ * thread, use an {@link de.amr.games.pacman.event.AsyncGameEventBus} with a policy that never blocks the producer
+ * (<code>DROP_OLDEST</code> or <code>COALESCE</code>, not <code>BLOCK</code>).
+ * <p>
+ * If the simulation falls behind by more than {@link #MAX_LAG_NANOS}, it does not try to catch up but continues from
+ * the current time. If {@link #MAX_CONSECUTIVE_FAILURES} ticks in a row fail with an exception, the thread stops and
+ * the last exception is available by {@link #failure()}.
+ *
+ * @author Armin Reichert
+ */
+public class SimulationThread {
+
+    public enum Kind {PLATFORM, VIRTUAL}
+
+    public static final long MAX_LAG_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    public static final int MAX_CONSECUTIVE_FAILURES = 10;
+
+    private final GameController gameController;
+    private final Thread thread;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReference<GameSnapshot> latestSnapshot = new AtomicReference<>();
+    private volatile boolean running;
+    private volatile boolean paused;
+    private volatile int targetTickRate = GameModel.FPS;
+    private volatile Exception failure;
+    // guarded by lock
+    private long tick;
+    private int consecutiveFailures;
+
+    /**
+     * @param gameController game controller whose updates are run by this thread
+     * @param kind           if a platform or a virtual thread is used
+     */
+    public SimulationThread(GameController gameController, Kind kind) {
+        checkNotNull(gameController);
+        checkNotNull(kind);
+        this.gameController = gameController;
+        var builder = kind == Kind.VIRTUAL ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        thread = builder.name("Simulation").unstarted(this::run);
+        latestSnapshot.set(GameSnapshot.take(gameController, 0));
+    }
+
+    public GameController gameController() {
+        return gameController;
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+        Logger.info("Simulation thread started, {} ticks/sec, virtual: {}", targetTickRate, thread.isVirtual());
+    }
+
+    /**
+     * Stops the simulation thread and waits until the current tick is finished.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+        Logger.info("Simulation thread stopped after {} ticks", tick);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return exception of the last failing tick if the thread has been stopped because of failing ticks
+     */
+    public Optional<Exception> failure() {
+        return Optional.ofNullable(failure);
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public int targetTickRate() {
+        return targetTickRate;
+    }
+
+    /**
+     * @param ticksPerSecond number of simulation ticks per second
+     */
+    public void setTargetTickRate(int ticksPerSecond) {
+        if (ticksPerSecond < 1) {
+            throw new IllegalArgumentException("Tick rate must be positive but is " + ticksPerSecond);
+        }
+        targetTickRate = ticksPerSecond;
+    }
+
+    /**
+     * @return snapshot taken after the last tick (never <code>null</code>)
+     */
+    public GameSnapshot latestSnapshot() {
+        return latestSnapshot.get();
+    }
+
+    /**
+     * Runs the given code on the calling thread while no simulation tick is running. A snapshot is published afterward
+     * such that changes by the code become visible to the renderer.
+     *
+     * @param code code accessing the game
+     */
+    public void runExclusively(Runnable code) {
+        checkNotNull(code);
+        lock.lock();
+        try {
+            code.run();
+            latestSnapshot.set(GameSnapshot.take(gameController, tick));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a single tick on the calling thread, e.g. for single-stepping while the simulation is paused.
+     */
+    public void step() {
+        lock.lock();
+        try {
+            doTick();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        long nextTickTime = System.nanoTime();
+        while (running) {
+            if (!paused) {
+                step();
+            }
+            nextTickTime += 1_000_000_000L / targetTickRate;
+            long delay = nextTickTime - System.nanoTime();
+            if (delay < -MAX_LAG_NANOS) {
+                Logger.trace("Simulation is {} milliseconds behind", -delay / 1e6);
+                nextTickTime = System.nanoTime();
+            }
+            // parking may end early (spuriously or on unpark), so check the time again
+            while (running && (delay = nextTickTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, delay);
+            }
+        }
+    }
+
+    // called with lock held
+    private void doTick() {
+        try {
+            gameController.update();
+            consecutiveFailures = 0;
+        } catch (Exception x) {
+            Logger.error(x, "Error in simulation tick {}", tick);
+            if (++consecutiveFailures == MAX_CONSECUTIVE_FAILURES) {
+                Logger.error("Simulation stopped after {} failing ticks", consecutiveFailures);
+                failure = x;
+                running = false;
+            }
+        }
+        ++tick;
+        latestSnapshot.set(GameSnapshot.take(gameController, tick));
+    }
+}
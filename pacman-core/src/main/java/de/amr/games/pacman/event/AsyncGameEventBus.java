@@ -0,0 +1,489 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.event;
+
+import org.tinylog.Logger;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Delivers game events asynchronously, decoupling the simulation from slow listeners (audio, 3D scene updates).
+ * <p>
+ * The bus is registered as a listener at the {@link GameEventManager} of a game session. Events published during a
+ * simulation step are written into a bounded ring buffer and returned immediately. A drain task running on the delivery
+ * executor (the bus's own daemon thread or e.g. the UI thread) takes them from the buffer and passes them to the
+ * subscribers. The bus is a {@link Flow.Publisher}: an event is taken from the buffer only if all subscribers have
+ * requested more, so a slow subscriber lets the buffer fill up and the {@link OverflowPolicy} decides what happens
+ * then.
+ * <p>
+ * There must be only one producer, the thread running the simulation, and there is only one consumer, the drain task.
+ * Publishing into a buffer that is not full is lock-free: the producer writes the slot at the tail and then advances
+ * the volatile tail, the consumer takes the slot at the head and then advances the volatile head. A full buffer is
+ * handled by the overflow policy: with {@link OverflowPolicy#BLOCK}, the producer parks until the consumer has taken an
+ * event. {@link OverflowPolicy#DROP_OLDEST} and {@link OverflowPolicy#COALESCE} discard or rewrite buffered events
+ * which the consumer may be taking at the same time, so the producer does this while holding a lock which the consumer
+ * takes for each event. This lock is deliberate: it is only contended when the buffer is full, and the consumer never
+ * holds it while delivering an event to the subscribers.
+ * <p>
+ * Note that events reference the (mutable) game model, so a subscriber sees the model state at delivery time, not at
+ * publication time.
+ *
+ * @author Armin Reichert
+ */
+public class AsyncGameEventBus implements GameEventListener, Flow.Publisher<GameEvent>, AutoCloseable {
+
+    /**
+     * What happens if an event is published while the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The producer waits until the subscribers have taken an event. No event is lost. Must not be used if the
+         * delivery executor runs on the producer thread.
+         */
+        BLOCK,
+        /**
+         * The oldest event in the buffer is discarded.
+         */
+        DROP_OLDEST,
+        /**
+         * The event is merged into a buffered event of the same type. If their tiles differ, the merged event has no
+         * tile, which listeners (e.g. for {@link GameEventType#PAC_FOUND_FOOD}) take as "synchronize with the model".
+         * Game state changes are never merged. If there is no event to merge with, the oldest buffered event that is not
+         * a game state change is discarded (the oldest event if all are state changes). The producer never waits.
+         */
+        COALESCE
+    }
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    private final GameEvent[] ring;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    // taken by the consumer for each event and by the producer only to rearrange a full buffer
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+    private volatile boolean closed;
+    private volatile Thread waitingProducer;
+    private volatile long head; // sequence number of the next event to deliver, written with lock held
+    private volatile long tail; // sequence number of the next event to publish, written by the producer only
+    // written with lock held
+    private volatile long numDropped;
+    private volatile long numCoalesced;
+
+    /**
+     * Creates a bus delivering events on its own daemon thread.
+     *
+     * @param capacity buffer capacity (rounded up to a power of two)
+     * @param policy   overflow policy
+     */
+    public AsyncGameEventBus(int capacity, OverflowPolicy policy) {
+        this(capacity, policy, Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "GameEventDelivery");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Creates a bus delivering events by the given executor, e.g. <code>Platform::runLater</code>.
+     *
+     * @param capacity buffer capacity (rounded up to a power of two)
+     * @param policy   overflow policy
+     * @param executor delivery executor
+     */
+    public AsyncGameEventBus(int capacity, OverflowPolicy policy, Executor executor) {
+        this(capacity, policy, executor, false);
+    }
+
+    private AsyncGameEventBus(int capacity, OverflowPolicy policy, Executor executor, boolean ownsExecutor) {
+        if (capacity < 1 || capacity > 1 << 20) {
+            throw new IllegalArgumentException("Illegal buffer capacity: " + capacity);
+        }
+        checkNotNull(policy);
+        checkNotNull(executor);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        ring = new GameEvent[size];
+        mask = size - 1;
+        this.policy = policy;
+        this.executor = executor;
+        this.ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    public OverflowPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * @return number of events currently buffered
+     */
+    public int size() {
+        long h = head;
+        // the producer may have dropped and published events after the head was read
+        return (int) Math.min(tail - h, ring.length);
+    }
+
+    /**
+     * @return number of events discarded by policy {@link OverflowPolicy#DROP_OLDEST} or {@link OverflowPolicy#COALESCE}
+     */
+    public long numDropped() {
+        return numDropped;
+    }
+
+    /**
+     * @return number of events merged into buffered events by policy {@link OverflowPolicy#COALESCE}
+     */
+    public long numCoalesced() {
+        return numCoalesced;
+    }
+
+    /**
+     * Called by the game event manager on the producer thread. Buffers the event and returns, unless the buffer is full
+     * and the overflow policy requires waiting.
+     */
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (closed || subscriptions.length == 0) {
+            return;
+        }
+        long t = tail;
+        if (t - head == ring.length && !makeRoom(event)) {
+            return;
+        }
+        // the slot is not touched by the consumer before the tail has been advanced
+        ring[(int) (t & mask)] = event;
+        tail = t + 1;
+        scheduleDrain();
+    }
+
+    /**
+     * Called by the producer if the buffer is full.
+     *
+     * @return <code>true</code> if the event can be published, <code>false</code> if it has been merged into a buffered
+     * event or the bus has been closed while waiting
+     */
+    private boolean makeRoom(GameEvent event) {
+        if (policy == OverflowPolicy.BLOCK) {
+            waitingProducer = Thread.currentThread();
+            try {
+                while (tail - head == ring.length) {
+                    if (closed) {
+                        return false;
+                    }
+                    LockSupport.park(this);
+                }
+            } finally {
+                waitingProducer = null;
+            }
+            return true;
+        }
+        lock.lock();
+        try {
+            if (tail - head < ring.length) {
+                return true; // the consumer has taken an event in the meantime
+            }
+            if (policy == OverflowPolicy.COALESCE) {
+                if (coalesce(event)) {
+                    ++numCoalesced;
+                    return false;
+                }
+                dropOldestMergeable();
+            } else {
+                ring[(int) (head & mask)] = null;
+                ++head;
+            }
+            ++numDropped;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // called by the consumer after taking events
+    private void wakeProducer() {
+        var producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+    }
+
+    // called with lock held
+    private boolean coalesce(GameEvent event) {
+        if (event instanceof GameStateChangeEvent) {
+            return false;
+        }
+        for (long seq = tail - 1; seq >= head; --seq) {
+            int i = (int) (seq & mask);
+            var buffered = ring[i];
+            if (buffered.type == event.type && buffered.game == event.game
+                && !(buffered instanceof GameStateChangeEvent)) {
+                if (!Objects.equals(buffered.tile, event.tile)) {
+                    ring[i] = buffered.tile == null ? buffered : new GameEvent(event.type, event.game, null);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // called with lock held, buffer is full
+    private void dropOldestMergeable() {
+        long dropped = head;
+        for (long seq = head; seq < tail; ++seq) {
+            if (!(ring[(int) (seq & mask)] instanceof GameStateChangeEvent)) {
+                dropped = seq;
+                break;
+            }
+        }
+        // close the gap, the older events move up by one
+        for (long seq = dropped; seq > head; --seq) {
+            ring[(int) (seq & mask)] = ring[(int) ((seq - 1) & mask)];
+        }
+        ring[(int) (head & mask)] = null;
+        ++head;
+    }
+
+    /**
+     * Subscribes a plain game event listener that accepts all events. The listener is called on the delivery executor.
+     *
+     * @param listener game event listener
+     */
+    public void addListener(GameEventListener listener) {
+        checkNotNull(listener);
+        subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(GameEvent event) {
+                listener.onGameEvent(event);
+            }
+
+            @Override
+            public void onError(Throwable x) {
+                Logger.error(x, "Game event listener {} failed", listener);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+        checkNotNull(subscriber);
+        var subscription = new Subscription(subscriber);
+        synchronized (this) {
+            var newSubscriptions = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+            newSubscriptions[subscriptions.length] = subscription;
+            subscriptions = newSubscriptions;
+        }
+        execute(() -> {
+            subscriber.onSubscribe(subscription);
+            subscription.subscribed = true;
+            if (closed) {
+                scheduleDrain();
+            }
+        });
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        int i = Arrays.asList(subscriptions).indexOf(subscription);
+        if (i != -1) {
+            var newSubscriptions = new Subscription[subscriptions.length - 1];
+            System.arraycopy(subscriptions, 0, newSubscriptions, 0, i);
+            System.arraycopy(subscriptions, i + 1, newSubscriptions, i, subscriptions.length - i - 1);
+            subscriptions = newSubscriptions.length == 0 ? NO_SUBSCRIPTIONS : newSubscriptions;
+        }
+        // a removed subscriber may have been the one without demand or the last one
+        scheduleDrain();
+    }
+
+    /**
+     * Stops accepting events. Buffered events are still delivered, then the subscribers are completed. A waiting
+     * producer is released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        wakeProducer();
+        scheduleDrain();
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException x) {
+            Logger.trace("Game event delivery task rejected, bus closed: {}", closed);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException x) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            GameEvent event;
+            while ((event = takeDeliverableEvent()) != null) {
+                for (var subscription : subscriptions) {
+                    subscription.deliver(event);
+                }
+            }
+            if (closed && size() == 0) {
+                for (var subscription : subscriptions) {
+                    subscription.complete();
+                }
+            }
+        } finally {
+            drainScheduled.set(false);
+        }
+        // events published or requested while the flag was still set would otherwise not be delivered
+        if (hasDeliverableEvent() || closed && subscriptions.length > 0 && size() == 0) {
+            scheduleDrain();
+        }
+    }
+
+    private GameEvent takeDeliverableEvent() {
+        GameEvent event = null;
+        lock.lock();
+        try {
+            long h = head;
+            long t = tail;
+            if (h == t) {
+                return null;
+            }
+            var subs = subscriptions;
+            if (subs.length == 0) {
+                // nobody is listening anymore, the slots at and after the tail may be written by the producer
+                for (; h < t; ++h) {
+                    ring[(int) (h & mask)] = null;
+                }
+                head = t;
+            } else {
+                for (var subscription : subs) {
+                    if (subscription.demand.get() == 0) {
+                        return null;
+                    }
+                }
+                int i = (int) (h & mask);
+                event = ring[i];
+                ring[i] = null;
+                head = h + 1;
+            }
+        } finally {
+            lock.unlock();
+        }
+        wakeProducer();
+        return event;
+    }
+
+    private boolean hasDeliverableEvent() {
+        if (head == tail) {
+            return false;
+        }
+        for (var subscription : subscriptions) {
+            if (subscription.demand.get() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class Subscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super GameEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean subscribed;
+        private volatile boolean cancelled;
+
+        Subscription(Flow.Subscriber<? super GameEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                cancel();
+                execute(() -> subscriber.onError(new IllegalArgumentException("Requested " + n + " events")));
+                return;
+            }
+            demand.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                unsubscribe(this);
+            }
+        }
+
+        void deliver(GameEvent event) {
+            if (cancelled) {
+                return;
+            }
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.decrementAndGet();
+            }
+            try {
+                subscriber.onNext(event);
+            } catch (Throwable x) {
+                cancel();
+                subscriber.onError(x);
+            }
+        }
+
+        void complete() {
+            // a subscriber must not be completed before it has been told about its subscription
+            if (subscribed && !cancelled) {
+                cancelled = true;
+                unsubscribe(this);
+                subscriber.onComplete();
+            }
+        }
+    }
+}
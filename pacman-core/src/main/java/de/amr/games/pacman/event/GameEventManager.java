@@ -4,37 +4,152 @@ import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameModel;
 import org.tinylog.Logger;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
 import static de.amr.games.pacman.lib.Globals.checkNotNull;
+import static de.amr.games.pacman.model.world.ArcadeWorld.TILES_X;
+import static de.amr.games.pacman.model.world.ArcadeWorld.TILES_Y;
 
 /**
+ * Keeps the listeners of one game session and delivers the events published by that session's game model.
+ * <p>
+ * The static <code>publishGameEvent</code> methods route an event to the manager of the game model it belongs to, so
+ * code inside the model does not need to know its session.
+ * <p>
+ * Listeners subscribe to all or to specific event types. The listeners are kept in an {@link EnumMap} of arrays per
+ * event type which is replaced on every (un)registration (copy-on-write), so publishing needs no locking and no
+ * iterator. Events are only created if there is at least one subscriber for their type.
+ * <p>
+ * Events are immutable, so the {@link GameEventType#PAC_FOUND_FOOD} event for a tile of the Arcade maze is created
+ * once and published again whenever food is found on that tile. This also holds when the events are delivered
+ * asynchronously. Other event types are rare and still create a new event each time.
+ *
  * @author Armin Reichert
  */
 public class GameEventManager {
-    private static final List<GameEventListener> gameEventListeners = new ArrayList<>();
 
-    public static void addListener(GameEventListener gameEventListener) {
+    private static final GameEventListener[] NO_LISTENERS = new GameEventListener[0];
+
+    public static void publishGameEvent(GameModel game, GameEventType type) {
+        publishGameEvent(game, type, null);
+    }
+
+    public static void publishGameEvent(GameModel game, GameEventType type, Vector2i tile) {
+        var eventManager = game.eventManager();
+        if (eventManager.hasListeners(type)) {
+            var event = type == GameEventType.PAC_FOUND_FOOD
+                    ? eventManager.foodFoundEvent(game, tile)
+                    : new GameEvent(type, game, tile);
+            eventManager.publish(event);
+        }
+    }
+
+    public static void publishGameEvent(GameEvent event) {
+        event.game.eventManager().publish(event);
+    }
+
+    private volatile Map<GameEventType, GameEventListener[]> listenersByType = createListenerMap();
+
+    private final GameEvent[] foodFoundEvents = new GameEvent[TILES_X * TILES_Y];
+
+    private static Map<GameEventType, GameEventListener[]> createListenerMap() {
+        var map = new EnumMap<GameEventType, GameEventListener[]>(GameEventType.class);
+        for (var type : GameEventType.values()) {
+            map.put(type, NO_LISTENERS);
+        }
+        return map;
+    }
+
+    /**
+     * Subscribes the listener to all event types.
+     *
+     * @param gameEventListener listener
+     */
+    public void addListener(GameEventListener gameEventListener) {
+        addListener(gameEventListener, EnumSet.allOf(GameEventType.class));
+    }
+
+    /**
+     * Subscribes the listener to the given event types.
+     *
+     * @param gameEventListener listener
+     * @param types             event types the listener is interested in
+     */
+    public synchronized void addListener(GameEventListener gameEventListener, Set<GameEventType> types) {
         checkNotNull(gameEventListener);
-        gameEventListeners.add(gameEventListener);
+        checkNotNull(types);
+        var map = new EnumMap<>(listenersByType);
+        for (var type : types) {
+            var listeners = map.get(type);
+            var newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+            newListeners[listeners.length] = gameEventListener;
+            map.put(type, newListeners);
+        }
+        listenersByType = map;
     }
 
-    public static void removeListener(GameEventListener gameEventListener) {
+    /**
+     * Unsubscribes the listener from all event types.
+     *
+     * @param gameEventListener listener
+     */
+    public synchronized void removeListener(GameEventListener gameEventListener) {
         checkNotNull(gameEventListener);
-        gameEventListeners.remove(gameEventListener);
+        var map = new EnumMap<>(listenersByType);
+        for (var entry : map.entrySet()) {
+            var listeners = entry.getValue();
+            for (int i = 0; i < listeners.length; ++i) {
+                if (listeners[i].equals(gameEventListener)) {
+                    var newListeners = new GameEventListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, newListeners, 0, i);
+                    System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                    entry.setValue(newListeners.length == 0 ? NO_LISTENERS : newListeners);
+                    break;
+                }
+            }
+        }
+        listenersByType = map;
     }
 
-    public static void publishGameEvent(GameModel game, GameEventType type) {
-        publishGameEvent(new GameEvent(type, game, null));
+    /**
+     * @param type event type
+     * @return if any listener is subscribed to this event type
+     */
+    public boolean hasListeners(GameEventType type) {
+        return listenersByType.get(type).length > 0;
     }
 
-    public static void publishGameEvent(GameModel game, GameEventType type, Vector2i tile) {
-        publishGameEvent(new GameEvent(type, game, tile));
+    /**
+     * @param game game model publishing the event
+     * @param tile tile where food was found, may be <code>null</code>
+     * @return the cached event for this tile, events for tiles outside the Arcade maze are created each time
+     */
+    private GameEvent foodFoundEvent(GameModel game, Vector2i tile) {
+        if (tile == null || tile.x() < 0 || tile.x() >= TILES_X || tile.y() < 0 || tile.y() >= TILES_Y) {
+            return new GameEvent(GameEventType.PAC_FOUND_FOOD, game, tile);
+        }
+        int index = tile.y() * TILES_X + tile.x();
+        var event = foodFoundEvents[index];
+        // a session may switch between game models, so the cached event must belong to the publishing one
+        if (event == null || event.game != game) {
+            event = new GameEvent(GameEventType.PAC_FOUND_FOOD, game, tile);
+            foodFoundEvents[index] = event;
+        }
+        return event;
     }
 
-    public static void publishGameEvent(GameEvent event) {
+    public void publish(GameEvent event) {
+        var listeners = listenersByType.get(event.type);
+        if (listeners.length == 0) {
+            return;
+        }
         Logger.trace("Publish game event: {}", event);
-        gameEventListeners.forEach(subscriber -> subscriber.onGameEvent(event));
+        for (var listener : listeners) {
+            listener.onGameEvent(event);
+        }
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ package de.amr.games.pacman.lib;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.random.RandomGenerator;
 import java.util.stream.Stream;
 
 /**
@@ -20,20 +21,34 @@ public enum Direction {
 
     private static final Direction[] OPPOSITE = {RIGHT, LEFT, DOWN, UP};
 
+    private static final Direction[] VALUES = values();
+
+    /**
+     * @param ordinal direction ordinal
+     * @return direction with given ordinal (without copying the values array like {@link #values()} does)
+     */
+    public static Direction byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
     public static Stream<Direction> stream() {
         return Stream.of(values());
     }
 
-    public static List<Direction> shuffled() {
+    /**
+     * @param rnd random generator
+     * @return list of all directions in random order
+     */
+    public static List<Direction> shuffled(RandomGenerator rnd) {
         List<Direction> dirs = Arrays.asList(values());
-        Collections.shuffle(dirs);
+        Collections.shuffle(dirs, rnd);
         return dirs;
     }
 
     private final Vector2i vector;
 
     Direction(int x, int y) {
-        vector = new Vector2i(x, y);
+        vector = Vector2i.of(x, y);
     }
 
     public Vector2i vector() {
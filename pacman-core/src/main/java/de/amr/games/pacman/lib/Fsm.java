@@ -7,6 +7,7 @@ package de.amr.games.pacman.lib;
 import de.amr.games.pacman.lib.TickTimer.State;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 /**
@@ -15,6 +16,9 @@ import java.util.ArrayList;
  * The states must be provided by an enumeration type that implements the {@link FsmState} interface. The data type
  * passed to the state lifecycle methods is specified by the second type parameter.
  * <p>
+ * Each state machine instance owns one timer per state, so several machines using the same state enumeration can
+ * run independently of each other.
+ * <p>
  * State transitions are defined dynamically via the {@link #changeState} method calls. Each state change triggers an
  * event.
  *
@@ -23,16 +27,21 @@ import java.util.ArrayList;
  *            {@link FsmState#onUpdate} and {@link FsmState#onExit}
  * @author Armin Reichert
  */
-public abstract class Fsm<S extends FsmState<C>, C> {
+public abstract class Fsm<S extends Enum<S> & FsmState<C>, C> {
 
     protected final ArrayList<FsmStateChangeListener<S>> stateChangeListeners = new ArrayList<>(5);
     protected final S[] states;
+    protected final TickTimer[] timers;
     protected S currentState;
     protected S prevState;
     protected String name = getClass().getSimpleName();
 
     protected Fsm(S[] states) {
         this.states = states;
+        timers = new TickTimer[states.length];
+        for (S state : states) {
+            timers[state.ordinal()] = new TickTimer("Timer-" + state.name());
+        }
     }
 
     public void setName(String name) {
@@ -56,6 +65,21 @@ public abstract class Fsm<S extends FsmState<C>, C> {
         return currentState;
     }
 
+    /**
+     * @param state a state of this machine
+     * @return the timer of the given state
+     */
+    public TickTimer timer(S state) {
+        return timers[state.ordinal()];
+    }
+
+    /**
+     * @return the timer of the current state
+     */
+    public TickTimer timer() {
+        return timer(currentState);
+    }
+
     /**
      * @return the previous state (may be null)
      */
@@ -85,8 +109,8 @@ public abstract class Fsm<S extends FsmState<C>, C> {
      * Resets the timer of each state to {@link TickTimer#INDEFINITE}.
      */
     public void resetTimers() {
-        for (S state : states) {
-            state.timer().resetIndefinitely();
+        for (TickTimer timer : timers) {
+            timer.resetIndefinitely();
         }
     }
 
@@ -106,7 +130,7 @@ public abstract class Fsm<S extends FsmState<C>, C> {
      * Lets the timer of the current game state expire.
      */
     public void terminateCurrentState() {
-        state().timer().expire();
+        timer().expire();
     }
 
     /**
@@ -126,14 +150,14 @@ public abstract class Fsm<S extends FsmState<C>, C> {
         C context = context();
         if (currentState != null) {
             currentState.onExit(context);
-            Logger.trace("Exit  state {} timer={}", currentState, currentState.timer());
+            Logger.trace("Exit  state {} timer={}", currentState, timer());
         }
         prevState = currentState;
         currentState = newState;
-        currentState.timer().resetIndefinitely();
-        Logger.trace("Enter state {} timer={}", currentState, currentState.timer());
+        timer().resetIndefinitely();
+        Logger.trace("Enter state {} timer={}", currentState, timer());
         currentState.onEnter(context);
-        Logger.trace("After Enter state {} timer={}", currentState, currentState.timer());
+        Logger.trace("After Enter state {} timer={}", currentState, timer());
         stateChangeListeners.forEach(listener -> listener.onStateChange(prevState, currentState));
     }
 
@@ -148,7 +172,7 @@ public abstract class Fsm<S extends FsmState<C>, C> {
         if (prevState == null) {
             throw new IllegalStateException("State machine cannot resume previous state because there is none");
         }
-        Logger.trace("Resume state {}, timer= {}", prevState, prevState.timer());
+        Logger.trace("Resume state {}, timer= {}", prevState, timer(prevState));
         changeState(prevState);
     }
 
@@ -161,13 +185,41 @@ public abstract class Fsm<S extends FsmState<C>, C> {
         try {
             currentState.onUpdate(context());
         } catch (Exception x) {
-            Logger.trace("Error updating state {}, timer={}", currentState, currentState.timer());
+            Logger.trace("Error updating state {}, timer={}", currentState, timer());
             Logger.error(x);
         }
-        if (currentState.timer().state() == State.READY) {
-            currentState.timer().start();
+        TickTimer timer = timer();
+        if (timer.state() == State.READY) {
+            timer.start();
         } else {
-            currentState.timer().advance();
+            timer.advance();
+        }
+    }
+
+    /**
+     * Writes the current and previous state and the state timers (for saving a game).
+     *
+     * @param out output buffer
+     */
+    public void writeState(ByteBuffer out) {
+        StateCodec.putEnum(out, currentState);
+        StateCodec.putEnum(out, prevState);
+        for (TickTimer timer : timers) {
+            timer.writeState(out);
+        }
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer)}. No state hooks are executed and no listeners are
+     * notified.
+     *
+     * @param in input buffer
+     */
+    public void readState(ByteBuffer in) {
+        currentState = StateCodec.getEnum(in, states);
+        prevState = StateCodec.getEnum(in, states);
+        for (TickTimer timer : timers) {
+            timer.readState(in);
         }
     }
-}
\ No newline at end of file
+}
@@ -26,6 +26,10 @@ public class Globals {
      */
     public static final int HTS = 4;
 
+    /**
+     * Shared random generator for cosmetic effects of the user interface. The game simulation itself uses the
+     * generator of its game session, see {@link de.amr.games.pacman.model.GameModel#random()}.
+     */
     public static final Random RND = new Random();
 
     private static final String MSG_GAME_NULL = "Game model must not be null";
@@ -34,7 +38,7 @@ public class Globals {
     private static final String MSG_DIR_NULL = "Direction must not be null";
 
     public static Vector2i v2i(int x, int y) {
-        return new Vector2i(x, y);
+        return Vector2i.of(x, y);
     }
 
     public static Vector2f v2f(double x, double y) {
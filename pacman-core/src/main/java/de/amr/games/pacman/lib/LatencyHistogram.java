@@ -0,0 +1,163 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.lib;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Histogram of durations (in nanoseconds) with a bounded relative error, in the style of an HDR histogram.
+ * <p>
+ * Values below 128 are counted exactly. Larger values are counted in buckets: each power of two range is divided into
+ * 128 sub-buckets, so the value reported for a percentile is at most 1/128 (&lt;0.8%) above the recorded value.
+ * Recording is a few arithmetic operations and an array increment, no objects are created. Values above
+ * {@link #MAX_TRACKABLE_VALUE} (about 18 minutes) are counted in the highest bucket. The exact minimum, maximum and
+ * sum are kept separately.
+ * <p>
+ * Not thread-safe: values must be recorded and queried by the same thread.
+ *
+ * @author Armin Reichert
+ */
+public class LatencyHistogram {
+
+    public static final long MAX_TRACKABLE_VALUE = (1L << 40) - 1;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 39 - SUB_BUCKET_BITS; // shift of MAX_TRACKABLE_VALUE
+
+    private static final double[] REPORTED_PERCENTILES = {
+        0, 10, 20, 30, 40, 50, 60, 70, 75, 80, 85, 90, 95, 97.5, 99, 99.5, 99.9, 99.99, 100
+    };
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // sub-bucket in [SUB_BUCKET_COUNT, 2*SUB_BUCKET_COUNT)
+        int subBucket = (int) (value >>> shift);
+        return shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private final long[] counts = new long[(MAX_SHIFT + 2) * SUB_BUCKET_COUNT];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private long sum;
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos duration in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        ++counts[bucketIndex(Math.min(value, MAX_TRACKABLE_VALUE))];
+        ++count;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        sum = 0;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return smallest recorded value or 0 if no value has been recorded
+     */
+    public long min() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return largest recorded value or 0 if no value has been recorded
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * @return mean of the recorded values or 0 if no value has been recorded
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile percentile in range [0, 100], e.g. 99.9
+     * @return (upper bound of the bucket of the) value below or at which the given percentage of the recorded values
+     * lie, at most the maximum recorded value. 0 if no value has been recorded.
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in range [0, 100] but is " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            cumulated += counts[i];
+            if (cumulated >= rank) {
+                return Math.max(min(), Math.min(highestValueInBucket(i), max));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return one-line summary with count, median, p99, p99.9 and maximum in milliseconds
+     */
+    public String summary() {
+        return String.format("n=%d p50=%.3f p99=%.3f p99.9=%.3f max=%.3f ms", count,
+            valueAtPercentile(50) / 1e6, valueAtPercentile(99) / 1e6, valueAtPercentile(99.9) / 1e6, max / 1e6);
+    }
+
+    /**
+     * Prints the percentile distribution as a table (value in milliseconds, percentile, number of values up to this
+     * percentile).
+     *
+     * @param out writer
+     */
+    public void printPercentileDistribution(PrintWriter out) {
+        out.printf("%12s %10s %12s%n", "Value(ms)", "Percentile", "TotalCount");
+        for (double percentile : REPORTED_PERCENTILES) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            out.printf("%12.3f %10.3f %12d%n", valueAtPercentile(percentile) / 1e6, percentile, count == 0 ? 0 : rank);
+        }
+        out.printf("#[Mean = %.3f ms, Min = %.3f ms, Max = %.3f ms, Count = %d]%n", mean() / 1e6, min() / 1e6,
+            max / 1e6, count);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.lib;
+
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.SimulationStepEventLog;
+import de.amr.games.pacman.model.actors.Bonus;
+import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.actors.GhostState;
+import org.tinylog.Logger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Pac-Man steering based on a Monte Carlo search over copies of the game level (see {@link GameLevel#fork()}).
+ * <p>
+ * Each time Pac-Man enters a new tile, every direction Pac-Man can move to is evaluated by a number of rollouts: a copy
+ * of the level is simulated for some ticks with Pac-Man first moving into the given direction and then steered by the
+ * rule-based autopilot (see {@link RuleBasedPacSteering}). Each rollout gets its own seed for the random generator of
+ * its copy, so the rollouts of a direction sample different ghost behavior (e.g. frightened ghosts). The direction
+ * with the best average rollout value (food, bonus and ghosts eaten, heavy penalty for losing a life) is taken.
+ * <p>
+ * The rollouts run on the worker threads of an executor. The copies are created in the thread calling
+ * {@link #steer(Creature)}, the rollouts only access their own copy. If a time budget is set, the decision is made
+ * when the budget is used up, with the rollouts finished so far, so the simulation tick is not delayed by more than
+ * the budget. Without time budget, all rollouts are completed and the decision only depends on the game state, so
+ * games are reproducible (e.g. headless batches).
+ *
+ * @author Armin Reichert
+ */
+public class MonteCarloPacSteering implements Steering {
+
+    /**
+     * @param rollouts         number of rollouts per decision (spread over the possible directions)
+     * @param depth            maximum number of ticks simulated by a rollout
+     * @param timeBudgetMillis maximum duration of a decision in milliseconds, 0 means no limit
+     */
+    public record Config(int rollouts, int depth, int timeBudgetMillis) {
+
+        /** Configuration for interactive play: the decision takes at most half a frame at 60 Hz. */
+        public static final Config DEFAULT = new Config(32, 90, 8);
+
+        public Config {
+            if (rollouts < 1) {
+                throw new IllegalArgumentException("Number of rollouts must be positive but is " + rollouts);
+            }
+            if (depth < 1) {
+                throw new IllegalArgumentException("Rollout depth must be positive but is " + depth);
+            }
+            if (timeBudgetMillis < 0) {
+                throw new IllegalArgumentException("Time budget must not be negative but is " + timeBudgetMillis);
+            }
+        }
+    }
+
+    /** Executes rollouts in the calling thread, e.g. when games are already played in parallel. */
+    public static final Executor CALLER_RUNS = Runnable::run;
+
+    private static final int FOOD_VALUE = 10;
+    private static final int ENERGIZER_VALUE = 50;
+    private static final int GHOST_VALUE = 200;
+    private static final int LEVEL_COMPLETE_VALUE = 5000;
+    private static final int DEATH_PENALTY = 10_000;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final GameLevel level;
+    private final Config config;
+    private final Executor executor;
+    private final RuleBasedPacSteering fallback;
+    private int lastRollouts;
+
+    /**
+     * Creates a steering with the default configuration whose rollouts run in the common fork-join pool.
+     *
+     * @param level game level
+     */
+    public MonteCarloPacSteering(GameLevel level) {
+        this(level, Config.DEFAULT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param level    game level
+     * @param config   search configuration
+     * @param executor executor running the rollouts, e.g. {@link #CALLER_RUNS}
+     */
+    public MonteCarloPacSteering(GameLevel level, Config config, Executor executor) {
+        checkNotNull(level);
+        checkNotNull(config);
+        checkNotNull(executor);
+        this.level = level;
+        this.config = config;
+        this.executor = executor;
+        fallback = new RuleBasedPacSteering(level);
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    /**
+     * @return number of rollouts completed for the last decision
+     */
+    public int lastRollouts() {
+        return lastRollouts;
+    }
+
+    @Override
+    public void steer(Creature creature) {
+        if (creature.hasMoved() && !creature.isNewTileEntered()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = config.timeBudgetMillis() > 0 ? start + config.timeBudgetMillis() * 1_000_000L : Long.MAX_VALUE;
+        var pac = level.pac();
+        var candidates = new Direction[4];
+        int numCandidates = 0;
+        for (int i = 0; i < 4; ++i) {
+            var dir = Direction.byOrdinal(i);
+            if (pac.canAccessTile(pac.tile().plus(dir.vector()))) {
+                candidates[numCandidates++] = dir;
+            }
+        }
+        if (numCandidates == 0) {
+            return;
+        }
+        if (numCandidates == 1) {
+            pac.setWishDir(candidates[0]);
+            return;
+        }
+
+        // copies are created here, the rollouts must not access the level itself
+        int numRollouts = Math.max(numCandidates, config.rollouts());
+        var forks = new GameLevel[numRollouts];
+        for (int i = 0; i < numRollouts && System.nanoTime() < deadline; ++i) {
+            forks[i] = level.fork();
+        }
+        long seed = level.game().random().state();
+        var values = new double[numRollouts];
+        var done = new AtomicIntegerArray(numRollouts);
+        var latch = new CountDownLatch(numRollouts);
+        for (int i = 0; i < numRollouts; ++i) {
+            int rollout = i;
+            var dir = candidates[i % numCandidates];
+            executor.execute(() -> {
+                try {
+                    var fork = forks[rollout];
+                    if (fork != null) {
+                        fork.game().random().setState(mix(seed + rollout * GOLDEN_GAMMA));
+                        values[rollout] = rollout(fork, dir, deadline);
+                        if (!Double.isNaN(values[rollout])) {
+                            done.set(rollout, 1);
+                        }
+                    }
+                } catch (RuntimeException x) {
+                    Logger.error(x, "Rollout failed");
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        try {
+            if (deadline == Long.MAX_VALUE) {
+                latch.await();
+            } else {
+                latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+        }
+
+        var sums = new double[numCandidates];
+        var counts = new int[numCandidates];
+        lastRollouts = 0;
+        for (int i = 0; i < numRollouts; ++i) {
+            if (done.get(i) == 1) {
+                sums[i % numCandidates] += values[i];
+                ++counts[i % numCandidates];
+                ++lastRollouts;
+            }
+        }
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < numCandidates; ++c) {
+            if (counts[c] > 0 && sums[c] / counts[c] > bestValue) {
+                bestValue = sums[c] / counts[c];
+                best = c;
+            }
+        }
+        if (best == -1) {
+            Logger.trace("No rollout finished in time, use rule-based steering");
+            fallback.steer(creature);
+        } else {
+            pac.setWishDir(candidates[best]);
+            Logger.trace("Monte Carlo decision {} (value {}, {} rollouts, {} millis)", candidates[best], bestValue,
+                lastRollouts, (System.nanoTime() - start) / 1e6f);
+        }
+    }
+
+    /*
+     * Simulates the given copy with Pac-Man moving into the given direction until the next tile is entered and then
+     * steered by the rule-based autopilot. Returns NaN if the deadline passes.
+     */
+    private double rollout(GameLevel fork, Direction dir, long deadline) {
+        var pac = fork.pac();
+        var eventLog = fork.eventLog();
+        pac.setAutopilot(new RuleBasedPacSteering(fork));
+        pac.setUseAutopilot(false);
+        pac.setWishDir(dir);
+        double value = 0;
+        for (int t = 0; t < config.depth(); ++t) {
+            if (deadline != Long.MAX_VALUE && System.nanoTime() > deadline) {
+                return Double.NaN;
+            }
+            var nextState = fork.doHuntingStep();
+            if (eventLog.happened(SimulationStepEventLog.EVENT_FOOD_FOUND)) {
+                value += eventLog.energizerFound() ? ENERGIZER_VALUE : FOOD_VALUE;
+            }
+            if (eventLog.happened(SimulationStepEventLog.EVENT_BONUS_EATEN)) {
+                value += fork.bonus().map(Bonus::points).orElse(0);
+            }
+            value += eventLog.killedGhosts().size() * GHOST_VALUE;
+            switch (nextState) {
+                case PACMAN_DYING -> {
+                    // the earlier, the worse
+                    return value - DEATH_PENALTY * (2 * config.depth() - t) / (2.0 * config.depth());
+                }
+                case LEVEL_COMPLETE -> {
+                    return value + LEVEL_COMPLETE_VALUE;
+                }
+                case GHOST_DYING -> // no pause in rollouts, eaten ghosts return at once
+                    fork.ghosts(GhostState.EATEN).forEach(ghost -> ghost.setState(GhostState.RETURNING_TO_HOUSE));
+                default -> {}
+            }
+            if (!pac.isUsingAutopilot() && pac.isNewTileEntered()) {
+                pac.setUseAutopilot(true);
+            }
+        }
+        return value;
+    }
+
+    // SplitMix64 finalizer, gives well-distributed seeds for consecutive rollout indices
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
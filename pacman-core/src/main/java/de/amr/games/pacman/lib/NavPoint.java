@@ -35,6 +35,6 @@ public record NavPoint(int x, int y, Direction dir) {
     }
 
     public Vector2i tile() {
-        return new Vector2i(x, y);
+        return Vector2i.of(x, y);
     }
 }
\ No newline at end of file
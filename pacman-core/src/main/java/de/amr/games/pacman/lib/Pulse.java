@@ -4,6 +4,8 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.lib;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author Armin Reichert
  */
@@ -81,4 +83,37 @@ public class Pulse {
     public void stop() {
         stopped = true;
     }
+
+    /**
+     * @return independent pulse with the same configuration and state
+     */
+    public Pulse copy() {
+        var copy = new Pulse(numFramesTotal, ticksPerFrame, startValue);
+        copy.copyStateFrom(this);
+        return copy;
+    }
+
+    public void writeState(ByteBuffer out) {
+        out.putInt(numFramesTotal);
+        StateCodec.putBoolean(out, value);
+        out.putInt(t);
+        out.putInt(frames);
+        StateCodec.putBoolean(out, stopped);
+    }
+
+    public void readState(ByteBuffer in) {
+        numFramesTotal = in.getInt();
+        value = StateCodec.getBoolean(in);
+        t = in.getInt();
+        frames = in.getInt();
+        stopped = StateCodec.getBoolean(in);
+    }
+
+    public void copyStateFrom(Pulse other) {
+        numFramesTotal = other.numFramesTotal;
+        value = other.value;
+        t = other.t;
+        frames = other.frames;
+        stopped = other.stopped;
+    }
 }
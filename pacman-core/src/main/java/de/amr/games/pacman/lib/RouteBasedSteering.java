@@ -7,6 +7,8 @@ package de.amr.games.pacman.lib;
 import de.amr.games.pacman.model.actors.Creature;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import static de.amr.games.pacman.lib.Globals.checkNotNull;
@@ -27,6 +29,10 @@ public class RouteBasedSteering implements Steering {
         setRoute(route);
     }
 
+    public List<NavPoint> route() {
+        return route;
+    }
+
     public void setRoute(List<NavPoint> route) {
         this.route = route;
         init();
@@ -53,6 +59,16 @@ public class RouteBasedSteering implements Steering {
         }
     }
 
+    /**
+     * @return independent steering along the same (unmodified) route with the same progress
+     */
+    public RouteBasedSteering copy() {
+        var copy = new RouteBasedSteering(route);
+        copy.targetIndex = targetIndex;
+        copy.complete = complete;
+        return copy;
+    }
+
     public boolean isComplete() {
         return complete;
     }
@@ -68,4 +84,45 @@ public class RouteBasedSteering implements Steering {
     private NavPoint currentTarget() {
         return route.get(targetIndex);
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the route and the progress on it (for saving a game).
+     *
+     * @param out output buffer
+     */
+    public void writeState(ByteBuffer out) {
+        out.putShort((short) route.size());
+        for (int i = 0; i < route.size(); ++i) {
+            var navPoint = route.get(i);
+            out.putShort((short) navPoint.x());
+            out.putShort((short) navPoint.y());
+            StateCodec.putEnum(out, navPoint.dir());
+        }
+        out.putShort((short) targetIndex);
+        StateCodec.putBoolean(out, complete);
+    }
+
+    /**
+     * Restores the route and the progress on it written by {@link #writeState(ByteBuffer)}.
+     *
+     * @param in input buffer
+     */
+    public void readState(ByteBuffer in) {
+        int size = in.getShort();
+        if (size < 0) {
+            throw new IllegalArgumentException("Illegal route size: " + size);
+        }
+        var navPoints = new ArrayList<NavPoint>(size);
+        for (int i = 0; i < size; ++i) {
+            short x = in.getShort();
+            short y = in.getShort();
+            navPoints.add(new NavPoint(x, y, StateCodec.getEnum(in, Direction.values())));
+        }
+        route = navPoints;
+        targetIndex = in.getShort();
+        complete = StateCodec.getBoolean(in);
+        if (targetIndex < 0 || targetIndex > size) {
+            throw new IllegalArgumentException("Illegal route target index: " + targetIndex);
+        }
+    }
+}
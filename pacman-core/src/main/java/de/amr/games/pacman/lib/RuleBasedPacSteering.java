@@ -7,29 +7,132 @@ package de.amr.games.pacman.lib;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.actors.*;
+import de.amr.games.pacman.model.world.MazeDistances;
+import de.amr.games.pacman.model.world.World;
 import org.tinylog.Logger;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Properties;
 import java.util.stream.Collectors;
 
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
 import static de.amr.games.pacman.lib.Globals.tileAt;
 
 /**
- * Pac-Man steering based on a set of rules.
+ * Pac-Man steering based on a set of rules. The distances and timer thresholds used by the rules are given by a
+ * {@link Profile}.
  *
  * @author Armin Reichert
  */
 public class RuleBasedPacSteering implements Steering {
 
-    private static class CollectedData {
+    /**
+     * The constants of the rules. Profiles can be saved and loaded, so tuned profiles (see subproject
+     * <code>pacman-headless</code>) can be used by the application.
+     *
+     * @param ghostAheadDetectionDist  number of tiles ahead in which hunting ghosts are detected
+     * @param ghostBehindDetectionDist number of tiles behind in which hunting ghosts are detected
+     * @param ghostChaseDist           maximum distance (tiles) of frightened ghosts that are chased
+     * @param bonusHarvestDist         maximum distance (tiles) of a bonus that is harvested
+     * @param energizerSkipPowerTicks  energizers are skipped while the power timer has more ticks remaining
+     * @param preyChasePowerTicks      frightened ghosts are chased only while the power timer has at least as many ticks
+     *                                 remaining
+     */
+    public record Profile(int ghostAheadDetectionDist, int ghostBehindDetectionDist, int ghostChaseDist,
+                          int bonusHarvestDist, int energizerSkipPowerTicks, int preyChasePowerTicks) {
+
+        /** The original constants of the rules. */
+        public static final Profile DEFAULT = new Profile(4, 1, 10, 20, 2 * GameModel.FPS, GameModel.FPS);
+
+        /** Names of the profile values in vector order, also used as keys in profile files. */
+        public static final List<String> NAMES = List.of("ghostAheadDetectionDist", "ghostBehindDetectionDist",
+            "ghostChaseDist", "bonusHarvestDist", "energizerSkipPowerTicks", "preyChasePowerTicks");
+
+        public Profile {
+            if (ghostAheadDetectionDist < 0 || ghostBehindDetectionDist < 0 || ghostChaseDist < 0 || bonusHarvestDist < 0
+                || energizerSkipPowerTicks < 0 || preyChasePowerTicks < 0) {
+                throw new IllegalArgumentException("Profile values must not be negative");
+            }
+        }
+
+        /**
+         * @param vector profile values in the order of {@link #NAMES}
+         * @return profile with the given values
+         */
+        public static Profile fromVector(int[] vector) {
+            checkNotNull(vector);
+            if (vector.length != NAMES.size()) {
+                throw new IllegalArgumentException("Profile vector must have %d values but has %d".formatted(
+                    NAMES.size(), vector.length));
+            }
+            return new Profile(vector[0], vector[1], vector[2], vector[3], vector[4], vector[5]);
+        }
 
-        static final int MAX_GHOST_AHEAD_DETECTION_DIST = 4; // tiles
-        static final int MAX_GHOST_BEHIND_DETECTION_DIST = 1; // tiles
-        static final int MAX_GHOST_CHASE_DIST = 10; // tiles
-        static final int MAX_BONUS_HARVEST_DIST = 20; // tiles
+        /**
+         * @return profile values in the order of {@link #NAMES}
+         */
+        public int[] toVector() {
+            return new int[] {ghostAheadDetectionDist, ghostBehindDetectionDist, ghostChaseDist, bonusHarvestDist,
+                energizerSkipPowerTicks, preyChasePowerTicks};
+        }
+
+        /**
+         * Loads a profile from an XML properties file. Missing values are taken from the default profile.
+         *
+         * @param file profile file
+         * @return loaded profile
+         * @throws IOException if the file cannot be read or contains invalid values
+         */
+        public static Profile load(Path file) throws IOException {
+            checkNotNull(file);
+            var p = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                p.loadFromXML(in);
+            }
+            var vector = DEFAULT.toVector();
+            try {
+                for (int i = 0; i < vector.length; ++i) {
+                    String value = p.getProperty(NAMES.get(i));
+                    if (value != null) {
+                        vector[i] = Integer.parseInt(value.trim());
+                    }
+                }
+                return fromVector(vector);
+            } catch (IllegalArgumentException x) {
+                throw new IOException("Invalid autopilot profile in file '%s': %s".formatted(file, x.getMessage()), x);
+            }
+        }
+
+        /**
+         * Saves this profile as XML properties file.
+         *
+         * @param file        profile file
+         * @param description comment stored in the file
+         * @throws IOException if the file cannot be written
+         */
+        public void save(Path file, String description) throws IOException {
+            checkNotNull(file);
+            var p = new Properties();
+            var vector = toVector();
+            for (int i = 0; i < vector.length; ++i) {
+                p.setProperty(NAMES.get(i), String.valueOf(vector[i]));
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                p.storeToXML(out, description);
+            }
+        }
+    }
+
+    private static class CollectedData {
 
         Ghost hunterAhead;
         float hunterAheadDistance;
@@ -64,10 +167,24 @@ public class RuleBasedPacSteering implements Steering {
     }
 
 
+    private static final Comparator<Vector2i> COLUMN_ORDER = Comparator.comparingInt(Vector2i::x)
+            .thenComparingInt(Vector2i::y);
+
     private final GameLevel level;
+    private final Profile profile;
 
     public RuleBasedPacSteering(GameLevel level) {
+        this(level, Profile.DEFAULT);
+    }
+
+    public RuleBasedPacSteering(GameLevel level, Profile profile) {
+        checkNotNull(profile);
         this.level = level;
+        this.profile = profile;
+    }
+
+    public Profile profile() {
+        return profile;
     }
 
     @Override
@@ -96,7 +213,7 @@ public class RuleBasedPacSteering implements Steering {
             data.hunterBehindDistance = pac.tile().manhattanDistance(hunterBehind.tile());
         }
         data.frightenedGhosts = level.ghosts(GhostState.FRIGHTENED)
-            .filter(ghost -> ghost.tile().manhattanDistance(pac.tile()) <= CollectedData.MAX_GHOST_CHASE_DIST)
+            .filter(ghost -> ghost.tile().manhattanDistance(pac.tile()) <= profile.ghostChaseDist())
             .collect(Collectors.toList());
         data.frightenedGhostsDistance = data.frightenedGhosts.stream()
             .map(ghost -> ghost.tile().manhattanDistance(pac.tile())).collect(Collectors.toList());
@@ -124,7 +241,7 @@ public class RuleBasedPacSteering implements Steering {
         if (pac.hasMoved() && !level.world().isIntersection(pac.tile()))
             return;
 
-        if (!data.frightenedGhosts.isEmpty() && pac.powerTimer().remaining() >= GameModel.FPS) {
+        if (!data.frightenedGhosts.isEmpty() && pac.powerTimer().remaining() >= profile.preyChasePowerTicks()) {
             Ghost prey = data.frightenedGhosts.get(0);
             Logger.trace("Detected frightened ghost {} {} tiles away", prey.name(),
                 prey.tile().manhattanDistance(pac.tile()));
@@ -147,7 +264,7 @@ public class RuleBasedPacSteering implements Steering {
             var bonus = optBonus.get();
             var tile = tileAt(bonus.entity().position());
             return bonus.state() == Bonus.STATE_EDIBLE
-                && tile.manhattanDistance(pac.tile()) <= CollectedData.MAX_BONUS_HARVEST_DIST;
+                && tile.manhattanDistance(pac.tile()) <= profile.bonusHarvestDist();
         }
         return false;
     }
@@ -156,7 +273,7 @@ public class RuleBasedPacSteering implements Steering {
         var pac = level.pac();
         Vector2i pacManTile = pac.tile();
         boolean energizerFound = false;
-        for (int i = 1; i <= CollectedData.MAX_GHOST_AHEAD_DETECTION_DIST; ++i) {
+        for (int i = 1; i <= profile.ghostAheadDetectionDist(); ++i) {
             Vector2i ahead = pacManTile.plus(pac.moveDir().vector().scaled(i));
             if (!pac.canAccessTile(ahead)) {
                 break;
@@ -183,7 +300,7 @@ public class RuleBasedPacSteering implements Steering {
     private Ghost findHuntingGhostBehind(GameLevel level) {
         var pac = level.pac();
         var pacManTile = pac.tile();
-        for (int i = 1; i <= CollectedData.MAX_GHOST_BEHIND_DETECTION_DIST; ++i) {
+        for (int i = 1; i <= profile.ghostBehindDetectionDist(); ++i) {
             var behind = pacManTile.plus(pac.moveDir().opposite().vector().scaled(i));
             if (!pac.canAccessTile(behind)) {
                 break;
@@ -202,7 +319,7 @@ public class RuleBasedPacSteering implements Steering {
         var pac = level.pac();
         Vector2i pacManTile = pac.tile();
         List<Direction> escapes = new ArrayList<>(4);
-        for (Direction dir : Direction.shuffled()) {
+        for (Direction dir : Direction.shuffled(level.game().random())) {
             if (forbidden.contains(dir)) {
                 continue;
             }
@@ -225,26 +342,32 @@ public class RuleBasedPacSteering implements Steering {
         var pac = level.pac();
         List<Vector2i> foodTiles = new ArrayList<>();
         Vector2i pacManTile = pac.tile();
-        float minDist = Float.MAX_VALUE;
-        for (int x = 0; x < level.world().numCols(); ++x) {
-            for (int y = 0; y < level.world().numRows(); ++y) {
-                Vector2i tile = new Vector2i(x, y);
-                if (!level.world().isFoodTile(tile) || level.world().hasEatenFoodAt(tile)) {
-                    continue;
-                }
-                if (level.world().isEnergizerTile(tile) && pac.powerTimer().remaining() > 2 * 60
-                    && level.world().uneatenFoodCount() > 1) {
-                    continue;
-                }
-                float dist = pacManTile.manhattanDistance(tile);
-                if (dist < minDist) {
-                    minDist = dist;
-                    foodTiles.clear();
-                    foodTiles.add(tile);
-                } else if (dist == minDist) {
-                    foodTiles.add(tile);
-                }
+        var world = level.world();
+        var distances = world.topology().distances();
+        int pacIndex = world.index(pacManTile);
+        boolean skipEnergizers = pac.powerTimer().remaining() > profile.energizerSkipPowerTicks() && world.uneatenFoodCount() > 1;
+        int minDist = Integer.MAX_VALUE;
+        for (int index = world.nextFood(0); index != World.NO_TILE; index = world.nextFood(index + 1)) {
+            if (skipEnergizers && world.isEnergizerTile(index)) {
+                continue;
+            }
+            int x = world.x(index), y = world.y(index);
+            // use path distance, Manhattan distance only if Pac-Man is inside a portal
+            int dist = distances.distance(pacIndex, index);
+            if (dist == MazeDistances.UNREACHABLE) {
+                dist = Math.abs(x - pacManTile.x()) + Math.abs(y - pacManTile.y());
             }
+            if (dist < minDist) {
+                minDist = dist;
+                foodTiles.clear();
+                foodTiles.add(Vector2i.of(x, y));
+            } else if (dist == minDist) {
+                foodTiles.add(Vector2i.of(x, y));
+            }
+        }
+        // food is iterated row by row, keep the column by column order in which ties were always resolved
+        if (foodTiles.size() > 1) {
+            foodTiles.sort(COLUMN_ORDER);
         }
         time = System.nanoTime() - time;
         Logger.trace("Nearest food tiles from Pac-Man location {}: (time {} millis)", pacManTile, time / 1_000_000f);
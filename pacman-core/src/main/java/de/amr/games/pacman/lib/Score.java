@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.lib;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 
 /**
@@ -47,4 +48,18 @@ public class Score {
     public LocalDate date() {
         return date;
     }
-}
\ No newline at end of file
+
+
+    public void writeState(ByteBuffer out) {
+        out.putInt(points);
+        out.putInt(levelNumber);
+        out.putLong(date != null ? date.toEpochDay() : Long.MIN_VALUE);
+    }
+
+    public void readState(ByteBuffer in) {
+        points = in.getInt();
+        levelNumber = in.getInt();
+        long epochDay = in.getLong();
+        date = epochDay != Long.MIN_VALUE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.lib;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Small, fast and seedable random number generator (SplitMix64, the algorithm also used by
+ * {@link java.util.SplittableRandom}).
+ * <p>
+ * Unlike the JDK generators, its complete state is a single <code>long</code> that can be read and restored, so a game
+ * session can be reproduced, copied or saved. Instances are not thread-safe and are meant to be owned by a single game
+ * session.
+ *
+ * @author Armin Reichert
+ */
+public final class SplitMix64Random implements RandomGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private long state;
+
+    /**
+     * Creates a generator with a seed derived from the system clock.
+     */
+    public SplitMix64Random() {
+        this(mix64(System.nanoTime()) ^ mix64(System.currentTimeMillis() + GOLDEN_GAMMA));
+    }
+
+    /**
+     * @param seed seed value, equal seeds produce equal sequences
+     */
+    public SplitMix64Random(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * @return the current state; a generator created with this value as seed continues with the same sequence
+     */
+    public long state() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * @return a copy of this generator producing the same sequence
+     */
+    public SplitMix64Random copy() {
+        return new SplitMix64Random(state);
+    }
+
+    /**
+     * @return a new generator whose seed is taken from this generator (advances this generator)
+     */
+    public SplitMix64Random split() {
+        return new SplitMix64Random(mix64(nextLong()));
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.lib;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * Helper methods for the binary state format of saved games. Values which may be missing are written with a marker,
+ * enum values as ordinals.
+ *
+ * @author Armin Reichert
+ */
+public final class StateCodec {
+
+    private StateCodec() {
+    }
+
+    public static void putBoolean(ByteBuffer out, boolean value) {
+        out.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    public static boolean getBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    /**
+     * @param out   output buffer
+     * @param value enum value or <code>null</code>
+     */
+    public static void putEnum(ByteBuffer out, Enum<?> value) {
+        out.put(value != null ? (byte) value.ordinal() : (byte) -1);
+    }
+
+    /**
+     * @param in     input buffer
+     * @param values enum values, e.g. <code>Direction.values()</code>
+     * @return enum value or <code>null</code>
+     * @throws IllegalArgumentException if the stored ordinal does not exist
+     */
+    public static <E extends Enum<E>> E getEnum(ByteBuffer in, E[] values) {
+        byte ordinal = in.get();
+        if (ordinal == -1) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IllegalArgumentException("Illegal enum ordinal: " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * @param out  output buffer
+     * @param tile tile or <code>null</code>
+     */
+    public static void putTile(ByteBuffer out, Vector2i tile) {
+        putBoolean(out, tile != null);
+        if (tile != null) {
+            out.putShort((short) tile.x());
+            out.putShort((short) tile.y());
+        }
+    }
+
+    public static Vector2i getTile(ByteBuffer in) {
+        if (!getBoolean(in)) {
+            return null;
+        }
+        short x = in.getShort();
+        short y = in.getShort();
+        return Vector2i.of(x, y);
+    }
+
+    /**
+     * @param out output buffer
+     * @param s   string or <code>null</code>
+     */
+    public static void putString(ByteBuffer out, String s) {
+        if (s == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        if (isAscii(s)) {
+            // UTF-8 encoding of ASCII is ASCII, avoids allocating a byte array
+            out.putShort((short) s.length());
+            for (int i = 0; i < s.length(); ++i) {
+                out.put((byte) s.charAt(i));
+            }
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String too long: " + bytes.length + " bytes");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static boolean isAscii(String s) {
+        if (s.length() > Short.MAX_VALUE) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); ++i) {
+            if (s.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static String getString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Illegal string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param out  output buffer
+     * @param bits bits, see {@link java.util.BitSet#toLongArray()}
+     */
+    public static void putBits(ByteBuffer out, long[] bits) {
+        out.putShort((short) bits.length);
+        for (long word : bits) {
+            out.putLong(word);
+        }
+    }
+
+    /**
+     * Writes the bits of the given bit set in the format of {@link #putBits(ByteBuffer, long[])} without allocating
+     * the word array.
+     *
+     * @param out  output buffer
+     * @param bits bit set
+     */
+    public static void putBits(ByteBuffer out, BitSet bits) {
+        int numWords = (bits.length() + 63) / 64;
+        out.putShort((short) numWords);
+        for (int i = 0; i < numWords; ++i) {
+            long word = 0;
+            for (int bit = bits.nextSetBit(64 * i); bit >= 0 && bit < 64 * (i + 1); bit = bits.nextSetBit(bit + 1)) {
+                word |= 1L << bit;
+            }
+            out.putLong(word);
+        }
+    }
+
+    public static long[] getBits(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0 || 8 * length > in.remaining()) {
+            throw new IllegalArgumentException("Illegal bit set length: " + length);
+        }
+        long[] bits = new long[length];
+        for (int i = 0; i < length; ++i) {
+            bits[i] = in.getLong();
+        }
+        return bits;
+    }
+}
@@ -7,6 +7,7 @@ package de.amr.games.pacman.lib;
 import de.amr.games.pacman.lib.TickTimerEvent.Type;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
@@ -232,4 +233,37 @@ public class TickTimer {
     public long remaining() {
         return duration == INDEFINITE ? INDEFINITE : duration - tick;
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes state, duration and tick of this timer (for saving a game).
+     *
+     * @param out output buffer
+     */
+    public void writeState(ByteBuffer out) {
+        StateCodec.putEnum(out, state);
+        out.putLong(duration);
+        out.putLong(tick);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer)}. No events are fired.
+     *
+     * @param in input buffer
+     */
+    public void readState(ByteBuffer in) {
+        state = StateCodec.getEnum(in, State.values());
+        duration = in.getLong();
+        tick = in.getLong();
+    }
+
+    /**
+     * Copies the state written by {@link #writeState(ByteBuffer)} from another timer. No events are fired.
+     *
+     * @param other timer whose state is copied
+     */
+    public void copyStateFrom(TickTimer other) {
+        state = other.state;
+        duration = other.duration;
+        tick = other.tick;
+    }
+}
@@ -4,17 +4,56 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.lib;
 
-import java.util.Objects;
+import de.amr.games.pacman.model.world.ArcadeWorld;
+
 import java.util.stream.Stream;
 
 /**
  * Immutable int 2D vector.
+ * <p>
+ * Vectors with coordinates in the Arcade world ({@link ArcadeWorld#TILES_X} x {@link ArcadeWorld#TILES_Y} tiles)
+ * extended by {@link #CACHE_MARGIN} tiles on each side are interned: {@link #of(int, int)} and all arithmetic methods
+ * return a preallocated instance for them. The margin covers portal tunnels and the off-world scatter and chase targets
+ * of the ghosts. Vectors outside this range (e.g. targets scaled far beyond the world) are allocated on each call, so
+ * they are equal but not identical. Use {@link #of(int, int)} instead of the constructor when creating tile
+ * coordinates.
  *
  * @author Armin Reichert
  */
 public final class Vector2i {
 
-    public static final Vector2i ZERO = new Vector2i(0, 0);
+    /**
+     * Number of tiles by which the interned range extends the Arcade world on each side.
+     */
+    public static final int CACHE_MARGIN = 16;
+
+    private static final int CACHE_MIN_X = -CACHE_MARGIN;
+    private static final int CACHE_MIN_Y = -CACHE_MARGIN;
+    private static final int CACHE_SIZE_X = ArcadeWorld.TILES_X + 2 * CACHE_MARGIN;
+    private static final int CACHE_SIZE_Y = ArcadeWorld.TILES_Y + 2 * CACHE_MARGIN;
+    private static final Vector2i[] CACHE = new Vector2i[CACHE_SIZE_X * CACHE_SIZE_Y];
+
+    static {
+        for (int i = 0; i < CACHE.length; ++i) {
+            CACHE[i] = new Vector2i(CACHE_MIN_X + i % CACHE_SIZE_X, CACHE_MIN_Y + i / CACHE_SIZE_X);
+        }
+    }
+
+    public static final Vector2i ZERO = of(0, 0);
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the interned vector if the coordinates are inside the cached range, else a new vector
+     */
+    public static Vector2i of(int x, int y) {
+        int cx = x - CACHE_MIN_X;
+        int cy = y - CACHE_MIN_Y;
+        if (0 <= cx && cx < CACHE_SIZE_X && 0 <= cy && cy < CACHE_SIZE_Y) {
+            return CACHE[cy * CACHE_SIZE_X + cx];
+        }
+        return new Vector2i(x, y);
+    }
 
     private final int x;
     private final int y;
@@ -33,23 +72,23 @@ public final class Vector2i {
     }
 
     public Vector2i scaled(int s) {
-        return new Vector2i(s * x, s * y);
+        return of(s * x, s * y);
     }
 
     public Vector2i plus(Vector2i v) {
-        return new Vector2i(x + v.x, y + v.y);
+        return of(x + v.x, y + v.y);
     }
 
     public Vector2i plus(int dx, int dy) {
-        return new Vector2i(x + dx, y + dy);
+        return of(x + dx, y + dy);
     }
 
     public Vector2i minus(Vector2i v) {
-        return new Vector2i(x - v.x, y - v.y);
+        return of(x - v.x, y - v.y);
     }
 
     public Vector2i minus(int dx, int dy) {
-        return new Vector2i(x - dx, y - dy);
+        return of(x - dx, y - dy);
     }
 
     public float euclideanDistance(Vector2i v) {
@@ -75,7 +114,8 @@ public final class Vector2i {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        // same value as Objects.hash(x, y) but without boxing
+        return 31 * (31 + x) + y;
     }
 
     @Override
@@ -4,7 +4,6 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model;
 
-import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.controller.GameState;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.*;
@@ -13,10 +12,12 @@ import de.amr.games.pacman.model.world.ArcadeWorld;
 import de.amr.games.pacman.model.world.World;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -32,6 +33,19 @@ import static de.amr.games.pacman.model.actors.GhostState.*;
  */
 public class GameLevel {
 
+    private static final Map<Vector2i, List<Direction>> PACMAN_FORBIDDEN_MOVES;
+
+    static {
+        var up = List.of(UP);
+        var forbiddenMoves = new HashMap<Vector2i, List<Direction>>();
+        ArcadeWorld.PACMAN_RED_ZONE.forEach(tile -> forbiddenMoves.put(tile, up));
+        // shared by the levels of all sessions and forks, so it must not be modifiable
+        PACMAN_FORBIDDEN_MOVES = Map.copyOf(forbiddenMoves);
+    }
+
+    /** Steering of a forked Pac-Man which keeps the wish direction set from outside. */
+    private static final Steering KEEP_WISH_DIR = creature -> {};
+
     private final int levelNumber;
     private final boolean demoLevel;
     private final GameLevelData data;
@@ -46,8 +60,9 @@ public class GameLevel {
     private byte huntingPhaseIndex;
     private byte totalNumGhostsKilled;
     private byte cruiseElroyState;
-    private SimulationStepEventLog eventLog;
+    private final SimulationStepEventLog eventLog = new SimulationStepEventLog();
     private byte bonusReachedIndex; // -1=no bonus, 0=first, 1=second
+    private boolean forked; // forks for lookahead searches are stepped thousands of times, so they do not log
 
     public GameLevel(int levelNumber, GameLevelData levelData, GameModel game, World world, boolean demoLevel) {
         checkLevelNumber(levelNumber);
@@ -61,49 +76,108 @@ public class GameLevel {
         this.data = levelData;
         this.demoLevel = demoLevel;
 
-        houseControl = new GhostHouseControl(levelNumber);
-        eventLog = new SimulationStepEventLog();
+        houseControl = new GhostHouseControl(levelNumber, game.parameters());
         bonusReachedIndex = -1;
+        pac = createPac();
+        ghosts = createGhosts();
+
+        bonusSymbols[0] = nextBonusSymbol();
+        bonusSymbols[1] = nextBonusSymbol();
+
+        Logger.trace("Game level {} ({}) created.", levelNumber, game.variant());
+    }
+
+    /**
+     * Creates a copy of the given level, see {@link #fork()}.
+     *
+     * @param original original level
+     * @param game     game model of the copy
+     */
+    private GameLevel(GameLevel original, GameModel game) {
+        this.game = game;
+        world = original.world.fork();
+        levelNumber = original.levelNumber;
+        data = original.data;
+        demoLevel = original.demoLevel;
+        forked = true;
+
+        houseControl = new GhostHouseControl(levelNumber, game.parameters());
+        houseControl.copyStateFrom(original.houseControl);
+        huntingTimer.copyStateFrom(original.huntingTimer);
+        System.arraycopy(original.bonusSymbols, 0, bonusSymbols, 0, bonusSymbols.length);
+        huntingPhaseIndex = original.huntingPhaseIndex;
+        totalNumGhostsKilled = original.totalNumGhostsKilled;
+        cruiseElroyState = original.cruiseElroyState;
+        bonusReachedIndex = original.bonusReachedIndex;
+
+        pac = createPac();
+        pac.copyStateFrom(original.pac);
+        ghosts = createGhosts();
+        for (int id = 0; id < ghosts.length; ++id) {
+            ghosts[id].copyStateFrom(original.ghosts[id]);
+        }
+        for (int i = 0; i < original.pac.victims().size(); ++i) {
+            pac.victims().add(ghosts[original.pac.victims().get(i).id()]);
+        }
+        pac.setManualSteering(KEEP_WISH_DIR);
+        switch (original.pac.autopilot()) {
+            case RuleBasedPacSteering ruleBasedSteering ->
+                pac.setAutopilot(new RuleBasedPacSteering(this, ruleBasedSteering.profile()));
+            case RouteBasedSteering routeBasedSteering -> pac.setAutopilot(routeBasedSteering.copy());
+            case null, default -> {}
+        }
+
+        bonus = switch (original.bonus) {
+            case null -> null;
+            case StaticBonus staticBonus -> {
+                var copy = new StaticBonus(staticBonus.symbol(), staticBonus.points());
+                copy.copyStateFrom(staticBonus);
+                yield copy;
+            }
+            case MovingBonus movingBonus -> {
+                var copy = new MovingBonus(movingBonus.symbol(), movingBonus.points());
+                copy.setWorld(world);
+                copy.setBaseSpeed(game.parameters().baseSpeed());
+                copy.copyStateFrom(movingBonus);
+                yield copy;
+            }
+            default -> throw new IllegalStateException("Cannot copy bonus of type " + original.bonus.getClass());
+        };
+    }
 
-        pac = new Pac(game.variant() == GameVariant.MS_PACMAN ? "Ms. Pac-Man" : "Pac-Man");
-        pac.setWorld(world);
-        pac.setBaseSpeed(SPEED_AT_100_PERCENT);
-        pac.setPowerFadingTicks(PAC_POWER_FADING_TICKS); // not sure about duration
+    private Pac createPac() {
+        var newPac = new Pac(game.variant() == GameVariant.MS_PACMAN ? "Ms. Pac-Man" : "Pac-Man");
+        newPac.setWorld(world);
+        newPac.setBaseSpeed(game.parameters().baseSpeed());
+        newPac.setPowerFadingTicks(PAC_POWER_FADING_TICKS); // not sure about duration
+        return newPac;
+    }
 
-        ghosts = new Ghost[] {
+    private Ghost[] createGhosts() {
+        var newGhosts = new Ghost[] {
             new Ghost(RED_GHOST, "Blinky"),
             new Ghost(PINK_GHOST, "Pinky"),
             new Ghost(CYAN_GHOST, "Inky"),
             new Ghost(ORANGE_GHOST, game.variant() == GameVariant.MS_PACMAN ? "Sue" : "Clyde")
         };
-
-        ghosts().forEach(ghost -> {
+        var parameters = game.parameters();
+        for (var ghost : newGhosts) {
             ghost.setWorld(world);
             ghost.setHouse(world.house());
             ghost.setFrightenedBehavior(this::frightenedGhostBehavior);
             ghost.setRevivalPosition(ghostRevivalPosition(ghost.id()));
-            ghost.setBaseSpeed(SPEED_AT_100_PERCENT);
-            ghost.setSpeedReturningToHouse(SPEED_GHOST_RETURNING_TO_HOUSE);
-            ghost.setSpeedInsideHouse(SPEED_GHOST_INSIDE_HOUSE);
-        });
-
-        switch (game.variant()) {
-            case MS_PACMAN -> ghosts().forEach(ghost -> ghost.setHuntingBehavior(this::huntingBehaviorMsPacManGame));
-            case PACMAN -> {
-                var forbiddenMovesAtTile = new HashMap<Vector2i, List<Direction>>();
-                var up = List.of(UP);
-                ArcadeWorld.PACMAN_RED_ZONE.forEach(tile -> forbiddenMovesAtTile.put(tile, up));
-                ghosts().forEach(ghost -> {
-                    ghost.setForbiddenMoves(forbiddenMovesAtTile);
+            ghost.setBaseSpeed(parameters.baseSpeed());
+            ghost.setSpeedReturningToHouse(parameters.ghostSpeedReturningToHouse());
+            ghost.setSpeedInsideHouse(parameters.ghostSpeedInsideHouse());
+            switch (game.variant()) {
+                case MS_PACMAN -> ghost.setHuntingBehavior(this::huntingBehaviorMsPacManGame);
+                case PACMAN -> {
+                    ghost.setForbiddenMoves(PACMAN_FORBIDDEN_MOVES);
                     ghost.setHuntingBehavior(this::huntingBehaviorPacManGame);
-                });
+                }
             }
         }
-
-        bonusSymbols[0] = nextBonusSymbol();
-        bonusSymbols[1] = nextBonusSymbol();
-
-        Logger.trace("Game level {} ({}) created.", levelNumber, game.variant());
+        return newGhosts;
     }
 
     public Direction initialGhostDirection(byte ghostID) {
@@ -257,18 +331,18 @@ public class GameLevel {
             throw new IllegalArgumentException("Hunting phase index must be 0..7, but is " + index);
         }
         huntingPhaseIndex = (byte) index;
-        var durations = game.huntingDurations(levelNumber);
-        var ticks = durations[index] == -1 ? TickTimer.INDEFINITE : durations[index];
+        int duration = game.huntingDuration(levelNumber, index);
+        var ticks = duration == -1 ? TickTimer.INDEFINITE : duration;
         huntingTimer.reset(ticks);
         huntingTimer.start();
-        Logger.info("Hunting phase {} ({}, {} ticks / {} seconds) started. {}",
+        logInfo("Hunting phase {} ({}, {} ticks / {} seconds) started. {}",
             index, currentHuntingPhaseName(), huntingTimer.duration(),
             (float) huntingTimer.duration() / GameModel.FPS, huntingTimer);
     }
 
     public void stopHuntingPhase() {
         huntingTimer.stop();
-        Logger.info("Hunting timer stopped");
+        logInfo("Hunting timer stopped");
     }
 
     /**
@@ -351,8 +425,8 @@ public class GameLevel {
         ghost.roam(world, relSpeed, pseudoRandomDirection());
     }
 
-    private static Direction pseudoRandomDirection() {
-        float rnd = Globals.randomFloat(0, 100);
+    private Direction pseudoRandomDirection() {
+        float rnd = game.random().nextFloat(0, 100);
         if (rnd < 16.3) return UP;
         if (rnd < 16.3 + 25.2) return RIGHT;
         if (rnd < 16.3 + 25.2 + 28.5) return DOWN;
@@ -441,12 +515,11 @@ public class GameLevel {
     private void updateFood() {
         final Vector2i pacTile = pac.tile();
         if (world.hasFoodAt(pacTile)) {
-            eventLog.foodFoundTile = pacTile;
+            eventLog.foodFound(pacTile, world.isEnergizerTile(pacTile));
             if (world.isEnergizerTile(pacTile)) {
-                eventLog.energizerFound = true;
                 pac.eatEnergizer();
                 scorePoints(GameModel.POINTS_ENERGIZER);
-                Logger.info("Scored {} points for eating energizer", GameModel.POINTS_ENERGIZER);
+                logInfo("Scored {} points for eating energizer", GameModel.POINTS_ENERGIZER);
             } else {
                 pac.eatPellet();
                 scorePoints(GameModel.POINTS_NORMAL_PELLET);
@@ -460,7 +533,7 @@ public class GameLevel {
             }
             if (isBonusReached()) {
                 bonusReachedIndex += 1;
-                eventLog.bonusIndex = bonusReachedIndex;
+                eventLog.bonusReached(bonusReachedIndex);
                 onBonusReached(bonusReachedIndex);
             }
             publishGameEvent(game, GameEventType.PAC_FOUND_FOOD, pacTile);
@@ -470,23 +543,23 @@ public class GameLevel {
     }
 
     private void updatePacPower() {
-        if (eventLog.energizerFound && data.pacPowerSeconds() > 0) {
+        if (eventLog.energizerFound() && data.pacPowerSeconds() > 0) {
             stopHuntingPhase();
             pac.powerTimer().restartSeconds(data.pacPowerSeconds());
             ghosts(HUNTING_PAC).forEach(ghost -> ghost.setState(FRIGHTENED));
             ghosts(FRIGHTENED).forEach(Ghost::reverseAsSoonAsPossible);
-            eventLog.pacGetsPower = true;
+            eventLog.pacGetsPower();
             publishGameEvent(game, GameEventType.PAC_GETS_POWER);
         } else if (pac.powerTimer().remaining() == GameModel.PAC_POWER_FADING_TICKS) {
-            eventLog.pacStartsLosingPower = true;
+            eventLog.pacStartsLosingPower();
             publishGameEvent(game, GameEventType.PAC_STARTS_LOSING_POWER);
         } else if (pac.powerTimer().hasExpired()) {
             pac.powerTimer().stop();
             pac.powerTimer().resetIndefinitely();
             huntingTimer.start();
-            Logger.info("Hunting timer started");
+            logInfo("Hunting timer started");
             ghosts(FRIGHTENED).forEach(ghost -> ghost.setState(HUNTING_PAC));
-            eventLog.pacLostPower = true;
+            eventLog.pacLostPower();
             publishGameEvent(game, GameEventType.PAC_LOST_POWER);
         }
     }
@@ -495,7 +568,7 @@ public class GameLevel {
         if (bonus != null) {
             boolean eaten = checkPacEatsBonus(bonus);
             if (eaten) {
-                eventLog.bonusEaten = true;
+                eventLog.bonusEaten();
                 publishGameEvent(game, GameEventType.BONUS_EATEN);
             }
             bonus.update(this);
@@ -514,7 +587,7 @@ public class GameLevel {
     private void updateGhosts() {
         houseControl.unlockGhost(this).ifPresent(unlocked -> {
             var ghost = unlocked.ghost();
-            Logger.info("{} unlocked: {}", ghost.name(), unlocked.reason());
+            logInfo("{} unlocked: {}", ghost.name(), unlocked.reason());
             if (ghost.insideHouse(world.house())) {
                 ghost.setState(LEAVING_HOUSE);
             } else {
@@ -525,13 +598,13 @@ public class GameLevel {
                 enableCruiseElroyState(true);
                 Logger.trace("Cruise elroy mode re-enabled because {} exits house", ghost.name());
             }
-            eventLog.unlockedGhost = ghost;
+            eventLog.ghostUnlocked(ghost);
         });
         ghosts().forEach(ghost -> ghost.update(pac));
     }
 
     public GameState doHuntingStep() {
-        eventLog = new SimulationStepEventLog();
+        eventLog.clear();
         pac.update(this);
         updateGhosts();
         updateFood();
@@ -543,8 +616,8 @@ public class GameLevel {
             return GameState.LEVEL_COMPLETE;
         }
         var killers = ghosts(HUNTING_PAC).filter(pac::sameTile).toList();
-        if (!killers.isEmpty() && !GameController.it().isPacImmune()) {
-            eventLog.pacDied = true;
+        if (!killers.isEmpty() && !pac.isImmune()) {
+            eventLog.pacDied(killers.get(0));
             return GameState.PACMAN_DYING;
         }
         var prey = ghosts(FRIGHTENED).filter(pac::sameTile).toList();
@@ -555,15 +628,18 @@ public class GameLevel {
         return GameState.HUNTING;
     }
 
-    public void doLevelTestStep(TickTimer timer, int lastTestedLevel) {
-        if (number() <= lastTestedLevel) {
-            handleEarlyTestSteps(timer);
-            handleMidTestSteps(timer);
-            handleLateTestSteps(timer);
-            updateWorldState();
-        } else {
-            GameController.it().restart(GameState.BOOT);
-        }
+    /**
+     * Executes one step of the level test.
+     *
+     * @param timer level test timer
+     * @return {@code true} if the test of this level is complete and the next level can be started
+     */
+    public boolean doLevelTestStep(TickTimer timer) {
+        handleEarlyTestSteps(timer);
+        handleMidTestSteps(timer);
+        boolean complete = handleLateTestSteps(timer);
+        updateWorldState();
+        return complete;
     }
 
     private static final double READY_TO_RUMBLE_TIME = 0.5;
@@ -607,14 +683,15 @@ public class GameLevel {
         }
     }
 
-    private void handleLateTestSteps(TickTimer timer) {
+    private boolean handleLateTestSteps(TickTimer timer) {
         if (timer.atSecond(LATE_TEST_STEP_TIME)) {
             pac.freeze();
             ghosts().forEach(Ghost::hide);
             bonus().ifPresent(Bonus::setInactive);
             world().mazeFlashing().reset();
-            GameController.it().createAndStartLevel(levelNumber + 1);
+            return true;
         }
+        return false;
     }
 
     private void updateWorldState() {
@@ -639,7 +716,7 @@ public class GameLevel {
             if (totalNumGhostsKilled == 16) {
                 int points = GameModel.POINTS_ALL_GHOSTS_KILLED_IN_LEVEL;
                 scorePoints(points);
-                Logger.info("Scored {} points for killing all ghosts at level {}", points, levelNumber);
+                logInfo("Scored {} points for killing all ghosts at level {}", points, levelNumber);
             }
         }
     }
@@ -649,9 +726,9 @@ public class GameLevel {
         int points = game.pointsForKillingGhost(pac.victims().size());
         ghost.eaten(pac.victims().size());
         pac.victims().add(ghost);
-        eventLog.killedGhosts.add(ghost);
+        eventLog.ghostKilled(ghost);
         scorePoints(points);
-        Logger.info("Scored {} points for killing {} at tile {}", points, ghost.name(), ghost.tile());
+        logInfo("Scored {} points for killing {} at tile {}", points, ghost.name(), ghost.tile());
     }
 
     // Bonus Management
@@ -707,7 +784,7 @@ public class GameLevel {
                 case 6 -> GameModel.MS_PACMAN_PEAR;
                 case 7 -> GameModel.MS_PACMAN_BANANA;
                 default -> {
-                    int random = randomInt(0, 320);
+                    int random = game.random().nextInt(0, 320);
                     if (random <  50) yield GameModel.MS_PACMAN_CHERRIES;
                     if (random < 100) yield GameModel.MS_PACMAN_STRAWBERRY;
                     if (random < 150) yield GameModel.MS_PACMAN_ORANGE;
@@ -750,7 +827,7 @@ public class GameLevel {
         if (bonus.state() == Bonus.STATE_EDIBLE && pac.sameTile(bonus.entity())) {
             bonus.setEaten(GameModel.BONUS_POINTS_SHOWN_TICKS);
             scorePoints(bonus.points());
-            Logger.info("Scored {} points for eating bonus {}", bonus.points(), bonus);
+            logInfo("Scored {} points for eating bonus {}", bonus.points(), bonus);
             return true;
         }
         return false;
@@ -768,12 +845,12 @@ public class GameLevel {
         switch (game.variant()) {
             case MS_PACMAN -> {
                 if (bonusIndex == 1 && bonus != null && bonus.state() != Bonus.STATE_INACTIVE) {
-                    Logger.info("First bonus still active, skip second one");
+                    logInfo("First bonus still active, skip second one");
                     return;
                 }
                 byte symbol = bonusSymbols[bonusIndex];
                 int points = GameModel.BONUS_VALUES_MS_PACMAN[symbol] * 100;
-                bonus = createMovingBonus(symbol, points, RND.nextBoolean());
+                bonus = createMovingBonus(symbol, points, game.random().nextBoolean());
                 bonus.setEdible(TickTimer.INDEFINITE);
                 publishGameEvent(game, GameEventType.BONUS_ACTIVATED, bonus.entity().tile());
             }
@@ -782,7 +859,7 @@ public class GameLevel {
                 int points = GameModel.BONUS_VALUES_PACMAN[symbol] * 100;
                 bonus = new StaticBonus(symbol, points);
                 bonus.entity().setPosition(ArcadeWorld.BONUS_POSITION);
-                bonus.setEdible(randomInt(9 * FPS, 10 * FPS));
+                bonus.setEdible(game.random().nextInt(9 * FPS, 10 * FPS));
                 publishGameEvent(game, GameEventType.BONUS_ACTIVATED, bonus.entity().tile());
             }
         }
@@ -800,8 +877,8 @@ public class GameLevel {
         var houseEntryOpposite = houseEntry.plus(0, house.size().y() + 1);
 
         var portals     = world.portals();
-        var entryPortal = portals.get(RND.nextInt(portals.size()));
-        var exitPortal  = portals.get(RND.nextInt(portals.size()));
+        var entryPortal = portals.get(game.random().nextInt(portals.size()));
+        var exitPortal  = portals.get(game.random().nextInt(portals.size()));
 
         var route = new ArrayList<NavPoint>();
         route.add(np(leftToRight ? entryPortal.leftTunnelEnd() : entryPortal.rightTunnelEnd()));
@@ -815,9 +892,141 @@ public class GameLevel {
 
         var movingBonus = new MovingBonus(symbol, points);
         movingBonus.setWorld(world);
-        movingBonus.setBaseSpeed(SPEED_AT_100_PERCENT);
+        movingBonus.setBaseSpeed(game.parameters().baseSpeed());
         movingBonus.setRoute(route, leftToRight);
-        Logger.info("Moving bonus created, route: {} ({})", route, leftToRight ? "left to right" : "right to left");
+        logInfo("Moving bonus created, route: {} ({})", route, leftToRight ? "left to right" : "right to left");
         return movingBonus;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates an independent copy of this level for simulating possible futures, e.g. by a lookahead search. The copy
+     * shares the immutable data (level data, tile map, topology, routes) and copies the mutable state field by field:
+     * creatures, bonus, timers, eaten food and the lives, scores and random generator of the game model. The copy
+     * belongs to a game model of its own whose event manager has no listeners, so nothing done to the copy is visible
+     * outside.
+     * <p>
+     * Pac-Man's autopilot is recreated for the copy if it is a {@link RuleBasedPacSteering} or a
+     * {@link RouteBasedSteering}, other autopilots are not copied. The manual steering of the copy keeps the wish
+     * direction set from outside.
+     *
+     * @return copy of this level
+     */
+    public GameLevel fork() {
+        var gameCopy = game.fork();
+        var copy = new GameLevel(this, gameCopy);
+        gameCopy.setLevel(copy);
+        return copy;
+    }
+
+    private void logInfo(String message, Object... args) {
+        if (!forked) {
+            Logger.info(message, args);
+        }
+    }
+
+    private static final byte NO_BONUS = 0;
+    private static final byte STATIC_BONUS = 1;
+    private static final byte MOVING_BONUS = 2;
+
+    private static final byte NO_ROUTE = 0;
+    private static final byte ROUTE = 1;
+
+    /**
+     * Writes the mutable state of this level: timers, counters, eaten food, creatures and bonus (for saving a game).
+     * Constant data like the level data and the maze are defined by the level number and not written.
+     *
+     * @param out output buffer
+     */
+    public void writeState(ByteBuffer out) {
+        huntingTimer.writeState(out);
+        out.put(bonusSymbols);
+        out.put(huntingPhaseIndex);
+        out.put(totalNumGhostsKilled);
+        out.put(cruiseElroyState);
+        out.put(bonusReachedIndex);
+        houseControl.writeState(out);
+        world.writeState(out);
+        pac.writeState(out);
+        out.put((byte) pac.victims().size());
+        for (int i = 0; i < pac.victims().size(); ++i) {
+            out.put(pac.victims().get(i).id());
+        }
+        if (pac.autopilot() instanceof RouteBasedSteering routeBasedSteering) {
+            out.put(ROUTE);
+            routeBasedSteering.writeState(out);
+        } else {
+            out.put(NO_ROUTE);
+        }
+        for (var ghost : ghosts) {
+            ghost.writeState(out);
+        }
+        switch (bonus) {
+            case null -> out.put(NO_BONUS);
+            case StaticBonus staticBonus -> {
+                out.put(STATIC_BONUS);
+                out.put(staticBonus.symbol());
+                out.putInt(staticBonus.points());
+                staticBonus.writeState(out);
+            }
+            case MovingBonus movingBonus -> {
+                out.put(MOVING_BONUS);
+                out.put(movingBonus.symbol());
+                out.putInt(movingBonus.points());
+                movingBonus.writeState(out);
+            }
+            default -> throw new IllegalStateException("Cannot save bonus of type " + bonus.getClass());
+        }
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer)} into a newly created level with the same number and
+     * steering.
+     *
+     * @param in input buffer
+     */
+    public void readState(ByteBuffer in) {
+        huntingTimer.readState(in);
+        in.get(bonusSymbols);
+        huntingPhaseIndex = in.get();
+        totalNumGhostsKilled = in.get();
+        cruiseElroyState = in.get();
+        bonusReachedIndex = in.get();
+        houseControl.readState(in);
+        world.readState(in);
+        pac.readState(in);
+        pac.victims().clear();
+        int numVictims = in.get();
+        for (int i = 0; i < numVictims; ++i) {
+            pac.victims().add(ghost(in.get()));
+        }
+        switch (in.get()) {
+            case NO_ROUTE -> {}
+            case ROUTE -> {
+                // read even if this level's autopilot does not follow a route, so the following state stays aligned
+                var route = pac.autopilot() instanceof RouteBasedSteering routeBasedSteering
+                    ? routeBasedSteering : new RouteBasedSteering(List.of());
+                route.readState(in);
+            }
+            default -> throw new IllegalArgumentException("Illegal autopilot state tag");
+        }
+        for (var ghost : ghosts) {
+            ghost.readState(in);
+        }
+        bonus = switch (in.get()) {
+            case NO_BONUS -> null;
+            case STATIC_BONUS -> {
+                var staticBonus = new StaticBonus(in.get(), in.getInt());
+                staticBonus.readState(in);
+                yield staticBonus;
+            }
+            case MOVING_BONUS -> {
+                var movingBonus = new MovingBonus(in.get(), in.getInt());
+                movingBonus.setWorld(world);
+                movingBonus.setBaseSpeed(game.parameters().baseSpeed());
+                movingBonus.readState(in);
+                yield movingBonus;
+            }
+            default -> throw new IllegalArgumentException("Illegal bonus type");
+        };
+    }
+}
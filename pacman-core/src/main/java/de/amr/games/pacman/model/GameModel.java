@@ -4,18 +4,22 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model;
 
+import de.amr.games.pacman.event.GameEventManager;
 import de.amr.games.pacman.lib.Score;
+import de.amr.games.pacman.lib.SplitMix64Random;
 import org.tinylog.Logger;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 import static de.amr.games.pacman.lib.Globals.checkGameVariant;
 import static de.amr.games.pacman.lib.Globals.checkLevelNumber;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
 
 /**
  * Pac-Man / Ms. Pac-Man game model.
@@ -47,7 +51,7 @@ public class GameModel {
     public static final short BONUS_POINTS_SHOWN_TICKS = 2 * FPS; // unsure
     public static final short PAC_POWER_FADING_TICKS = 2 * FPS; // unsure
 
-    private static final byte[][] RAW_LEVEL_DATA = {
+    static final byte[][] RAW_LEVEL_DATA = {
         /* 1*/ { 80, 75, 40,  20,  80, 10,  85,  90, 50, 6, 5, 0},
         /* 2*/ { 90, 85, 45,  30,  90, 15,  95,  95, 55, 5, 5, 1},
         /* 3*/ { 90, 85, 45,  40,  90, 20,  95,  95, 55, 4, 5, 0},
@@ -71,14 +75,16 @@ public class GameModel {
         /*21*/ { 90, 95, 50, 120, 100, 60, 105,   0,  0, 0, 0, 0},
     };
 
+    /**
+     * @param levelNumber level number (starting at 1)
+     * @return level data of the arcade game, see {@link GameParameters#DEFAULT}
+     */
     public static GameLevelData levelData(int levelNumber) {
-        checkLevelNumber(levelNumber);
-        int index = Math.min(levelNumber - 1, RAW_LEVEL_DATA.length - 1);
-        return new GameLevelData(RAW_LEVEL_DATA[index]);
+        return GameParameters.DEFAULT.levelData(levelNumber);
     }
 
     // Hunting duration (in ticks) of chase and scatter phases. See Pac-Man dossier.
-    private static final int[][] HUNTING_DURATIONS_PACMAN = {
+    static final int[][] HUNTING_DURATIONS_PACMAN = {
         {7 * FPS, 20 * FPS, 7 * FPS, 20 * FPS, 5 * FPS,   20 * FPS, 5 * FPS, -1}, // Level 1
         {7 * FPS, 20 * FPS, 7 * FPS, 20 * FPS, 5 * FPS, 1033 * FPS,       1, -1}, // Levels 2-4
         {5 * FPS, 20 * FPS, 5 * FPS, 20 * FPS, 5 * FPS, 1037 * FPS,       1, -1}, // Levels 5+
@@ -90,21 +96,26 @@ public class GameModel {
      * @see <a href="https://www.reddit.com/r/Pacman/comments/12q4ny3/is_anyone_able_to_explain_the_ai_behind_the/">Reddit</a>
      * @see <a href=" https://github.com/armin-reichert/pacman-basic/blob/main/doc/mspacman-details-reddit-user-damselindis.md">GitHub</a>
      */
-    private static final int[][] HUNTING_DURATIONS_MS_PACMAN = {
+    static final int[][] HUNTING_DURATIONS_MS_PACMAN = {
         {7 * FPS, 20 * FPS, 1, 1037 * FPS, 1, 1037 * FPS, 1, -1}, // Levels 1-4
         {5 * FPS, 20 * FPS, 1, 1037 * FPS, 1, 1037 * FPS, 1, -1}, // Levels 5+
     };
 
+    /**
+     * @param levelNumber level number (starting at 1)
+     * @return copy of the hunting phase durations (in ticks) of the given level
+     */
     public int[] huntingDurations(int levelNumber) {
-        checkLevelNumber(levelNumber);
-        return switch (variant) {
-            case MS_PACMAN -> HUNTING_DURATIONS_MS_PACMAN[levelNumber <= 4 ? 0 : 1];
-            case PACMAN -> switch (levelNumber) {
-                case 1 -> HUNTING_DURATIONS_PACMAN[0];
-                case 2, 3, 4 -> HUNTING_DURATIONS_PACMAN[1];
-                default -> HUNTING_DURATIONS_PACMAN[2];
-            };
-        };
+        return parameters.huntingDurations(variant, levelNumber);
+    }
+
+    /**
+     * @param levelNumber level number (starting at 1)
+     * @param phase       hunting phase index (0-7)
+     * @return duration (in ticks) of the given hunting phase, -1 means indefinite
+     */
+    public int huntingDuration(int levelNumber, int phase) {
+        return parameters.huntingDuration(variant, levelNumber, phase);
     }
 
     public static final byte MS_PACMAN_CHERRIES = 0;
@@ -141,22 +152,59 @@ public class GameModel {
     }
 
     private final GameVariant variant;
+    private final GameEventManager eventManager;
     private final List<Byte> levelCounter;
     private final Score score;
     private final Score highScore;
     private GameLevel level;
     private short initialLives;
     private short lives;
+    private boolean highScorePersistent = true;
+    private final SplitMix64Random random = new SplitMix64Random();
+    private GameParameters parameters = GameParameters.DEFAULT;
 
     public GameModel(GameVariant variant) {
+        this(variant, new GameEventManager());
+    }
+
+    /**
+     * @param variant      game variant
+     * @param eventManager manager of the game session this model belongs to
+     */
+    public GameModel(GameVariant variant, GameEventManager eventManager) {
         checkGameVariant(variant);
+        checkNotNull(eventManager);
         this.variant = variant;
+        this.eventManager = eventManager;
         levelCounter = new LinkedList<>();
         score = new Score();
         highScore = new Score();
         initialLives = 3;
     }
 
+    /**
+     * @return copy of lives, scores, level counter and random generator state without level. The copy has its own event
+     * manager without listeners and never touches the high score file.
+     */
+    GameModel fork() {
+        var copy = new GameModel(variant);
+        copy.highScorePersistent = false;
+        copy.initialLives = initialLives;
+        copy.lives = lives;
+        copyScore(score, copy.score);
+        copyScore(highScore, copy.highScore);
+        copy.levelCounter.addAll(levelCounter);
+        copy.random.setState(random.state());
+        copy.parameters = parameters;
+        return copy;
+    }
+
+    private static void copyScore(Score source, Score target) {
+        target.setPoints(source.points());
+        target.setLevelNumber(source.levelNumber());
+        target.setDate(source.date());
+    }
+
     /**
      * Resets the game and deletes the current level. Credit, immunity and scores remain unchanged.
      */
@@ -177,10 +225,59 @@ public class GameModel {
         return Optional.ofNullable(level);
     }
 
+    /**
+     * @return current level or <code>null</code>, for code that must not allocate, e.g. when saving the state every
+     * tick
+     */
+    public GameLevel levelOrNull() {
+        return level;
+    }
+
     public GameVariant variant() {
         return variant;
     }
 
+    /**
+     * @return the random generator of this game session. All random decisions of the simulation (frightened ghosts,
+     * bonus symbols and routes, autopilot) use this generator, so a game can be reproduced by setting the seed.
+     */
+    public SplitMix64Random random() {
+        return random;
+    }
+
+    /**
+     * Seeds the random generator of this game session.
+     *
+     * @param seed seed value
+     */
+    public void setRandomSeed(long seed) {
+        random.setState(seed);
+    }
+
+    /**
+     * @return the balance tables of this game session (level data, hunting durations, ghost house limits, speeds)
+     */
+    public GameParameters parameters() {
+        return parameters;
+    }
+
+    /**
+     * Sets the balance tables used by the levels created from now on. Parameters are not part of a saved game.
+     *
+     * @param parameters game parameters
+     */
+    public void setParameters(GameParameters parameters) {
+        checkNotNull(parameters);
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return the event manager of the game session this model belongs to
+     */
+    public GameEventManager eventManager() {
+        return eventManager;
+    }
+
     public short initialLives() {
         return initialLives;
     }
@@ -232,11 +329,31 @@ public class GameModel {
         return points[index];
     }
 
+    /**
+     * @return if the high score is loaded from and saved to the user's high score file
+     */
+    public boolean isHighScorePersistent() {
+        return highScorePersistent;
+    }
+
+    /**
+     * @param highScorePersistent if the high score file should be used. Headless simulations switch this off such that
+     *                            they do not touch the high score of the user.
+     */
+    public void setHighScorePersistent(boolean highScorePersistent) {
+        this.highScorePersistent = highScorePersistent;
+    }
+
     public void loadHighScore() {
-        loadScore(highScore, highScoreFile(variant));
+        if (highScorePersistent) {
+            loadScore(highScore, highScoreFile(variant));
+        }
     }
 
     public void updateHighScore() {
+        if (!highScorePersistent) {
+            return;
+        }
         var file = highScoreFile(variant);
         var oldHighScore = new Score();
         loadScore(oldHighScore, file);
@@ -273,4 +390,42 @@ public class GameModel {
             Logger.error("Score could not be saved to file '{}'. Error: {}", file, x.getMessage());
         }
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Writes lives, scores and level counter (for saving a game). The level and the state of the random generator are
+     * written separately as creating a level consumes random numbers.
+     *
+     * @param out output buffer
+     */
+    public void writeState(ByteBuffer out) {
+        out.putShort(initialLives);
+        out.putShort(lives);
+        score.writeState(out);
+        highScore.writeState(out);
+        out.put((byte) levelCounter.size());
+        for (int i = 0; i < levelCounter.size(); ++i) {
+            out.put(levelCounter.get(i));
+        }
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer)}.
+     *
+     * @param in input buffer
+     */
+    public void readState(ByteBuffer in) {
+        initialLives = in.getShort();
+        lives = in.getShort();
+        score.readState(in);
+        highScore.readState(in);
+        levelCounter.clear();
+        int size = in.get();
+        if (size < 0 || size > LEVEL_COUNTER_MAX_SYMBOLS) {
+            throw new IllegalArgumentException("Illegal level counter size: " + size);
+        }
+        for (int i = 0; i < size; ++i) {
+            levelCounter.add(in.get());
+        }
+    }
+}
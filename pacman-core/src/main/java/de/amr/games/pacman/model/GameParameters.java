@@ -0,0 +1,294 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model;
+
+import java.util.Arrays;
+
+import static de.amr.games.pacman.lib.Globals.checkGameVariant;
+import static de.amr.games.pacman.lib.Globals.checkLevelNumber;
+
+/**
+ * The game balance tables: level data, durations of the hunting phases, dot limits and starving limits of the ghost
+ * house and the creature speeds. {@link #DEFAULT} contains the values of the arcade games, other instances are used to
+ * explore the difficulty of modified games (see {@link GameModel#setParameters(GameParameters)}).
+ * <p>
+ * Instances are immutable, the <code>with</code> methods return modified copies. So one instance can be shared by the
+ * games of all threads.
+ *
+ * @author Armin Reichert
+ */
+public final class GameParameters {
+
+    /** Value of a global dot limit that is never reached. */
+    public static final byte UNLIMITED = -1;
+
+    public static final GameParameters DEFAULT = new GameParameters(
+        GameModel.RAW_LEVEL_DATA,
+        GameModel.HUNTING_DURATIONS_PACMAN,
+        GameModel.HUNTING_DURATIONS_MS_PACMAN,
+        new byte[][] {
+            {0, 0, 30, 60}, // level 1
+            {0, 0,  0, 50}, // level 2
+            {0, 0,  0,  0}, // levels 3+
+        },
+        new byte[] {UNLIMITED, 7, 17, UNLIMITED},
+        new int[] {240, 180}, // 4 sec in levels 1-4, 3 sec in levels 5+
+        GameModel.SPEED_AT_100_PERCENT,
+        GameModel.SPEED_GHOST_INSIDE_HOUSE,
+        GameModel.SPEED_GHOST_RETURNING_TO_HOUSE);
+
+    private final byte[][] levelData;
+    private final int[][] huntingDurationsPacMan;
+    private final int[][] huntingDurationsMsPacMan;
+    private final byte[][] privateDotLimits;
+    private final byte[] globalDotLimits;
+    private final int[] pacStarvingLimitTicks;
+    private final float baseSpeed;
+    private final float ghostSpeedInsideHouse;
+    private final float ghostSpeedReturningToHouse;
+
+    private GameParameters(byte[][] levelData, int[][] huntingDurationsPacMan, int[][] huntingDurationsMsPacMan,
+                           byte[][] privateDotLimits, byte[] globalDotLimits, int[] pacStarvingLimitTicks,
+                           float baseSpeed, float ghostSpeedInsideHouse, float ghostSpeedReturningToHouse) {
+        this.levelData = deepCopy(levelData);
+        this.huntingDurationsPacMan = deepCopy(huntingDurationsPacMan);
+        this.huntingDurationsMsPacMan = deepCopy(huntingDurationsMsPacMan);
+        this.privateDotLimits = deepCopy(privateDotLimits);
+        this.globalDotLimits = globalDotLimits.clone();
+        this.pacStarvingLimitTicks = pacStarvingLimitTicks.clone();
+        this.baseSpeed = baseSpeed;
+        this.ghostSpeedInsideHouse = ghostSpeedInsideHouse;
+        this.ghostSpeedReturningToHouse = ghostSpeedReturningToHouse;
+    }
+
+    private GameParameters copy() {
+        return new GameParameters(levelData, huntingDurationsPacMan, huntingDurationsMsPacMan, privateDotLimits,
+            globalDotLimits, pacStarvingLimitTicks, baseSpeed, ghostSpeedInsideHouse, ghostSpeedReturningToHouse);
+    }
+
+    private static byte[][] deepCopy(byte[][] table) {
+        return Arrays.stream(table).map(byte[]::clone).toArray(byte[][]::new);
+    }
+
+    private static int[][] deepCopy(int[][] table) {
+        return Arrays.stream(table).map(int[]::clone).toArray(int[][]::new);
+    }
+
+    // Level data
+
+    /**
+     * @return number of rows of the level data table, the last row is used for all higher levels
+     */
+    public int numLevelDataRows() {
+        return levelData.length;
+    }
+
+    /**
+     * @param levelNumber level number (starting at 1)
+     * @return level data of the given level
+     */
+    public GameLevelData levelData(int levelNumber) {
+        checkLevelNumber(levelNumber);
+        return new GameLevelData(levelData[levelDataRow(levelNumber)]);
+    }
+
+    /**
+     * @param levelNumber level number (starting at 1)
+     * @param column      column of the level data table, see the components of {@link GameLevelData}
+     * @return value in the given column
+     */
+    public int levelDataValue(int levelNumber, int column) {
+        checkLevelNumber(levelNumber);
+        return levelData[levelDataRow(levelNumber)][column];
+    }
+
+    /**
+     * @param levelNumber level number (starting at 1), the last row of the table is used for all higher levels
+     * @param column      column of the level data table, see the components of {@link GameLevelData}
+     * @param value       new value (0-127)
+     * @return copy with the given value in the given column
+     */
+    public GameParameters withLevelDataValue(int levelNumber, int column, int value) {
+        checkLevelNumber(levelNumber);
+        checkRange(value, 0, Byte.MAX_VALUE, "Level data value");
+        var copy = copy();
+        copy.levelData[levelDataRow(levelNumber)][column] = (byte) value;
+        return copy;
+    }
+
+    private int levelDataRow(int levelNumber) {
+        return Math.min(levelNumber - 1, levelData.length - 1);
+    }
+
+    // Hunting phases
+
+    /**
+     * @param variant game variant
+     * @return number of rows of the hunting duration table of the given variant
+     */
+    public int numHuntingDurationRows(GameVariant variant) {
+        return huntingDurationTable(variant).length;
+    }
+
+    /**
+     * @param variant     game variant
+     * @param levelNumber level number (starting at 1)
+     * @return copy of the durations (in ticks) of the scatter and chase phases (scatter first), -1 means indefinite
+     */
+    public int[] huntingDurations(GameVariant variant, int levelNumber) {
+        checkLevelNumber(levelNumber);
+        return huntingDurationTable(variant)[huntingDurationRow(variant, levelNumber)].clone();
+    }
+
+    /**
+     * @param variant     game variant
+     * @param levelNumber level number (starting at 1)
+     * @param phase       hunting phase index (0-7)
+     * @return duration (in ticks) of the given hunting phase, -1 means indefinite
+     */
+    public int huntingDuration(GameVariant variant, int levelNumber, int phase) {
+        checkLevelNumber(levelNumber);
+        return huntingDurationTable(variant)[huntingDurationRow(variant, levelNumber)][phase];
+    }
+
+    /**
+     * @param variant game variant
+     * @param row     row of the table, for Pac-Man: 0=level 1, 1=levels 2-4, 2=levels 5+, for Ms. Pac-Man: 0=levels 1-4,
+     *                1=levels 5+
+     * @param phase   hunting phase index (0-7)
+     * @param ticks   new duration, -1 means indefinite
+     * @return copy with the given duration
+     */
+    public GameParameters withHuntingDuration(GameVariant variant, int row, int phase, int ticks) {
+        checkRange(ticks, -1, Integer.MAX_VALUE, "Hunting duration");
+        var copy = copy();
+        copy.huntingDurationTable(variant)[row][phase] = ticks;
+        return copy;
+    }
+
+    private int[][] huntingDurationTable(GameVariant variant) {
+        checkGameVariant(variant);
+        return switch (variant) {
+            case MS_PACMAN -> huntingDurationsMsPacMan;
+            case PACMAN -> huntingDurationsPacMan;
+        };
+    }
+
+    private static int huntingDurationRow(GameVariant variant, int levelNumber) {
+        return switch (variant) {
+            case MS_PACMAN -> levelNumber <= 4 ? 0 : 1;
+            case PACMAN -> switch (levelNumber) {
+                case 1 -> 0;
+                case 2, 3, 4 -> 1;
+                default -> 2;
+            };
+        };
+    }
+
+    // Ghost house
+
+    /**
+     * @param levelNumber level number (starting at 1)
+     * @param ghostID     ghost ID
+     * @return number of dots the ghost's private dot counter must reach before the ghost leaves the house
+     */
+    public byte privateDotLimit(int levelNumber, byte ghostID) {
+        checkLevelNumber(levelNumber);
+        return privateDotLimits[Math.min(levelNumber, privateDotLimits.length) - 1][ghostID];
+    }
+
+    /**
+     * @param levelNumber level number: 1, 2 or 3 (for levels 3+)
+     * @param ghostID     ghost ID
+     * @param limit       new limit
+     * @return copy with the given limit
+     */
+    public GameParameters withPrivateDotLimit(int levelNumber, byte ghostID, int limit) {
+        checkRange(levelNumber, 1, privateDotLimits.length, "Level number");
+        checkRange(limit, 0, Byte.MAX_VALUE, "Dot limit");
+        var copy = copy();
+        copy.privateDotLimits[levelNumber - 1][ghostID] = (byte) limit;
+        return copy;
+    }
+
+    /**
+     * @param ghostID ghost ID
+     * @return value of the global dot counter (used after Pac-Man lost a life) when the ghost leaves the house or
+     * {@link #UNLIMITED}
+     */
+    public byte globalDotLimit(byte ghostID) {
+        return globalDotLimits[ghostID];
+    }
+
+    /**
+     * @param ghostID ghost ID
+     * @param limit   new limit or {@link #UNLIMITED}
+     * @return copy with the given limit
+     */
+    public GameParameters withGlobalDotLimit(byte ghostID, int limit) {
+        checkRange(limit, UNLIMITED, Byte.MAX_VALUE, "Dot limit");
+        var copy = copy();
+        copy.globalDotLimits[ghostID] = (byte) limit;
+        return copy;
+    }
+
+    /**
+     * @param levelNumber level number (starting at 1)
+     * @return number of ticks without eating after which the next ghost leaves the house
+     */
+    public int pacStarvingLimitTicks(int levelNumber) {
+        checkLevelNumber(levelNumber);
+        return pacStarvingLimitTicks[levelNumber < 5 ? 0 : 1];
+    }
+
+    /**
+     * @param lateLevels if the limit for levels 5+ (else for levels 1-4) is set
+     * @param ticks      new limit
+     * @return copy with the given limit
+     */
+    public GameParameters withPacStarvingLimitTicks(boolean lateLevels, int ticks) {
+        checkRange(ticks, 1, Integer.MAX_VALUE, "Starving limit");
+        var copy = copy();
+        copy.pacStarvingLimitTicks[lateLevels ? 1 : 0] = ticks;
+        return copy;
+    }
+
+    // Speeds
+
+    /**
+     * @return speed (pixels per tick) of creatures moving at 100 percent
+     */
+    public float baseSpeed() {
+        return baseSpeed;
+    }
+
+    public float ghostSpeedInsideHouse() {
+        return ghostSpeedInsideHouse;
+    }
+
+    public float ghostSpeedReturningToHouse() {
+        return ghostSpeedReturningToHouse;
+    }
+
+    /**
+     * @param baseSpeed                  speed (pixels per tick) of creatures moving at 100 percent
+     * @param ghostSpeedInsideHouse      speed of ghosts inside the house
+     * @param ghostSpeedReturningToHouse speed of eaten ghosts returning to the house
+     * @return copy with the given speeds
+     */
+    public GameParameters withSpeeds(float baseSpeed, float ghostSpeedInsideHouse, float ghostSpeedReturningToHouse) {
+        if (baseSpeed <= 0 || ghostSpeedInsideHouse <= 0 || ghostSpeedReturningToHouse <= 0) {
+            throw new IllegalArgumentException("Speeds must be positive");
+        }
+        return new GameParameters(levelData, huntingDurationsPacMan, huntingDurationsMsPacMan, privateDotLimits,
+            globalDotLimits, pacStarvingLimitTicks, baseSpeed, ghostSpeedInsideHouse, ghostSpeedReturningToHouse);
+    }
+
+    private static void checkRange(int value, int min, int max, String what) {
+        if (value < min || value > max) {
+            throw new IllegalArgumentException("%s must be in range %d..%d but is %d".formatted(what, min, max, value));
+        }
+    }
+}
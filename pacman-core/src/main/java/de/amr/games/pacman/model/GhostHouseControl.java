@@ -4,9 +4,11 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model;
 
+import de.amr.games.pacman.lib.StateCodec;
 import de.amr.games.pacman.model.actors.Ghost;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -98,23 +100,24 @@ import static de.amr.games.pacman.model.actors.GhostState.LOCKED;
  * @author Armin Reichert
  */
 public class GhostHouseControl {
-    private static final byte UNLIMITED = -1;
-
-    private final byte[] globalLimits = {UNLIMITED, 7, 17, UNLIMITED};
+    private final GameParameters parameters;
     private final int[]  counters = {0, 0, 0, 0};
     private final int    pacStarvingLimitTicks;
     private int          globalCounter = 0;
     private boolean      globalCounterEnabled = false;
 
-    public GhostHouseControl(int levelNumber) {
-        pacStarvingLimitTicks = levelNumber < 5 ? 240 : 180; // 4 sec : 3 sec
+    /**
+     * @param levelNumber level number
+     * @param parameters  game parameters defining the dot limits (see {@link GameParameters#DEFAULT} for the values
+     *                    described above) and the starving limit
+     */
+    public GhostHouseControl(int levelNumber, GameParameters parameters) {
+        this.parameters = parameters;
+        pacStarvingLimitTicks = parameters.pacStarvingLimitTicks(levelNumber);
     }
 
     private byte privateDotLimit(int levelNumber, Ghost ghost) {
-        if (levelNumber == 1 && ghost.id() == CYAN_GHOST)   return 30;
-        if (levelNumber == 1 && ghost.id() == ORANGE_GHOST) return 60;
-        if (levelNumber == 2 && ghost.id() == ORANGE_GHOST) return 50;
-        return 0;
+        return parameters.privateDotLimit(levelNumber, ghost.id());
     }
 
     public void resetGlobalCounterAndSetEnabled(boolean enabled) {
@@ -157,9 +160,9 @@ public class GhostHouseControl {
                 "Private dot counter at limit (%d)", privateDotLimit(level.number(), candidate)));
         }
         // check global dot counter
-        if (globalLimits[candidate.id()] != UNLIMITED && globalCounter >= globalLimits[candidate.id()]) {
-            return Optional.of(new GhostUnlockInfo(candidate,
-            "Global dot counter at limit (%d)", globalLimits[candidate.id()]));
+        byte globalLimit = parameters.globalDotLimit(candidate.id());
+        if (globalLimit != GameParameters.UNLIMITED && globalCounter >= globalLimit) {
+            return Optional.of(new GhostUnlockInfo(candidate, "Global dot counter at limit (%d)", globalLimit));
         }
         // check Pac-Man starving time
         if (level.pac().starvingTicks() >= pacStarvingLimitTicks) {
@@ -169,4 +172,26 @@ public class GhostHouseControl {
         }
         return Optional.empty();
     }
-}
\ No newline at end of file
+
+    public void writeState(ByteBuffer out) {
+        for (int counter : counters) {
+            out.putInt(counter);
+        }
+        out.putInt(globalCounter);
+        StateCodec.putBoolean(out, globalCounterEnabled);
+    }
+
+    public void readState(ByteBuffer in) {
+        for (int i = 0; i < counters.length; ++i) {
+            counters[i] = in.getInt();
+        }
+        globalCounter = in.getInt();
+        globalCounterEnabled = StateCodec.getBoolean(in);
+    }
+
+    public void copyStateFrom(GhostHouseControl other) {
+        System.arraycopy(other.counters, 0, counters, 0, counters.length);
+        globalCounter = other.globalCounter;
+        globalCounterEnabled = other.globalCounterEnabled;
+    }
+}
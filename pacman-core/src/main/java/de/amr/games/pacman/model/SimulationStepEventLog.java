@@ -9,52 +9,181 @@ import de.amr.games.pacman.model.actors.Ghost;
 import org.tinylog.Logger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Stores important events that happened during a single simulation step.
+ * <p>
+ * One instance is owned by each game level and cleared at the start of every hunting step, so no objects are created
+ * per step. Which events happened is stored as a bitmask of the <code>EVENT_</code> flags.
  *
  * @author Armin Reichert
  */
 public class SimulationStepEventLog {
-    public Vector2i foodFoundTile = null;
-    public boolean  energizerFound = false;
-    public byte     bonusIndex = -1;
-    public boolean  bonusEaten = false;
-    public boolean  pacGetsPower = false;
-    public boolean  pacStartsLosingPower = false;
-    public boolean  pacLostPower = false;
-    public boolean  pacDied = false;
-    public Ghost    unlockedGhost = null;
-    public final List<Ghost> killedGhosts = new ArrayList<>(4);
+
+    public static final int EVENT_FOOD_FOUND              = 1;
+    public static final int EVENT_ENERGIZER_FOUND         = 1 << 1;
+    public static final int EVENT_BONUS_REACHED           = 1 << 2;
+    public static final int EVENT_BONUS_EATEN             = 1 << 3;
+    public static final int EVENT_PAC_GETS_POWER          = 1 << 4;
+    public static final int EVENT_PAC_STARTS_LOSING_POWER = 1 << 5;
+    public static final int EVENT_PAC_LOST_POWER          = 1 << 6;
+    public static final int EVENT_PAC_DIED                = 1 << 7;
+    public static final int EVENT_GHOST_UNLOCKED          = 1 << 8;
+    public static final int EVENT_GHOSTS_KILLED           = 1 << 9;
+
+    private int events;
+    private Vector2i foodFoundTile;
+    private byte bonusIndex;
+    private Ghost unlockedGhost;
+    private Ghost pacKiller;
+    private final List<Ghost> killedGhosts = new ArrayList<>(4);
+    private final List<Ghost> killedGhostsView = Collections.unmodifiableList(killedGhosts);
+
+    public SimulationStepEventLog() {
+        clear();
+    }
+
+    /**
+     * Removes all events.
+     */
+    public void clear() {
+        events = 0;
+        foodFoundTile = null;
+        bonusIndex = -1;
+        unlockedGhost = null;
+        pacKiller = null;
+        killedGhosts.clear();
+    }
+
+    /**
+     * @return bitmask of the events that happened
+     */
+    public int events() {
+        return events;
+    }
+
+    /**
+     * @param event event flag
+     * @return if the given event happened
+     */
+    public boolean happened(int event) {
+        return (events & event) != 0;
+    }
+
+    public void foodFound(Vector2i tile, boolean energizer) {
+        events |= energizer ? EVENT_FOOD_FOUND | EVENT_ENERGIZER_FOUND : EVENT_FOOD_FOUND;
+        foodFoundTile = tile;
+    }
+
+    public void bonusReached(byte index) {
+        events |= EVENT_BONUS_REACHED;
+        bonusIndex = index;
+    }
+
+    public void bonusEaten() {
+        events |= EVENT_BONUS_EATEN;
+    }
+
+    public void pacGetsPower() {
+        events |= EVENT_PAC_GETS_POWER;
+    }
+
+    public void pacStartsLosingPower() {
+        events |= EVENT_PAC_STARTS_LOSING_POWER;
+    }
+
+    public void pacLostPower() {
+        events |= EVENT_PAC_LOST_POWER;
+    }
+
+    public void pacDied(Ghost killer) {
+        events |= EVENT_PAC_DIED;
+        pacKiller = killer;
+    }
+
+    public void ghostUnlocked(Ghost ghost) {
+        events |= EVENT_GHOST_UNLOCKED;
+        unlockedGhost = ghost;
+    }
+
+    public void ghostKilled(Ghost ghost) {
+        events |= EVENT_GHOSTS_KILLED;
+        killedGhosts.add(ghost);
+    }
+
+    public Vector2i foodFoundTile() {
+        return foodFoundTile;
+    }
+
+    public boolean energizerFound() {
+        return happened(EVENT_ENERGIZER_FOUND);
+    }
+
+    /**
+     * @return index of the reached bonus or <code>-1</code>
+     */
+    public byte bonusIndex() {
+        return bonusIndex;
+    }
+
+    public boolean pacDied() {
+        return happened(EVENT_PAC_DIED);
+    }
+
+    /**
+     * @return ghost that killed Pac-Man or <code>null</code>
+     */
+    public Ghost pacKiller() {
+        return pacKiller;
+    }
+
+    /**
+     * @return ghost that has been unlocked or <code>null</code>
+     */
+    public Ghost unlockedGhost() {
+        return unlockedGhost;
+    }
+
+    /**
+     * @return (unmodifiable) list of ghosts killed in this step
+     */
+    public List<Ghost> killedGhosts() {
+        return killedGhostsView;
+    }
 
     public void report() {
+        // finding a normal pellet is not reported
+        if ((events & ~EVENT_FOOD_FOUND) == 0 || !Logger.isInfoEnabled()) {
+            return;
+        }
         List<String> messages = new ArrayList<>();
-        if (energizerFound) {
+        if (happened(EVENT_ENERGIZER_FOUND)) {
             messages.add("Energizer found at " + foodFoundTile);
         }
-        if (bonusIndex != -1) {
+        if (happened(EVENT_BONUS_REACHED)) {
             messages.add("Bonus reached, index=" + bonusIndex);
         }
-        if (bonusEaten) {
+        if (happened(EVENT_BONUS_EATEN)) {
             messages.add("Bonus eaten");
         }
-        if (pacGetsPower) {
+        if (happened(EVENT_PAC_GETS_POWER)) {
             messages.add("Pac gained power");
         }
-        if (pacStartsLosingPower) {
+        if (happened(EVENT_PAC_STARTS_LOSING_POWER)) {
             messages.add("Pac starts losing power");
         }
-        if (pacLostPower) {
+        if (happened(EVENT_PAC_LOST_POWER)) {
             messages.add("Pac lost power");
         }
-        if (pacDied) {
-            messages.add("Pac died");
+        if (happened(EVENT_PAC_DIED)) {
+            messages.add("Pac died" + (pacKiller != null ? ", killed by " + pacKiller.name() : ""));
         }
-        if (unlockedGhost != null) {
+        if (happened(EVENT_GHOST_UNLOCKED)) {
             messages.add("Unlocked " + unlockedGhost.name());
         }
-        if (!killedGhosts.isEmpty()) {
+        if (happened(EVENT_GHOSTS_KILLED)) {
             messages.add("Ghosts killed: " + killedGhosts.stream().map(Ghost::name).toList());
         }
         if (!messages.isEmpty()) {
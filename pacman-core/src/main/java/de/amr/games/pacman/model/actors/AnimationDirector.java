@@ -13,12 +13,23 @@ public interface AnimationDirector {
 
     Optional<Animations> animations();
 
+    /**
+     * @return name of the animation selected last or <code>null</code> if none has been selected yet. Also available
+     * if no animations are attached, e.g. for rendering a snapshot on another thread.
+     */
+    String selectedAnimation();
+
+    /**
+     * @return index passed with the animation selected last
+     */
+    int selectedAnimationIndex();
+
     default void selectAnimation(String name, int index) {
         animations().ifPresent(a -> a.select(name, index));
     }
 
     default void selectAnimation(String name) {
-        animations().ifPresent(a -> a.select(name, 0));
+        selectAnimation(name, 0);
     }
 
     default void startAnimation() {
@@ -4,9 +4,12 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.actors;
 
+import de.amr.games.pacman.lib.StateCodec;
 import de.amr.games.pacman.lib.Vector2f;
 import de.amr.games.pacman.lib.Vector2i;
 
+import java.nio.ByteBuffer;
+
 import static de.amr.games.pacman.lib.Globals.*;
 
 /**
@@ -168,4 +171,46 @@ public class Entity {
         checkNotNull(other, "Entity to check for same tile must not be null");
         return tile().equals(other.tile());
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes visibility, position, velocity and acceleration (for saving a game).
+     *
+     * @param out output buffer
+     */
+    public void writeState(ByteBuffer out) {
+        StateCodec.putBoolean(out, visible);
+        out.putFloat(posX).putFloat(posY);
+        out.putFloat(velX).putFloat(velY);
+        out.putFloat(accX).putFloat(accY);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer)}.
+     *
+     * @param in input buffer
+     */
+    public void readState(ByteBuffer in) {
+        visible = StateCodec.getBoolean(in);
+        posX = in.getFloat();
+        posY = in.getFloat();
+        velX = in.getFloat();
+        velY = in.getFloat();
+        accX = in.getFloat();
+        accY = in.getFloat();
+    }
+
+    /**
+     * Copies the state written by {@link #writeState(ByteBuffer)} from another entity (for forking a level).
+     *
+     * @param other entity whose state is copied
+     */
+    public void copyStateFrom(Entity other) {
+        visible = other.visible;
+        posX = other.posX;
+        posY = other.posY;
+        velX = other.velX;
+        velY = other.velY;
+        accX = other.accX;
+        accY = other.accY;
+    }
+}
@@ -5,12 +5,15 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.model.actors;
 
 import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.StateCodec;
 import de.amr.games.pacman.lib.Vector2f;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.world.House;
+import de.amr.games.pacman.model.world.World;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +50,8 @@ public class Ghost extends Creature implements AnimationDirector {
     private float speedReturningToHouse;
     private float speedInsideHouse;
     private Animations animations;
+    private String selectedAnimation;
+    private int selectedAnimationIndex;
     private Map<Vector2i, List<Direction>> forbiddenMoves = Collections.emptyMap();
 
     /**
@@ -82,6 +87,23 @@ public class Ghost extends Creature implements AnimationDirector {
         return Optional.ofNullable(animations);
     }
 
+    @Override
+    public void selectAnimation(String name, int index) {
+        selectedAnimation = name;
+        selectedAnimationIndex = index;
+        AnimationDirector.super.selectAnimation(name, index);
+    }
+
+    @Override
+    public String selectedAnimation() {
+        return selectedAnimation;
+    }
+
+    @Override
+    public int selectedAnimationIndex() {
+        return selectedAnimationIndex;
+    }
+
     public void setHouse(House house) {
         checkNotNull(house);
         this.house = house;
@@ -140,12 +162,36 @@ public class Ghost extends Creature implements AnimationDirector {
         if (house.door().occupies(tile)) {
             return is(ENTERING_HOUSE, LEAVING_HOUSE);
         }
-        if (world.insideBounds(tile)) {
-            return !world.isWall(tile);
+        int index = world.index(tile);
+        if (index != World.NO_TILE) {
+            return !world.isWall(index);
         }
         return world.belongsToPortal(tile);
     }
 
+    /**
+     * Fast path using the precomputed direction masks of the world topology. Inside the house (entering or leaving
+     * state) and outside the world, the generic implementation is used.
+     */
+    @Override
+    public int accessibleDirections(int tileX, int tileY) {
+        int index = world.index(tileX, tileY);
+        if (index == World.NO_TILE || state == ENTERING_HOUSE || state == LEAVING_HOUSE || house != world.house()) {
+            return super.accessibleDirections(tileX, tileY);
+        }
+        int mask = world.topology().ghostDirections(index);
+        if (state == HUNTING_PAC) {
+            // hunting ghosts cannot move up at certain tiles in Pac-Man game
+            var forbidden = forbiddenMoves.get(Vector2i.of(tileX, tileY));
+            if (forbidden != null) {
+                for (int i = 0; i < forbidden.size(); ++i) {
+                    mask &= ~(1 << forbidden.get(i).ordinal());
+                }
+            }
+        }
+        return mask;
+    }
+
     @Override
     public boolean canReverse() {
         return newTileEntered && is(HUNTING_PAC, FRIGHTENED);
@@ -373,4 +419,38 @@ public class Ghost extends Creature implements AnimationDirector {
             setState(LOCKED);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeState(ByteBuffer out) {
+        super.writeState(out);
+        StateCodec.putEnum(out, state);
+        StateCodec.putString(out, selectedAnimation);
+        out.putInt(selectedAnimationIndex);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer)}. In contrast to {@link #setState(GhostState)}, no
+     * state entry actions are executed.
+     *
+     * @param in input buffer
+     */
+    @Override
+    public void readState(ByteBuffer in) {
+        super.readState(in);
+        state = StateCodec.getEnum(in, GhostState.values());
+        selectedAnimation = StateCodec.getString(in);
+        selectedAnimationIndex = in.getInt();
+    }
+
+    /**
+     * Copies the state written by {@link #writeState(ByteBuffer)} from another ghost (for forking a level).
+     *
+     * @param other ghost whose state is copied
+     */
+    public void copyStateFrom(Ghost other) {
+        super.copyStateFrom(other);
+        state = other.state;
+        selectedAnimation = other.selectedAnimation;
+        selectedAnimationIndex = other.selectedAnimationIndex;
+    }
+}
@@ -1,14 +1,14 @@
 package de.amr.games.pacman.model.actors;
 
 import de.amr.games.pacman.lib.Direction;
-import de.amr.games.pacman.lib.Vector2f;
+import de.amr.games.pacman.lib.StateCodec;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.world.Portal;
 import de.amr.games.pacman.model.world.World;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.Optional;
 
 import static de.amr.games.pacman.lib.Direction.*;
 import static de.amr.games.pacman.lib.Globals.*;
@@ -16,6 +16,12 @@ import static de.amr.games.pacman.lib.Globals.*;
 
 public abstract class Move extends Entity{
     protected static final Direction[] DIRECTION_PRIORITY = {UP, LEFT, DOWN, RIGHT};
+    private static final int[] DIRECTION_PRIORITY_ORDINALS = {
+        UP.ordinal(), LEFT.ordinal(), DOWN.ordinal(), RIGHT.ordinal()
+    };
+    private static final int[] DX = {LEFT.vector().x(), RIGHT.vector().x(), UP.vector().x(), DOWN.vector().x()};
+    private static final int[] DY = {LEFT.vector().y(), RIGHT.vector().y(), UP.vector().y(), DOWN.vector().y()};
+    protected static final int NO_DIRECTION = -1;
 
     protected String name;
     protected Direction moveDir;
@@ -43,7 +49,10 @@ public abstract class Move extends Entity{
         if (world().belongsToPortal(tile())) {
             return; // inside portal, no navigation happens
         }
-        computeTargetDirection().ifPresent(this::setWishDir);
+        int dir = computeTargetDirection();
+        if (dir != NO_DIRECTION) {
+            setWishDir(Direction.byOrdinal(dir));
+        }
     }
     public void setWishDir(Direction dir) {
         checkDirectionNotNull(dir);
@@ -52,24 +61,61 @@ public abstract class Move extends Entity{
             Logger.trace("{}: New wishDir: {}. {}", name, wishDir, this);
         }
     }
-    private Optional<Direction> computeTargetDirection() {
-        final var currentTile = tile();
-        Direction targetDir = null;
-        float minDistance = Float.MAX_VALUE;
-        for (var dir : DIRECTION_PRIORITY) {
-            if (dir == moveDir.opposite()) {
-                continue; // reversing the move direction is not allowed
+    /**
+     * Computes the direction towards the target tile: among the accessible neighbor tiles (reversing is not allowed)
+     * the one with the smallest Euclidean distance to the target is chosen, ties are broken by the order
+     * {@link #DIRECTION_PRIORITY}. Works on int coordinates and squared distances which gives the same result as
+     * comparing Euclidean distances and does not allocate.
+     *
+     * @return ordinal of the direction or {@link #NO_DIRECTION}
+     */
+    private int computeTargetDirection() {
+        final int tileX = tileX(), tileY = tileY();
+        final int accessible = accessibleDirections(tileX, tileY);
+        final int forbidden = moveDir.opposite().ordinal(); // reversing the move direction is not allowed
+        final int targetX = targetTile.x(), targetY = targetTile.y();
+        int targetDir = NO_DIRECTION;
+        long minDistance = Long.MAX_VALUE;
+        for (int i = 0; i < DIRECTION_PRIORITY.length; ++i) {
+            final int dir = DIRECTION_PRIORITY_ORDINALS[i];
+            if (dir == forbidden || (accessible & (1 << dir)) == 0) {
+                continue;
             }
-            final var neighborTile = currentTile.plus(dir.vector());
-            if (canAccessTile(neighborTile)) {
-                final float distance = neighborTile.euclideanDistance(targetTile);
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    targetDir = dir;
-                }
+            final long dx = tileX + DX[dir] - targetX, dy = tileY + DY[dir] - targetY;
+            final long distance = dx * dx + dy * dy;
+            if (distance < minDistance) {
+                minDistance = distance;
+                targetDir = dir;
             }
         }
-        return Optional.ofNullable(targetDir);
+        return targetDir;
+    }
+
+    /**
+     * Bitmask of the directions (bit <code>1 &lt;&lt; dir.ordinal()</code>) in which the neighbor tile of the given
+     * tile can be accessed by this creature. Subclasses can override this with a faster implementation giving the same
+     * result as {@link #canAccessTile(Vector2i)}.
+     *
+     * @param tileX tile x coordinate
+     * @param tileY tile y coordinate
+     * @return direction bitmask
+     */
+    public int accessibleDirections(int tileX, int tileY) {
+        int mask = 0;
+        for (int dir = 0; dir < 4; ++dir) {
+            if (canAccessTile(Vector2i.of(tileX + DX[dir], tileY + DY[dir]))) {
+                mask |= 1 << dir;
+            }
+        }
+        return mask;
+    }
+
+    private int tileX() {
+        return (int) ((posX + HTS) / TS);
+    }
+
+    private int tileY() {
+        return (int) ((posY + HTS) / TS);
     }
     
     public boolean hasMoved() {
@@ -91,14 +137,16 @@ public abstract class Move extends Entity{
         checkDirectionNotNull(dir);
         if (moveDir != dir) {
             moveDir = dir;
-            setVelocity(moveDir.vector().toFloatVec().scaled(velocity().length()));
+            float speed = (float) Math.hypot(velX, velY);
+            setVelocity(speed * moveDir.vector().x(), speed * moveDir.vector().y());
             Logger.trace("{}: New moveDir: {}. {}", name, moveDir, this);
         }
     }
 
     public void roam(World world, byte relSpeed, Direction dir) {
         if (!world.belongsToPortal(tile()) && (isNewTileEntered() || !hasMoved())) {
-            while (dir == moveDir().opposite() || !canAccessTile(tile().plus(dir.vector()))) {
+            int accessible = accessibleDirections(tileX(), tileY());
+            while (dir == moveDir().opposite() || (accessible & (1 << dir.ordinal())) == 0) {
                 dir = dir.nextClockwise();
             }
             setWishDir(dir);
@@ -120,7 +168,7 @@ public abstract class Move extends Entity{
                 tryMoving(moveDir);
             }
         }
-        if (moveResult.teleported || moveResult.moved) {
+        if ((moveResult.teleported || moveResult.moved) && Logger.isTraceEnabled()) {
             Logger.trace("{}: {} {} {}", name, moveResult, moveResult.summary(), this);
         }
     }
@@ -152,53 +200,55 @@ public abstract class Move extends Entity{
         if (tile.y() == portal.leftTunnelEnd().y() && posX < portal.leftTunnelEnd().x() - portal.depth() * TS) {
             centerOverTile(portal.rightTunnelEnd());
             moveResult.teleported = true;
-            moveResult.addMessage(String.format("%s: Teleported from (%.2f,%.2f) to (%.2f,%.2f)",
-                name, old_pos_x, old_pos_y, posX, posY));
+            moveResult.addTeleportedMessage(old_pos_x, old_pos_y, posX, posY);
         } else if (tile.equals(portal.rightTunnelEnd().plus(portal.depth(), 0))) {
             centerOverTile(portal.leftTunnelEnd().minus(portal.depth(), 0));
             moveResult.teleported = true;
-            moveResult.addMessage(String.format("%s: Teleported from (%.2f,%.2f) to (%.2f,%.2f)",
-                name, old_pos_x, old_pos_y, posX, posY));
+            moveResult.addTeleportedMessage(old_pos_x, old_pos_y, posX, posY);
         }
     }
     public void centerOverTile(Vector2i tile) {
         placeAtTile(tile, 0, 0);
     }
 
+    // Uses primitive float arithmetic instead of Vector2f to avoid allocations in this per-tick code
     private void tryMoving(Direction dir) {
         final Vector2i tileBeforeMove = tile();
-        final Vector2f dirVector = dir.vector().toFloatVec();
-        final Vector2f newVelocity = dirVector.scaled(velocity().length());
-        final Vector2f touchPosition = center().plus(dirVector.scaled(HTS)).plus(newVelocity);
-        final Vector2i touchedTile = tileAt(touchPosition);
+        final float dirX = dir.vector().x(), dirY = dir.vector().y();
+        final float speed = (float) Math.hypot(velX, velY);
+        final float newVelX = speed * dirX, newVelY = speed * dirY;
+        final Vector2i touchedTile = tileAt(posX + HTS + HTS * dirX + newVelX, posY + HTS + HTS * dirY + newVelY);
         final boolean isTurn = !dir.sameOrientation(moveDir);
 
         if (!canAccessTile(touchedTile)) {
             if (!isTurn) {
                 centerOverTile(tile()); // adjust over tile (would move forward against wall)
             }
-            moveResult.addMessage(String.format("Cannot move %s into tile %s", dir, touchedTile));
+            moveResult.addBlockedMessage(dir, touchedTile.x(), touchedTile.y());
             return;
         }
 
         if (isTurn) {
-            float offset = dir.isHorizontal() ? offset().y() : offset().x();
+            var tile = tile();
+            float offset = dir.isHorizontal() ? posY - TS * tile.y() : posX - TS * tile.x();
             boolean atTurnPosition = Math.abs(offset) <= 1; // TODO <= pixel-speed?
             if (atTurnPosition) {
-                centerOverTile(tile()); // adjust over tile (starts moving around corner)
+                centerOverTile(tile); // adjust over tile (starts moving around corner)
             } else {
-                moveResult.addMessage(String.format("Wants to take corner towards %s but not at turn position", dir));
+                moveResult.addNotAtTurnPositionMessage(dir);
                 return;
             }
         }
 
         if (isTurn && corneringSpeedUp > 0) {
-            setVelocity(newVelocity.plus(dirVector.scaled(corneringSpeedUp)));
-            Logger.trace("{} velocity around corner: {}", this.name, velocity().length());
+            setVelocity(newVelX + corneringSpeedUp * dirX, newVelY + corneringSpeedUp * dirY);
+            if (Logger.isTraceEnabled()) {
+                Logger.trace("{} velocity around corner: {}", this.name, velocity().length());
+            }
             move();
-            setVelocity(newVelocity);
+            setVelocity(newVelX, newVelY);
         } else {
-            setVelocity(newVelocity);
+            setVelocity(newVelX, newVelY);
             move();
         }
 
@@ -213,7 +263,7 @@ public abstract class Move extends Entity{
             && world.isTunnel(tileBeforeMove)
             && !world.belongsToPortal(currentTile);
 
-        moveResult.addMessage(String.format("%5s (%.2f pixels)", dir, newVelocity.length()));
+        moveResult.addMovedMessage(dir, speed);
 
         if (moveResult.tunnelEntered) {
             Logger.trace("{} entered tunnel", name);
@@ -249,5 +299,58 @@ public abstract class Move extends Entity{
         tryMoving();
     }
 
+    @Override
+    public void writeState(ByteBuffer out) {
+        super.writeState(out);
+        StateCodec.putEnum(out, moveDir);
+        StateCodec.putEnum(out, wishDir);
+        StateCodec.putTile(out, targetTile);
+        StateCodec.putBoolean(out, newTileEntered);
+        StateCodec.putBoolean(out, gotReverseCommand);
+        StateCodec.putBoolean(out, canTeleport);
+        out.putFloat(corneringSpeedUp);
+        // result of the last move, e.g. the autopilot only steers when a new tile has been entered
+        StateCodec.putBoolean(out, moveResult.moved);
+        StateCodec.putBoolean(out, moveResult.tunnelEntered);
+        StateCodec.putBoolean(out, moveResult.tunnelLeft);
+        StateCodec.putBoolean(out, moveResult.teleported);
+    }
 
-}
\ No newline at end of file
+    @Override
+    public void readState(ByteBuffer in) {
+        super.readState(in);
+        moveDir = StateCodec.getEnum(in, Direction.values());
+        wishDir = StateCodec.getEnum(in, Direction.values());
+        targetTile = StateCodec.getTile(in);
+        newTileEntered = StateCodec.getBoolean(in);
+        gotReverseCommand = StateCodec.getBoolean(in);
+        canTeleport = StateCodec.getBoolean(in);
+        corneringSpeedUp = in.getFloat();
+        moveResult.clear();
+        moveResult.moved = StateCodec.getBoolean(in);
+        moveResult.tunnelEntered = StateCodec.getBoolean(in);
+        moveResult.tunnelLeft = StateCodec.getBoolean(in);
+        moveResult.teleported = StateCodec.getBoolean(in);
+    }
+
+    /**
+     * Copies the state written by {@link #writeState(ByteBuffer)} from another creature (for forking a level).
+     *
+     * @param other creature whose state is copied
+     */
+    public void copyStateFrom(Move other) {
+        super.copyStateFrom(other);
+        moveDir = other.moveDir;
+        wishDir = other.wishDir;
+        targetTile = other.targetTile;
+        newTileEntered = other.newTileEntered;
+        gotReverseCommand = other.gotReverseCommand;
+        canTeleport = other.canTeleport;
+        corneringSpeedUp = other.corneringSpeedUp;
+        moveResult.clear();
+        moveResult.moved = other.moveResult.moved;
+        moveResult.tunnelEntered = other.moveResult.tunnelEntered;
+        moveResult.tunnelLeft = other.moveResult.tunnelLeft;
+        moveResult.teleported = other.moveResult.teleported;
+    }
+}
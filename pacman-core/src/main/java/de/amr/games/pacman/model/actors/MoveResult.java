@@ -4,30 +4,100 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.actors;
 
-import java.util.ArrayList;
-import java.util.List;
+import de.amr.games.pacman.lib.Direction;
 
+/**
+ * Result of a single move of a creature.
+ * <p>
+ * Besides the result flags, the details of the move are recorded for diagnostics as primitive codes and values. They
+ * are only formatted into text when {@link #summary()} is called, e.g. by a trace log statement, so recording them
+ * does not allocate.
+ */
 public class MoveResult {
+
+    private static final byte MSG_TELEPORTED = 0;
+    private static final byte MSG_BLOCKED = 1;
+    private static final byte MSG_NOT_AT_TURN_POSITION = 2;
+    private static final byte MSG_MOVED = 3;
+
+    private static final int MAX_MESSAGES = 4;
+    private static final int MAX_ARGS = 4;
+
     public boolean moved;
     public boolean tunnelEntered;
     public boolean tunnelLeft;
     public boolean teleported;
-    private final List<String> messages = new ArrayList<>(3);
+    private final byte[] messageCodes = new byte[MAX_MESSAGES];
+    private final byte[] messageDirs = new byte[MAX_MESSAGES];
+    private final float[] messageArgs = new float[MAX_MESSAGES * MAX_ARGS];
+    private int numMessages;
 
     public void clear() {
         moved = false;
         tunnelEntered = false;
         tunnelLeft = false;
         teleported = false;
-        messages.clear();
+        numMessages = 0;
+    }
+
+    private int addMessage(byte code, Direction dir) {
+        if (numMessages == MAX_MESSAGES) {
+            return -1;
+        }
+        messageCodes[numMessages] = code;
+        messageDirs[numMessages] = (byte) (dir != null ? dir.ordinal() : -1);
+        return numMessages++;
+    }
+
+    private void setArgs(int message, float a0, float a1, float a2, float a3) {
+        if (message != -1) {
+            int i = message * MAX_ARGS;
+            messageArgs[i] = a0;
+            messageArgs[i + 1] = a1;
+            messageArgs[i + 2] = a2;
+            messageArgs[i + 3] = a3;
+        }
     }
 
-    public void addMessage(String message) {
-        messages.add(message);
+    public void addTeleportedMessage(float fromX, float fromY, float toX, float toY) {
+        setArgs(addMessage(MSG_TELEPORTED, null), fromX, fromY, toX, toY);
     }
 
+    public void addBlockedMessage(Direction dir, int tileX, int tileY) {
+        setArgs(addMessage(MSG_BLOCKED, dir), tileX, tileY, 0, 0);
+    }
+
+    public void addNotAtTurnPositionMessage(Direction dir) {
+        addMessage(MSG_NOT_AT_TURN_POSITION, dir);
+    }
+
+    public void addMovedMessage(Direction dir, float pixels) {
+        setArgs(addMessage(MSG_MOVED, dir), pixels, 0, 0, 0);
+    }
+
+    /**
+     * @return text describing the details of the move (creates the text on each call)
+     */
     public String summary() {
-        return String.join(", ", messages);
+        var sb = new StringBuilder();
+        for (int m = 0; m < numMessages; ++m) {
+            if (m > 0) {
+                sb.append(", ");
+            }
+            var dir = messageDirs[m] != -1 ? Direction.byOrdinal(messageDirs[m]) : null;
+            int i = m * MAX_ARGS;
+            sb.append(switch (messageCodes[m]) {
+                case MSG_TELEPORTED -> String.format("Teleported from (%.2f,%.2f) to (%.2f,%.2f)",
+                    messageArgs[i], messageArgs[i + 1], messageArgs[i + 2], messageArgs[i + 3]);
+                case MSG_BLOCKED -> String.format("Cannot move %s into tile (%2d,%2d)",
+                    dir, (int) messageArgs[i], (int) messageArgs[i + 1]);
+                case MSG_NOT_AT_TURN_POSITION -> String.format("Wants to take corner towards %s but not at turn position",
+                    dir);
+                case MSG_MOVED -> String.format("%5s (%.2f pixels)", dir, messageArgs[i]);
+                default -> "";
+            });
+        }
+        return sb.toString();
     }
 
     @Override
@@ -39,4 +109,4 @@ public class MoveResult {
         sb.append(moved ? " moved" : "");
         return sb.isEmpty() ? "" : "[" + sb.toString().trim() + "]";
     }
-}
\ No newline at end of file
+}
@@ -7,8 +7,10 @@ package de.amr.games.pacman.model.actors;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.*;
 import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.world.World;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
@@ -52,8 +54,9 @@ public class MovingBonus extends Creature implements Bonus {
         if (world.house().contains(tile)) {
             return false;
         }
-        if (world.insideBounds(tile)) {
-            return !world.isWall(tile);
+        int index = world.index(tile);
+        if (index != World.NO_TILE) {
+            return !world.isWall(index);
         }
         return world.belongsToPortal(tile);
     }
@@ -160,4 +163,43 @@ public class MovingBonus extends Creature implements Bonus {
             default -> throw new IllegalStateException("Unknown bonus state: " + state);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeState(ByteBuffer out) {
+        super.writeState(out);
+        out.put(state);
+        out.putLong(countdown);
+        animation.writeState(out);
+        StateCodec.putBoolean(out, steering != null);
+        if (steering != null) {
+            steering.writeState(out);
+        }
+    }
+
+    @Override
+    public void readState(ByteBuffer in) {
+        super.readState(in);
+        state = in.get();
+        countdown = in.getLong();
+        animation.readState(in);
+        if (StateCodec.getBoolean(in)) {
+            steering = new RouteBasedSteering(List.of());
+            steering.readState(in);
+        } else {
+            steering = null;
+        }
+    }
+
+    /**
+     * Copies the state written by {@link #writeState(ByteBuffer)} from another bonus (for forking a level).
+     *
+     * @param other bonus whose state is copied
+     */
+    public void copyStateFrom(MovingBonus other) {
+        super.copyStateFrom(other);
+        state = other.state;
+        countdown = other.countdown;
+        animation.copyStateFrom(other.animation);
+        steering = other.steering != null ? other.steering.copy() : null;
+    }
+}
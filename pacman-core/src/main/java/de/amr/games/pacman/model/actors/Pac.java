@@ -4,12 +4,15 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.actors;
 
+import de.amr.games.pacman.lib.StateCodec;
 import de.amr.games.pacman.lib.Steering;
 import de.amr.games.pacman.lib.TickTimer;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.world.World;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -36,6 +39,7 @@ public class Pac extends Creature implements AnimationDirector {
 
     private final TickTimer powerTimer = new TickTimer("PacPower");
     private boolean dead;
+    private boolean immune;
     private byte restingTicks;
     private long starvingTicks;
     private int powerFadingTicks;
@@ -47,6 +51,8 @@ public class Pac extends Creature implements AnimationDirector {
     private final List<Ghost> victims = new ArrayList<>();
 
     private Animations animations;
+    private String selectedAnimation;
+    private int selectedAnimationIndex;
 
     public Pac(String name) {
         super(name);
@@ -78,6 +84,34 @@ public class Pac extends Creature implements AnimationDirector {
         return Optional.ofNullable(animations);
     }
 
+    @Override
+    public void selectAnimation(String name, int index) {
+        selectedAnimation = name;
+        selectedAnimationIndex = index;
+        AnimationDirector.super.selectAnimation(name, index);
+    }
+
+    @Override
+    public String selectedAnimation() {
+        return selectedAnimation;
+    }
+
+    @Override
+    public int selectedAnimationIndex() {
+        return selectedAnimationIndex;
+    }
+
+    /**
+     * @return if Pac-Man cannot be killed by ghosts (cheat)
+     */
+    public boolean isImmune() {
+        return immune;
+    }
+
+    public void setImmune(boolean immune) {
+        this.immune = immune;
+    }
+
     @Override
     public boolean canReverse() {
         return isNewTileEntered();
@@ -88,8 +122,9 @@ public class Pac extends Creature implements AnimationDirector {
         if (world.house().contains(tile)) {
             return false;
         }
-        if (world.insideBounds(tile)) {
-            return !world.isWall(tile);
+        int index = world.index(tile);
+        if (index != World.NO_TILE) {
+            return !world.isWall(index);
         }
         return world.belongsToPortal(tile);
     }
@@ -230,11 +265,67 @@ public class Pac extends Creature implements AnimationDirector {
         this.manualSteering = manualSteering;
     }
 
+    public Steering autopilot() {
+        return autopilot;
+    }
+
     public void setAutopilot(Steering autopilot) {
         this.autopilot = autopilot;
     }
 
+    public boolean isUsingAutopilot() {
+        return useAutopilot;
+    }
+
     public void setUseAutopilot(boolean useAutopilot) {
         this.useAutopilot = useAutopilot;
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the state of Pac-Man except for the victims which are ghosts of the level (for saving a game).
+     *
+     * @param out output buffer
+     */
+    @Override
+    public void writeState(ByteBuffer out) {
+        super.writeState(out);
+        powerTimer.writeState(out);
+        StateCodec.putBoolean(out, dead);
+        StateCodec.putBoolean(out, immune);
+        out.put(restingTicks);
+        out.putLong(starvingTicks);
+        StateCodec.putBoolean(out, useAutopilot);
+        StateCodec.putString(out, selectedAnimation);
+        out.putInt(selectedAnimationIndex);
+    }
+
+    @Override
+    public void readState(ByteBuffer in) {
+        super.readState(in);
+        powerTimer.readState(in);
+        dead = StateCodec.getBoolean(in);
+        immune = StateCodec.getBoolean(in);
+        restingTicks = in.get();
+        starvingTicks = in.getLong();
+        useAutopilot = StateCodec.getBoolean(in);
+        selectedAnimation = StateCodec.getString(in);
+        selectedAnimationIndex = in.getInt();
+    }
+
+    /**
+     * Copies the state written by {@link #writeState(ByteBuffer)} from another Pac-Man (for forking a level).
+     *
+     * @param other Pac-Man whose state is copied
+     */
+    public void copyStateFrom(Pac other) {
+        super.copyStateFrom(other);
+        powerTimer.copyStateFrom(other.powerTimer);
+        dead = other.dead;
+        immune = other.immune;
+        restingTicks = other.restingTicks;
+        starvingTicks = other.starvingTicks;
+        useAutopilot = other.useAutopilot;
+        selectedAnimation = other.selectedAnimation;
+        selectedAnimationIndex = other.selectedAnimationIndex;
+    }
+}
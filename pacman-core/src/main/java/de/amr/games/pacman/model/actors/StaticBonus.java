@@ -9,6 +9,8 @@ import de.amr.games.pacman.lib.TickTimer;
 import de.amr.games.pacman.model.GameLevel;
 import org.tinylog.Logger;
 
+import java.nio.ByteBuffer;
+
 import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
 
 /**
@@ -104,4 +106,29 @@ public class StaticBonus extends Entity implements Bonus {
             default -> throw new IllegalStateException("Unknown bonus state: " + state);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void writeState(ByteBuffer out) {
+        super.writeState(out);
+        out.put(state);
+        out.putLong(countdown);
+    }
+
+    @Override
+    public void readState(ByteBuffer in) {
+        super.readState(in);
+        state = in.get();
+        countdown = in.getLong();
+    }
+
+    /**
+     * Copies the state written by {@link #writeState(ByteBuffer)} from another bonus (for forking a level).
+     *
+     * @param other bonus whose state is copied
+     */
+    public void copyStateFrom(StaticBonus other) {
+        super.copyStateFrom(other);
+        state = other.state;
+        countdown = other.countdown;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Length of the shortest path between any two tiles accessible by Pac-Man (all tiles inside the world that are neither
+ * walls nor part of the house), taking walls and portals into account.
+ * <p>
+ * Moving through a portal counts as many steps as tiles are passed, i.e. <code>2 * depth + 1</code>. The table is a
+ * <code>short</code> matrix over the accessible tiles. It is computed once per map and stored in a cache file in the
+ * directory given by the system property <code>pacman.cache.dir</code> (default: the temp directory), further
+ * instances are loaded from that file by memory-mapping it. If the file cannot be written or read, the table is kept
+ * on the heap.
+ *
+ * @author Armin Reichert
+ */
+public final class MazeDistances {
+
+    /**
+     * Distance value if one of the tiles is not accessible.
+     */
+    public static final int UNREACHABLE = -1;
+
+    private static final int MAGIC = 0x504d4454; // "PMDT"
+    private static final int VERSION = 1;
+    // native order avoids byte swapping when reading the mapped table
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    private static Path cacheDirectory() {
+        return Path.of(System.getProperty("pacman.cache.dir", System.getProperty("java.io.tmpdir")));
+    }
+
+    private final int[] nodeByTile;
+    private final int numNodes;
+    private final ShortBuffer table;
+
+    /**
+     * @param topology world topology
+     * @param cacheKey bytes uniquely describing the map, used for naming and validating the cache file
+     */
+    MazeDistances(WorldTopology topology, byte[] cacheKey) {
+        nodeByTile = new int[topology.numTiles()];
+        int n = 0;
+        for (int tile = 0; tile < nodeByTile.length; ++tile) {
+            nodeByTile[tile] = topology.isAccessible(tile) ? n++ : UNREACHABLE;
+        }
+        numNodes = n;
+        var header = createHeader(cacheKey);
+        var file = cacheDirectory().resolve("pacman-maze-distances-%08x.bin".formatted(Arrays.hashCode(header)));
+        ShortBuffer mapped = map(file, header);
+        if (mapped == null) {
+            long time = System.nanoTime();
+            short[] distances = compute(topology);
+            Logger.info("Maze distances ({} tiles) computed in {} millis", numNodes, (System.nanoTime() - time) / 1e6f);
+            if (store(file, header, distances)) {
+                mapped = map(file, header);
+            }
+            if (mapped == null) {
+                mapped = ShortBuffer.wrap(distances);
+            }
+        }
+        table = mapped;
+    }
+
+    /**
+     * @param fromTile tile index (see {@link World#index(int, int)})
+     * @param toTile   tile index
+     * @return number of steps on the shortest path or {@link #UNREACHABLE} if one of the tiles is not accessible
+     */
+    public int distance(int fromTile, int toTile) {
+        if (fromTile < 0 || toTile < 0) {
+            return UNREACHABLE;
+        }
+        int from = nodeByTile[fromTile], to = nodeByTile[toTile];
+        if (from == UNREACHABLE || to == UNREACHABLE) {
+            return UNREACHABLE;
+        }
+        return table.get(from * numNodes + to);
+    }
+
+    /**
+     * @return number of accessible tiles
+     */
+    public int numAccessibleTiles() {
+        return numNodes;
+    }
+
+    private short[] compute(WorldTopology topology) {
+        int[] tileByNode = new int[numNodes];
+        for (int tile = 0; tile < nodeByTile.length; ++tile) {
+            if (nodeByTile[tile] != UNREACHABLE) {
+                tileByNode[nodeByTile[tile]] = tile;
+            }
+        }
+        short[] distances = new short[numNodes * numNodes];
+        Arrays.fill(distances, (short) UNREACHABLE);
+        int[] dist = new int[numNodes];
+        var queue = new LongHeap(numNodes);
+        for (int source = 0; source < numNodes; ++source) {
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            dist[source] = 0;
+            queue.add(source);
+            while (!queue.isEmpty()) {
+                long entry = queue.removeMin();
+                int node = (int) entry, d = (int) (entry >>> 32);
+                if (d > dist[node]) {
+                    continue;
+                }
+                int tile = tileByNode[node];
+                byte dirs = topology.pacDirections(tile);
+                for (var dir : Direction.values()) {
+                    if (!WorldTopology.contains(dirs, dir)) {
+                        continue;
+                    }
+                    int neighborTile = topology.neighbor(tile, dir);
+                    int cost = 1;
+                    if (neighborTile == World.NO_TILE) {
+                        neighborTile = topology.portalExit(tile, dir);
+                        cost = 2 * topology.portalDepth(tile) + 1;
+                    }
+                    int neighbor = nodeByTile[neighborTile];
+                    if (neighbor != UNREACHABLE && d + cost < dist[neighbor]) {
+                        dist[neighbor] = d + cost;
+                        queue.add(((long) (d + cost) << 32) | neighbor);
+                    }
+                }
+            }
+            for (int target = 0; target < numNodes; ++target) {
+                if (dist[target] != Integer.MAX_VALUE) {
+                    distances[source * numNodes + target] = (short) dist[target];
+                }
+            }
+        }
+        return distances;
+    }
+
+    private byte[] createHeader(byte[] cacheKey) {
+        var header = ByteBuffer.allocate(5 * Integer.BYTES + cacheKey.length);
+        header.putInt(MAGIC).putInt(VERSION).putInt(ORDER == ByteOrder.LITTLE_ENDIAN ? 1 : 0);
+        header.putInt(numNodes).putInt(cacheKey.length).put(cacheKey);
+        return header.array();
+    }
+
+    private ShortBuffer map(Path file, byte[] header) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        long dataSize = 2L * numNodes * numNodes;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != header.length + dataSize) {
+                Logger.warn("Maze distances cache file {} has wrong size, will be recreated", file);
+                return null;
+            }
+            var fileHeader = ByteBuffer.allocate(header.length);
+            while (fileHeader.hasRemaining() && channel.read(fileHeader) != -1) {
+                // read complete header
+            }
+            if (!Arrays.equals(header, fileHeader.array())) {
+                Logger.warn("Maze distances cache file {} does not match map, will be recreated", file);
+                return null;
+            }
+            // the mapping stays valid after the channel is closed
+            var table = channel.map(FileChannel.MapMode.READ_ONLY, header.length, dataSize).order(ORDER).asShortBuffer();
+            Logger.info("Maze distances loaded from {}", file);
+            return table;
+        } catch (IOException x) {
+            Logger.warn("Could not read maze distances cache file {}: {}", file, x.getMessage());
+            return null;
+        }
+    }
+
+    private boolean store(Path file, byte[] header, short[] distances) {
+        try {
+            Files.createDirectories(file.getParent());
+            var tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            var buffer = ByteBuffer.allocate(header.length + 2 * distances.length);
+            buffer.put(header);
+            buffer.order(ORDER).asShortBuffer().put(distances);
+            buffer.rewind();
+            try (var channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Logger.info("Maze distances stored in {}", file);
+            return true;
+        } catch (IOException | UnsupportedOperationException x) {
+            Logger.warn("Could not store maze distances in {}: {}", file, x.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Binary min-heap of primitive <code>long</code> entries, avoids boxing the queue entries of the shortest path
+     * computation. An entry holds the distance in the high 32 bits and the node in the low 32 bits, so entries are
+     * ordered by distance.
+     */
+    private static final class LongHeap {
+
+        private long[] entries;
+        private int size;
+
+        LongHeap(int initialCapacity) {
+            entries = new long[Math.max(initialCapacity, 1)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, 2 * size);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (entries[parent] <= entry) {
+                    break;
+                }
+                entries[i] = entries[parent];
+                i = parent;
+            }
+            entries[i] = entry;
+        }
+
+        long removeMin() {
+            long min = entries[0];
+            long last = entries[--size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && entries[child + 1] < entries[child]) {
+                    ++child;
+                }
+                if (last <= entries[child]) {
+                    break;
+                }
+                entries[i] = entries[child];
+                i = child;
+            }
+            entries[i] = last;
+            return min;
+        }
+    }
+}
@@ -4,9 +4,12 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.world;
 
+import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.lib.Pulse;
+import de.amr.games.pacman.lib.StateCodec;
 import de.amr.games.pacman.lib.Vector2i;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
@@ -18,17 +21,28 @@ import java.util.stream.Stream;
 import static de.amr.games.pacman.lib.Globals.*;
 
 /**
+ * The maze and its food.
+ * <p>
+ * Besides the {@link Vector2i}-based queries, tiles inside the world can be addressed by a packed <code>int</code>
+ * index (<code>numCols * y + x</code>, see {@link #index(int, int)}). The index-based queries perform no allocation and
+ * no checks beyond the array access, they are meant for code executed for many tiles per simulation step.
+ *
  * @author Armin Reichert
  */
 public class World {
 
+    /**
+     * Index value representing a tile outside the world bounds.
+     */
+    public static final int NO_TILE = -1;
+
     public static final byte T_SPACE = 0;
     public static final byte T_WALL = 1;
     public static final byte T_TUNNEL = 2;
     public static final byte T_PELLET = 3;
     public static final byte T_ENERGIZER = 4;
 
-    private static byte[][] validateTileMapData(byte[][] data) {
+    private static void validateTileMapData(byte[][] data) {
         if (data == null) {
             throw new IllegalArgumentException("Map data missing");
         }
@@ -52,24 +66,33 @@ public class World {
                 }
             }
         }
-        return data;
     }
 
-    private final byte[][] tileMap;
+    private final int numCols;
+    private final int numRows;
+    private final byte[] tileMap; // row-major
     private final List<Vector2i> energizerTiles;
+    private final BitSet food;
     private final BitSet eaten;
     private final List<Portal> portals;
     private final Pulse energizerBlinking;
     private final Pulse mazeFlashing;
     private final int totalFoodCount;
     private House house;
+    private WorldTopology topology;
     private int uneatenFoodCount;
 
     /**
      * @param tileMapData byte-array of tile map data
      */
     public World(byte[][] tileMapData) {
-        tileMap = validateTileMapData(tileMapData);
+        validateTileMapData(tileMapData);
+        numRows = tileMapData.length;
+        numCols = tileMapData[0].length;
+        tileMap = new byte[numCols * numRows];
+        for (int row = 0; row < numRows; ++row) {
+            System.arraycopy(tileMapData[row], 0, tileMap, row * numCols, numCols);
+        }
 
         // build portals
         var portalList = new ArrayList<Portal>();
@@ -77,7 +100,7 @@ public class World {
         for (int row = 0; row < numRows(); ++row) {
             var leftBorderTile = v2i(0, row);
             var rightBorderTile = v2i(lastColumn, row);
-            if (tileMap[row][0] == T_TUNNEL && tileMap[row][lastColumn] == T_TUNNEL) {
+            if (tileMap[index(0, row)] == T_TUNNEL && tileMap[index(lastColumn, row)] == T_TUNNEL) {
                 portalList.add(new Portal(leftBorderTile, rightBorderTile, 2));
             }
         }
@@ -85,8 +108,14 @@ public class World {
         portals = Collections.unmodifiableList(portalList);
 
         energizerTiles = tiles().filter(this::isEnergizerTile).collect(Collectors.toList());
-        eaten = new BitSet(numCols() * numRows());
-        totalFoodCount = (int) tiles().filter(this::isFoodTile).count();
+        food = new BitSet(tileMap.length);
+        for (int i = 0; i < tileMap.length; ++i) {
+            if (isFoodTile(i)) {
+                food.set(i);
+            }
+        }
+        eaten = new BitSet(tileMap.length);
+        totalFoodCount = food.cardinality();
         uneatenFoodCount = totalFoodCount;
 
         // Animations
@@ -94,13 +123,50 @@ public class World {
         mazeFlashing = new Pulse(10, false);
     }
 
+    private World(World original) {
+        numRows = original.numRows;
+        numCols = original.numCols;
+        tileMap = original.tileMap;
+        portals = original.portals;
+        energizerTiles = original.energizerTiles;
+        food = original.food;
+        totalFoodCount = original.totalFoodCount;
+        house = original.house;
+        topology = original.topology;
+        eaten = (BitSet) original.eaten.clone();
+        uneatenFoodCount = original.uneatenFoodCount;
+        energizerBlinking = original.energizerBlinking.copy();
+        mazeFlashing = original.mazeFlashing.copy();
+    }
+
+    /**
+     * @return independent copy of this world sharing the immutable data (tile map, portals, house, topology) and
+     * copying the eaten food and the animation state
+     */
+    public World fork() {
+        return new World(this);
+    }
+
     public House house() {
         return house;
     }
 
+    /**
+     * Sets the house. The house must be completely configured because the world topology depends on it.
+     *
+     * @param house the house
+     */
     public void setHouse(House house) {
         checkNotNull(house);
         this.house = house;
+        topology = WorldTopology.of(this, tileMap);
+    }
+
+    /**
+     * @return the (immutable, shared) topology of this world, available after the house has been set
+     */
+    public WorldTopology topology() {
+        return topology;
     }
 
     public Pulse energizerBlinking() {
@@ -145,16 +211,68 @@ public class World {
         return 0 <= x && x < numCols() * TS && 0 <= y && y < numRows() * TS;
     }
 
-    private int index(Vector2i tile) {
-        return numCols() * tile.y() + tile.x();
+    /**
+     * @param x tile x coordinate
+     * @param y tile y coordinate
+     * @return tile index or {@link #NO_TILE} if the tile is outside the world bounds
+     */
+    public int index(int x, int y) {
+        return 0 <= x && x < numCols && 0 <= y && y < numRows ? numCols * y + x : NO_TILE;
+    }
+
+    /**
+     * @param tile a tile
+     * @return tile index or {@link #NO_TILE} if the tile is outside the world bounds
+     */
+    public int index(Vector2i tile) {
+        checkTileNotNull(tile);
+        return index(tile.x(), tile.y());
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     * @return tile x coordinate
+     */
+    public int x(int index) {
+        return index % numCols;
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     * @return tile y coordinate
+     */
+    public int y(int index) {
+        return index / numCols;
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     * @param dir   direction
+     * @return index of the neighbor tile in the given direction or {@link #NO_TILE} if the neighbor is outside the world
+     */
+    public int neighbor(int index, Direction dir) {
+        int x = index % numCols, y = index / numCols;
+        return switch (dir) {
+            case LEFT  -> x > 0 ? index - 1 : NO_TILE;
+            case RIGHT -> x < numCols - 1 ? index + 1 : NO_TILE;
+            case UP    -> y > 0 ? index - numCols : NO_TILE;
+            case DOWN  -> y < numRows - 1 ? index + numCols : NO_TILE;
+        };
+    }
+
+    /**
+     * @return number of tiles (all valid tile indices are smaller)
+     */
+    public int numTiles() {
+        return tileMap.length;
     }
 
     public int numCols() {
-        return tileMap[0].length;
+        return numCols;
     }
 
     public int numRows() {
-        return tileMap.length;
+        return numRows;
     }
 
     public List<Portal> portals() {
@@ -163,11 +281,43 @@ public class World {
 
     public boolean belongsToPortal(Vector2i tile) {
         checkTileNotNull(tile);
+        if (topology != null) {
+            return topology.belongsToPortal(tile.x(), tile.y());
+        }
         return portals.stream().anyMatch(portal -> portal.contains(tile));
     }
 
     private byte content(Vector2i tile) {
-        return insideBounds(tile) ? tileMap[tile.y()][tile.x()] : T_SPACE;
+        return insideBounds(tile) ? tileMap[numCols * tile.y() + tile.x()] : T_SPACE;
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     */
+    public boolean isWall(int index) {
+        return tileMap[index] == T_WALL;
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     */
+    public boolean isTunnel(int index) {
+        return tileMap[index] == T_TUNNEL;
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     */
+    public boolean isFoodTile(int index) {
+        byte data = tileMap[index];
+        return data == T_PELLET || data == T_ENERGIZER;
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     */
+    public boolean isEnergizerTile(int index) {
+        return tileMap[index] == T_ENERGIZER;
     }
 
     public boolean isWall(Vector2i tile) {
@@ -193,15 +343,30 @@ public class World {
 
     public boolean isIntersection(Vector2i tile) {
         checkTileNotNull(tile);
-        if (tile.x() <= 0 || tile.x() >= numCols() - 1) {
-            return false; // exclude portal entries and tiles outside the map
-        }
-        if (house.contains(tile)) {
-            return false;
+        int index = index(tile);
+        if (index != NO_TILE) {
+            return topology.isIntersection(index);
         }
-        long numWallNeighbors = tile.neighbors().filter(this::isWall).count();
-        long numDoorNeighbors = tile.neighbors().filter(house.door()::occupies).count();
-        return numWallNeighbors + numDoorNeighbors < 2;
+        return WorldTopology.isIntersection(this, tile);
+    }
+
+    /**
+     * @param tile a tile
+     * @return if this tile inside the world has only one accessible neighbor
+     */
+    public boolean isDeadEnd(Vector2i tile) {
+        int index = index(tile);
+        return index != NO_TILE && topology.isDeadEnd(index);
+    }
+
+    /**
+     * @param a a tile
+     * @param b another tile
+     * @return length of the shortest path between the tiles (portals included) or {@link MazeDistances#UNREACHABLE} if
+     * one of the tiles cannot be accessed by Pac-Man
+     */
+    public int mazeDistance(Vector2i a, Vector2i b) {
+        return topology.distances().distance(index(a), index(b));
     }
 
 
@@ -218,23 +383,98 @@ public class World {
     }
 
     public void removeFood(Vector2i tile) {
-        if (hasFoodAt(tile)) {
-            eaten.set(index(tile));
+        int index = index(tile);
+        if (index != NO_TILE) {
+            removeFood(index);
+        }
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     */
+    public void removeFood(int index) {
+        if (hasFood(index)) {
+            eaten.set(index);
             --uneatenFoodCount;
         }
     }
 
     public boolean hasFoodAt(Vector2i tile) {
-        checkTileNotNull(tile);
-        if (insideBounds(tile)) {
-            byte data = tileMap[tile.y()][tile.x()];
-            return (data == T_PELLET || data == T_ENERGIZER) && !eaten.get(index(tile));
-        }
-        return false;
+        int index = index(tile);
+        return index != NO_TILE && hasFood(index);
+    }
+
+    /**
+     * @param index tile index (must be valid)
+     * @return if the tile contains food that has not been eaten yet
+     */
+    public boolean hasFood(int index) {
+        return food.get(index) && !eaten.get(index);
     }
 
     public boolean hasEatenFoodAt(Vector2i tile) {
-        checkTileNotNull(tile);
-        return insideBounds(tile) && eaten.get(index(tile));
+        int index = index(tile);
+        return index != NO_TILE && eaten.get(index);
+    }
+
+    /**
+     * @return copy of the eaten food as bits indexed by tile index, see {@link java.util.BitSet#toLongArray()}
+     */
+    public long[] eatenFoodBits() {
+        return eaten.toLongArray();
+    }
+
+    /**
+     * Iterates over the uneaten food without allocation:
+     * <pre>
+     * for (int i = world.nextFood(0); i != World.NO_TILE; i = world.nextFood(i + 1)) { ... }
+     * </pre>
+     *
+     * @param fromIndex tile index where the search starts (inclusive)
+     * @return index of the first tile with uneaten food at or after the given index or {@link #NO_TILE}
+     */
+    public int nextFood(int fromIndex) {
+        int index = food.nextSetBit(fromIndex);
+        while (index != -1 && eaten.get(index)) {
+            index = food.nextSetBit(index + 1);
+        }
+        return index == -1 ? NO_TILE : index;
+    }
+
+    /**
+     * Iterates over the eaten food like {@link #nextFood(int)}.
+     *
+     * @param fromIndex tile index where the search starts (inclusive)
+     * @return index of the first tile with eaten food at or after the given index or {@link #NO_TILE}
+     */
+    public int nextEatenFood(int fromIndex) {
+        int index = eaten.nextSetBit(fromIndex);
+        return index == -1 ? NO_TILE : index;
+    }
+
+    /**
+     * Writes the eaten food and the state of the blinking animations (for saving a game).
+     *
+     * @param out output buffer
+     */
+    public void writeState(ByteBuffer out) {
+        StateCodec.putBits(out, eaten);
+        energizerBlinking.writeState(out);
+        mazeFlashing.writeState(out);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer)}.
+     *
+     * @param in input buffer
+     */
+    public void readState(ByteBuffer in) {
+        var eatenBits = BitSet.valueOf(StateCodec.getBits(in));
+        eatenBits.and(food);
+        eaten.clear();
+        eaten.or(eatenBits);
+        uneatenFoodCount = totalFoodCount - eaten.cardinality();
+        energizerBlinking.readState(in);
+        mazeFlashing.readState(in);
     }
-}
\ No newline at end of file
+}
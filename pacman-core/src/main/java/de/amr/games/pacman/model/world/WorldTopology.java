@@ -0,0 +1,321 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import org.tinylog.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Immutable index of the static structure of a maze (intersections, tunnels, portals, dead-ends and which directions
+ * can be taken at each tile), computed once per map and house layout.
+ * <p>
+ * Topologies are cached by map content and house geometry, so all worlds (of all levels and game sessions) using the
+ * same map share one instance. Tiles are addressed by the tile index of {@link World}. Direction masks have bit
+ * <code>1 &lt;&lt; dir.ordinal()</code> set if the neighbor tile in that direction can be entered.
+ *
+ * @author Armin Reichert
+ */
+public final class WorldTopology {
+
+    private record Key(int numCols, byte[] tileMap, Vector2i houseMinTile, Vector2i houseSize, Door door) {
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other && numCols == other.numCols && Arrays.equals(tileMap, other.tileMap)
+                && houseMinTile.equals(other.houseMinTile) && houseSize.equals(other.houseSize)
+                && door.equals(other.door);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(numCols, Arrays.hashCode(tileMap), houseMinTile, houseSize, door);
+        }
+    }
+
+    private static final Map<Key, WorldTopology> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @param world   world with house
+     * @param tileMap the world's (row-major) tile map data
+     * @return the (shared) topology of the given world's map and house
+     */
+    static WorldTopology of(World world, byte[] tileMap) {
+        checkNotNull(world.house());
+        var house = world.house();
+        var key = new Key(world.numCols(), tileMap, house.topLeftTile(), house.size(), house.door());
+        return CACHE.computeIfAbsent(key, k -> new WorldTopology(world, createCacheKey(world, tileMap)));
+    }
+
+    private static byte[] createCacheKey(World world, byte[] tileMap) {
+        var house = world.house();
+        var key = ByteBuffer.allocate(10 * Integer.BYTES + tileMap.length);
+        key.putInt(world.numCols()).putInt(world.numRows());
+        key.putInt(house.topLeftTile().x()).putInt(house.topLeftTile().y());
+        key.putInt(house.size().x()).putInt(house.size().y());
+        key.putInt(house.door().leftWing().x()).putInt(house.door().leftWing().y());
+        key.putInt(house.door().rightWing().x()).putInt(house.door().rightWing().y());
+        key.put(tileMap);
+        return key.array();
+    }
+
+    private final byte[] cacheKey;
+    private final int numCols;
+    private final int numRows;
+    private final BitSet accessible;
+    private final BitSet intersections;
+    private final BitSet tunnels;
+    private final BitSet tunnelEntries;
+    private final BitSet deadEnds;
+    private final byte[] portalDepthByRow;
+    private final byte[] pacDirections;
+    private final byte[] ghostDirections;
+    private volatile MazeDistances distances;
+
+    private WorldTopology(World world, byte[] cacheKey) {
+        this.cacheKey = cacheKey;
+        numCols = world.numCols();
+        numRows = world.numRows();
+        int numTiles = world.numTiles();
+        var house = world.house();
+
+        portalDepthByRow = new byte[numRows];
+        for (var portal : world.portals()) {
+            portalDepthByRow[portal.leftTunnelEnd().y()] = (byte) portal.depth();
+        }
+
+        accessible = new BitSet(numTiles);
+        intersections = new BitSet(numTiles);
+        tunnels = new BitSet(numTiles);
+        tunnelEntries = new BitSet(numTiles);
+        deadEnds = new BitSet(numTiles);
+        pacDirections = new byte[numTiles];
+        ghostDirections = new byte[numTiles];
+        for (int index = 0; index < numTiles; ++index) {
+            var tile = world.tile(index);
+            if (world.isTunnel(index)) {
+                tunnels.set(index);
+            }
+            if (isIntersection(world, tile)) {
+                intersections.set(index);
+            }
+            if (world.isWall(index)) {
+                continue;
+            }
+            if (!house.contains(tile)) {
+                accessible.set(index);
+            }
+            int numExits = 0;
+            for (var dir : Direction.values()) {
+                var neighbor = tile.plus(dir.vector());
+                if (pacCanEnter(world, neighbor)) {
+                    pacDirections[index] |= (byte) (1 << dir.ordinal());
+                }
+                if (ghostCanEnter(world, neighbor)) {
+                    ghostDirections[index] |= (byte) (1 << dir.ordinal());
+                }
+                if (!world.isWall(neighbor)) {
+                    ++numExits;
+                }
+                if (world.isTunnel(index) && world.insideBounds(neighbor)
+                    && !world.isTunnel(neighbor) && !world.isWall(neighbor)) {
+                    tunnelEntries.set(index);
+                }
+            }
+            if (numExits == 1 && !house.contains(tile)) {
+                deadEnds.set(index);
+            }
+        }
+        Logger.trace("World topology created: {} intersections, {} tunnel tiles, {} dead-ends",
+            intersections.cardinality(), tunnels.cardinality(), deadEnds.cardinality());
+    }
+
+    private boolean pacCanEnter(World world, Vector2i tile) {
+        if (world.house().contains(tile)) {
+            return false;
+        }
+        return world.insideBounds(tile) ? !world.isWall(tile) : belongsToPortal(tile.x(), tile.y());
+    }
+
+    private boolean ghostCanEnter(World world, Vector2i tile) {
+        if (world.house().door().occupies(tile)) {
+            return false;
+        }
+        return world.insideBounds(tile) ? !world.isWall(tile) : belongsToPortal(tile.x(), tile.y());
+    }
+
+    /**
+     * Computes if the given tile is an intersection, that is, it has at most one neighbor that is a wall or a door.
+     * Portal entries (left and right border) and house tiles are not considered intersections.
+     */
+    static boolean isIntersection(World world, Vector2i tile) {
+        if (tile.x() <= 0 || tile.x() >= world.numCols() - 1) {
+            return false; // exclude portal entries and tiles outside the map
+        }
+        var house = world.house();
+        if (house.contains(tile)) {
+            return false;
+        }
+        int numBlockedNeighbors = 0;
+        for (var dir : Direction.values()) {
+            var neighbor = tile.plus(dir.vector());
+            if (world.isWall(neighbor) || house.door().occupies(neighbor)) {
+                ++numBlockedNeighbors;
+            }
+        }
+        return numBlockedNeighbors < 2;
+    }
+
+    /**
+     * @param x tile x coordinate
+     * @param y tile y coordinate
+     * @return if the tile is one of the tiles outside the world bounds belonging to a portal
+     */
+    public boolean belongsToPortal(int x, int y) {
+        if (y < 0 || y >= numRows) {
+            return false;
+        }
+        int depth = portalDepthByRow[y];
+        return depth > 0 && (-depth <= x && x < 0 || numCols <= x && x < numCols + depth);
+    }
+
+    /**
+     * @return the shortest path distances between the tiles accessible by Pac-Man, computed or loaded on first access
+     */
+    public MazeDistances distances() {
+        var result = distances;
+        if (result == null) {
+            synchronized (this) {
+                result = distances;
+                if (result == null) {
+                    distances = result = new MazeDistances(this, cacheKey);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of tiles inside the world
+     */
+    public int numTiles() {
+        return numCols * numRows;
+    }
+
+    /**
+     * @param index tile index
+     * @param dir   direction
+     * @return index of the neighbor tile or {@link World#NO_TILE} if the neighbor is outside the world
+     */
+    public int neighbor(int index, Direction dir) {
+        int x = index % numCols, y = index / numCols;
+        return switch (dir) {
+            case LEFT  -> x > 0 ? index - 1 : World.NO_TILE;
+            case RIGHT -> x < numCols - 1 ? index + 1 : World.NO_TILE;
+            case UP    -> y > 0 ? index - numCols : World.NO_TILE;
+            case DOWN  -> y < numRows - 1 ? index + numCols : World.NO_TILE;
+        };
+    }
+
+    /**
+     * @param index tile index
+     * @return depth of the portal in the row of this tile or 0 if there is no portal
+     */
+    public int portalDepth(int index) {
+        return portalDepthByRow[index / numCols];
+    }
+
+    /**
+     * @param index tile index of a tunnel end at the left or right border
+     * @param dir   direction leading into the portal
+     * @return index of the tile at the other end of the portal or {@link World#NO_TILE}
+     */
+    public int portalExit(int index, Direction dir) {
+        int x = index % numCols, y = index / numCols;
+        if (portalDepthByRow[y] == 0) {
+            return World.NO_TILE;
+        }
+        if (x == 0 && dir == Direction.LEFT) {
+            return y * numCols + numCols - 1;
+        }
+        if (x == numCols - 1 && dir == Direction.RIGHT) {
+            return y * numCols;
+        }
+        return World.NO_TILE;
+    }
+
+    /**
+     * @param index tile index
+     * @return if Pac-Man can be on this tile (no wall, not inside the house)
+     */
+    public boolean isAccessible(int index) {
+        return accessible.get(index);
+    }
+
+    /**
+     * @param index tile index
+     */
+    public boolean isIntersection(int index) {
+        return intersections.get(index);
+    }
+
+    /**
+     * @param index tile index
+     */
+    public boolean isTunnel(int index) {
+        return tunnels.get(index);
+    }
+
+    /**
+     * @param index tile index
+     * @return if this is a tunnel tile next to a non-tunnel tile
+     */
+    public boolean isTunnelEntry(int index) {
+        return tunnelEntries.get(index);
+    }
+
+    /**
+     * @param index tile index
+     * @return if this is a tile outside the house with only one accessible neighbor
+     */
+    public boolean isDeadEnd(int index) {
+        return deadEnds.get(index);
+    }
+
+    /**
+     * @param index tile index
+     * @return bitmask of the directions Pac-Man can move to from this tile
+     */
+    public byte pacDirections(int index) {
+        return pacDirections[index];
+    }
+
+    /**
+     * @param index tile index
+     * @return bitmask of the directions a ghost outside the house can move to from this tile, ignoring the state
+     * dependent restrictions (no upwards move at some tiles for hunting ghosts)
+     */
+    public byte ghostDirections(int index) {
+        return ghostDirections[index];
+    }
+
+    /**
+     * @param directions direction bitmask
+     * @param dir        direction
+     * @return if the given direction is contained in the bitmask
+     */
+    public static boolean contains(byte directions, Direction dir) {
+        return (directions & (1 << dir.ordinal())) != 0;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.SaveGame;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Before;
+import org.junit.ClassRule;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Common fixture of the tests running a game: a Pac-Man game session with the first level started. Maze distance cache
+ * files are written into a temporary folder.
+ *
+ * @author Armin Reichert
+ */
+public abstract class AbstractGameTest {
+
+    @ClassRule
+    public static final TemporaryCacheDirectory CACHE_DIR = new TemporaryCacheDirectory();
+
+    protected GameController gameController;
+    protected GameModel game;
+
+    @Before
+    public void setUpTest() {
+        gameController = new GameController(GameVariant.PACMAN);
+        game = gameController.game();
+        game.reset();
+        gameController.createAndStartLevel(1);
+    }
+
+    /**
+     * @param level a level
+     * @return the saved state of the level, used to compare levels
+     */
+    protected static ByteBuffer levelState(GameLevel level) {
+        var buffer = ByteBuffer.allocate(SaveGame.MAX_SIZE);
+        level.writeState(buffer);
+        return buffer.flip();
+    }
+}
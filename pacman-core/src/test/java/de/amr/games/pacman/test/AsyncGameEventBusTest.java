@@ -0,0 +1,135 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.AsyncGameEventBus;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.event.GameStateChangeEvent;
+import de.amr.games.pacman.lib.Vector2i;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the asynchronous game event delivery.
+ *
+ * @author Armin Reichert
+ */
+public class AsyncGameEventBusTest extends AbstractGameTest {
+
+    @Test
+    public void testAsyncEventBusOverflowPolicies() {
+        List<GameEvent> received = new ArrayList<>();
+        var subscriber = new Flow.Subscriber<GameEvent>() {
+            Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+            }
+
+            @Override
+            public void onNext(GameEvent event) {
+                received.add(event);
+            }
+
+            @Override
+            public void onError(Throwable x) {
+                fail(x.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        };
+        // direct executor: delivery happens when the subscriber requests events
+        var dropBus = new AsyncGameEventBus(4, AsyncGameEventBus.OverflowPolicy.DROP_OLDEST, Runnable::run);
+        dropBus.subscribe(subscriber);
+        for (int x = 0; x < 6; ++x) {
+            dropBus.onGameEvent(new GameEvent(GameEventType.PAC_FOUND_FOOD, game, Vector2i.of(x, 0)));
+        }
+        assertEquals(4, dropBus.size());
+        assertEquals(2, dropBus.numDropped());
+        subscriber.subscription.request(10);
+        assertEquals(List.of(2, 3, 4, 5), received.stream().map(e -> e.tile.x()).toList());
+
+        received.clear();
+        var coalesceBus = new AsyncGameEventBus(2, AsyncGameEventBus.OverflowPolicy.COALESCE, Runnable::run);
+        coalesceBus.subscribe(subscriber);
+        coalesceBus.onGameEvent(new GameEvent(GameEventType.CREDIT_ADDED, game, null));
+        for (int x = 0; x < 5; ++x) {
+            coalesceBus.onGameEvent(new GameEvent(GameEventType.PAC_FOUND_FOOD, game, Vector2i.of(x, 0)));
+        }
+        assertEquals(4, coalesceBus.numCoalesced());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(2, received.size());
+        assertEquals(GameEventType.CREDIT_ADDED, received.get(0).type);
+        assertEquals(GameEventType.PAC_FOUND_FOOD, received.get(1).type);
+        assertTrue(received.get(1).tile().isEmpty());
+        // unbounded demand: events pass through immediately
+        coalesceBus.onGameEvent(new GameEvent(GameEventType.BONUS_EATEN, game, null));
+        assertEquals(3, received.size());
+        assertEquals(0, coalesceBus.size());
+
+        // events that cannot be merged replace the oldest mergeable event, the producer never waits
+        received.clear();
+        var fullBus = new AsyncGameEventBus(2, AsyncGameEventBus.OverflowPolicy.COALESCE, Runnable::run);
+        fullBus.subscribe(subscriber);
+        fullBus.onGameEvent(new GameStateChangeEvent(game, GameState.READY, GameState.HUNTING));
+        fullBus.onGameEvent(new GameEvent(GameEventType.CREDIT_ADDED, game, null));
+        fullBus.onGameEvent(new GameStateChangeEvent(game, GameState.HUNTING, GameState.PACMAN_DYING));
+        fullBus.onGameEvent(new GameStateChangeEvent(game, GameState.PACMAN_DYING, GameState.READY));
+        assertEquals(2, fullBus.size());
+        assertEquals(2, fullBus.numDropped());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(List.of(GameState.PACMAN_DYING, GameState.READY),
+            received.stream().map(e -> ((GameStateChangeEvent) e).newState).toList());
+        fullBus.close();
+        coalesceBus.close();
+        dropBus.close();
+    }
+
+    @Test
+    public void testAsyncEventBusDeliversAllEventsInOrder() throws InterruptedException {
+        int numEvents = 100_000;
+        var numReceived = new AtomicInteger();
+        var outOfOrder = new AtomicBoolean();
+        var allReceived = new CountDownLatch(1);
+        var bus = new AsyncGameEventBus(16, AsyncGameEventBus.OverflowPolicy.BLOCK);
+        bus.addListener(new GameEventListener() {
+            @Override
+            public void onGameEvent(GameEvent event) {
+                var tile = event.tile().orElseThrow();
+                if (tile.y() * 1000 + tile.x() != numReceived.get()) {
+                    outOfOrder.set(true);
+                }
+                if (numReceived.incrementAndGet() == numEvents) {
+                    allReceived.countDown();
+                }
+            }
+        });
+        var producer = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < numEvents; ++i) {
+                bus.onGameEvent(new GameEvent(GameEventType.PAC_FOUND_FOOD, game, Vector2i.of(i % 1000, i / 1000)));
+            }
+        });
+        producer.join();
+        assertTrue(allReceived.await(10, TimeUnit.SECONDS));
+        assertFalse(outOfOrder.get());
+        assertEquals(0, bus.numDropped());
+        bus.close();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.model.GameModel;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the tunable autopilot profile.
+ *
+ * @author Armin Reichert
+ */
+public class AutopilotProfileTest extends AbstractGameTest {
+
+    @Test
+    public void testAutopilotProfileIsSavedLoadedAndForked() throws IOException {
+        var profile = RuleBasedPacSteering.Profile.fromVector(new int[] {6, 2, 14, 5, 541, 52});
+        assertArrayEquals(new int[] {4, 1, 10, 20, 2 * GameModel.FPS, GameModel.FPS},
+            RuleBasedPacSteering.Profile.DEFAULT.toVector());
+        var file = Files.createTempFile("autopilot-profile", ".xml");
+        try {
+            profile.save(file, "Test profile");
+            assertEquals(profile, RuleBasedPacSteering.Profile.load(file));
+        } finally {
+            Files.delete(file);
+        }
+
+        var level = game.level().orElseThrow();
+        level.pac().setAutopilot(new RuleBasedPacSteering(level, profile));
+        var forkAutopilot = (RuleBasedPacSteering) level.fork().pac().autopilot();
+        assertEquals(profile, forkAutopilot.profile());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameState;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of forking a level for lookahead simulation.
+ *
+ * @author Armin Reichert
+ */
+public class GameLevelForkTest extends AbstractGameTest {
+
+    @Test
+    public void testForkedLevelIsIndependentAndDeterministic() {
+        game.setRandomSeed(42);
+        var level = game.level().orElseThrow();
+        level.pac().setUseAutopilot(true);
+        gameController.restart(GameState.HUNTING);
+        for (int i = 0; i < 600; ++i) {
+            gameController.update();
+        }
+        assertEquals(GameState.HUNTING, gameController.state());
+        var fork = level.fork();
+        assertNotSame(game, fork.game());
+        assertEquals(levelState(level), levelState(fork));
+
+        // stepping the fork does not change the original
+        var originalState = levelState(level);
+        int score = game.score().points();
+        long randomState = game.random().state();
+        for (int i = 0; i < 300 && fork.doHuntingStep() == GameState.HUNTING; ++i) {
+            fork.world().energizerBlinking().tick();
+        }
+        assertEquals(originalState, levelState(level));
+        assertEquals(score, game.score().points());
+        assertEquals(randomState, game.random().state());
+
+        // a fork continues exactly like the original
+        fork = level.fork();
+        for (int i = 0; i < 300 && gameController.state() == GameState.HUNTING; ++i) {
+            gameController.update();
+            if (gameController.state() == GameState.HUNTING) {
+                fork.world().energizerBlinking().tick();
+                fork.doHuntingStep();
+                assertEquals(levelState(level), levelState(fork));
+            }
+        }
+        assertEquals(game.score().points(), fork.game().score().points());
+    }
+}
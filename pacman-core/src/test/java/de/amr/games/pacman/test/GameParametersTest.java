@@ -0,0 +1,39 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.model.GameParameters;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the game parameters used by the difficulty sweep.
+ *
+ * @author Armin Reichert
+ */
+public class GameParametersTest extends AbstractGameTest {
+
+    @Test
+    public void testModifiedGameParametersAreUsedByNewLevels() {
+        var parameters = GameParameters.DEFAULT
+            .withLevelDataValue(1, 0, 50)
+            .withHuntingDuration(GameVariant.PACMAN, 0, 1, 600);
+        game.setParameters(parameters);
+        gameController.createAndStartLevel(1);
+        assertEquals(50, game.level().orElseThrow().data().pacSpeedPercentage());
+        assertEquals(600, game.huntingDurations(1)[1]);
+
+        // the arcade values are not changed
+        assertEquals(80, GameParameters.DEFAULT.levelData(1).pacSpeedPercentage());
+        assertEquals(20 * 60, GameParameters.DEFAULT.huntingDurations(GameVariant.PACMAN, 1)[1]);
+        game.huntingDurations(1)[1] = 0;
+        assertEquals(600, game.huntingDuration(1, 1));
+        game.setParameters(GameParameters.DEFAULT);
+        gameController.createAndStartLevel(1);
+        assertEquals(80, game.level().orElseThrow().data().pacSpeedPercentage());
+    }
+}
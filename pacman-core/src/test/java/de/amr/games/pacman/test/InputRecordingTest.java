@@ -0,0 +1,143 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.AutopilotSpec;
+import de.amr.games.pacman.controller.GameAction;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.controller.InputRecorder;
+import de.amr.games.pacman.controller.InputRecording;
+import de.amr.games.pacman.controller.ReplayPlayer;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.MonteCarloPacSteering;
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of recording game inputs and replaying them.
+ *
+ * @author Armin Reichert
+ */
+public class InputRecordingTest extends AbstractGameTest {
+
+    @Test
+    public void testRecordedGameIsReplayedIdentically() throws IOException {
+        game.setHighScorePersistent(false);
+        game.setRandomSeed(4711);
+        gameController.restart(GameState.INTRO);
+        var recorder = new InputRecorder(gameController);
+        gameController.setInputRecorder(recorder);
+        // simulated player: changes the wish direction at random times using its own random generator
+        var player = new Random(7);
+        gameController.eventManager().addListener(new GameEventListener() {
+            @Override
+            public void onLevelCreated(GameEvent e) {
+                e.game.level().ifPresent(level -> level.pac().setManualSteering(recorder.recordingSteering(pac -> {
+                    if (player.nextInt(20) == 0) {
+                        pac.setWishDir(Direction.values()[player.nextInt(4)]);
+                    }
+                })));
+            }
+        }, EnumSet.of(GameEventType.LEVEL_CREATED));
+        gameController.execute(GameAction.ADD_CREDIT);
+        gameController.execute(GameAction.START_GAME);
+        for (int i = 0; i < 5000 && gameController.state() != GameState.INTRO; ++i) {
+            if (i == 3000) {
+                gameController.execute(GameAction.ADD_LIVES, 3);
+                gameController.execute(GameAction.SET_CREDIT, 5);
+            }
+            gameController.update();
+        }
+        gameController.setInputRecorder(null);
+        InputRecording recording = recorder.finish();
+        assertTrue(recording.numRuns() > 1);
+        assertTrue(recording.numRuns() < recording.numTicks());
+
+        var bytes = new ByteArrayOutputStream();
+        recording.write(Channels.newChannel(bytes));
+        var loaded = InputRecording.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(recording.numTicks(), loaded.numTicks());
+
+        var replayPlayer = new ReplayPlayer(loaded);
+        var result = replayPlayer.play();
+        assertTrue(result.isValid());
+        assertEquals(recording.numChecksums(), result.verifiedChecksums());
+        assertEquals(game.score().points(), replayPlayer.gameController().game().score().points());
+        assertEquals(InputRecording.stateChecksum(gameController),
+            InputRecording.stateChecksum(replayPlayer.gameController()));
+    }
+
+    @Test
+    public void testInvalidRecordingIsRejected() throws IOException {
+        // a body length beyond the maximum size is rejected before anything is allocated
+        var header = ByteBuffer.allocate(14).putInt(InputRecording.MAGIC).putShort(InputRecording.VERSION)
+            .putInt(Integer.MAX_VALUE).putInt(0).flip();
+        assertThrows(IOException.class, () -> InputRecording.read(Channels.newChannel(
+            new ByteArrayInputStream(header.array()))));
+
+        // a checksum interval of 0 is rejected
+        var recording = new InputRecorder(gameController).finish();
+        var bytes = new ByteArrayOutputStream();
+        recording.write(Channels.newChannel(bytes));
+        var buffer = ByteBuffer.wrap(bytes.toByteArray());
+        // header, variant, default autopilot, seed, ticks, initial state, no runs, no actions
+        int checksumIntervalPosition = 14 + 1 + 1 + 8 + 8 + 4 + recording.initialState().remaining() + 4 + 4;
+        assertEquals(recording.checksumInterval(), buffer.getInt(checksumIntervalPosition));
+        buffer.putInt(checksumIntervalPosition, 0);
+        var crc = new CRC32C();
+        crc.update(buffer.slice(14, buffer.capacity() - 14));
+        buffer.putInt(10, (int) crc.getValue());
+        assertThrows(IOException.class, () -> InputRecording.read(Channels.newChannel(
+            new ByteArrayInputStream(buffer.array()))));
+    }
+
+    @Test
+    public void testRecordingRestoresAutopilot() throws IOException {
+        var profile = new RuleBasedPacSteering.Profile(6, 2, 8, 10, 60, 30);
+        gameController.setAutopilot(AutopilotSpec.ruleBased(profile));
+        game.setRandomSeed(42);
+        gameController.restart(GameState.INTRO);
+        var recorder = new InputRecorder(gameController);
+        gameController.setInputRecorder(recorder);
+        gameController.execute(GameAction.ADD_CREDIT);
+        gameController.execute(GameAction.START_GAME);
+        for (int i = 0; i < 3000 && gameController.state() != GameState.INTRO; ++i) {
+            if (game.level().isPresent() && !game.level().get().pac().isUsingAutopilot()) {
+                gameController.execute(GameAction.SET_AUTOPILOT, 1);
+            }
+            gameController.update();
+        }
+        gameController.setInputRecorder(null);
+        var recording = recorder.finish();
+
+        var bytes = new ByteArrayOutputStream();
+        recording.write(Channels.newChannel(bytes));
+        var loaded = InputRecording.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(AutopilotSpec.ruleBased(profile), loaded.autopilot());
+        var result = new ReplayPlayer(loaded).play();
+        assertTrue(result.isValid());
+        assertEquals(recording.numChecksums(), result.verifiedChecksums());
+
+        // autopilots which cannot be recreated are not recorded
+        gameController.setAutopilotFactory(RuleBasedPacSteering::new);
+        assertThrows(IllegalStateException.class, () -> new InputRecorder(gameController));
+        gameController.setAutopilot(AutopilotSpec.monteCarlo(MonteCarloPacSteering.Config.DEFAULT));
+        assertThrows(IllegalStateException.class, () -> new InputRecorder(gameController));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.LatencyHistogram;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Armin Reichert
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesHaveBoundedError() {
+        var histogram = new LatencyHistogram();
+        // 1..10000 microseconds
+        for (long micros = 1; micros <= 10_000; ++micros) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(10_000, histogram.count());
+        assertEquals(1000, histogram.min());
+        assertEquals(10_000_000, histogram.max());
+        assertEquals(5_000_500, histogram.mean(), 1e-6);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = (long) Math.ceil(percentile * 100) * 1000;
+            long value = histogram.valueAtPercentile(percentile);
+            assertTrue(percentile + ": " + value, value >= exact && value <= exact + exact / 128);
+        }
+        assertEquals(histogram.max(), histogram.valueAtPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.valueAtPercentile(99));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.lib.MonteCarloPacSteering;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the Monte Carlo autopilot.
+ *
+ * @author Armin Reichert
+ */
+public class MonteCarloPacSteeringTest extends AbstractGameTest {
+
+    @Test
+    public void testMonteCarloSteeringOnlyChangesWishDir() {
+        game.setRandomSeed(42);
+        var level = game.level().orElseThrow();
+        gameController.restart(GameState.HUNTING);
+        var pac = level.pac();
+        var wishDir = pac.wishDir();
+        var originalState = levelState(level);
+        long randomState = game.random().state();
+
+        var steering = new MonteCarloPacSteering(level, new MonteCarloPacSteering.Config(16, 60, 0),
+            MonteCarloPacSteering.CALLER_RUNS);
+        steering.steer(pac);
+        assertEquals(16, steering.lastRollouts());
+        assertEquals(randomState, game.random().state());
+        var decision = pac.wishDir();
+        pac.setWishDir(wishDir);
+        assertEquals(originalState, levelState(level));
+
+        // the decision only depends on the game state
+        steering.steer(pac);
+        assertEquals(decision, pac.wishDir());
+
+        // the time budget ends the search
+        var limited = new MonteCarloPacSteering(level, new MonteCarloPacSteering.Config(100_000, 600, 5),
+            ForkJoinPool.commonPool());
+        long time = System.nanoTime();
+        limited.steer(pac);
+        assertTrue(System.nanoTime() - time < 1_000_000_000L);
+        assertTrue(limited.lastRollouts() < 100_000);
+    }
+}
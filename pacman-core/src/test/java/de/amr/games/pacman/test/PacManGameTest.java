@@ -5,39 +5,105 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.test;
 
 import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventManager;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.lib.Vector2f;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.GhostState;
 import de.amr.games.pacman.model.actors.StaticBonus;
-import org.junit.Before;
-import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
  * @author Armin Reichert
  */
-public class PacManGameTest {
+public class PacManGameTest extends AbstractGameTest {
 
-    private GameModel game;
+    @Test
+    public void testGameControllerCreated() {
+        assertNotNull(gameController);
+    }
 
-    @BeforeClass
-    public static void setUp() {
-        GameController.it().newGame(GameVariant.PACMAN);
+    @Test
+    public void testGameSessionsAreIndependent() {
+        var otherController = new GameController(GameVariant.MS_PACMAN);
+        gameController.restart(GameState.INTRO);
+        otherController.restart(GameState.INTRO);
+        for (int i = 0; i < 10; ++i) {
+            gameController.update();
+        }
+        assertEquals(11, gameController.timer().tick());
+        assertEquals(1, otherController.timer().tick());
+
+        int[] received = new int[2];
+        gameController.eventManager().addListener(new GameEventListener() {
+            @Override
+            public void onGameEvent(GameEvent e) {
+                ++received[0];
+            }
+        });
+        otherController.eventManager().addListener(new GameEventListener() {
+            @Override
+            public void onGameEvent(GameEvent e) {
+                ++received[1];
+            }
+        });
+        gameController.changeCredit(1);
+        gameController.changeState(GameState.READY);
+        assertTrue(received[0] > 0);
+        assertEquals(0, received[1]);
     }
 
-    @Before
-    public void setUpTest() {
-        game = GameController.it().game();
-        game.reset();
-        GameController.it().createAndStartLevel(1);
+    @Test
+    public void testEventsAreDeliveredBySubscribedType() {
+        var eventManager = gameController.eventManager();
+        List<GameEventType> received = new ArrayList<>();
+        var listener = new GameEventListener() {
+            @Override
+            public void onGameEvent(GameEvent e) {
+                received.add(e.type);
+            }
+        };
+        assertFalse(eventManager.hasListeners(GameEventType.PAC_FOUND_FOOD));
+        eventManager.addListener(listener, EnumSet.of(GameEventType.CREDIT_ADDED));
+        assertTrue(eventManager.hasListeners(GameEventType.CREDIT_ADDED));
+        assertFalse(eventManager.hasListeners(GameEventType.PAC_FOUND_FOOD));
+        GameEventManager.publishGameEvent(game, GameEventType.PAC_FOUND_FOOD);
+        GameEventManager.publishGameEvent(game, GameEventType.CREDIT_ADDED);
+        assertEquals(List.of(GameEventType.CREDIT_ADDED), received);
+        eventManager.removeListener(listener);
+        assertFalse(eventManager.hasListeners(GameEventType.CREDIT_ADDED));
+        GameEventManager.publishGameEvent(game, GameEventType.CREDIT_ADDED);
+        assertEquals(1, received.size());
     }
 
     @Test
-    public void testGameControllerCreated() {
-        assertNotNull(GameController.it());
+    public void testFoodFoundEventIsReusedPerTile() {
+        List<GameEvent> received = new ArrayList<>();
+        gameController.eventManager().addListener(new GameEventListener() {
+            @Override
+            public void onGameEvent(GameEvent e) {
+                received.add(e);
+            }
+        }, EnumSet.of(GameEventType.PAC_FOUND_FOOD));
+        GameEventManager.publishGameEvent(game, GameEventType.PAC_FOUND_FOOD, Vector2i.of(1, 4));
+        GameEventManager.publishGameEvent(game, GameEventType.PAC_FOUND_FOOD, Vector2i.of(1, 4));
+        GameEventManager.publishGameEvent(game, GameEventType.PAC_FOUND_FOOD, Vector2i.of(2, 4));
+        assertEquals(3, received.size());
+        assertSame(received.get(0), received.get(1));
+        assertEquals(Vector2i.of(2, 4), received.get(2).tile);
+        assertSame(game, received.get(2).game);
     }
 
     @Test
@@ -68,14 +134,11 @@ public class PacManGameTest {
         game.level().ifPresent(level -> {
             var redGhost = level.ghost(GameModel.RED_GHOST);
 
-
-
             assertNotEquals(Vector2f.ZERO, level.ghostRevivalPosition(redGhost.id()));
             assertNotEquals(Vector2i.ZERO, level.ghostScatterTarget(redGhost.id()));
 
             var pinkGhost = level.ghost(GameModel.PINK_GHOST);
 
-
             assertNotEquals(Vector2f.ZERO, level.ghostRevivalPosition(pinkGhost.id()));
             assertNotEquals(Vector2i.ZERO, level.ghostScatterTarget(pinkGhost.id()));
 
@@ -129,7 +192,7 @@ public class PacManGameTest {
     @Test
     public void testPacManGameBonus() {
         for (int levelNumber = 1; levelNumber <= 21; ++levelNumber) {
-            GameController.it().createAndStartLevel(levelNumber);
+            gameController.createAndStartLevel(levelNumber);
             game.level().ifPresent(level -> {
                 level.onBonusReached(0);
                 assertTrue(level.bonus().isPresent());
@@ -143,20 +206,18 @@ public class PacManGameTest {
 
     @Test
     public void testChangeCredit() {
-        assertEquals(0, GameController.it().credit());
-        GameController.it().changeCredit(2);
-        assertEquals(2, GameController.it().credit());
-        GameController.it().changeCredit(-2);
-        assertEquals(0, GameController.it().credit());
+        assertEquals(0, gameController.credit());
+        gameController.changeCredit(2);
+        assertEquals(2, gameController.credit());
+        gameController.changeCredit(-2);
+        assertEquals(0, gameController.credit());
     }
 
-
 //    @Test(expected = IllegalArgumentException.class)
 //    public void testIllegalKilledIndex() {
 //        game.level().ifPresent(level -> level.ghost(GameModel.RED_GHOST).setKilledIndex(42));
 //    }
 
-
     @Test
     public void testLegalCruiseElroyState() {
         game.level().ifPresent(level -> {
@@ -177,4 +238,38 @@ public class PacManGameTest {
     public void testIllegalCruiseElroyState() {
         game.level().ifPresent(level -> level.setCruiseElroyState(42));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGhostDirectionMaskMatchesCanAccessTile() {
+        // Pac-Man maze and the four Ms. Pac-Man mazes
+        checkGhostDirectionMasks(GameVariant.PACMAN, 1);
+        for (int levelNumber : new int[] {1, 3, 6, 10}) {
+            checkGhostDirectionMasks(GameVariant.MS_PACMAN, levelNumber);
+        }
+    }
+
+    private static void checkGhostDirectionMasks(GameVariant variant, int levelNumber) {
+        var controller = new GameController(variant);
+        controller.game().reset();
+        controller.createAndStartLevel(levelNumber);
+        var level = controller.game().level().orElseThrow();
+        var world = level.world();
+        level.ghosts().forEach(ghost -> {
+            for (var state : GhostState.values()) {
+                ghost.setState(state);
+                // ghosts never stand on wall tiles, the fast path is only defined for the other tiles
+                world.tiles().filter(tile -> !world.isWall(tile)).forEach(tile -> {
+                    ghost.placeAtTile(tile, 0, 0);
+                    int generic = 0;
+                    for (var dir : Direction.values()) {
+                        if (ghost.canAccessTile(tile.plus(dir.vector()))) {
+                            generic |= 1 << dir.ordinal();
+                        }
+                    }
+                    assertEquals("%s %s at %s in %s level %d".formatted(ghost.name(), state, tile, variant, levelNumber),
+                        generic, ghost.accessibleDirections(tile.x(), tile.y()));
+                });
+            }
+        });
+    }
+}
@@ -4,6 +4,8 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.test;
 
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.SplitMix64Random;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -32,4 +34,19 @@ public class RandomNumberTest {
             Assert.assertTrue(10.0f <= number && number < 100.0f);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSeededRandomIsReproducible() {
+        var rnd1 = new SplitMix64Random(42);
+        var rnd2 = new SplitMix64Random(42);
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(rnd1.nextLong(), rnd2.nextLong());
+        }
+        var copy = rnd1.copy();
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(Direction.shuffled(rnd1), Direction.shuffled(copy));
+        }
+        var restored = new SplitMix64Random(rnd1.state());
+        Assert.assertEquals(rnd1.nextInt(0, 320), restored.nextInt(0, 320));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.controller.RewindBuffer;
+import de.amr.games.pacman.controller.SaveGame;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the rewind history.
+ *
+ * @author Armin Reichert
+ */
+public class RewindBufferTest extends AbstractGameTest {
+
+    @Test
+    public void testRewindRestoresEarlierState() {
+        game.setRandomSeed(42);
+        game.level().orElseThrow().pac().setUseAutopilot(true);
+        gameController.restart(GameState.HUNTING);
+        var rewindBuffer = new RewindBuffer(300, 2 * SaveGame.MAX_SIZE, 60);
+        gameController.setRewindBuffer(rewindBuffer);
+        ByteBuffer stateAfter900 = null;
+        for (int i = 1; i <= 1000; ++i) {
+            gameController.update();
+            if (i == 900) {
+                stateAfter900 = SaveGame.encode(gameController);
+            }
+        }
+        ByteBuffer stateAfter1000 = SaveGame.encode(gameController);
+        assertTrue(rewindBuffer.size() <= 300 && rewindBuffer.size() > 300 - 60);
+        assertTrue(rewindBuffer.bytesUsed() <= rewindBuffer.capacityBytes());
+        assertEquals(rewindBuffer.size() - 1, rewindBuffer.position());
+
+        rewindBuffer.restore(gameController, rewindBuffer.size() - 101);
+        assertEquals(stateAfter900, SaveGame.encode(gameController));
+        assertTrue(rewindBuffer.stepBack(gameController, 10));
+        assertEquals(rewindBuffer.size() - 111, rewindBuffer.position());
+
+        // continuing from the restored state drops the newer entries and repeats the simulation
+        rewindBuffer.restore(gameController, rewindBuffer.size() - 101);
+        int size = rewindBuffer.size();
+        for (int i = 0; i < 100; ++i) {
+            gameController.update();
+        }
+        assertEquals(size, rewindBuffer.size());
+        assertEquals(stateAfter1000, SaveGame.encode(gameController));
+    }
+}
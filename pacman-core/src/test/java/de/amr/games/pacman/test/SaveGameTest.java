@@ -0,0 +1,80 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.controller.SaveGame;
+import de.amr.games.pacman.lib.NavPoint;
+import de.amr.games.pacman.lib.RouteBasedSteering;
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of saving and restoring the game state.
+ *
+ * @author Armin Reichert
+ */
+public class SaveGameTest extends AbstractGameTest {
+
+    @Test
+    public void testSavedGameContinuesIdentically() throws IOException {
+        game.setRandomSeed(42);
+        game.level().orElseThrow().pac().setUseAutopilot(true);
+        gameController.restart(GameState.HUNTING);
+        for (int i = 0; i < 1500; ++i) {
+            gameController.update();
+        }
+        ByteBuffer saved = SaveGame.encode(gameController);
+
+        var restoredController = new GameController(GameVariant.MS_PACMAN);
+        SaveGame.decode(restoredController, saved.duplicate());
+        assertEquals(GameVariant.PACMAN, restoredController.game().variant());
+        assertEquals(saved, SaveGame.encode(restoredController));
+
+        for (int i = 0; i < 1500; ++i) {
+            gameController.update();
+            restoredController.update();
+        }
+        assertEquals(game.score().points(), restoredController.game().score().points());
+        assertEquals(SaveGame.encode(gameController), SaveGame.encode(restoredController));
+    }
+
+    @Test
+    public void testLevelStateDoesNotDependOnAutopilotType() {
+        var level = game.level().orElseThrow();
+        var route = List.of(NavPoint.np(12, 26), NavPoint.np(15, 26));
+        level.pac().setAutopilot(new RouteBasedSteering(route));
+        var routeState = levelState(level);
+        level.pac().setAutopilot(new RuleBasedPacSteering(level));
+        var ruleState = levelState(level);
+
+        // a state saved with a route is read completely by a level without route and vice versa
+        var in = routeState.duplicate();
+        level.readState(in);
+        assertFalse(in.hasRemaining());
+        assertEquals(ruleState, levelState(level));
+
+        level.pac().setAutopilot(new RouteBasedSteering(route));
+        in = ruleState.duplicate();
+        level.readState(in);
+        assertFalse(in.hasRemaining());
+        assertEquals(routeState, levelState(level));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedSavedGameIsRejected() throws IOException {
+        ByteBuffer saved = SaveGame.encode(gameController);
+        saved.put(saved.limit() - 1, (byte) (saved.get(saved.limit() - 1) + 1));
+        SaveGame.decode(new GameController(GameVariant.PACMAN), saved);
+    }
+}
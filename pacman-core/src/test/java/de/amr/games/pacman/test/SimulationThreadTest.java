@@ -0,0 +1,115 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameSnapshot;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.controller.SimulationThread;
+import de.amr.games.pacman.event.AsyncGameEventBus;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.world.World;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the simulation running on its own thread.
+ *
+ * @author Armin Reichert
+ */
+public class SimulationThreadTest extends AbstractGameTest {
+
+    @Test
+    public void testSimulationThreadPublishesSnapshots() throws InterruptedException {
+        var level = game.level().orElseThrow();
+        level.pac().setUseAutopilot(true);
+        gameController.restart(GameState.HUNTING);
+        var simulation = new SimulationThread(gameController, SimulationThread.Kind.VIRTUAL);
+        simulation.setTargetTickRate(1000);
+        simulation.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (simulation.latestSnapshot().tick() < 30 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        var tile = level.world().tile(level.world().nextFood(0));
+        simulation.runExclusively(() -> level.world().removeFood(tile));
+        simulation.stop();
+
+        GameSnapshot snapshot = simulation.latestSnapshot();
+        assertTrue(snapshot.tick() >= 30);
+        assertEquals(gameController.state(), snapshot.state());
+        assertEquals(level.number(), snapshot.levelNumber());
+        assertEquals(level.pac().posX(), snapshot.pac().x(), 0);
+        assertEquals(level.pac().posY(), snapshot.pac().y(), 0);
+        assertEquals(4, snapshot.ghosts().size());
+        assertEquals(game.levelCounter(), snapshot.levelCounter());
+        assertEquals(level.ghost(GameModel.RED_GHOST).state(), snapshot.ghosts().get(0).ghostState());
+        assertTrue(snapshot.isFoodEaten(level.world().index(tile)));
+        int numEaten = 0;
+        for (int i = snapshot.nextEatenFood(0); i != World.NO_TILE; i = snapshot.nextEatenFood(i + 1)) {
+            assertTrue(level.world().hasEatenFoodAt(level.world().tile(i)));
+            ++numEaten;
+        }
+        assertEquals(level.world().eatenFoodCount(), numEaten);
+    }
+
+    @Test(timeout = 10_000)
+    public void testSimulationThreadIsNotBlockedByUndeliveredEvents() throws InterruptedException {
+        var level = game.level().orElseThrow();
+        level.pac().setUseAutopilot(true);
+        // the executor never runs the delivery, like an application thread waiting for the simulation lock
+        var pendingDeliveries = new ArrayList<Runnable>();
+        var eventBus = new AsyncGameEventBus(4, AsyncGameEventBus.OverflowPolicy.COALESCE, task -> {
+            synchronized (pendingDeliveries) {
+                pendingDeliveries.add(task);
+            }
+        });
+        eventBus.addListener(new GameEventListener() {
+            @Override
+            public void onGameEvent(GameEvent event) {
+                fail("Event must not be delivered");
+            }
+        });
+        gameController.eventManager().addListener(eventBus);
+        gameController.restart(GameState.HUNTING);
+        var simulation = new SimulationThread(gameController, SimulationThread.Kind.VIRTUAL);
+        simulation.setTargetTickRate(1000);
+        simulation.start();
+        // each restart publishes state change events while the simulation thread publishes its own events
+        for (int i = 0; i < 50; ++i) {
+            simulation.runExclusively(() -> gameController.restart(GameState.HUNTING));
+            long tick = simulation.latestSnapshot().tick();
+            while (simulation.latestSnapshot().tick() < tick + 2) {
+                Thread.sleep(1);
+            }
+        }
+        simulation.stop();
+        assertTrue(simulation.failure().isEmpty());
+        assertTrue(eventBus.size() <= eventBus.capacity());
+        assertTrue(eventBus.numDropped() + eventBus.numCoalesced() > 0);
+        gameController.eventManager().removeListener(eventBus);
+        eventBus.close();
+    }
+
+    @Test
+    public void testSimulationThreadStopsOnFailingTicks() throws InterruptedException {
+        // no game state has been entered, so each update fails
+        var simulation = new SimulationThread(new GameController(GameVariant.PACMAN), SimulationThread.Kind.VIRTUAL);
+        simulation.setTargetTickRate(1000);
+        simulation.start();
+        while (simulation.isRunning()) {
+            Thread.sleep(1);
+        }
+        simulation.stop();
+        assertTrue(simulation.failure().isPresent());
+        assertEquals(SimulationThread.MAX_CONSECUTIVE_FAILURES, simulation.latestSnapshot().tick());
+    }
+}
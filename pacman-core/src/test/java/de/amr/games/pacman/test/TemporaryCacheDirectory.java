@@ -0,0 +1,40 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Class rule pointing the system property <code>pacman.cache.dir</code> to a temporary folder, so the maze distance
+ * cache files written by the tests are deleted afterwards instead of piling up in the temp directory.
+ * <p>
+ * Worlds share their topology inside the JVM, so every test class that may compute maze distances (directly or via the
+ * rule-based autopilot) uses this rule.
+ *
+ * @author Armin Reichert
+ */
+public class TemporaryCacheDirectory extends TemporaryFolder {
+
+    private static final String PROPERTY = "pacman.cache.dir";
+
+    private String previousValue;
+
+    @Override
+    protected void before() throws Throwable {
+        super.before();
+        previousValue = System.getProperty(PROPERTY);
+        System.setProperty(PROPERTY, getRoot().getPath());
+    }
+
+    @Override
+    protected void after() {
+        if (previousValue != null) {
+            System.setProperty(PROPERTY, previousValue);
+        } else {
+            System.clearProperty(PROPERTY);
+        }
+        super.after();
+    }
+}
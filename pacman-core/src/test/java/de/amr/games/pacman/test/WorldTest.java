@@ -4,12 +4,16 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.test;
 
+import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.lib.Vector2f;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.actors.Ghost;
 import de.amr.games.pacman.model.world.ArcadeWorld;
+import de.amr.games.pacman.model.world.MazeDistances;
 import de.amr.games.pacman.model.world.World;
+import de.amr.games.pacman.model.world.WorldTopology;
+import org.junit.ClassRule;
 import org.junit.Test;
 
 import static de.amr.games.pacman.lib.Globals.*;
@@ -21,6 +25,9 @@ import static org.junit.Assert.*;
  */
 public class WorldTest {
 
+    @ClassRule
+    public static final TemporaryCacheDirectory CACHE_DIR = new TemporaryCacheDirectory();
+
     @Test
     public void testNullTileArg() {
         var world = ArcadeWorld.createPacManWorld();
@@ -145,4 +152,101 @@ public class WorldTest {
         byte[][] map = {{0, 1, 2}, {1, 1, 1}, {2, 2, 2}};
         assertThrows(IllegalArgumentException.class, () -> ArcadeWorld.createArcadeWorld(map));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTileVectorsAreInterned() {
+        var world = ArcadeWorld.createPacManWorld();
+        world.tiles().forEach(tile -> {
+            assertSame(tile, v2i(tile.x(), tile.y()));
+            assertSame(tile, tileAt(tile.x() * TS + HTS, tile.y() * TS + HTS));
+        });
+        for (var portal : world.portals()) {
+            var outside = portal.leftTunnelEnd().minus(portal.depth(), 0);
+            assertSame(outside, v2i(outside.x(), outside.y()));
+        }
+        int m = Vector2i.CACHE_MARGIN;
+        assertSame(v2i(-m, -m), v2i(-m, -m));
+        assertSame(v2i(ArcadeWorld.TILES_X + m - 1, ArcadeWorld.TILES_Y + m - 1),
+            v2i(ArcadeWorld.TILES_X + m - 1, ArcadeWorld.TILES_Y + m - 1));
+        assertNotSame(v2i(-m - 1, 0), v2i(-m - 1, 0));
+        assertNotSame(v2i(0, ArcadeWorld.TILES_Y + m), v2i(0, ArcadeWorld.TILES_Y + m));
+        var farAway = v2i(1000, -1000);
+        assertEquals(farAway, v2i(1000, -1000));
+        assertEquals(farAway.hashCode(), new Vector2i(1000, -1000).hashCode());
+    }
+
+    @Test
+    public void testTileIndexQueries() {
+        var world = ArcadeWorld.createPacManWorld();
+        assertEquals(World.NO_TILE, world.index(-1, 0));
+        assertEquals(World.NO_TILE, world.index(world.numCols(), 0));
+        world.tiles().forEach(tile -> {
+            int index = world.index(tile);
+            assertEquals(tile, world.tile(index));
+            assertEquals(world.isWall(tile), world.isWall(index));
+            assertEquals(world.isTunnel(tile), world.isTunnel(index));
+            assertEquals(world.hasFoodAt(tile), world.hasFood(index));
+            for (var dir : Direction.values()) {
+                var neighbor = tile.plus(dir.vector());
+                assertEquals(world.index(neighbor), world.neighbor(index, dir));
+            }
+        });
+        var tile = v2i(1, 4);
+        assertTrue(world.hasFoodAt(tile));
+        world.removeFood(world.index(tile));
+        assertTrue(world.hasEatenFoodAt(tile));
+        assertEquals(world.index(tile), world.nextEatenFood(0));
+        int count = 0;
+        for (int i = world.nextFood(0); i != World.NO_TILE; i = world.nextFood(i + 1)) {
+            assertTrue(world.hasFood(i));
+            ++count;
+        }
+        assertEquals(world.uneatenFoodCount(), count);
+    }
+
+    @Test
+    public void testTopologyIsSharedAndConsistent() {
+        var world = ArcadeWorld.createMsPacManWorld(2);
+        assertSame(world.topology(), ArcadeWorld.createMsPacManWorld(2).topology());
+        assertNotSame(world.topology(), ArcadeWorld.createMsPacManWorld(3).topology());
+        var topology = world.topology();
+        world.tiles().forEach(tile -> {
+            int index = world.index(tile);
+            long numWallOrDoorNeighbors = tile.neighbors()
+                .filter(n -> world.isWall(n) || world.house().door().occupies(n)).count();
+            boolean intersection = tile.x() > 0 && tile.x() < world.numCols() - 1 && !world.house().contains(tile)
+                && numWallOrDoorNeighbors < 2;
+            assertEquals(intersection, topology.isIntersection(index));
+            for (var dir : Direction.values()) {
+                var neighbor = tile.plus(dir.vector());
+                boolean pacCanMove = !world.isWall(tile) && !world.house().contains(neighbor)
+                    && (world.insideBounds(neighbor) ? !world.isWall(neighbor) : world.belongsToPortal(neighbor));
+                assertEquals(pacCanMove, WorldTopology.contains(topology.pacDirections(index), dir));
+            }
+        });
+        for (var portal : world.portals()) {
+            for (int i = 1; i <= portal.depth(); ++i) {
+                assertTrue(world.belongsToPortal(portal.leftTunnelEnd().minus(i, 0)));
+                assertTrue(world.belongsToPortal(portal.rightTunnelEnd().plus(i, 0)));
+            }
+            assertFalse(world.belongsToPortal(portal.leftTunnelEnd()));
+            assertFalse(world.belongsToPortal(portal.rightTunnelEnd().plus(portal.depth() + 1, 0)));
+        }
+    }
+
+    @Test
+    public void testMazeDistances() {
+        var world = ArcadeWorld.createPacManWorld();
+        var portal = world.portals().get(0);
+        assertEquals(0, world.mazeDistance(portal.leftTunnelEnd(), portal.leftTunnelEnd()));
+        assertEquals(2 * portal.depth() + 1, world.mazeDistance(portal.leftTunnelEnd(), portal.rightTunnelEnd()));
+        assertEquals(2 * portal.depth() + 1, world.mazeDistance(portal.rightTunnelEnd(), portal.leftTunnelEnd()));
+        var a = v2i(1, 4);
+        var b = v2i(26, 32);
+        assertEquals(world.mazeDistance(a, b), world.mazeDistance(b, a));
+        assertTrue(world.mazeDistance(a, b) >= a.manhattanDistance(b));
+        assertEquals(1, world.mazeDistance(a, v2i(2, 4)));
+        assertEquals(MazeDistances.UNREACHABLE, world.mazeDistance(a, v2i(0, 0)));
+        assertEquals(MazeDistances.UNREACHABLE, world.mazeDistance(a, world.house().topLeftTile().plus(1, 1)));
+    }
+}
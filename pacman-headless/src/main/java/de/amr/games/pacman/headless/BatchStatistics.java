@@ -0,0 +1,129 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the results of a batch of simulated games.
+ * <p>
+ * All counters are lock-free (striped adders and accumulators), so results can be added concurrently from any number
+ * of worker threads without contention on a shared lock. The derived values are only exact when no other thread is
+ * adding results at the same time, e.g. after the batch has completed.
+ *
+ * @author Armin Reichert
+ */
+public class BatchStatistics {
+
+    private static final String[] GHOST_NAMES = { "Red", "Pink", "Cyan", "Orange" };
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAccumulator ticksMax = new LongAccumulator(Math::max, 0);
+    private final LongAdder scoreSum = new LongAdder();
+    private final DoubleAdder scoreSquareSum = new DoubleAdder();
+    private final LongAccumulator scoreMin = new LongAccumulator(Math::min, Integer.MAX_VALUE);
+    private final LongAccumulator scoreMax = new LongAccumulator(Math::max, Integer.MIN_VALUE);
+    private final LongAdder levelSum = new LongAdder();
+    private final LongAccumulator levelMax = new LongAccumulator(Math::max, 0);
+    private final LongAdder foodSum = new LongAdder();
+    private final LongAdder[] lastLifeKills = createAdders(GHOST_NAMES.length);
+    private final LongAdder[] kills = createAdders(GHOST_NAMES.length);
+
+    private static LongAdder[] createAdders(int n) {
+        var adders = new LongAdder[n];
+        for (int i = 0; i < n; ++i) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Adds the result of a game. May be called concurrently.
+     *
+     * @param result game result
+     */
+    public void add(GameResult result) {
+        games.increment();
+        if (result.timedOut()) {
+            timeouts.increment();
+        }
+        ticks.add(result.ticks());
+        ticksMax.accumulate(result.ticks());
+        scoreSum.add(result.score());
+        scoreSquareSum.add((double) result.score() * result.score());
+        scoreMin.accumulate(result.score());
+        scoreMax.accumulate(result.score());
+        levelSum.add(result.levelNumber());
+        levelMax.accumulate(result.levelNumber());
+        foodSum.add(result.foodEaten());
+        if (result.killerID() != -1) {
+            lastLifeKills[result.killerID()].increment();
+        }
+        for (int id = 0; id < kills.length; ++id) {
+            kills[id].add(result.deaths().get(id));
+        }
+    }
+
+    public long games() {
+        return games.sum();
+    }
+
+    public long ticks() {
+        return ticks.sum();
+    }
+
+    public double scoreMean() {
+        long n = games();
+        return n == 0 ? 0 : (double) scoreSum.sum() / n;
+    }
+
+    public double scoreStdDev() {
+        long n = games();
+        if (n == 0) {
+            return 0;
+        }
+        double mean = scoreMean();
+        return Math.sqrt(Math.max(0, scoreSquareSum.sum() / n - mean * mean));
+    }
+
+    /**
+     * @param ghostID ghost ID
+     * @return number of games where Pac-Man lost the last life to the given ghost
+     */
+    public long lastLifeKills(byte ghostID) {
+        return lastLifeKills[ghostID].sum();
+    }
+
+    /**
+     * Prints a summary of this batch.
+     *
+     * @param out         output stream
+     * @param elapsedNanos wall-clock time used to run the batch
+     */
+    public void print(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long n = games();
+        long t = ticks();
+        out.printf("Games:       %d (%d timed out)%n", n, timeouts.sum());
+        out.printf("Ticks:       %d (mean=%.0f max=%d)%n", t, n == 0 ? 0 : (double) t / n, ticksMax.get());
+        out.printf("Time:        %.3f s%n", seconds);
+        out.printf("Ticks/s:     %.0f%n", t / seconds);
+        out.printf("Games/s:     %.2f%n", n / seconds);
+        out.printf("Score:       mean=%.1f stddev=%.1f min=%d max=%d%n",
+            scoreMean(), scoreStdDev(), n == 0 ? 0 : scoreMin.get(), n == 0 ? 0 : scoreMax.get());
+        out.printf("Level:       mean=%.2f max=%d%n", n == 0 ? 0 : (double) levelSum.sum() / n, levelMax.get());
+        out.printf("Food eaten:  mean=%.1f%n", n == 0 ? 0 : (double) foodSum.sum() / n);
+        var sb = new StringBuilder();
+        for (byte id = 0; id < GHOST_NAMES.length; ++id) {
+            sb.append(" %s=%d/%d".formatted(GHOST_NAMES[id], lastLifeKills[id].sum(), kills[id].sum()));
+        }
+        out.printf("Killed by:  %s (last life/all lives)%n", sb);
+    }
+}
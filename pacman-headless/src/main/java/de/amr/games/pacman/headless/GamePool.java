@@ -0,0 +1,91 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Plays games on the worker threads of a {@link ForkJoinPool}. Each worker thread plays in its own
+ * {@link HeadlessGame} session, so workers share no mutable game state. Games are CPU-bound, therefore platform worker
+ * threads (one per core) are used and not virtual threads.
+ * <p>
+ * If the calling thread is interrupted while waiting for the games, the remaining games are cancelled and a
+ * {@link CancellationException} is thrown, so partial results are never taken for complete ones.
+ *
+ * @author Armin Reichert
+ */
+class GamePool {
+
+    private final int parallelism;
+    private final HeadlessGame.Mode mode;
+    private final long maxTicks;
+
+    /**
+     * @param parallelism number of worker threads
+     * @param mode        simulation mode of the sessions
+     * @param maxTicks    maximum number of ticks a game may take before it is aborted
+     */
+    GamePool(int parallelism, HeadlessGame.Mode mode, long maxTicks) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+        }
+        checkNotNull(mode);
+        this.parallelism = parallelism;
+        this.mode = mode;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Executes the given task for each index from 0 (inclusive) to <code>count</code> (exclusive), passing the session
+     * of the executing worker thread.
+     *
+     * @param count number of tasks
+     * @param task  task, executed concurrently
+     * @throws CancellationException if the calling thread is interrupted (its interrupt status is kept)
+     * @throws IllegalStateException if a task fails
+     */
+    void play(int count, ObjIntConsumer<HeadlessGame> task) {
+        checkNotNull(task);
+        var sessions = ThreadLocal.withInitial(() -> new HeadlessGame(mode, maxTicks));
+        forEach(count, i -> task.accept(sessions.get(), i));
+    }
+
+    /**
+     * Executes the given task for each index from 0 (inclusive) to <code>count</code> (exclusive).
+     *
+     * @param count number of tasks
+     * @param task  task, executed concurrently
+     * @throws CancellationException if the calling thread is interrupted (its interrupt status is kept)
+     * @throws IllegalStateException if a task fails
+     */
+    void forEach(int count, IntConsumer task) {
+        checkNotNull(task);
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit((Callable<Void>) () -> {
+                IntStream.range(0, count).parallel().forEach(task);
+                return null;
+            }).get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+            var cancellation = new CancellationException("Game simulation interrupted");
+            cancellation.initCause(x);
+            throw cancellation;
+        } catch (ExecutionException x) {
+            throw new IllegalStateException("Game simulation failed", x.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import java.util.List;
+
+/**
+ * Outcome of a single simulated game.
+ *
+ * @param seed        random seed the game was played with, playing again with this seed reproduces the game
+ * @param score       final score (demo levels do not score, see {@link #foodEaten})
+ * @param levelNumber number of the last level played
+ * @param foodEaten   number of pellets and energizers eaten in the whole game
+ * @param ticks       number of simulation ticks from game start until game over
+ * @param timedOut    if the game was aborted because it exceeded the tick limit
+ * @param killerID    ID of the ghost that took Pac-Man's last life or <code>-1</code> if the game did not end by
+ *                    Pac-Man being killed (e.g. time-out)
+ * @param deaths      number of lives lost, indexed by the ID of the killer ghost (unmodifiable)
+ * @param levelDeaths number of lives lost, indexed by level number - 1, one entry for each level played (unmodifiable)
+ *
+ * @author Armin Reichert
+ */
+public record GameResult(long seed, int score, int levelNumber, int foodEaten, long ticks, boolean timedOut, byte killerID,
+        List<Integer> deaths, List<Integer> levelDeaths) {
+
+    public GameResult {
+        deaths = List.copyOf(deaths);
+        levelDeaths = List.copyOf(levelDeaths);
+    }
+
+    /**
+     * @return number of lives lost in the game
+     */
+    public int livesLost() {
+        return deaths.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return average number of ticks Pac-Man survived per life (all ticks if no life was lost)
+     */
+    public double ticksPerLife() {
+        return (double) ticks / Math.max(1, livesLost());
+    }
+}
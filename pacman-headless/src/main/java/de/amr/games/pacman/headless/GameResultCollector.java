@@ -0,0 +1,81 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * Counts the food eaten and the lives lost in the game session of a game controller, see {@link GameResult}.
+ *
+ * @author Armin Reichert
+ */
+class GameResultCollector implements GameEventListener {
+
+    private final GameController gameController;
+    private int foodEaten;
+    private byte killerID;
+    private final int[] deaths = new int[4];
+    private int[] levelDeaths = new int[32];
+
+    /**
+     * @param gameController game controller whose events are collected
+     */
+    GameResultCollector(GameController gameController) {
+        this.gameController = gameController;
+        gameController.eventManager().addListener(this,
+            EnumSet.of(GameEventType.PAC_FOUND_FOOD, GameEventType.GAME_STATE_CHANGED));
+        reset();
+    }
+
+    void reset() {
+        foodEaten = 0;
+        killerID = -1;
+        Arrays.fill(deaths, 0);
+        Arrays.fill(levelDeaths, 0);
+    }
+
+    /**
+     * @param seed     seed the game was played with
+     * @param ticks    number of ticks played
+     * @param timedOut if the game was aborted
+     * @return result of the game played since the last reset
+     */
+    GameResult result(long seed, long ticks, boolean timedOut) {
+        var game = gameController.game();
+        int levelNumber = game.score().levelNumber();
+        return new GameResult(seed, game.score().points(), levelNumber, foodEaten, ticks, timedOut,
+            timedOut ? -1 : killerID, Arrays.stream(deaths).boxed().toList(),
+            Arrays.stream(levelDeaths, 0, levelNumber).boxed().toList());
+    }
+
+    @Override
+    public void onPacFoundFood(GameEvent e) {
+        ++foodEaten;
+    }
+
+    @Override
+    public void onGameStateEntry(GameState state) {
+        if (state == GameState.PACMAN_DYING) {
+            gameController.game().level().ifPresent(level -> {
+                var killer = level.eventLog().pacKiller();
+                if (killer != null) {
+                    killerID = killer.id();
+                    ++deaths[killerID];
+                }
+                if (level.number() > levelDeaths.length) {
+                    levelDeaths = Arrays.copyOf(levelDeaths, 2 * level.number());
+                }
+                ++levelDeaths[level.number() - 1];
+            });
+        }
+    }
+}
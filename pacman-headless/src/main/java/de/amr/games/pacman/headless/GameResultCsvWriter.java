@@ -0,0 +1,62 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.model.GameVariant;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Streams game results as CSV rows to a file, one row per game, such that large batches can be analyzed with external
+ * tools without keeping the results in memory. Rows can be written concurrently, they appear in completion order. The
+ * game index column allows sorting them in the order of the seeds.
+ *
+ * @author Armin Reichert
+ */
+public class GameResultCsvWriter implements Closeable {
+
+    public static final String HEADER =
+        "entrant,variant,game,seed,score,level,food,ticks,lives_lost,ticks_per_life,timed_out,killer";
+
+    private final BufferedWriter writer;
+
+    /**
+     * @param file output file, replaced if it exists
+     * @throws IOException if the file cannot be created
+     */
+    public GameResultCsvWriter(Path file) throws IOException {
+        writer = Files.newBufferedWriter(file);
+        writer.write(HEADER);
+        writer.newLine();
+    }
+
+    /**
+     * @param entrant   name of the steering that played the game
+     * @param variant   game variant
+     * @param gameIndex index of the game in its batch
+     * @param result    game result
+     */
+    public synchronized void write(String entrant, GameVariant variant, int gameIndex, GameResult result) {
+        try {
+            writer.write(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%d,%d,%d,%.1f,%s,%d", entrant, variant, gameIndex,
+                result.seed(), result.score(), result.levelNumber(), result.foodEaten(), result.ticks(),
+                result.livesLost(), result.ticksPerLife(), result.timedOut(), result.killerID()));
+            writer.newLine();
+        } catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.lib.Steering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameParameters;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.util.EnumSet;
+import java.util.function.Function;
+
+import static de.amr.games.pacman.lib.Globals.checkGameVariant;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Plays complete games without any user interface as fast as possible.
+ * <p>
+ * Each instance runs its own game session, so several instances can be used independently of each other.
+ * <p>
+ * The game controller is started directly in the {@link GameState#READY} state, boot and intro are skipped.
+ * Intermission scenes, which are normally ended by the user interface, are terminated immediately.
+ *
+ * @author Armin Reichert
+ */
+public class HeadlessGame implements GameEventListener {
+
+    public enum Mode {
+        /** Normal game (one credit) where Pac-Man is steered by the autopilot. */
+        AUTOPILOT,
+        /** Demo level ("attract mode"). */
+        DEMO
+    }
+
+    private final GameController gameController;
+    private final Mode mode;
+    private final long maxTicks;
+    private final GameResultCollector collector;
+    private GameParameters parameters = GameParameters.DEFAULT;
+    private boolean finished;
+
+    /**
+     * @param mode     simulation mode
+     * @param maxTicks maximum number of ticks a game may take before it is aborted
+     */
+    public HeadlessGame(Mode mode, long maxTicks) {
+        checkNotNull(mode);
+        if (maxTicks <= 0) {
+            throw new IllegalArgumentException("Maximum number of ticks must be positive but is " + maxTicks);
+        }
+        this.mode = mode;
+        this.maxTicks = maxTicks;
+        gameController = new GameController(GameVariant.PACMAN);
+        gameController.eventManager().addListener(this, EnumSet.of(
+            GameEventType.LEVEL_CREATED, GameEventType.GAME_STATE_CHANGED));
+        collector = new GameResultCollector(gameController);
+    }
+
+    /**
+     * @param autopilotFactory creates Pac-Man's autopilot for each level, <code>null</code> means the default autopilot
+     * @see GameController#setAutopilotFactory(Function)
+     */
+    public void setAutopilotFactory(Function<GameLevel, Steering> autopilotFactory) {
+        gameController.setAutopilotFactory(autopilotFactory);
+    }
+
+    /**
+     * @param parameters balance tables used by the games played from now on
+     */
+    public void setParameters(GameParameters parameters) {
+        checkNotNull(parameters);
+        this.parameters = parameters;
+    }
+
+    /**
+     * Plays one complete game of the given variant.
+     *
+     * @param variant game variant
+     * @param seed    seed of the game's random generator, the same seed reproduces the same game
+     * @return result of the game
+     */
+    public GameResult play(GameVariant variant, long seed) {
+        checkGameVariant(variant);
+        gameController.newGame(variant);
+        var game = gameController.game();
+        game.setHighScorePersistent(false);
+        game.setRandomSeed(seed);
+        game.setParameters(parameters);
+        finished = false;
+        collector.reset();
+        gameController.setPlaying(false);
+        gameController.setCredit(mode == Mode.AUTOPILOT ? 1 : 0);
+        gameController.restart(GameState.READY);
+        long ticks = 0;
+        while (!finished && ticks < maxTicks) {
+            gameController.update();
+            ++ticks;
+        }
+        return collector.result(seed, ticks, !finished);
+    }
+
+    @Override
+    public void onLevelCreated(GameEvent e) {
+        if (mode == Mode.AUTOPILOT) {
+            e.game.level().ifPresent(level -> level.pac().setUseAutopilot(true));
+        }
+    }
+
+    @Override
+    public void onGameStateEntry(GameState state) {
+        switch (state) {
+            case INTERMISSION, INTERMISSION_TEST -> gameController.terminateCurrentState();
+            case GAME_OVER, INTRO -> finished = true;
+            default -> {}
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.lib.MonteCarloPacSteering;
+import de.amr.games.pacman.lib.Option;
+import de.amr.games.pacman.lib.OptionParser;
+import de.amr.games.pacman.lib.SplitMix64Random;
+import de.amr.games.pacman.lib.Steering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import static de.amr.games.pacman.lib.Option.*;
+
+/**
+ * Runs a batch of complete games without user interface at maximum speed and prints throughput and score statistics.
+ * <p>
+ * Usage: <code>HeadlessRunner [-games n] [-variant PACMAN|MS_PACMAN] [-mode AUTOPILOT|DEMO] [-maxTicks n]
+ * [-threads n] [-seed n] [-autopilot RULE_BASED|MONTE_CARLO] [-rollouts n] [-rolloutDepth n]
+ * [-verbose true|false]</code>
+ * <p>
+ * With <code>-threads n</code> and n &gt; 1, the games are spread over n worker threads, see
+ * {@link ParallelBatchRunner}.
+ * <p>
+ * With <code>-autopilot MONTE_CARLO</code>, Pac-Man is steered by a {@link MonteCarloPacSteering} (also in demo
+ * levels) without time budget, so the results only depend on the seed. When a single game thread is used, the rollouts
+ * run in parallel in the common fork-join pool, otherwise in the game threads.
+ *
+ * @author Armin Reichert
+ */
+public class HeadlessRunner {
+
+    public enum Autopilot {
+        /** Default autopilot of the game variant. */
+        RULE_BASED,
+        /** Monte Carlo search, see {@link MonteCarloPacSteering}. */
+        MONTE_CARLO
+    }
+
+    public static void main(String[] args) {
+        Option<Integer> optGames = integerOption("-games", 10);
+        Option<GameVariant> optVariant = option("-variant", GameVariant.PACMAN,
+            s -> GameVariant.valueOf(s.toUpperCase(Locale.ROOT)));
+        Option<HeadlessGame.Mode> optMode = option("-mode", HeadlessGame.Mode.AUTOPILOT,
+            s -> HeadlessGame.Mode.valueOf(s.toUpperCase(Locale.ROOT)));
+        Option<Long> optMaxTicks = option("-maxTicks", 60L * 60 * 60, Long::valueOf);
+        Option<Integer> optThreads = integerOption("-threads", 1);
+        Option<Long> optSeed = option("-seed", System.nanoTime(), Long::valueOf);
+        Option<Autopilot> optAutopilot = option("-autopilot", Autopilot.RULE_BASED,
+            s -> Autopilot.valueOf(s.toUpperCase(Locale.ROOT)));
+        Option<Integer> optRollouts = integerOption("-rollouts", MonteCarloPacSteering.Config.DEFAULT.rollouts());
+        Option<Integer> optRolloutDepth = integerOption("-rolloutDepth", MonteCarloPacSteering.Config.DEFAULT.depth());
+        Option<Boolean> optVerbose = booleanOption("-verbose", false);
+        new OptionParser(optGames, optVariant, optMode, optMaxTicks, optThreads, optSeed, optAutopilot, optRollouts,
+            optRolloutDepth, optVerbose).parse(args);
+
+        Function<GameLevel, Steering> autopilotFactory = switch (optAutopilot.getValue()) {
+            case RULE_BASED -> null;
+            case MONTE_CARLO -> {
+                var config = new MonteCarloPacSteering.Config(optRollouts.getValue(), optRolloutDepth.getValue(), 0);
+                var executor = optThreads.getValue() > 1 ? MonteCarloPacSteering.CALLER_RUNS : ForkJoinPool.commonPool();
+                yield level -> new MonteCarloPacSteering(level, config, executor);
+            }
+        };
+
+        var statistics = new BatchStatistics();
+        System.out.printf("Running %d %s games (%s, %s) using %d thread(s), seed=%d...%n", optGames.getValue(),
+            optVariant.getValue(), optMode.getValue(), optAutopilot.getValue(), optThreads.getValue(), optSeed.getValue());
+        long start = System.nanoTime();
+        if (optThreads.getValue() > 1) {
+            var runner = new ParallelBatchRunner(optThreads.getValue(), optMode.getValue(), optMaxTicks.getValue());
+            runner.setAutopilotFactory(autopilotFactory);
+            runner.run(optGames.getValue(), optVariant.getValue(), optSeed.getValue(), statistics,
+                optVerbose.getValue() ? result -> System.out.printf("Game: %s%n", result) : null);
+        } else {
+            var headlessGame = new HeadlessGame(optMode.getValue(), optMaxTicks.getValue());
+            headlessGame.setAutopilotFactory(autopilotFactory);
+            var seeds = new SplitMix64Random(optSeed.getValue()).longs(optGames.getValue()).toArray();
+            for (int i = 0; i < optGames.getValue(); ++i) {
+                var result = headlessGame.play(optVariant.getValue(), seeds[i]);
+                statistics.add(result);
+                if (optVerbose.getValue()) {
+                    System.out.printf("Game %d: %s%n", i + 1, result);
+                }
+            }
+        }
+        statistics.print(System.out, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.lib.SplitMix64Random;
+import de.amr.games.pacman.lib.Steering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static de.amr.games.pacman.lib.Globals.checkGameVariant;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Spreads a batch of independent games over the worker threads of a {@link GamePool}.
+ * <p>
+ * Each worker thread plays its games in its own {@link HeadlessGame} session (game controller, game model, event
+ * manager), so workers share no mutable game state. Results are merged into a {@link BatchStatistics} instance whose
+ * counters are lock-free.
+ *
+ * @author Armin Reichert
+ */
+public class ParallelBatchRunner {
+
+    private final int parallelism;
+    private final HeadlessGame.Mode mode;
+    private final long maxTicks;
+    private Function<GameLevel, Steering> autopilotFactory;
+
+    /**
+     * @param parallelism number of worker threads
+     * @param mode        simulation mode
+     * @param maxTicks    maximum number of ticks a game may take before it is aborted
+     */
+    public ParallelBatchRunner(int parallelism, HeadlessGame.Mode mode, long maxTicks) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+        }
+        checkNotNull(mode);
+        this.parallelism = parallelism;
+        this.mode = mode;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * @param autopilotFactory creates Pac-Man's autopilot for each level, <code>null</code> means the default autopilot.
+     *                         It is called concurrently by the worker threads.
+     */
+    public void setAutopilotFactory(Function<GameLevel, Steering> autopilotFactory) {
+        this.autopilotFactory = autopilotFactory;
+    }
+
+    /**
+     * Plays the given number of games and adds their results to the given statistics.
+     *
+     * @param numGames     number of games
+     * @param variant      game variant
+     * @param seed         batch seed, the seeds of the single games are derived from it by game index, so a batch is
+     *                     reproducible independent of how the games are scheduled to the worker threads
+     * @param statistics   statistics the results are added to
+     * @param resultAction action executed for each result (possibly concurrently), may be <code>null</code>
+     * @throws CancellationException if the calling thread is interrupted before all games are played
+     */
+    public void run(int numGames, GameVariant variant, long seed, BatchStatistics statistics,
+                    Consumer<GameResult> resultAction) {
+        checkGameVariant(variant);
+        checkNotNull(statistics);
+        var seeds = new SplitMix64Random(seed).longs(numGames).toArray();
+        new GamePool(parallelism, mode, maxTicks).play(numGames, (session, i) -> {
+            session.setAutopilotFactory(autopilotFactory);
+            var result = session.play(variant, seeds[i]);
+            statistics.add(result);
+            if (resultAction != null) {
+                resultAction.accept(result);
+            }
+        });
+    }
+}
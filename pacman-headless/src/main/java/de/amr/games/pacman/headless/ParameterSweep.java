@@ -0,0 +1,404 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.lib.SplitMix64Random;
+import de.amr.games.pacman.model.GameParameters;
+import de.amr.games.pacman.model.GameVariant;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Explores the difficulty of modified games by playing batches of headless games for configurations of game
+ * parameters (see {@link GameParameters}, {@link SweepParameter}).
+ * <p>
+ * The configurations are either the grid of all combinations of the dimension values or random samples from the
+ * dimension ranges. Each configuration gets its own seed, derived from the sweep seed by configuration index, and the
+ * seeds of its games are derived from the configuration seed. So a single configuration can be played again without
+ * running the whole sweep. The games of all configurations are spread over the worker threads of a
+ * {@link GamePool}, each worker plays in its own {@link HeadlessGame} session.
+ * <p>
+ * For each configuration, the difficulty curve (rate of lives lost per level reached) and the average number of ticks
+ * Pac-Man survives per life are computed.
+ *
+ * @author Armin Reichert
+ */
+public class ParameterSweep {
+
+    /**
+     * A parameter and the values it takes in the sweep.
+     *
+     * @param parameter parameter
+     * @param min       minimum value
+     * @param max       maximum value
+     * @param step      distance of grid values, 0 means continuous (random samples only)
+     */
+    public record Dimension(SweepParameter parameter, double min, double max, double step) {
+
+        public Dimension {
+            checkNotNull(parameter);
+            if (min > max) {
+                throw new IllegalArgumentException("Minimum %s is greater than maximum %s".formatted(min, max));
+            }
+            if (step < 0) {
+                throw new IllegalArgumentException("Step must not be negative but is " + step);
+            }
+        }
+
+        /**
+         * Parses a dimension specification <code>name=value</code>, <code>name=min:max</code> or
+         * <code>name=min:max:step</code>, e.g. <code>levelData.ghostSpeedPercentage=0.8:1.2:0.1</code>.
+         *
+         * @param spec specification
+         * @return dimension
+         */
+        public static Dimension parse(String spec) {
+            checkNotNull(spec);
+            int eq = spec.indexOf('=');
+            if (eq == -1) {
+                throw new IllegalArgumentException("Missing range in parameter specification: " + spec);
+            }
+            var parameter = SweepParameter.parse(spec.substring(0, eq).trim());
+            String[] range = spec.substring(eq + 1).split(":");
+            try {
+                return switch (range.length) {
+                    case 1 -> new Dimension(parameter, Double.parseDouble(range[0]), Double.parseDouble(range[0]), 0);
+                    case 2 -> new Dimension(parameter, Double.parseDouble(range[0]), Double.parseDouble(range[1]), 0);
+                    case 3 -> new Dimension(parameter, Double.parseDouble(range[0]), Double.parseDouble(range[1]),
+                        Double.parseDouble(range[2]));
+                    default -> throw new IllegalArgumentException("Invalid range in parameter specification: " + spec);
+                };
+            } catch (NumberFormatException x) {
+                throw new IllegalArgumentException("Invalid range in parameter specification: " + spec, x);
+            }
+        }
+
+        /**
+         * @return the grid values from minimum to maximum, a dimension without step has its minimum as only value if
+         * minimum and maximum are equal
+         */
+        public double[] gridValues() {
+            if (min == max) {
+                return new double[] {min};
+            }
+            if (step == 0) {
+                throw new IllegalStateException("Parameter %s has no grid step".formatted(parameter));
+            }
+            int n = (int) Math.floor((max - min) / step + 1e-9) + 1;
+            return IntStream.range(0, n).mapToDouble(i -> min + i * step).toArray();
+        }
+
+        /**
+         * @param random random generator
+         * @return uniformly distributed value in the range, a multiple of the step above the minimum if there is a step
+         */
+        public double sample(SplitMix64Random random) {
+            if (min == max) {
+                return min;
+            }
+            if (step > 0) {
+                var values = gridValues();
+                return values[random.nextInt(values.length)];
+            }
+            return min + random.nextDouble() * (max - min);
+        }
+    }
+
+    /**
+     * A point in the parameter space.
+     *
+     * @param index      index in the sweep
+     * @param seed       seed the games of this configuration are derived from
+     * @param values     value of each dimension
+     * @param parameters game parameters with the values applied to the arcade values
+     * @param clamped    descriptions of the values that were clamped to their valid range, if not empty the
+     *                   configuration is not played exactly as specified
+     */
+    public record Config(int index, long seed, double[] values, GameParameters parameters, List<String> clamped) {
+
+        public Config {
+            clamped = List.copyOf(clamped);
+        }
+    }
+
+    /**
+     * Results of the games of one configuration.
+     */
+    public static class ConfigResult {
+
+        private final Config config;
+        private final RunningStatistics score = new RunningStatistics();
+        private final RunningStatistics level = new RunningStatistics();
+        private final RunningStatistics ticksPerLife = new RunningStatistics();
+        private int[] gamesReachingLevel = new int[0];
+        private int[] levelDeaths = new int[0];
+        private int timeouts;
+
+        public ConfigResult(Config config) {
+            this.config = config;
+        }
+
+        /**
+         * Adds the result of a game. May be called concurrently.
+         *
+         * @param result game result
+         */
+        public void add(GameResult result) {
+            score.add(result.score());
+            level.add(result.levelNumber());
+            ticksPerLife.add(result.ticksPerLife());
+            synchronized (this) {
+                int levels = result.levelNumber();
+                if (gamesReachingLevel.length < levels) {
+                    gamesReachingLevel = Arrays.copyOf(gamesReachingLevel, levels);
+                    levelDeaths = Arrays.copyOf(levelDeaths, levels);
+                }
+                for (int i = 0; i < levels; ++i) {
+                    ++gamesReachingLevel[i];
+                    levelDeaths[i] += result.levelDeaths().get(i);
+                }
+                if (result.timedOut()) {
+                    ++timeouts;
+                }
+            }
+        }
+
+        public Config config() {
+            return config;
+        }
+
+        public long games() {
+            return score.count();
+        }
+
+        public synchronized int timeouts() {
+            return timeouts;
+        }
+
+        public RunningStatistics score() {
+            return score;
+        }
+
+        public RunningStatistics level() {
+            return level;
+        }
+
+        public RunningStatistics ticksPerLife() {
+            return ticksPerLife;
+        }
+
+        /**
+         * @return highest level reached in any game of this configuration
+         */
+        public synchronized int maxLevel() {
+            return gamesReachingLevel.length;
+        }
+
+        /**
+         * @param levelNumber level number (starting at 1)
+         * @return number of games that reached the given level
+         */
+        public synchronized int gamesReachingLevel(int levelNumber) {
+            return levelNumber <= gamesReachingLevel.length ? gamesReachingLevel[levelNumber - 1] : 0;
+        }
+
+        /**
+         * @param levelNumber level number (starting at 1)
+         * @return number of lives lost in the given level in all games
+         */
+        public synchronized int levelDeaths(int levelNumber) {
+            return levelNumber <= levelDeaths.length ? levelDeaths[levelNumber - 1] : 0;
+        }
+
+        /**
+         * @param levelNumber level number (starting at 1)
+         * @return average number of lives lost in the given level by the games reaching it
+         */
+        public synchronized double deathRate(int levelNumber) {
+            int games = gamesReachingLevel(levelNumber);
+            return games == 0 ? 0 : (double) levelDeaths(levelNumber) / games;
+        }
+    }
+
+    private final List<Dimension> dimensions;
+    private final int parallelism;
+    private final long maxTicks;
+
+    /**
+     * @param dimensions  parameters varied by the sweep
+     * @param parallelism number of worker threads
+     * @param maxTicks    maximum number of ticks a game may take before it is aborted
+     */
+    public ParameterSweep(List<Dimension> dimensions, int parallelism, long maxTicks) {
+        checkNotNull(dimensions);
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+        }
+        this.dimensions = List.copyOf(dimensions);
+        this.parallelism = parallelism;
+        this.maxTicks = maxTicks;
+    }
+
+    public List<Dimension> dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @param seed sweep seed
+     * @return all combinations of the grid values of the dimensions, the last dimension varies fastest
+     */
+    public List<Config> gridConfigs(long seed) {
+        var grid = dimensions.stream().map(Dimension::gridValues).toList();
+        int numConfigs = grid.stream().mapToInt(values -> values.length).reduce(1, Math::multiplyExact);
+        var seeds = new SplitMix64Random(seed).longs(numConfigs).toArray();
+        var configs = new ArrayList<Config>(numConfigs);
+        for (int index = 0; index < numConfigs; ++index) {
+            var values = new double[dimensions.size()];
+            int rest = index;
+            for (int d = dimensions.size() - 1; d >= 0; --d) {
+                values[d] = grid.get(d)[rest % grid.get(d).length];
+                rest /= grid.get(d).length;
+            }
+            configs.add(createConfig(index, seeds[index], values));
+        }
+        return configs;
+    }
+
+    /**
+     * @param seed       sweep seed
+     * @param numConfigs number of configurations
+     * @return configurations with values sampled uniformly from the dimension ranges
+     */
+    public List<Config> randomConfigs(long seed, int numConfigs) {
+        var seeds = new SplitMix64Random(seed).longs(numConfigs).toArray();
+        var configs = new ArrayList<Config>(numConfigs);
+        for (int index = 0; index < numConfigs; ++index) {
+            // values are drawn from a generator of their own, so the game seeds do not depend on the dimensions
+            var random = new SplitMix64Random(seeds[index]).split();
+            var values = dimensions.stream().mapToDouble(dimension -> dimension.sample(random)).toArray();
+            configs.add(createConfig(index, seeds[index], values));
+        }
+        return configs;
+    }
+
+    private Config createConfig(int index, long seed, double[] values) {
+        var parameters = GameParameters.DEFAULT;
+        var clamped = new ArrayList<String>();
+        for (int d = 0; d < values.length; ++d) {
+            parameters = dimensions.get(d).parameter().applier().apply(parameters, values[d], clamped);
+        }
+        if (!clamped.isEmpty()) {
+            Logger.warn("Configuration {} has clamped values: {}", index, clamped);
+        }
+        return new Config(index, seed, values, parameters, clamped);
+    }
+
+    /**
+     * Plays the given number of games for each configuration.
+     *
+     * @param configs  configurations
+     * @param variant  game variant
+     * @param numGames number of games per configuration
+     * @return results in the order of the configurations
+     * @throws CancellationException if the calling thread is interrupted before all games are played
+     */
+    public List<ConfigResult> run(List<Config> configs, GameVariant variant, int numGames) {
+        checkNotNull(configs);
+        checkNotNull(variant);
+        var results = configs.stream().map(ConfigResult::new).toList();
+        var gameSeeds = configs.stream().map(config -> new SplitMix64Random(config.seed()).longs(numGames).toArray())
+            .toList();
+        var pool = new GamePool(parallelism, HeadlessGame.Mode.AUTOPILOT, maxTicks);
+        pool.play(configs.size() * numGames, (session, i) -> {
+            int configIndex = i / numGames;
+            session.setParameters(configs.get(configIndex).parameters());
+            results.get(configIndex).add(session.play(variant, gameSeeds.get(configIndex)[i % numGames]));
+        });
+        return results;
+    }
+
+    /**
+     * Prints a table with one row per configuration: parameter values, number of clamped values, mean level reached, ticks
+     * per life and the death rates of the first levels.
+     *
+     * @param out     output stream
+     * @param results results
+     * @param levels  number of levels whose death rate is printed
+     */
+    public void print(PrintStream out, List<ConfigResult> results, int levels) {
+        var header = new StringBuilder("%-7s".formatted("Config"));
+        for (var dimension : dimensions) {
+            header.append(" %12s".formatted(columnName(dimension.parameter())));
+        }
+        header.append(" %7s %7s %8s %8s %10s".formatted("Clamped", "Games", "Timeouts", "Level", "Ticks/life"));
+        for (int level = 1; level <= levels; ++level) {
+            header.append(" %6s".formatted("L" + level));
+        }
+        out.println(header);
+        for (var result : results) {
+            var row = new StringBuilder("%-7d".formatted(result.config().index()));
+            for (double value : result.config().values()) {
+                row.append(" %12s".formatted(formatValue(value)));
+            }
+            row.append(" %7d %7d %8d %8.2f %10.0f".formatted(result.config().clamped().size(), result.games(),
+                result.timeouts(), result.level().mean(), result.ticksPerLife().mean()));
+            for (int level = 1; level <= levels; ++level) {
+                row.append(result.gamesReachingLevel(level) == 0 ? " %6s".formatted("-")
+                    : " %6.2f".formatted(result.deathRate(level)));
+            }
+            out.println(row);
+        }
+    }
+
+    /**
+     * Writes the difficulty curves as CSV, one line per configuration and level reached. The column <code>clamped</code>
+     * contains the number of values of the configuration that were clamped to their valid range.
+     *
+     * @param file    output file
+     * @param results results
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(Path file, List<ConfigResult> results) throws IOException {
+        try (var out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("config,seed," + dimensions.stream().map(d -> d.parameter().name())
+                .collect(Collectors.joining(",")) + ",clamped,level,games,deaths,death_rate,mean_ticks_per_life");
+            for (var result : results) {
+                var prefix = result.config().index() + "," + result.config().seed() + ","
+                    + Arrays.stream(result.config().values()).mapToObj(ParameterSweep::formatValue)
+                    .collect(Collectors.joining(",")) + "," + result.config().clamped().size();
+                for (int level = 1; level <= result.maxLevel(); ++level) {
+                    out.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%.4f,%.1f", prefix, level,
+                        result.gamesReachingLevel(level), result.levelDeaths(level), result.deathRate(level),
+                        result.ticksPerLife().mean()));
+                }
+            }
+        }
+    }
+
+    private static String columnName(SweepParameter parameter) {
+        String name = parameter.name().substring(parameter.name().lastIndexOf('.') + 1);
+        return name.length() <= 12 ? name : name.substring(0, 12);
+    }
+
+    private static String formatValue(double value) {
+        return BigDecimal.valueOf(value).round(new MathContext(4)).stripTrailingZeros().toPlainString();
+    }
+}
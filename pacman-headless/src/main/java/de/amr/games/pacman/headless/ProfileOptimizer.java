@@ -0,0 +1,272 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.lib.SplitMix64Random;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Tunes the profile of the rule-based autopilot (see {@link RuleBasedPacSteering.Profile}) with a genetic algorithm.
+ * <p>
+ * The fitness of a profile is the mean score of headless games played with it. All profiles of a generation play the
+ * same seeded games (common random numbers), each generation gets new seeds so the population does not adapt to a few
+ * games. The games of a generation are spread over the worker threads of a {@link GamePool}. The best profiles
+ * survive unchanged (elitism), the others are replaced by children of profiles chosen by tournament selection, created
+ * by uniform crossover and Gaussian mutation within the bounds of each value.
+ * <p>
+ * As the fitness of a generation is measured with a small number of games, the finalists (the elite of the last
+ * generation, the best profile of each generation and the default profile) are validated with more games at the end.
+ * The result is the profile with the best validation score, which is the default profile if no tuned profile beats it.
+ * All random decisions are derived from the optimizer seed, so a run can be reproduced.
+ *
+ * @author Armin Reichert
+ */
+public class ProfileOptimizer {
+
+    /**
+     * @param populationSize  number of profiles per generation
+     * @param generations     number of generations
+     * @param eliteSize       number of best profiles surviving unchanged
+     * @param mutationRate    probability that a value of a child is mutated
+     * @param mutationSigma   standard deviation of a mutation relative to the range of the value
+     * @param games           number of games per profile, variant and generation
+     * @param validationGames number of games per finalist and variant in the validation
+     */
+    public record Settings(int populationSize, int generations, int eliteSize, double mutationRate,
+                           double mutationSigma, int games, int validationGames) {
+
+        public static final Settings DEFAULT = new Settings(24, 20, 2, 0.3, 0.15, 20, 200);
+
+        public Settings {
+            if (populationSize < 2) {
+                throw new IllegalArgumentException("Population size must be at least 2 but is " + populationSize);
+            }
+            if (generations < 1) {
+                throw new IllegalArgumentException("Number of generations must be positive but is " + generations);
+            }
+            if (eliteSize < 0 || eliteSize >= populationSize) {
+                throw new IllegalArgumentException("Elite size must be in range 0..%d but is %d".formatted(
+                    populationSize - 1, eliteSize));
+            }
+            if (games < 1 || validationGames < 1) {
+                throw new IllegalArgumentException("Number of games must be positive");
+            }
+        }
+    }
+
+    /**
+     * Summary of an evaluated generation.
+     *
+     * @param index       generation index (starting at 0)
+     * @param best        profile with the best fitness
+     * @param bestFitness fitness of the best profile
+     * @param meanFitness mean fitness of the population
+     */
+    public record Generation(int index, RuleBasedPacSteering.Profile best, double bestFitness, double meanFitness) {
+    }
+
+    /**
+     * Validation score of a finalist.
+     *
+     * @param profile profile
+     * @param fitness mean score in the validation games
+     */
+    public record Finalist(RuleBasedPacSteering.Profile profile, double fitness) {
+    }
+
+    /** Lower bounds of the profile values in vector order. */
+    public static final int[] MIN_VALUES = {1, 0, 0, 0, 0, 0};
+
+    /** Upper bounds of the profile values in vector order. */
+    public static final int[] MAX_VALUES = {12, 6, 30, 60, 600, 300};
+
+    private static final int TOURNAMENT_SIZE = 3;
+
+    private final Settings settings;
+    private final int parallelism;
+    private final long maxTicks;
+    private Consumer<Generation> generationListener = generation -> {};
+    private List<Finalist> finalists = List.of();
+
+    /**
+     * @param settings    algorithm settings
+     * @param parallelism number of worker threads
+     * @param maxTicks    maximum number of ticks a game may take before it is aborted
+     */
+    public ProfileOptimizer(Settings settings, int parallelism, long maxTicks) {
+        checkNotNull(settings);
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+        }
+        this.settings = settings;
+        this.parallelism = parallelism;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * @param generationListener called after each generation has been evaluated
+     */
+    public void setGenerationListener(Consumer<Generation> generationListener) {
+        checkNotNull(generationListener);
+        this.generationListener = generationListener;
+    }
+
+    /**
+     * @return finalists of the last run, sorted by validation score (best first)
+     */
+    public List<Finalist> finalists() {
+        return finalists;
+    }
+
+    /**
+     * Runs the genetic algorithm. The initial population consists of the default profile and random profiles.
+     *
+     * @param variants game variants played by each profile
+     * @param seed     seed of the run
+     * @return the profile with the best validation score
+     * @throws CancellationException if the calling thread is interrupted, no profile is returned from incomplete
+     *                               evaluations
+     */
+    public RuleBasedPacSteering.Profile optimize(List<GameVariant> variants, long seed) {
+        checkNotNull(variants);
+        if (variants.isEmpty()) {
+            throw new IllegalArgumentException("No game variant given");
+        }
+        var random = new SplitMix64Random(seed);
+        var gameSeedRandom = random.split();
+
+        var population = new ArrayList<int[]>();
+        population.add(RuleBasedPacSteering.Profile.DEFAULT.toVector());
+        while (population.size() < settings.populationSize()) {
+            population.add(randomVector(random));
+        }
+
+        var candidates = new ArrayList<int[]>();
+        candidates.add(RuleBasedPacSteering.Profile.DEFAULT.toVector());
+        for (int g = 0; g < settings.generations(); ++g) {
+            var gameSeeds = gameSeedRandom.longs(settings.games()).toArray();
+            double[] fitness = evaluate(population, variants, gameSeeds);
+            var ranking = IntStream.range(0, population.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> -fitness[i])).mapToInt(Integer::intValue).toArray();
+            var best = population.get(ranking[0]);
+            addCandidate(candidates, best);
+            generationListener.accept(new Generation(g, RuleBasedPacSteering.Profile.fromVector(best), fitness[ranking[0]],
+                Arrays.stream(fitness).average().orElse(0)));
+            if (g == settings.generations() - 1) {
+                for (int e = 0; e < settings.eliteSize(); ++e) {
+                    addCandidate(candidates, population.get(ranking[e]));
+                }
+                break;
+            }
+            var next = new ArrayList<int[]>();
+            for (int e = 0; e < settings.eliteSize(); ++e) {
+                next.add(population.get(ranking[e]));
+            }
+            while (next.size() < settings.populationSize()) {
+                var mother = select(population, fitness, random);
+                var father = select(population, fitness, random);
+                next.add(mutate(crossover(mother, father, random), random));
+            }
+            population = next;
+        }
+
+        var validationSeeds = gameSeedRandom.longs(settings.validationGames()).toArray();
+        double[] validation = evaluate(candidates, variants, validationSeeds);
+        finalists = IntStream.range(0, candidates.size()).boxed()
+            .map(i -> new Finalist(RuleBasedPacSteering.Profile.fromVector(candidates.get(i)), validation[i]))
+            .sorted(Comparator.comparingDouble(finalist -> -finalist.fitness()))
+            .toList();
+        return finalists.get(0).profile();
+    }
+
+    /**
+     * Plays the given games with each of the given profiles.
+     *
+     * @param profiles  profile vectors
+     * @param variants  game variants
+     * @param gameSeeds seeds of the games played by each profile in each variant
+     * @return mean score of each profile
+     * @throws CancellationException if the calling thread is interrupted before all games are played
+     */
+    public double[] evaluate(List<int[]> profiles, List<GameVariant> variants, long[] gameSeeds) {
+        checkNotNull(profiles);
+        checkNotNull(variants);
+        checkNotNull(gameSeeds);
+        int gamesPerProfile = variants.size() * gameSeeds.length;
+        // integer sums do not depend on the order in which the games finish
+        var scoreSums = new AtomicLongArray(profiles.size());
+        var pool = new GamePool(parallelism, HeadlessGame.Mode.AUTOPILOT, maxTicks);
+        pool.play(profiles.size() * gamesPerProfile, (session, i) -> {
+            int profileIndex = i / gamesPerProfile;
+            int game = i % gamesPerProfile;
+            var profile = RuleBasedPacSteering.Profile.fromVector(profiles.get(profileIndex));
+            session.setAutopilotFactory(level -> new RuleBasedPacSteering(level, profile));
+            var result = session.play(variants.get(game / gameSeeds.length), gameSeeds[game % gameSeeds.length]);
+            scoreSums.addAndGet(profileIndex, result.score());
+        });
+        return IntStream.range(0, profiles.size()).mapToDouble(i -> (double) scoreSums.get(i) / gamesPerProfile)
+            .toArray();
+    }
+
+    private static void addCandidate(List<int[]> candidates, int[] vector) {
+        if (candidates.stream().noneMatch(candidate -> Arrays.equals(candidate, vector))) {
+            candidates.add(vector);
+        }
+    }
+
+    private static int[] randomVector(SplitMix64Random random) {
+        var vector = new int[MIN_VALUES.length];
+        for (int i = 0; i < vector.length; ++i) {
+            vector[i] = random.nextInt(MIN_VALUES[i], MAX_VALUES[i] + 1);
+        }
+        return vector;
+    }
+
+    private static int[] select(List<int[]> population, double[] fitness, SplitMix64Random random) {
+        int best = random.nextInt(population.size());
+        for (int i = 1; i < TOURNAMENT_SIZE; ++i) {
+            int other = random.nextInt(population.size());
+            if (fitness[other] > fitness[best]) {
+                best = other;
+            }
+        }
+        return population.get(best);
+    }
+
+    private static int[] crossover(int[] mother, int[] father, SplitMix64Random random) {
+        var child = new int[mother.length];
+        for (int i = 0; i < child.length; ++i) {
+            child[i] = random.nextBoolean() ? mother[i] : father[i];
+        }
+        return child;
+    }
+
+    private int[] mutate(int[] vector, SplitMix64Random random) {
+        for (int i = 0; i < vector.length; ++i) {
+            if (random.nextDouble() < settings.mutationRate()) {
+                double sigma = settings.mutationSigma() * (MAX_VALUES[i] - MIN_VALUES[i]);
+                // at least one step, otherwise small ranges would never change
+                long delta = Math.round(random.nextGaussian() * sigma);
+                if (delta == 0) {
+                    delta = random.nextBoolean() ? 1 : -1;
+                }
+                vector[i] = (int) Math.max(MIN_VALUES[i], Math.min(MAX_VALUES[i], vector[i] + delta));
+            }
+        }
+        return vector;
+    }
+}
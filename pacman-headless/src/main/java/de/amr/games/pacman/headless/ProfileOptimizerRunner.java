@@ -0,0 +1,73 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.lib.Option;
+import de.amr.games.pacman.lib.OptionParser;
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static de.amr.games.pacman.lib.Option.*;
+
+/**
+ * Tunes the profile of the rule-based autopilot without user interface and saves the best profile, see
+ * {@link ProfileOptimizer}.
+ * <p>
+ * Usage: <code>ProfileOptimizerRunner [-population n] [-generations n] [-elite n] [-games n] [-validationGames n]
+ * [-variants PACMAN,MS_PACMAN] [-threads n] [-seed n] [-maxTicks n] [-out file]</code>
+ * <p>
+ * The profile file (default <code>autopilot-profile.xml</code>) can be used by the application (setting
+ * <code>autopilotProfile</code>) and by the {@link TournamentRunner} (option <code>-profile</code>).
+ *
+ * @author Armin Reichert
+ */
+public class ProfileOptimizerRunner {
+
+    public static void main(String[] args) throws IOException {
+        var defaults = ProfileOptimizer.Settings.DEFAULT;
+        Option<Integer> optPopulation = integerOption("-population", defaults.populationSize());
+        Option<Integer> optGenerations = integerOption("-generations", defaults.generations());
+        Option<Integer> optElite = integerOption("-elite", defaults.eliteSize());
+        Option<Integer> optGames = integerOption("-games", defaults.games());
+        Option<Integer> optValidationGames = integerOption("-validationGames", defaults.validationGames());
+        Option<List<GameVariant>> optVariants = option("-variants", List.of(GameVariant.values()),
+            s -> Stream.of(s.split(",")).map(name -> GameVariant.valueOf(name.trim().toUpperCase(Locale.ROOT))).toList());
+        Option<Integer> optThreads = integerOption("-threads", Runtime.getRuntime().availableProcessors());
+        Option<Long> optSeed = option("-seed", System.nanoTime(), Long::valueOf);
+        Option<Long> optMaxTicks = option("-maxTicks", 60L * 60 * 60, Long::valueOf);
+        Option<String> optOut = option("-out", "autopilot-profile.xml", s -> s);
+        new OptionParser(optPopulation, optGenerations, optElite, optGames, optValidationGames, optVariants, optThreads,
+            optSeed, optMaxTicks, optOut).parse(args);
+
+        var settings = new ProfileOptimizer.Settings(optPopulation.getValue(), optGenerations.getValue(),
+            optElite.getValue(), defaults.mutationRate(), defaults.mutationSigma(), optGames.getValue(),
+            optValidationGames.getValue());
+        var optimizer = new ProfileOptimizer(settings, optThreads.getValue(), optMaxTicks.getValue());
+        optimizer.setGenerationListener(generation -> System.out.printf(
+            "Generation %3d: best %8.1f mean %8.1f %s%n", generation.index(), generation.bestFitness(),
+            generation.meanFitness(), generation.best()));
+        System.out.printf("Tuning autopilot profile %s: population %d, %d generations, %d games per variant %s using"
+            + " %d thread(s), seed=%d...%n", RuleBasedPacSteering.Profile.NAMES, settings.populationSize(),
+            settings.generations(), settings.games(), optVariants.getValue(), optThreads.getValue(), optSeed.getValue());
+        long start = System.nanoTime();
+        var best = optimizer.optimize(optVariants.getValue(), optSeed.getValue());
+        System.out.printf("Validation (%d games per variant):%n", settings.validationGames());
+        for (var finalist : optimizer.finalists()) {
+            System.out.printf("  %8.1f %s%s%n", finalist.fitness(), finalist.profile(),
+                finalist.profile().equals(RuleBasedPacSteering.Profile.DEFAULT) ? " (default)" : "");
+        }
+        var file = Path.of(optOut.getValue());
+        best.save(file, "Autopilot profile, mean score %.1f in variants %s (seed %d)".formatted(
+            optimizer.finalists().get(0).fitness(), optVariants.getValue(), optSeed.getValue()));
+        System.out.printf("Best profile %s saved to '%s'%n", best, file);
+        System.out.printf("Time: %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
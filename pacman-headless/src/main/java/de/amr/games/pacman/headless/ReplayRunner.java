@@ -0,0 +1,71 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.controller.InputRecording;
+import de.amr.games.pacman.controller.ReplayPlayer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Replays input recordings (see {@link InputRecording}) without user interface at maximum speed and verifies their
+ * state checksums. Can be used to reproduce bugs and as regression test of a corpus of recordings: the exit code is 1
+ * if any recording could not be read or diverged from its replay.
+ * <p>
+ * Usage: <code>ReplayRunner file|directory...</code> (directories are searched for files ending with
+ * <code>.rec</code>)
+ *
+ * @author Armin Reichert
+ */
+public class ReplayRunner {
+
+    public static final String FILE_EXTENSION = ".rec";
+
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (var arg : args) {
+            var path = Path.of(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> dir = Files.list(path)) {
+                    dir.filter(file -> file.toString().endsWith(FILE_EXTENSION)).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        int failures = 0;
+        long totalTicks = 0;
+        long totalNanos = 0;
+        for (var file : files) {
+            try {
+                var recording = InputRecording.load(file);
+                var result = new ReplayPlayer(recording).play();
+                totalTicks += result.ticks();
+                totalNanos += result.nanos();
+                if (result.isValid()) {
+                    System.out.printf("OK       %s: %d ticks, %d checksums, %.1f ms (%.0fx real time)%n", file,
+                        result.ticks(), result.verifiedChecksums(), result.nanos() / 1e6, result.speedFactor());
+                } else {
+                    ++failures;
+                    System.out.printf("DIVERGED %s: after tick %d (%d checksums matched)%n", file,
+                        result.mismatchTick(), result.verifiedChecksums());
+                }
+            } catch (IOException x) {
+                ++failures;
+                System.out.printf("ERROR    %s: %s%n", file, x.getMessage());
+            }
+        }
+        System.out.printf("%d recording(s), %d failure(s), %d ticks in %.1f ms%n", files.size(), failures, totalTicks,
+            totalNanos / 1e6);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+/**
+ * Mean and variance of a sequence of values, updated with each value (Welford's algorithm, numerically stable also
+ * for many large values). Values can be added concurrently, the methods are synchronized which is cheap compared to
+ * playing a game.
+ *
+ * @author Armin Reichert
+ */
+public class RunningStatistics {
+
+    /** Quantile of the standard normal distribution for a two-sided 95% confidence interval. */
+    public static final double Z_95 = 1.959964;
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public synchronized void add(double value) {
+        ++count;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized double mean() {
+        return mean;
+    }
+
+    /**
+     * @return sample variance (0 for less than two values)
+     */
+    public synchronized double variance() {
+        return count < 2 ? 0 : m2 / (count - 1);
+    }
+
+    public double stdDev() {
+        return Math.sqrt(variance());
+    }
+
+    public synchronized double min() {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized double max() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @return half width of the 95% confidence interval of the mean (normal approximation, fine for the large samples
+     * of headless batches)
+     */
+    public double confidence95() {
+        long n = count();
+        return n < 2 ? 0 : Z_95 * stdDev() / Math.sqrt(n);
+    }
+
+    @Override
+    public String toString() {
+        return "%.1f +/- %.1f (sd=%.1f, n=%d)".formatted(mean(), confidence95(), stdDev(), count());
+    }
+}
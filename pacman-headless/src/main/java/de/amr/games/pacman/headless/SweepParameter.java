@@ -0,0 +1,175 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.model.GameLevelData;
+import de.amr.games.pacman.model.GameParameters;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.lang.reflect.RecordComponent;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * A game parameter (see {@link GameParameters}) that can be varied by a {@link ParameterSweep}, addressed by name:
+ * <ul>
+ * <li><code>levelData.&lt;column&gt;</code>: factor applied to a column of the level data table in all levels, the
+ * columns are named like the components of {@link GameLevelData}, e.g. <code>levelData.pacSpeedPercentage</code></li>
+ * <li><code>levelData&lt;n&gt;.&lt;column&gt;</code>: value of a column in level n, e.g.
+ * <code>levelData1.elroy1DotsLeft</code></li>
+ * <li><code>huntingDurations.scatter</code>, <code>huntingDurations.chase</code>: factor applied to the durations of all
+ * scatter (chase) phases in both game variants, indefinite and single-tick phases are kept</li>
+ * <li><code>privateDotLimit&lt;n&gt;.&lt;ghost&gt;</code>: private dot limit of a ghost in level n (1, 2 or 3 for levels
+ * 3+), ghosts are named <code>red</code>, <code>pink</code>, <code>cyan</code> and <code>orange</code></li>
+ * <li><code>globalDotLimit.&lt;ghost&gt;</code>: global dot limit of a ghost (-1 = unlimited)</li>
+ * <li><code>starvingTicks.early</code>, <code>starvingTicks.late</code>: starving limit in levels 1-4 (5+)</li>
+ * <li><code>speed.base</code>, <code>speed.ghostInsideHouse</code>, <code>speed.ghostReturningToHouse</code>: speeds in
+ * pixels per tick</li>
+ * </ul>
+ * Values outside the valid range of a parameter (e.g. level data values above 127) are clamped to the range. The
+ * applier reports each clamped value, so a sweep can tell which configurations were not played as specified.
+ *
+ * @param name    parameter name
+ * @param applier returns a copy of the given parameters with the parameter set to the given value
+ * @author Armin Reichert
+ */
+public record SweepParameter(String name, Applier applier) {
+
+    @FunctionalInterface
+    public interface Applier {
+
+        /**
+         * @param parameters game parameters
+         * @param value      parameter value (or factor)
+         * @param clamped    receives a description of each value that was clamped to its valid range
+         * @return copy of the given parameters with the parameter set to the given value
+         */
+        GameParameters apply(GameParameters parameters, double value, List<String> clamped);
+    }
+
+    private static final Pattern LEVEL_DATA = Pattern.compile("levelData(\\d*)\\.(\\w+)");
+    private static final Pattern PRIVATE_DOT_LIMIT = Pattern.compile("privateDotLimit([123])\\.(\\w+)");
+    private static final Pattern GLOBAL_DOT_LIMIT = Pattern.compile("globalDotLimit\\.(\\w+)");
+    private static final List<String> GHOST_NAMES = List.of("red", "pink", "cyan", "orange");
+    private static final List<String> LEVEL_DATA_COLUMNS = Stream.of(GameLevelData.class.getRecordComponents())
+        .map(RecordComponent::getName).toList();
+
+    /**
+     * @param name parameter name, see class description
+     * @return parameter with the given name
+     * @throws IllegalArgumentException if there is no such parameter
+     */
+    public static SweepParameter parse(String name) {
+        checkNotNull(name);
+        var matcher = LEVEL_DATA.matcher(name);
+        if (matcher.matches()) {
+            int column = LEVEL_DATA_COLUMNS.indexOf(matcher.group(2));
+            if (column == -1) {
+                throw new IllegalArgumentException("Unknown level data column: " + matcher.group(2));
+            }
+            if (matcher.group(1).isEmpty()) {
+                return new SweepParameter(name, (parameters, factor, clamped) -> {
+                    for (int level = 1; level <= parameters.numLevelDataRows(); ++level) {
+                        long value = Math.round(parameters.levelDataValue(level, column) * factor);
+                        parameters = parameters.withLevelDataValue(level, column,
+                            clamp(value, 0, Byte.MAX_VALUE, name + "[level " + level + "]", clamped));
+                    }
+                    return parameters;
+                });
+            }
+            int levelNumber = Integer.parseInt(matcher.group(1));
+            return new SweepParameter(name, (parameters, value, clamped) -> parameters.withLevelDataValue(levelNumber,
+                column, clamp(Math.round(value), 0, Byte.MAX_VALUE, name, clamped)));
+        }
+        matcher = PRIVATE_DOT_LIMIT.matcher(name);
+        if (matcher.matches()) {
+            int levelNumber = Integer.parseInt(matcher.group(1));
+            byte ghostID = ghostID(matcher.group(2));
+            return new SweepParameter(name, (parameters, value, clamped) -> parameters.withPrivateDotLimit(levelNumber,
+                ghostID, clamp(Math.round(value), 0, Byte.MAX_VALUE, name, clamped)));
+        }
+        matcher = GLOBAL_DOT_LIMIT.matcher(name);
+        if (matcher.matches()) {
+            byte ghostID = ghostID(matcher.group(1));
+            return new SweepParameter(name, (parameters, value, clamped) ->
+                parameters.withGlobalDotLimit(ghostID, clamp(Math.round(value), -1, Byte.MAX_VALUE, name, clamped)));
+        }
+        return switch (name) {
+            case "huntingDurations.scatter" -> new SweepParameter(name, (parameters, factor, clamped) ->
+                scaleHuntingDurations(parameters, 0, factor, name, clamped));
+            case "huntingDurations.chase" -> new SweepParameter(name, (parameters, factor, clamped) ->
+                scaleHuntingDurations(parameters, 1, factor, name, clamped));
+            case "starvingTicks.early" -> new SweepParameter(name, (parameters, value, clamped) ->
+                parameters.withPacStarvingLimitTicks(false, clamp(Math.round(value), 1, Integer.MAX_VALUE, name,
+                    clamped)));
+            case "starvingTicks.late" -> new SweepParameter(name, (parameters, value, clamped) ->
+                parameters.withPacStarvingLimitTicks(true, clamp(Math.round(value), 1, Integer.MAX_VALUE, name,
+                    clamped)));
+            case "speed.base" -> new SweepParameter(name, (parameters, value, clamped) -> parameters.withSpeeds(
+                (float) value, parameters.ghostSpeedInsideHouse(), parameters.ghostSpeedReturningToHouse()));
+            case "speed.ghostInsideHouse" -> new SweepParameter(name, (parameters, value, clamped) ->
+                parameters.withSpeeds(parameters.baseSpeed(), (float) value, parameters.ghostSpeedReturningToHouse()));
+            case "speed.ghostReturningToHouse" -> new SweepParameter(name, (parameters, value, clamped) ->
+                parameters.withSpeeds(parameters.baseSpeed(), parameters.ghostSpeedInsideHouse(), (float) value));
+            default -> throw new IllegalArgumentException("Unknown game parameter: " + name);
+        };
+    }
+
+    private static byte ghostID(String ghostName) {
+        int id = GHOST_NAMES.indexOf(ghostName.toLowerCase(Locale.ROOT));
+        if (id == -1) {
+            throw new IllegalArgumentException("Unknown ghost: " + ghostName);
+        }
+        return (byte) id;
+    }
+
+    private static int clamp(long value, int min, int max, String what, List<String> clamped) {
+        if (value < min || value > max) {
+            long clampedValue = Math.max(min, Math.min(max, value));
+            clamped.add("%s: %d -> %d".formatted(what, value, clampedValue));
+            return (int) clampedValue;
+        }
+        return (int) value;
+    }
+
+    private static GameParameters scaleHuntingDurations(GameParameters parameters, int firstPhase, double factor,
+                                                        String name, List<String> clamped) {
+        for (var variant : GameVariant.values()) {
+            for (int row = 0; row < parameters.numHuntingDurationRows(variant); ++row) {
+                // rows are addressed by the first level they apply to
+                int levelNumber = firstLevelOfHuntingDurationRow(variant, row);
+                for (int phase = firstPhase; phase < 8; phase += 2) {
+                    int ticks = parameters.huntingDuration(variant, levelNumber, phase);
+                    if (ticks > 1) {
+                        int scaled = clamp(Math.round(ticks * factor), 2, Integer.MAX_VALUE,
+                            "%s[%s row %d phase %d]".formatted(name, variant, row, phase), clamped);
+                        parameters = parameters.withHuntingDuration(variant, row, phase, scaled);
+                    }
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static int firstLevelOfHuntingDurationRow(GameVariant variant, int row) {
+        return switch (variant) {
+            case MS_PACMAN -> row == 0 ? 1 : 5;
+            case PACMAN -> switch (row) {
+                case 0 -> 1;
+                case 1 -> 2;
+                default -> 5;
+            };
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.lib.Option;
+import de.amr.games.pacman.lib.OptionParser;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static de.amr.games.pacman.lib.Option.*;
+
+/**
+ * Runs a parameter sweep without user interface and prints the difficulty of each configuration, see
+ * {@link ParameterSweep}.
+ * <p>
+ * Usage: <code>SweepRunner -params spec;spec;... [-mode GRID|RANDOM] [-samples n] [-games n] [-variant PACMAN|MS_PACMAN]
+ * [-threads n] [-seed n] [-maxTicks n] [-levels n] [-csv file]</code>
+ * <p>
+ * A parameter specification is <code>name=value</code>, <code>name=min:max</code> or <code>name=min:max:step</code>,
+ * the parameter names are described in {@link SweepParameter}. Example:
+ * <pre>
+ * SweepRunner -params "levelData.ghostSpeedPercentage=0.8:1.2:0.1;huntingDurations.chase=0.5:1.5:0.5" -games 200
+ * </pre>
+ * In <code>GRID</code> mode (default), all combinations of the grid values are played, in <code>RANDOM</code> mode the
+ * given number of samples. With <code>-csv file</code>, the difficulty curves are written to the file.
+ *
+ * @author Armin Reichert
+ */
+public class SweepRunner {
+
+    public enum Mode {
+        GRID, RANDOM
+    }
+
+    public static void main(String[] args) throws IOException {
+        Option<List<ParameterSweep.Dimension>> optParams = option("-params", List.of(),
+            s -> Stream.of(s.split(";")).filter(spec -> !spec.isBlank()).map(ParameterSweep.Dimension::parse).toList());
+        Option<Mode> optMode = option("-mode", Mode.GRID, s -> Mode.valueOf(s.toUpperCase(Locale.ROOT)));
+        Option<Integer> optSamples = integerOption("-samples", 20);
+        Option<Integer> optGames = integerOption("-games", 100);
+        Option<GameVariant> optVariant = option("-variant", GameVariant.PACMAN, GameVariant::valueOf);
+        Option<Integer> optThreads = integerOption("-threads", Runtime.getRuntime().availableProcessors());
+        Option<Long> optSeed = option("-seed", System.nanoTime(), Long::valueOf);
+        Option<Long> optMaxTicks = option("-maxTicks", 60L * 60 * 60, Long::valueOf);
+        Option<Integer> optLevels = integerOption("-levels", 8);
+        Option<String> optCsv = option("-csv", null, s -> s);
+        new OptionParser(optParams, optMode, optSamples, optGames, optVariant, optThreads, optSeed, optMaxTicks,
+            optLevels, optCsv).parse(args);
+
+        var sweep = new ParameterSweep(optParams.getValue(), optThreads.getValue(), optMaxTicks.getValue());
+        var configs = switch (optMode.getValue()) {
+            case GRID -> sweep.gridConfigs(optSeed.getValue());
+            case RANDOM -> sweep.randomConfigs(optSeed.getValue(), optSamples.getValue());
+        };
+        System.out.printf("Sweep over %s: %d configurations (%s), %d %s games each using %d thread(s), seed=%d...%n",
+            sweep.dimensions().stream().map(d -> d.parameter().name()).toList(), configs.size(), optMode.getValue(),
+            optGames.getValue(), optVariant.getValue(), optThreads.getValue(), optSeed.getValue());
+        long start = System.nanoTime();
+        var results = sweep.run(configs, optVariant.getValue(), optGames.getValue());
+        sweep.print(System.out, results, optLevels.getValue());
+        if (optCsv.getValue() != null) {
+            sweep.writeCsv(Path.of(optCsv.getValue()), results);
+        }
+        System.out.printf("Time: %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+}
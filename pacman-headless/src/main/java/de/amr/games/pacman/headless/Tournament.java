@@ -0,0 +1,241 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.controller.InputRecording;
+import de.amr.games.pacman.controller.ReplayPlayer;
+import de.amr.games.pacman.lib.SplitMix64Random;
+import de.amr.games.pacman.lib.Steering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Compares Pac-Man steerings ("entrants") by letting each of them play the same seeded games without user interface.
+ * <p>
+ * For each game variant, every entrant plays the games with the same seeds, so the entrants face the same random
+ * events as far as their play does not change them (common random numbers, which reduces the variance of the
+ * differences). The games of all entrants and variants are spread over the worker threads of a {@link GamePool},
+ * each worker plays in its own {@link HeadlessGame} session. Recorded games (see {@link InputRecording}) can be added
+ * as an entrant too, these are replayed once each.
+ * <p>
+ * For each entrant and variant, mean, variance and 95% confidence interval of score, level reached and ticks per life
+ * are computed. The single results are optionally streamed to a CSV file.
+ *
+ * @author Armin Reichert
+ */
+public class Tournament {
+
+    /**
+     * @param name             name used in the results
+     * @param autopilotFactory creates Pac-Man's autopilot for each level, <code>null</code> means the default autopilot.
+     *                         Called concurrently from the worker threads.
+     * @param variants         game variants the entrant can play
+     */
+    public record Entrant(String name, Function<GameLevel, Steering> autopilotFactory, Set<GameVariant> variants) {
+
+        public Entrant {
+            checkNotNull(name);
+            checkNotNull(variants);
+        }
+    }
+
+    /**
+     * Results of one entrant in one game variant.
+     */
+    public static class Standing {
+
+        private final String entrant;
+        private final GameVariant variant;
+        private final RunningStatistics score = new RunningStatistics();
+        private final RunningStatistics level = new RunningStatistics();
+        private final RunningStatistics ticksPerLife = new RunningStatistics();
+        private final LongAdder timeouts = new LongAdder();
+
+        public Standing(String entrant, GameVariant variant) {
+            this.entrant = entrant;
+            this.variant = variant;
+        }
+
+        /**
+         * Adds the result of a game. May be called concurrently.
+         *
+         * @param result game result
+         */
+        public void add(GameResult result) {
+            score.add(result.score());
+            level.add(result.levelNumber());
+            ticksPerLife.add(result.ticksPerLife());
+            if (result.timedOut()) {
+                timeouts.increment();
+            }
+        }
+
+        public String entrant() {
+            return entrant;
+        }
+
+        public GameVariant variant() {
+            return variant;
+        }
+
+        public long games() {
+            return score.count();
+        }
+
+        public long timeouts() {
+            return timeouts.sum();
+        }
+
+        public RunningStatistics score() {
+            return score;
+        }
+
+        public RunningStatistics level() {
+            return level;
+        }
+
+        public RunningStatistics ticksPerLife() {
+            return ticksPerLife;
+        }
+    }
+
+    private final int parallelism;
+    private final long maxTicks;
+    private GameResultCsvWriter csvWriter;
+
+    /**
+     * @param parallelism number of worker threads
+     * @param maxTicks    maximum number of ticks a game may take before it is aborted
+     */
+    public Tournament(int parallelism, long maxTicks) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * @param csvWriter writer the result of each game is written to, <code>null</code> means no output
+     */
+    public void setCsvWriter(GameResultCsvWriter csvWriter) {
+        this.csvWriter = csvWriter;
+    }
+
+    /**
+     * Lets each entrant play the given number of games of each of the given variants (if the entrant can play it).
+     *
+     * @param entrants entrants
+     * @param variants game variants
+     * @param numGames number of games per entrant and variant
+     * @param seed     tournament seed, the game seeds are derived from it by game index
+     * @return standings in the order of entrants and variants
+     * @throws CancellationException if the calling thread is interrupted before all games are played
+     */
+    public List<Standing> play(List<Entrant> entrants, List<GameVariant> variants, int numGames, long seed) {
+        checkNotNull(entrants);
+        checkNotNull(variants);
+        var seeds = new SplitMix64Random(seed).longs(numGames).toArray();
+        var standings = new ArrayList<Standing>();
+        var standingEntrants = new ArrayList<Entrant>();
+        for (var entrant : entrants) {
+            for (var variant : variants) {
+                if (entrant.variants().contains(variant)) {
+                    standings.add(new Standing(entrant.name(), variant));
+                    standingEntrants.add(entrant);
+                }
+            }
+        }
+        gamePool().play(standings.size() * numGames, (session, i) -> {
+            var standing = standings.get(i / numGames);
+            var entrant = standingEntrants.get(i / numGames);
+            int gameIndex = i % numGames;
+            session.setAutopilotFactory(entrant.autopilotFactory());
+            var result = session.play(standing.variant(), seeds[gameIndex]);
+            standing.add(result);
+            if (csvWriter != null) {
+                csvWriter.write(entrant.name(), standing.variant(), gameIndex, result);
+            }
+        });
+        return standings;
+    }
+
+    /**
+     * Replays the given recordings as games of one entrant. Recordings that cannot be replayed identically are skipped.
+     *
+     * @param name       entrant name, e.g. the name of the player
+     * @param recordings recorded games
+     * @return standings per variant played in the recordings
+     * @throws CancellationException if the calling thread is interrupted before all recordings are replayed
+     */
+    public List<Standing> replay(String name, List<InputRecording> recordings) {
+        checkNotNull(name);
+        checkNotNull(recordings);
+        var standings = new ArrayList<Standing>();
+        for (var variant : GameVariant.values()) {
+            if (recordings.stream().anyMatch(recording -> recording.variant() == variant)) {
+                standings.add(new Standing(name, variant));
+            }
+        }
+        gamePool().forEach(recordings.size(), i -> {
+            var recording = recordings.get(i);
+            var player = new ReplayPlayer(recording);
+            var collector = new GameResultCollector(player.gameController());
+            try {
+                var replay = player.play();
+                if (!replay.isValid()) {
+                    Logger.warn("Recording {} diverged after tick {}, skipped", i, replay.mismatchTick());
+                    return;
+                }
+                var result = collector.result(recording.seed(), replay.ticks(), false);
+                standings.stream().filter(standing -> standing.variant() == recording.variant())
+                    .findFirst().ifPresent(standing -> standing.add(result));
+                if (csvWriter != null) {
+                    csvWriter.write(name, recording.variant(), i, result);
+                }
+            } catch (IOException x) {
+                Logger.warn("Recording {} could not be replayed: {}", i, x.getMessage());
+            }
+        });
+        return standings;
+    }
+
+    private GamePool gamePool() {
+        return new GamePool(parallelism, HeadlessGame.Mode.AUTOPILOT, maxTicks);
+    }
+
+    /**
+     * Prints a table of the standings: mean +/- half width of the 95% confidence interval and standard deviation.
+     *
+     * @param out       output stream
+     * @param standings standings
+     */
+    public static void print(PrintStream out, List<Standing> standings) {
+        out.printf("%-16s %-10s %7s %8s  %-28s %-24s %-28s%n", "Entrant", "Variant", "Games", "Timeouts",
+            "Score", "Level", "Ticks per life");
+        for (var standing : standings) {
+            out.printf("%-16s %-10s %7d %8d  %-28s %-24s %-28s%n", standing.entrant(), standing.variant(),
+                standing.games(), standing.timeouts(), format(standing.score(), "%.0f"),
+                format(standing.level(), "%.2f"), format(standing.ticksPerLife(), "%.0f"));
+        }
+    }
+
+    private static String format(RunningStatistics statistics, String numberFormat) {
+        return (numberFormat + " +/- " + numberFormat + " (sd " + numberFormat + ")")
+            .formatted(statistics.mean(), statistics.confidence95(), statistics.stdDev());
+    }
+}
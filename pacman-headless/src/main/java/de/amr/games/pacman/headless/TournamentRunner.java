@@ -0,0 +1,121 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.headless;
+
+import de.amr.games.pacman.controller.InputRecording;
+import de.amr.games.pacman.lib.MonteCarloPacSteering;
+import de.amr.games.pacman.lib.Option;
+import de.amr.games.pacman.lib.OptionParser;
+import de.amr.games.pacman.lib.RouteBasedSteering;
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.world.ArcadeWorld;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static de.amr.games.pacman.lib.Option.*;
+
+/**
+ * Runs a tournament of Pac-Man steerings without user interface and prints their standings, see {@link Tournament}.
+ * <p>
+ * Usage: <code>TournamentRunner [-entrants RULE_BASED,MONTE_CARLO,DEMO_ROUTE] [-variants PACMAN,MS_PACMAN]
+ * [-games n] [-threads n] [-seed n] [-maxTicks n] [-profile file] [-replays directory]
+ * [-csv file]</code>
+ * <p>
+ * Entrants:
+ * <ul>
+ * <li><code>RULE_BASED</code>: the default autopilot ({@link RuleBasedPacSteering})</li>
+ * <li><code>MONTE_CARLO</code>: {@link MonteCarloPacSteering} without time budget</li>
+ * <li><code>DEMO_ROUTE</code>: the fixed route of the Pac-Man demo level ({@link RouteBasedSteering}), only Pac-Man</li>
+ * </ul>
+ * With <code>-profile file</code>, the rule-based autopilot with the profile from that file (see
+ * {@link ProfileOptimizerRunner}) is added as entrant <code>PROFILE</code>. With <code>-replays directory</code>, the
+ * recordings in that directory (see {@link ReplayRunner}) are added as entrant <code>REPLAY</code>.
+ *
+ * @author Armin Reichert
+ */
+public class TournamentRunner {
+
+    public enum EntrantKind {
+        RULE_BASED, MONTE_CARLO, DEMO_ROUTE;
+
+        Tournament.Entrant entrant() {
+            return switch (this) {
+                case RULE_BASED -> new Tournament.Entrant(name(), RuleBasedPacSteering::new,
+                    EnumSet.allOf(GameVariant.class));
+                case MONTE_CARLO -> {
+                    var config = new MonteCarloPacSteering.Config(MonteCarloPacSteering.Config.DEFAULT.rollouts(),
+                        MonteCarloPacSteering.Config.DEFAULT.depth(), 0);
+                    yield new Tournament.Entrant(name(),
+                        level -> new MonteCarloPacSteering(level, config, MonteCarloPacSteering.CALLER_RUNS),
+                        EnumSet.allOf(GameVariant.class));
+                }
+                case DEMO_ROUTE -> new Tournament.Entrant(name(),
+                    level -> new RouteBasedSteering(List.of(ArcadeWorld.PACMAN_DEMO_LEVEL_ROUTE)),
+                    EnumSet.of(GameVariant.PACMAN));
+            };
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Option<List<EntrantKind>> optEntrants = option("-entrants", List.of(EntrantKind.RULE_BASED),
+            s -> Stream.of(s.split(",")).map(name -> EntrantKind.valueOf(name.trim().toUpperCase(Locale.ROOT))).toList());
+        Option<List<GameVariant>> optVariants = option("-variants", List.of(GameVariant.values()),
+            s -> Stream.of(s.split(",")).map(name -> GameVariant.valueOf(name.trim().toUpperCase(Locale.ROOT))).toList());
+        Option<Integer> optGames = integerOption("-games", 1000);
+        Option<Integer> optThreads = integerOption("-threads", Runtime.getRuntime().availableProcessors());
+        Option<Long> optSeed = option("-seed", System.nanoTime(), Long::valueOf);
+        Option<Long> optMaxTicks = option("-maxTicks", 60L * 60 * 60, Long::valueOf);
+        Option<String> optProfile = option("-profile", null, s -> s);
+        Option<String> optReplays = option("-replays", null, s -> s);
+        Option<String> optCsv = option("-csv", null, s -> s);
+        new OptionParser(optEntrants, optVariants, optGames, optThreads, optSeed, optMaxTicks, optProfile, optReplays,
+            optCsv).parse(args);
+
+        var tournament = new Tournament(optThreads.getValue(), optMaxTicks.getValue());
+        var csvWriter = optCsv.getValue() != null ? new GameResultCsvWriter(Path.of(optCsv.getValue())) : null;
+        tournament.setCsvWriter(csvWriter);
+        System.out.printf("Tournament of %s, %d games per variant %s using %d thread(s), seed=%d...%n",
+            optEntrants.getValue(), optGames.getValue(), optVariants.getValue(), optThreads.getValue(),
+            optSeed.getValue());
+        long start = System.nanoTime();
+        try {
+            var entrants = new ArrayList<>(optEntrants.getValue().stream().map(EntrantKind::entrant).toList());
+            if (optProfile.getValue() != null) {
+                var profile = RuleBasedPacSteering.Profile.load(Path.of(optProfile.getValue()));
+                entrants.add(new Tournament.Entrant("PROFILE", level -> new RuleBasedPacSteering(level, profile),
+                    EnumSet.allOf(GameVariant.class)));
+            }
+            var standings = new ArrayList<>(tournament.play(entrants, optVariants.getValue(), optGames.getValue(),
+                optSeed.getValue()));
+            if (optReplays.getValue() != null) {
+                standings.addAll(tournament.replay("REPLAY", loadRecordings(Path.of(optReplays.getValue()))));
+            }
+            Tournament.print(System.out, standings);
+        } finally {
+            if (csvWriter != null) {
+                csvWriter.close();
+            }
+        }
+        System.out.printf("Time: %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    private static List<InputRecording> loadRecordings(Path directory) throws IOException {
+        var recordings = new ArrayList<InputRecording>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (var file : files.filter(f -> f.toString().endsWith(ReplayRunner.FILE_EXTENSION)).sorted().toList()) {
+                recordings.add(InputRecording.load(file));
+            }
+        }
+        return recordings;
+    }
+}
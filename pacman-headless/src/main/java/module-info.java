@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2021-2023 Armin Reichert (MIT License) See file LICENSE in repository root directory for details.
+ */
+module de.amr.games.pacman.headless {
+    requires org.tinylog.api;
+    requires de.amr.games.pacman;
+
+    exports de.amr.games.pacman.headless;
+}
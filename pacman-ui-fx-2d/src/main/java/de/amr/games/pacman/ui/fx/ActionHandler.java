@@ -1,6 +1,9 @@
 package de.amr.games.pacman.ui.fx;
 
 /**
+ * Actions triggered by the user. Actions changing the game take the simulation lock themselves (see
+ * {@link GameSceneContext#runExclusively(Runnable)}), so they can be called from any handler on the UI thread.
+ *
  * @author Armin Reichert
  */
 public interface ActionHandler {
@@ -19,6 +22,8 @@ public interface ActionHandler {
 
     void doSimulationSteps(int numSteps);
 
+    void rewind(int position);
+
     void changeSimulationSpeed(int delta);
 
     void resetSimulationSpeed();
@@ -35,6 +40,12 @@ public interface ActionHandler {
 
     void startGame();
 
+    /**
+     * Stops recording the game inputs (if running). Must be called before the game session is changed other than by a
+     * game action, else the recording could not be replayed.
+     */
+    void stopRecording();
+
     void switchGameVariant();
 
     void startCutscenesTest();
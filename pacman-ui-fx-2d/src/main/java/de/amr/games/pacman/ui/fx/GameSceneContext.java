@@ -1,6 +1,7 @@
 package de.amr.games.pacman.ui.fx;
 
 import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameSnapshot;
 import de.amr.games.pacman.controller.GameState;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
@@ -60,16 +61,31 @@ public interface GameSceneContext {
 
     <S extends SpriteSheet> S spriteSheet();
 
-    default GameController gameController() {
-        return GameController.it();
+    GameController gameController();
+
+    /**
+     * @return latest snapshot published by the simulation thread, empty if the simulation runs on the UI thread
+     */
+    default Optional<GameSnapshot> gameSnapshot() {
+        return Optional.empty();
+    }
+
+    /**
+     * Runs code that changes the game, e.g. a user action, such that it does not interfere with a simulation running on
+     * another thread.
+     *
+     * @param code code accessing the game
+     */
+    default void runExclusively(Runnable code) {
+        code.run();
     }
 
     default GameState gameState() {
-        return GameController.it().state();
+        return gameController().state();
     }
 
     default GameModel game() {
-        return GameController.it().game();
+        return gameController().game();
     }
 
     default GameVariant gameVariant() {
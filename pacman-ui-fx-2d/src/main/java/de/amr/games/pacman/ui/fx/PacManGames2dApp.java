@@ -5,7 +5,6 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.ui.fx;
 
 import de.amr.games.pacman.controller.GameController;
-import de.amr.games.pacman.event.GameEventManager;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import org.tinylog.Logger;
@@ -16,6 +15,7 @@ import org.tinylog.Logger;
 public class PacManGames2dApp extends Application {
 
     private final Settings settings = new Settings();
+    private GameController gameController;
     private PacManGames2dUI ui;
 
     @Override
@@ -23,7 +23,7 @@ public class PacManGames2dApp extends Application {
         if (getParameters() != null) {
             settings.merge(getParameters().getNamed());
         }
-        GameController.it().newGame(settings.variant);
+        gameController = new GameController(settings.variant);
         Logger.info("Game initialized: {}", settings);
         Logger.info("Java version is {}", Runtime.version());
         Logger.info("JavaFX version is {}", System.getProperty("javafx.runtime.version"));
@@ -31,8 +31,8 @@ public class PacManGames2dApp extends Application {
 
     @Override
     public void start(Stage stage) {
-        ui = new PacManGames2dUI(stage, settings);
-        GameEventManager.addListener(ui);
+        ui = new PacManGames2dUI(stage, settings, gameController);
+        ui.subscribeToGameEvents(settings);
         ui.showStartPage();
         Logger.info("UI initialized. Stage size: {0} x {0} px", stage.getWidth(), stage.getHeight());
     }
@@ -40,6 +40,9 @@ public class PacManGames2dApp extends Application {
     @Override
     public void stop() {
         ui.gameClock().stop();
+        ui.stopSimulationThread();
+        ui.stopRecording();
+        ui.reportLatencies(settings);
         Logger.info("Game stopped.");
     }
 }
\ No newline at end of file
@@ -4,11 +4,20 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx;
 
+import de.amr.games.pacman.controller.AutopilotSpec;
+import de.amr.games.pacman.controller.GameAction;
 import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameSnapshot;
 import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.controller.InputRecorder;
+import de.amr.games.pacman.controller.RewindBuffer;
+import de.amr.games.pacman.controller.SimulationThread;
+import de.amr.games.pacman.event.AsyncGameEventBus;
 import de.amr.games.pacman.event.GameEvent;
 import de.amr.games.pacman.event.GameEventListener;
-import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.lib.MonteCarloPacSteering;
+import de.amr.games.pacman.lib.RuleBasedPacSteering;
+import de.amr.games.pacman.lib.Steering;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.GameVariant;
@@ -21,6 +30,7 @@ import de.amr.games.pacman.ui.fx.scene2d.*;
 import de.amr.games.pacman.ui.fx.util.*;
 import javafx.animation.Animation;
 import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -36,17 +46,19 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 import org.tinylog.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static de.amr.games.pacman.controller.GameState.INTRO;
-import static de.amr.games.pacman.event.GameEventManager.publishGameEvent;
 import static de.amr.games.pacman.lib.Globals.TS;
 import static de.amr.games.pacman.lib.Globals.checkNotNull;
 import static de.amr.games.pacman.ui.fx.util.Keyboard.*;
 import static de.amr.games.pacman.ui.fx.util.Ufx.toggle;
-import static java.util.function.Predicate.not;
 
 /**
  * 2D-only user interface for Pac-Man and Ms. Pac-Man games. No 3D play scene, no dashboard, no picture-in-picture view.
@@ -204,6 +216,7 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
         Logger.info("2D theme loaded");
     }
 
+    protected final GameController gameController;
     protected final GameClock clock;
     protected final Map<GameVariant, Map<String, GameScene>> gameScenesByVariant = new EnumMap<>(GameVariant.class);
     protected final Stage stage;
@@ -212,14 +225,35 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
     protected final GamePage gamePage;
     protected Page currentPage;
     public final ObjectProperty<GameScene> gameScenePy = new SimpleObjectProperty<>(this, "gameScene");
+    private final SimulationThread.Kind simulationThreadKind;
+    private final Path recordingDirectory;
+    private SimulationThread simulation;
     private AudioClip voiceClip;
     private final Animation voiceClipExecution = new PauseTransition();
 
-    public PacManGames2dUI(Stage stage, Settings settings) {
+    public PacManGames2dUI(Stage stage, Settings settings, GameController gameController) {
         checkNotNull(stage);
         checkNotNull(settings);
+        checkNotNull(gameController);
 
         this.stage = stage;
+        this.gameController = gameController;
+        this.simulationThreadKind = settings.simulationThread;
+        this.recordingDirectory = settings.recordingDirectory != null ? Path.of(settings.recordingDirectory) : null;
+        if (settings.rewindSeconds > 0) {
+            gameController.setRewindBuffer(RewindBuffer.ofSeconds(settings.rewindSeconds));
+        }
+        if (settings.monteCarloAutopilot) {
+            gameController.setAutopilot(AutopilotSpec.monteCarlo(MonteCarloPacSteering.Config.DEFAULT));
+        } else if (settings.autopilotProfile != null) {
+            try {
+                var profile = RuleBasedPacSteering.Profile.load(Path.of(settings.autopilotProfile));
+                gameController.setAutopilot(AutopilotSpec.ruleBased(profile));
+                Logger.info("Autopilot profile loaded from file '{}': {}", settings.autopilotProfile, profile);
+            } catch (IOException x) {
+                Logger.error("Autopilot profile could not be loaded, using default. Error: {}", x.getMessage());
+            }
+        }
         mainScene = createMainScene();
         startPage = createStartPage();
         gamePage  = createGamePage(mainScene);
@@ -229,8 +263,29 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
         clock = new GameClock();
         clock.pausedPy.addListener((py, ov, nv) -> updateStage());
         clock.setOnTick(() -> {
-            gameController().update();
-            currentGameScene().ifPresent(GameScene::update);
+            if (simulation == null) {
+                gameController().update();
+                currentGameScene().ifPresent(GameScene::update);
+            } else {
+                // scenes reading only the snapshot would not need the lock, but scene updates may also read the live
+                // game (the 3D play scene does so in every frame) and execute actions
+                simulation.runExclusively(() -> {
+                    if (clock.isPaused()) {
+                        simulation.step(); // single step
+                    }
+                    currentGameScene().ifPresent(GameScene::update);
+                });
+            }
+        });
+        clock.pausedPy.addListener((py, ov, paused) -> {
+            if (simulation != null) {
+                simulation.setPaused(paused);
+            }
+        });
+        clock.targetFrameRatePy.addListener((py, ov, rate) -> {
+            if (simulation != null) {
+                simulation.setTargetTickRate(rate.intValue());
+            }
         });
         clock.setOnRender(gamePage::render);
 
@@ -267,6 +322,105 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
         stage.setScene(mainScene);
     }
 
+    /**
+     * Subscribes this UI to the game events. With setting <code>asyncEvents</code>, events are buffered and delivered
+     * later on the application thread, so slow event handlers do not stall the simulation step. With setting
+     * <code>simulationThread</code>, events are always delivered that way, and each event is handled while holding the
+     * simulation lock (see {@link #runExclusively(Runnable)}).
+     *
+     * @param settings application settings
+     */
+    public void subscribeToGameEvents(Settings settings) {
+        checkNotNull(settings);
+        if (settings.asyncEvents == null && settings.simulationThread == null) {
+            gameController.eventManager().addListener(this);
+            return;
+        }
+        // with a simulation thread, the event handlers must run on the application thread
+        var policy = settings.asyncEvents != null ? settings.asyncEvents : AsyncGameEventBus.OverflowPolicy.COALESCE;
+        if (policy == AsyncGameEventBus.OverflowPolicy.BLOCK) {
+            // user actions on the application thread publish events too and would wait for the delivery
+            Logger.warn("Event overflow policy {} not possible here, using {}", policy,
+                AsyncGameEventBus.OverflowPolicy.COALESCE);
+            policy = AsyncGameEventBus.OverflowPolicy.COALESCE;
+        }
+        // the simulation thread publishes events while it holds the simulation lock, so the bus must never block it (see
+        // above). The handlers change the game state and its animations, so they run under the lock, too.
+        var eventBus = new AsyncGameEventBus(256, policy, Platform::runLater);
+        eventBus.addListener(new GameEventListener() {
+            @Override
+            public void onGameEvent(GameEvent event) {
+                runExclusively(() -> PacManGames2dUI.this.onGameEvent(event));
+            }
+        });
+        gameController.eventManager().addListener(eventBus);
+        Logger.info("Game events are delivered asynchronously, overflow policy: {}", policy);
+    }
+
+    /**
+     * Logs the latency statistics of the game clock and writes them to the file given by setting
+     * <code>latencyReport</code>.
+     *
+     * @param settings application settings
+     */
+    public void reportLatencies(Settings settings) {
+        checkNotNull(settings);
+        Logger.info("Update: {}", clock.updateTimes().summary());
+        Logger.info("Render: {}", clock.renderTimes().summary());
+        Logger.info("Frame:  {}, missed deadlines: {}", clock.frameTimes().summary(), clock.missedDeadlines());
+        if (settings.latencyReport != null) {
+            clock.writeLatencyReport(Path.of(settings.latencyReport));
+        }
+    }
+
+    /**
+     * Stops the simulation thread (if any).
+     */
+    public void stopSimulationThread() {
+        if (simulation != null) {
+            simulation.stop();
+            simulation = null;
+        }
+    }
+
+    private void startRecording() {
+        if (recordingDirectory != null && gameController.inputRecorder().isEmpty()) {
+            try {
+                gameController.setInputRecorder(new InputRecorder(gameController));
+            } catch (IllegalStateException x) {
+                Logger.warn("Game is not recorded: {}", x.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops recording the game inputs (if running) and saves the recording to the directory given by setting
+     * <code>recordingDirectory</code>.
+     */
+    @Override
+    public void stopRecording() {
+        runExclusively(() -> gameController.inputRecorder().ifPresent(recorder -> {
+            gameController.setInputRecorder(null);
+            var recording = recorder.finish();
+            var fileName = String.format("%s-%s.rec", recording.variant().name().toLowerCase(Locale.ROOT),
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+            try {
+                recording.save(recordingDirectory.resolve(fileName));
+            } catch (IOException x) {
+                Logger.error(x, "Recording could not be saved");
+            }
+        }));
+    }
+
+    private void startSimulationThread() {
+        if (simulationThreadKind != null && simulation == null) {
+            simulation = new SimulationThread(gameController, simulationThreadKind);
+            simulation.setTargetTickRate(clock.targetFrameRatePy.get());
+            simulation.setPaused(clock.isPaused());
+            simulation.start();
+        }
+    }
+
     protected Scene createMainScene() {
         double screenHeight = Screen.getPrimary().getBounds().getHeight();
         double height = Math.min(screenHeight * 0.8, 800);
@@ -322,6 +476,7 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
             clock.stop();
             Logger.info("Clock stopped.");
         }
+        stopSimulationThread();
         startPage.setGameVariant(gameVariant());
         setPage(startPage);
     }
@@ -330,6 +485,7 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
         // call reboot() first such that current game scene is set
         reboot();
         setPage(gamePage);
+        startSimulationThread();
         clock.start();
         Logger.info("Clock started, speed={} Hz", clock.targetFrameRatePy.get());
     }
@@ -351,7 +507,7 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
             case CREDIT -> config.get("credit");
             case INTRO -> config.get("intro");
             case INTERMISSION -> config.get("cut" + gameLevel().map(level -> level.data().intermissionNumber()).orElse((byte) 1));
-            case INTERMISSION_TEST -> config.get("cut" + gameState().<Integer>getProperty("intermissionTestNumber"));
+            case INTERMISSION_TEST -> config.get("cut" + gameController().intermissionTestNumber());
             default -> config.get("play");
         };
     }
@@ -385,11 +541,30 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
         return GameSceneContext.message(List.of(MSG_BUNDLE), key, args);
     }
 
+    @Override
+    public GameController gameController() {
+        return gameController;
+    }
+
     @Override
     public GameClock gameClock() {
         return clock;
     }
 
+    @Override
+    public Optional<GameSnapshot> gameSnapshot() {
+        return Optional.ofNullable(simulation).map(SimulationThread::latestSnapshot);
+    }
+
+    @Override
+    public void runExclusively(Runnable code) {
+        if (simulation != null) {
+            simulation.runExclusively(code);
+        } else {
+            code.run();
+        }
+    }
+
     @Override
     public ActionHandler actionHandler() {
         return this;
@@ -434,6 +609,13 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
         currentGameScene().ifPresent(gameScene -> gameScene.onGameEvent(e));
     }
 
+    @Override
+    public void onGameStateEntry(GameState state) {
+        if (state == INTRO) {
+            stopRecording();
+        }
+    }
+
     @Override
     public void onUnspecifiedChange(GameEvent e) {
         updateOrReloadGameScene(true);
@@ -479,8 +661,8 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
     @Override
     public void onIntermissionStarted(GameEvent event) {
         int intermissionNumber = 0; // 0=undefined
-        if (GameController.it().state() == GameState.INTERMISSION_TEST) {
-            intermissionNumber = GameState.INTERMISSION_TEST.getProperty("intermissionTestNumber");
+        if (gameState() == GameState.INTERMISSION_TEST) {
+            intermissionNumber = gameController().intermissionTestNumber();
         } else {
             GameLevel level = event.game.level().orElse(null);
             if (level != null) {
@@ -516,7 +698,9 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
                 }
             }
             if (!level.isDemoLevel()) {
-                level.pac().setManualSteering(new KeyboardPacSteering());
+                Steering steering = new KeyboardPacSteering();
+                level.pac().setManualSteering(gameController.inputRecorder()
+                    .map(recorder -> recorder.recordingSteering(steering)).orElse(steering));
             }
         });
     }
@@ -591,42 +775,48 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
 
     @Override
     public void startGame() {
-        if (gameController().hasCredit()) {
-            stopVoice();
-            if (gameState() == GameState.INTRO || gameState() == GameState.CREDIT) {
-                gameController().changeState(GameState.READY);
-            } else {
-                Logger.error("Cannot start playing when in game state {}", gameState());
+        runExclusively(() -> {
+            if (gameController().hasCredit()) {
+                stopVoice();
+                if (gameState() == GameState.INTRO || gameState() == GameState.CREDIT) {
+                    startRecording();
+                }
+                gameController().execute(GameAction.START_GAME);
             }
-        }
+        });
     }
 
     @Override
     public void startCutscenesTest() {
-        if (gameState() == GameState.INTRO) {
-            gameController().changeState(GameState.INTERMISSION_TEST);
-        } else {
-            Logger.error("Intermission test can only be started from intro screen");
-        }
+        runExclusively(() -> {
+            if (gameState() == GameState.INTRO) {
+                stopRecording();
+                gameController().changeState(GameState.INTERMISSION_TEST);
+            } else {
+                Logger.error("Intermission test can only be started from intro screen");
+            }
+        });
         showFlashMessage("Cut scenes");
     }
 
     @Override
     public void restartIntro() {
         stopAllSounds();
-        currentGameScene().ifPresent(GameScene::end);
-        if (gameController().isPlaying()) {
-            gameController().changeCredit(-1);
-        }
-        gameController().restart(INTRO);
+        runExclusively(() -> {
+            currentGameScene().ifPresent(GameScene::end);
+            gameController().execute(GameAction.RESTART_INTRO);
+        });
     }
 
     @Override
     public void reboot() {
         stopAllSounds();
-        currentGameScene().ifPresent(GameScene::end);
         playVoice("voice.explain", 0);
-        gameController().restart(GameState.BOOT);
+        runExclusively(() -> {
+            currentGameScene().ifPresent(GameScene::end);
+            stopRecording();
+            gameController().restart(GameState.BOOT);
+        });
     }
 
     /**
@@ -634,15 +824,7 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
      */
     @Override
     public void addCredit() {
-        if (!gameController().isPlaying()) {
-            boolean added = gameController().changeCredit(1);
-            if (added) {
-                publishGameEvent(game(), GameEventType.CREDIT_ADDED);
-            }
-            if (gameState() != GameState.CREDIT) {
-                gameController().changeState(GameState.CREDIT);
-            }
-        }
+        runExclusively(() -> gameController().execute(GameAction.ADD_CREDIT));
     }
 
     @Override
@@ -664,6 +846,20 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
         }
     }
 
+    @Override
+    public void rewind(int position) {
+        gameController.rewindBuffer().ifPresent(rewindBuffer -> {
+            // the recorded inputs would not lead to the restored state
+            stopRecording();
+            stopAllSounds();
+            runExclusively(() -> {
+                if (position >= 0 && position < rewindBuffer.size()) {
+                    rewindBuffer.restore(gameController, position);
+                }
+            });
+        });
+    }
+
     @Override
     public void changeSimulationSpeed(int delta) {
         int newRate = clock.targetFrameRatePy.get() + delta;
@@ -681,14 +877,18 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
 
     @Override
     public void switchGameVariant() {
-        gameController().newGame(gameVariant().next());
-        gameController().restart(GameState.BOOT);
+        runExclusively(() -> {
+            stopRecording();
+            gameController().newGame(gameVariant().next());
+            gameController().restart(GameState.BOOT);
+        });
         showStartPage();
     }
 
     @Override
     public void toggleAutopilot() {
-        toggle(PY_USE_AUTOPILOT);
+        // the play scene update passes the property to the game
+        runExclusively(() -> toggle(PY_USE_AUTOPILOT));
         boolean auto = PY_USE_AUTOPILOT.get();
         showFlashMessage(tt(auto ? "autopilot_on" : "autopilot_off"));
         playVoice(auto ? "voice.autopilot.on" : "voice.autopilot.off", 0);
@@ -696,7 +896,8 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
 
     @Override
     public void toggleImmunity() {
-        gameController().setPacImmune(!gameController().isPacImmune());
+        runExclusively(() ->
+            gameController().execute(GameAction.SET_IMMUNITY, gameController().isPacImmune() ? 0 : 1));
         boolean immune = gameController().isPacImmune();
         showFlashMessage(tt(immune ? "player_immunity_on" : "player_immunity_off"));
         playVoice(immune ? "voice.immunity.on" : "voice.immunity.off", 0);
@@ -704,64 +905,54 @@ public class PacManGames2dUI implements GameEventListener, GameSceneContext, Act
 
     @Override
     public void enterLevel(int newLevelNumber) {
-        if (gameState() == GameState.CHANGING_TO_NEXT_LEVEL) {
-            return;
-        }
-        gameLevel().ifPresent(level -> {
-            if (newLevelNumber > level.number()) {
-                stopAllSounds();
-                for (int n = level.number(); n < newLevelNumber - 1; ++n) {
-                    gameController().createAndStartLevel(level.number() + 1);
-                }
-                gameController().changeState(GameState.CHANGING_TO_NEXT_LEVEL);
+        runExclusively(() -> {
+            if (gameState() == GameState.CHANGING_TO_NEXT_LEVEL) {
+                return;
             }
+            gameLevel().ifPresent(level -> {
+                if (newLevelNumber > level.number()) {
+                    stopAllSounds();
+                    gameController().execute(GameAction.ENTER_LEVEL, newLevelNumber);
+                }
+            });
         });
     }
 
     @Override
     public void startLevelTestMode() {
-        if (gameState() == GameState.INTRO) {
-            gameController().restart(GameState.LEVEL_TEST);
-            showFlashMessage("Level TEST MODE");
-        }
+        runExclusively(() -> {
+            if (gameState() == GameState.INTRO) {
+                stopRecording();
+                gameController().restart(GameState.LEVEL_TEST);
+                showFlashMessage("Level TEST MODE");
+            }
+        });
     }
 
     @Override
     public void cheatAddLives() {
-        game().addLives((short) 3);
+        runExclusively(() -> gameController().execute(GameAction.ADD_LIVES, 3));
         showFlashMessage(tt("cheat_add_lives", game().lives()));
     }
 
     @Override
     public void cheatEatAllPellets() {
-        if (gameController().isPlaying() && gameState() == GameState.HUNTING) {
-            gameLevel().ifPresent(level -> {
-                level.world().tiles().filter(not(level.world()::isEnergizerTile)).forEach(level.world()::removeFood);
-                publishGameEvent(game(), GameEventType.PAC_FOUND_FOOD);
-            });
-        }
+        runExclusively(() -> gameController().execute(GameAction.EAT_ALL_PELLETS));
     }
 
     @Override
     public void cheatKillAllEatableGhosts() {
-        if (gameController().isPlaying() && gameState() == GameState.HUNTING) {
-            gameLevel().ifPresent(level -> {
-                level.killAllHuntingAndFrightenedGhosts();
-                level.eventLog().report();
-                gameController().changeState(GameState.GHOST_DYING);
-            });
-        }
+        runExclusively(() -> gameController().execute(GameAction.KILL_ALL_GHOSTS));
     }
 
     @Override
     public void cheatEnterNextLevel() {
-        if (gameController().isPlaying() && gameState() == GameState.HUNTING) {
-            gameLevel().ifPresent(level -> {
+        runExclusively(() -> {
+            if (gameController().isPlaying() && gameState() == GameState.HUNTING) {
                 stopAllSounds();
-                level.world().tiles().forEach(level.world()::removeFood);
-                gameController().changeState(GameState.LEVEL_COMPLETE);
-            });
-        }
+                gameController().execute(GameAction.ENTER_NEXT_LEVEL);
+            }
+        });
     }
 
     // Sound
@@ -4,6 +4,8 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx;
 
+import de.amr.games.pacman.controller.SimulationThread;
+import de.amr.games.pacman.event.AsyncGameEventBus;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.GameVariant;
 import javafx.scene.input.KeyCode;
@@ -40,6 +42,23 @@ public class Settings {
     public GameVariant variant;
     public float zoom;
     public Map<Direction, KeyCode> keyMap;
+    /** Overflow policy of asynchronous game event delivery, <code>null</code> means synchronous delivery. */
+    public AsyncGameEventBus.OverflowPolicy asyncEvents;
+    /** File the game clock's latency statistics are written to on exit, <code>null</code> means no file. */
+    public String latencyReport;
+    /** Kind of thread running the simulation, <code>null</code> means the simulation runs on the UI thread. */
+    public SimulationThread.Kind simulationThread;
+    /** Directory where the inputs of each played game are recorded, <code>null</code> means no recording. */
+    public String recordingDirectory;
+    /** Number of seconds of gameplay kept for stepping back (see dashboard), 0 means no history is kept. */
+    public int rewindSeconds;
+    /**
+     * If Pac-Man's autopilot (and demo levels) uses a Monte Carlo search instead of the rule-based steering. Its
+     * decisions are limited by a time budget and not reproducible, so games are not recorded then.
+     */
+    public boolean monteCarloAutopilot;
+    /** File with a tuned profile of the rule-based autopilot, <code>null</code> means the default profile. */
+    public String autopilotProfile;
 
     public Settings() {
         this(Collections.emptyMap());
@@ -50,6 +69,13 @@ public class Settings {
         variant = GameVariant.PACMAN;
         zoom = 2;
         keyMap = keyMap("cursor");
+        asyncEvents = null;
+        latencyReport = null;
+        simulationThread = null;
+        recordingDirectory = null;
+        rewindSeconds = 0;
+        monteCarloAutopilot = false;
+        autopilotProfile = null;
         merge(map);
     }
 
@@ -66,10 +92,34 @@ public class Settings {
         if (map.containsKey("keys")) {
             keyMap = keyMap(map.get("keys"));
         }
+        if (map.containsKey("asyncEvents")) {
+            asyncEvents = AsyncGameEventBus.OverflowPolicy.valueOf(map.get("asyncEvents"));
+        }
+        if (map.containsKey("latencyReport")) {
+            latencyReport = map.get("latencyReport");
+        }
+        if (map.containsKey("simulationThread")) {
+            simulationThread = SimulationThread.Kind.valueOf(map.get("simulationThread"));
+        }
+        if (map.containsKey("recordingDirectory")) {
+            recordingDirectory = map.get("recordingDirectory");
+        }
+        if (map.containsKey("rewindSeconds")) {
+            rewindSeconds = Integer.parseInt(map.get("rewindSeconds"));
+        }
+        if (map.containsKey("monteCarloAutopilot")) {
+            monteCarloAutopilot = Boolean.parseBoolean(map.get("monteCarloAutopilot"));
+        }
+        if (map.containsKey("autopilotProfile")) {
+            autopilotProfile = map.get("autopilotProfile");
+        }
     }
 
     @Override
     public String toString() {
-        return "Settings [fullScreen=" + fullScreen + ", variant=" + variant + ", zoom=" + zoom + "]";
+        return "Settings [fullScreen=" + fullScreen + ", variant=" + variant + ", zoom=" + zoom
+            + ", asyncEvents=" + asyncEvents + ", latencyReport=" + latencyReport + ", simulationThread=" + simulationThread
+            + ", recordingDirectory=" + recordingDirectory + ", rewindSeconds=" + rewindSeconds
+            + ", monteCarloAutopilot=" + monteCarloAutopilot + ", autopilotProfile=" + autopilotProfile + "]";
     }
 }
\ No newline at end of file
@@ -61,12 +61,12 @@ public class GamePage extends CanvasLayoutPane implements Page {
         flashMessageLayer.setMouseTransparent(true);
 
         layersContainer.setOnKeyPressed(e -> {
-            handleKeyboardInput();
+            sceneContext.runExclusively(this::handleKeyboardInput);
         });
 
         getCanvas().setOnMouseMoved(e -> {
             double factor = getScaling() * TS;
-            Vector2i tile = new Vector2i((int)(e.getX() / factor), (int)(e.getY() / factor));
+            Vector2i tile = Vector2i.of((int)(e.getX() / factor), (int)(e.getY() / factor));
             Logger.info("tile={}", tile);
         });
 
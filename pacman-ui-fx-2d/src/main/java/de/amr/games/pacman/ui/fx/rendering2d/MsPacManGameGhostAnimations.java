@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.rendering2d;
 
+import de.amr.games.pacman.controller.GameSnapshot.CreatureSnapshot;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.actors.Ghost;
 import de.amr.games.pacman.ui.fx.util.SpriteAnimation;
@@ -81,6 +82,21 @@ public class MsPacManGameGhostAnimations extends SpriteAnimations {
         }
     }
 
+    @Override
+    public Rectangle2D sprite(CreatureSnapshot snapshot) {
+        if (snapshot.animation() == null) {
+            return super.sprite(snapshot);
+        }
+        return switch (snapshot.animation()) {
+            case Ghost.ANIM_GHOST_NORMAL -> frame(animation(Ghost.ANIM_GHOST_NORMAL),
+                spriteSheet.ghostNormalSprites(ghost.id(), snapshot.wishDir()));
+            case Ghost.ANIM_GHOST_EYES -> frame(animation(Ghost.ANIM_GHOST_EYES),
+                spriteSheet.ghostEyesSprites(snapshot.wishDir()));
+            case Ghost.ANIM_GHOST_NUMBER -> spriteSheet.ghostNumberSprites()[snapshot.animationIndex()];
+            default -> super.sprite(snapshot);
+        };
+    }
+
     @Override
     public Rectangle2D currentSprite() {
         var currentAnimation = currentAnimation();
@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.rendering2d;
 
+import de.amr.games.pacman.controller.GameSnapshot.CreatureSnapshot;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.actors.Pac;
 import de.amr.games.pacman.ui.fx.util.SpriteAnimation;
@@ -57,6 +58,17 @@ public class MsPacManGamePacAnimations extends SpriteAnimations {
         return animationsByName.get(name);
     }
 
+    @Override
+    public Rectangle2D sprite(CreatureSnapshot snapshot) {
+        if (Pac.ANIM_MUNCHING.equals(snapshot.animation())) {
+            return frame(animation(Pac.ANIM_MUNCHING), spriteSheet.msPacManMunchingSprites(snapshot.moveDir()));
+        }
+        if (Pac.ANIM_HUSBAND_MUNCHING.equals(snapshot.animation())) {
+            return frame(animation(Pac.ANIM_HUSBAND_MUNCHING), spriteSheet.pacManMunchingSprites(snapshot.moveDir()));
+        }
+        return super.sprite(snapshot);
+    }
+
     @Override
     public Rectangle2D currentSprite() {
         var currentAnimation = currentAnimation();
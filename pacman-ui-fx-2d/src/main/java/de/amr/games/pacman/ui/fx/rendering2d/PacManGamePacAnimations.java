@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.rendering2d;
 
+import de.amr.games.pacman.controller.GameSnapshot.CreatureSnapshot;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.actors.Pac;
 import de.amr.games.pacman.ui.fx.util.SpriteAnimation;
@@ -56,6 +57,14 @@ public class PacManGamePacAnimations extends SpriteAnimations {
         return animationsByName.get(name);
     }
 
+    @Override
+    public Rectangle2D sprite(CreatureSnapshot snapshot) {
+        if (Pac.ANIM_MUNCHING.equals(snapshot.animation())) {
+            return frame(animation(Pac.ANIM_MUNCHING), spriteSheet.pacMunchingSprites(snapshot.moveDir()));
+        }
+        return super.sprite(snapshot);
+    }
+
     @Override
     public Rectangle2D currentSprite() {
         var currentAnimation = currentAnimation();
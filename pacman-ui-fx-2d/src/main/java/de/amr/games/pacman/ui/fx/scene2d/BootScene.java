@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.scene2d;
 
+import de.amr.games.pacman.controller.GameAction;
 import de.amr.games.pacman.model.world.ArcadeWorld;
 import javafx.geometry.Rectangle2D;
 
@@ -32,14 +33,14 @@ public class BootScene extends GameScene2D {
 
     @Override
     public void update() {
-        if (context.gameState().timer().atSecond(start + 3)) {
-            context.gameController().terminateCurrentState();
+        if (context.gameController().timer().atSecond(start + 3)) {
+            context.gameController().execute(GameAction.TERMINATE_STATE);
         }
     }
 
     @Override
     public void draw() {
-        var timer = context.gameState().timer();
+        var timer = context.gameController().timer();
         if (timer.tick() == 1) {
             clearCanvas();
         } else if (timer.betweenSeconds(start, start + 1) && timer.tick() % 4 == 0) {
@@ -4,6 +4,8 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.scene2d;
 
+import de.amr.games.pacman.controller.GameSnapshot.BonusSnapshot;
+import de.amr.games.pacman.controller.GameSnapshot.CreatureSnapshot;
 import de.amr.games.pacman.lib.Score;
 import de.amr.games.pacman.model.actors.*;
 import de.amr.games.pacman.model.world.ArcadeWorld;
@@ -31,6 +33,8 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import org.tinylog.Logger;
 
+import java.util.List;
+
 import static de.amr.games.pacman.lib.Globals.*;
 
 /**
@@ -159,9 +163,16 @@ public abstract class GameScene2D implements GameScene {
     }
 
     protected void drawLevelCounter() {
+        drawLevelCounter(context.game().levelCounter());
+    }
+
+    /**
+     * @param levelCounter bonus symbols shown in the level counter (e.g. as recorded in a snapshot)
+     */
+    protected void drawLevelCounter(List<Byte> levelCounter) {
         double x = t(ArcadeWorld.TILES_X - 4);
         double y = t(ArcadeWorld.TILES_Y - 2);
-        for (byte symbol : context.game().levelCounter()) {
+        for (byte symbol : levelCounter) {
             var sprite = switch (context.gameVariant()) {
                 case MS_PACMAN -> context.<MsPacManGameSpriteSheet>spriteSheet().bonusSymbolSprite(symbol);
                 case PACMAN -> context.<PacManGameSpriteSheet>spriteSheet().bonusSymbolSprite(symbol);
@@ -263,6 +274,61 @@ public abstract class GameScene2D implements GameScene {
         });
     }
 
+    /**
+     * Draws a bonus as recorded in a snapshot of the simulation thread.
+     *
+     * @param bonus bonus snapshot
+     */
+    protected void drawBonus(BonusSnapshot bonus) {
+        if (!bonus.visible()) {
+            return;
+        }
+        Rectangle2D sprite = null;
+        switch (context.gameVariant()) {
+            case MS_PACMAN -> {
+                var ss = context.<MsPacManGameSpriteSheet>spriteSheet();
+                if (bonus.state() == Bonus.STATE_EDIBLE) {
+                    sprite = ss.bonusSymbolSprite(bonus.symbol());
+                } else if (bonus.state() == Bonus.STATE_EATEN) {
+                    sprite = ss.bonusValueSprite(bonus.symbol());
+                }
+            }
+            case PACMAN -> {
+                var ss = context.<PacManGameSpriteSheet>spriteSheet();
+                if (bonus.state() == Bonus.STATE_EDIBLE) {
+                    sprite = ss.bonusSymbolSprite(bonus.symbol());
+                } else if (bonus.state() == Bonus.STATE_EATEN) {
+                    sprite = ss.bonusValueSprite(bonus.symbol());
+                }
+            }
+        }
+        if (sprite != null) {
+            drawSpriteCenteredOverBox(sprite, bonus.x(), bonus.y() + bonus.elongationY());
+        }
+    }
+
+    /**
+     * Draws a creature as recorded in a snapshot of the simulation thread. The sprite animations belong to the live
+     * creature, the sprite of the animation recorded in the snapshot is looked up without changing them.
+     *
+     * @param director creature owning the sprite animations
+     * @param snapshot creature snapshot
+     */
+    protected void drawCreature(AnimationDirector director, CreatureSnapshot snapshot) {
+        if (!snapshot.visible()) {
+            return;
+        }
+        director.animations().ifPresent(a -> {
+            // the simulation thread selects the animations, so only read them here
+            if (a instanceof SpriteAnimations animations) {
+                var sprite = animations.sprite(snapshot);
+                if (sprite != null) {
+                    drawSpriteCenteredOverBox(sprite, snapshot.x(), snapshot.y());
+                }
+            }
+        });
+    }
+
     /**
      * Draws the given image scaled into this scene.
      * @param image image
@@ -37,7 +37,7 @@ public class MsPacManCutscene1 extends GameScene2D {
     public void init() {
         ss = context.spriteSheet();
         setScoreVisible(true);
-        intermission = new MsPacManIntermission1();
+        intermission = new MsPacManIntermission1(context.gameController());
         intermission.msPac.setAnimations(new MsPacManGamePacAnimations(intermission.msPac, ss));
         intermission.pacMan.setAnimations(new MsPacManGamePacAnimations(intermission.pacMan, ss));
         intermission.inky.setAnimations(new MsPacManGameGhostAnimations(intermission.inky, ss));
@@ -36,7 +36,7 @@ public class MsPacManIntroScene extends GameScene2D {
     @Override
     public void init() {
         setScoreVisible(true);
-        intro = new MsPacManIntro();
+        intro = new MsPacManIntro(context.gameController());
         var ss = context.<MsPacManGameSpriteSheet>spriteSheet();
         intro.msPacMan.setAnimations(new MsPacManGamePacAnimations(intro.msPacMan, ss));
         intro.msPacMan.selectAnimation(Pac.ANIM_MUNCHING);
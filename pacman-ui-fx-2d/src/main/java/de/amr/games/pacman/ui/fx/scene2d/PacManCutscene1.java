@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.scene2d;
 
+import de.amr.games.pacman.controller.GameAction;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.GameModel;
@@ -57,7 +58,7 @@ public class PacManCutscene1 extends GameScene2D {
             return;
         }
 
-        if (context.gameState().timer().hasExpired()) {
+        if (context.gameController().timer().hasExpired()) {
             return;
         }
 
@@ -90,7 +91,7 @@ public class PacManCutscene1 extends GameScene2D {
                 pac.selectAnimation(Pac.ANIM_BIG_PACMAN);
                 pac.startAnimation();
             }
-            case 632 -> context.gameState().timer().expire();
+            case 632 -> context.gameController().execute(GameAction.EXPIRE_STATE_TIMER);
             default -> {
                 pac.move();
                 blinky.move();
@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.scene2d;
 
+import de.amr.games.pacman.controller.GameAction;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.GameModel;
@@ -66,7 +67,7 @@ public class PacManCutscene2 extends GameScene2D {
             return;
         }
 
-        if (context.gameState().timer().hasExpired()) {
+        if (context.gameController().timer().hasExpired()) {
             return;
         }
 
@@ -101,7 +102,7 @@ public class PacManCutscene2 extends GameScene2D {
             case 389 -> blinkyDamaged.nextFrame(); // Eyes right-down
             case 508 -> {
                 blinky.setVisible(false);
-                context.gameState().timer().expire();
+                context.gameController().execute(GameAction.EXPIRE_STATE_TIMER);
             }
             default -> {
             }
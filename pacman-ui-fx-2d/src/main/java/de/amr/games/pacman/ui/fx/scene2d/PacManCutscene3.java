@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.scene2d;
 
+import de.amr.games.pacman.controller.GameAction;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.GameModel;
@@ -68,7 +69,7 @@ public class PacManCutscene3 extends GameScene2D {
             }
             return;
         }
-        if (context.gameState().timer().hasExpired()) {
+        if (context.gameController().timer().hasExpired()) {
             return;
         }
         switch (++frame) {
@@ -78,7 +79,7 @@ public class PacManCutscene3 extends GameScene2D {
                 blinky.selectAnimation(Ghost.ANIM_BLINKY_NAKED);
                 blinky.startAnimation();
             }
-            case 700 -> context.gameState().timer().expire();
+            case 700 -> context.gameController().execute(GameAction.EXPIRE_STATE_TIMER);
             default -> {
             }
         }
@@ -4,6 +4,8 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.scene2d;
 
+import de.amr.games.pacman.controller.GameAction;
+import de.amr.games.pacman.controller.GameSnapshot;
 import de.amr.games.pacman.controller.GameState;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameVariant;
@@ -29,6 +31,8 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.function.IntUnaryOperator;
+
 import static de.amr.games.pacman.lib.Globals.*;
 import static de.amr.games.pacman.model.actors.GhostState.ENTERING_HOUSE;
 import static de.amr.games.pacman.model.actors.GhostState.RETURNING_TO_HOUSE;
@@ -51,7 +55,12 @@ public class PlayScene2D extends GameScene2D {
 
     @Override
     public void update() {
-        context.gameLevel().ifPresent(level -> level.pac().setUseAutopilot(level.isDemoLevel() || PY_USE_AUTOPILOT.get()));
+        context.gameLevel().ifPresent(level -> {
+            boolean autopilot = level.isDemoLevel() || PY_USE_AUTOPILOT.get();
+            if (level.pac().isUsingAutopilot() != autopilot) {
+                context.gameController().execute(GameAction.SET_AUTOPILOT, autopilot ? 1 : 0);
+            }
+        });
         updateSound();
     }
 
@@ -95,20 +104,16 @@ public class PlayScene2D extends GameScene2D {
 
     @Override
     protected void drawSceneContent() {
+        var snapshot = context.gameSnapshot().orElse(null);
+        if (snapshot != null) {
+            drawSnapshot(snapshot);
+            return;
+        }
         context.gameLevel().ifPresent(level -> {
-            switch (context.gameVariant()) {
-                case MS_PACMAN -> drawMsPacManMaze(level.world(), ArcadeWorld.mazeNumberMsPacMan(level.number()));
-                case    PACMAN -> drawPacManMaze(level.world());
-            }
-            if (level.isDemoLevel() || context.gameState() == GameState.GAME_OVER) {
-                // text "GAME OVER" is also drawn in demo mode
-                drawText("GAME  OVER", Color.RED, sceneFont(8), t(9), t(21));
-            } else {
-                switch (context.gameState()) {
-                    case READY      -> drawText("READY!", Color.YELLOW, sceneFont(8), t(11), t(21));
-                    case LEVEL_TEST -> drawText("TEST    L" + level.number(), Color.YELLOW, sceneFont(8), t(8.5), t(21));
-                }
-            }
+            var world = level.world();
+            drawMaze(world, level.number(), world.mazeFlashing().isRunning(), world.mazeFlashing().on(),
+                world.energizerBlinking().on(), world::nextEatenFood);
+            drawStateText(context.gameState(), level.isDemoLevel(), level.number());
             level.bonus().ifPresent(this::drawBonus);
             drawPac(level.pac());
             level.ghosts().toList().reversed().forEach(this::drawGhost);
@@ -122,41 +127,85 @@ public class PlayScene2D extends GameScene2D {
         });
     }
 
-    private void drawPacManMaze(World world) {
-        PacManGameSpriteSheet sheet = context.spriteSheet();
-        double x = 0, y = t(3);
-        if (world.mazeFlashing().isRunning()) {
-            if (world.mazeFlashing().on()) {
-                drawImage(sheet.getFlashingMazeImage(), x, y);
-            } else {
-                drawSprite(sheet.getEmptyMazeSprite(), x, y);
-            }
+    /**
+     * Draws the play scene from the latest snapshot published by the simulation thread, so the game model which is
+     * concurrently changed by that thread is not read (except for constant data like the maze structure).
+     */
+    private void drawSnapshot(GameSnapshot snapshot) {
+        var level = context.gameLevel().orElse(null);
+        if (level == null || level.number() != snapshot.levelNumber()) {
+            return; // the level has changed after the snapshot has been taken
+        }
+        drawMaze(level.world(), snapshot.levelNumber(), snapshot.isMazeFlashing(), snapshot.isMazeFlashingOn(),
+            snapshot.isEnergizersOn(), snapshot::nextEatenFood);
+        drawStateText(snapshot.state(), snapshot.isDemoLevel(), snapshot.levelNumber());
+        snapshot.bonus().ifPresent(this::drawBonus);
+        drawCreature(level.pac(), snapshot.pac());
+        var ghosts = snapshot.ghosts();
+        for (int id = ghosts.size() - 1; id >= 0; --id) {
+            drawCreature(level.ghost((byte) id), ghosts.get(id));
+        }
+        if (!isCreditVisible()) {
+            drawLivesCounter(snapshot.pac().visible() || snapshot.state() == GameState.GHOST_DYING
+                ? snapshot.lives() - 1
+                : snapshot.lives());
+        }
+        drawLevelCounter(snapshot.levelCounter());
+    }
+
+    private void drawStateText(GameState state, boolean demoLevel, int levelNumber) {
+        if (demoLevel || state == GameState.GAME_OVER) {
+            // text "GAME OVER" is also drawn in demo mode
+            drawText("GAME  OVER", Color.RED, sceneFont(8), t(9), t(21));
         } else {
-            drawSprite(sheet.getFullMazeSprite(), x, y);
-            world.tiles().filter(world::hasEatenFoodAt).forEach(tile -> hideTileContent(world, tile));
-            if (world.energizerBlinking().off()) {
-                world.energizerTiles().forEach(tile -> hideTileContent(world, tile));
+            switch (state) {
+                case READY      -> drawText("READY!", Color.YELLOW, sceneFont(8), t(11), t(21));
+                case LEVEL_TEST -> drawText("TEST    L" + levelNumber, Color.YELLOW, sceneFont(8), t(8.5), t(21));
             }
         }
     }
 
-    private void drawMsPacManMaze(World world, int mazeNumber) {
-        MsPacManGameSpriteSheet sheet = context.spriteSheet();
-        double x = 0, y = t(3);
-        if (world.mazeFlashing().isRunning()) {
-            if (world.mazeFlashing().on()) {
-                var flashingMazeSprite = sheet.highlightedMaze(mazeNumber);
-                drawSprite(sheet.getFlashingMazesImage(), flashingMazeSprite, x - 3 /* don't tell your mommy */, y);
-            } else {
-                drawSprite(sheet.source(), sheet.emptyMaze(mazeNumber), x, y);
+    /**
+     * @param nextEatenFood iteration over the eaten food, see {@link World#nextEatenFood(int)}
+     */
+    private void drawMaze(World world, int levelNumber, boolean flashing, boolean flashingOn, boolean energizersOn,
+                          IntUnaryOperator nextEatenFood) {
+        switch (context.gameVariant()) {
+            case MS_PACMAN -> {
+                MsPacManGameSpriteSheet sheet = context.spriteSheet();
+                int mazeNumber = ArcadeWorld.mazeNumberMsPacMan(levelNumber);
+                double x = 0, y = t(3);
+                if (flashing) {
+                    if (flashingOn) {
+                        var flashingMazeSprite = sheet.highlightedMaze(mazeNumber);
+                        drawSprite(sheet.getFlashingMazesImage(), flashingMazeSprite, x - 3 /* don't tell your mommy */, y);
+                    } else {
+                        drawSprite(sheet.source(), sheet.emptyMaze(mazeNumber), x, y);
+                    }
+                    return;
+                }
+                drawSprite(sheet.filledMaze(mazeNumber), x, y);
             }
-        } else {
-            drawSprite(sheet.filledMaze(mazeNumber), x, y);
-            world.tiles().filter(world::hasEatenFoodAt).forEach(tile -> hideTileContent(world, tile));
-            if (world.energizerBlinking().off()) {
-                world.energizerTiles().forEach(tile -> hideTileContent(world, tile));
+            case PACMAN -> {
+                PacManGameSpriteSheet sheet = context.spriteSheet();
+                double x = 0, y = t(3);
+                if (flashing) {
+                    if (flashingOn) {
+                        drawImage(sheet.getFlashingMazeImage(), x, y);
+                    } else {
+                        drawSprite(sheet.getEmptyMazeSprite(), x, y);
+                    }
+                    return;
+                }
+                drawSprite(sheet.getFullMazeSprite(), x, y);
             }
         }
+        for (int i = nextEatenFood.applyAsInt(0); i != World.NO_TILE; i = nextEatenFood.applyAsInt(i + 1)) {
+            hideTileContent(world, world.tile(i));
+        }
+        if (!energizersOn) {
+            world.energizerTiles().forEach(tile -> hideTileContent(world, tile));
+        }
     }
 
     private void hideTileContent(World world, Vector2i tile) {
@@ -181,7 +230,7 @@ public class PlayScene2D extends GameScene2D {
         }
         g.setFill(Color.YELLOW);
         g.setFont(Font.font("Sans", FontWeight.BOLD, 24));
-        g.fillText(String.format("%s %d", context.gameState(), context.gameState().timer().tick()), 0, 64);
+        g.fillText(String.format("%s %d", context.gameState(), context.gameController().timer().tick()), 0, 64);
     }
 
     @Override
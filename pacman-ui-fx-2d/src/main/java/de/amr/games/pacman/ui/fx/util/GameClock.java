@@ -4,29 +4,54 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.util;
 
+import de.amr.games.pacman.lib.LatencyHistogram;
 import de.amr.games.pacman.model.GameModel;
-import javafx.animation.Animation;
-import javafx.animation.Animation.Status;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.util.Duration;
 import org.tinylog.Logger;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
- * Game clock with modifiable frame rate.
+ * Game clock with fixed simulation time step and modifiable simulation rate.
+ * <p>
+ * The clock is driven by an {@link AnimationTimer}, i.e. called once per display refresh. The time elapsed since the
+ * previous refresh is added to an accumulator from which as many simulation updates (each taking one period of the
+ * target frame rate) are run as fit in. The game speed therefore does not depend on the display refresh rate, and
+ * after a slow frame the simulation catches up by running several updates (at most {@link #MAX_UPDATES_PER_FRAME}).
+ * After the updates, the current frame is rendered once, showing the state after the last update. Pauses between two
+ * frames longer than {@link #MAX_FRAME_INTERVAL_NANOS} (e.g. while the window is moved) are not caught up, the
+ * simulation updates falling into the excess time are counted as dropped.
+ * <p>
+ * The durations of the update and render phases and of the complete frame are always recorded in latency histograms,
+ * frames taking longer than the target frame period are counted as missed deadlines.
  *
  * @author Armin Reichert
  */
 public class GameClock {
 
+    /**
+     * Maximum number of simulation updates run to catch up within one frame. If the simulation falls behind even more,
+     * the remaining time is dropped, so the game slows down instead of freezing.
+     */
+    public static final int MAX_UPDATES_PER_FRAME = 5;
+
+    /**
+     * Maximum time between two frames that is caught up. Updates falling into longer pauses are dropped.
+     */
+    public static final long MAX_FRAME_INTERVAL_NANOS = 250_000_000L;
+
     public final IntegerProperty targetFrameRatePy = new SimpleIntegerProperty(this, "targetFrameRate", GameModel.FPS) {
         @Override
         protected void invalidated() {
-            updateClock();
+            accumulatedNanos = 0;
         }
     };
     public final BooleanProperty pausedPy = new SimpleBooleanProperty(this, "paused", false);
@@ -34,14 +59,29 @@ public class GameClock {
 
     private Runnable onTick   = () -> {};
     private Runnable onRender = () -> {};
-    private Timeline timeline;
+    private final AnimationTimer timer;
+    private boolean running;
+    private long lastFrameTime = -1;
+    private long accumulatedNanos;
     private long updateCount;
+    private long droppedUpdates;
     private long ticksPerSec;
+    private long framesPerSec;
     private long countTicksStartTime;
     private long ticks;
+    private long frames;
+    private final LatencyHistogram updateTimes = new LatencyHistogram();
+    private final LatencyHistogram renderTimes = new LatencyHistogram();
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+    private long missedDeadlines;
 
     public GameClock() {
-        createTimeline(targetFrameRatePy.get());
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                executeFrame(now);
+            }
+        };
     }
 
     public void setOnTick(Runnable onTick) {
@@ -52,33 +92,20 @@ public class GameClock {
         this.onRender = onRender;
     }
 
-    private void createTimeline(int targetFPS) {
-        var tick = new KeyFrame(Duration.seconds(1.0 / targetFPS), e -> executeSingleStep(!isPaused()));
-        timeline = new Timeline(targetFPS, tick);
-        timeline.setCycleCount(Animation.INDEFINITE);
-    }
-
-    private void updateClock() {
-        boolean running = timeline.getStatus() == Status.RUNNING;
-        if (running) {
-            timeline.stop();
-        }
-        createTimeline(targetFrameRatePy.get());
-        if (running) {
-            start();
-        }
-    }
-
     public void start() {
-        timeline.play();
+        lastFrameTime = -1;
+        accumulatedNanos = 0;
+        timer.start();
+        running = true;
     }
 
     public void stop() {
-        timeline.stop();
+        timer.stop();
+        running = false;
     }
 
     public boolean isRunning() {
-        return timeline.getStatus() == Status.RUNNING;
+        return running;
     }
 
     public boolean isPaused() {
@@ -89,46 +116,178 @@ public class GameClock {
         return updateCount;
     }
 
+    /**
+     * @return number of simulation updates dropped because the simulation could not catch up or because the pause
+     * between two frames exceeded {@link #MAX_FRAME_INTERVAL_NANOS}
+     */
+    public long getDroppedUpdates() {
+        return droppedUpdates;
+    }
+
+    /**
+     * @return number of simulation updates in the last second
+     */
     public long getFPS() {
         return ticksPerSec;
     }
 
+    /**
+     * @return number of rendered frames in the last second
+     */
+    public long getRenderFPS() {
+        return framesPerSec;
+    }
+
     public void setTimeMeasured(boolean measured) {
         timeMeasuredPy.set(measured);
     }
 
+    private long periodNanos() {
+        return 1_000_000_000L / targetFrameRatePy.get();
+    }
+
+    private void executeFrame(long now) {
+        long frameStartTime = System.nanoTime();
+        long period = periodNanos();
+        if (lastFrameTime != -1) {
+            long interval = now - lastFrameTime;
+            if (interval > MAX_FRAME_INTERVAL_NANOS) {
+                droppedUpdates += (interval - MAX_FRAME_INTERVAL_NANOS) / period;
+                interval = MAX_FRAME_INTERVAL_NANOS;
+            }
+            accumulatedNanos += interval;
+        }
+        lastFrameTime = now;
+        int updates = 0;
+        while (accumulatedNanos >= period && updates < MAX_UPDATES_PER_FRAME) {
+            if (!isPaused()) {
+                update();
+            }
+            accumulatedNanos -= period;
+            ++updates;
+        }
+        if (accumulatedNanos >= period) {
+            droppedUpdates += accumulatedNanos / period;
+            accumulatedNanos %= period;
+        }
+        render();
+        recordFrameTime(frameStartTime);
+        computeFrameRate(frameStartTime);
+    }
+
     public void executeSteps(int n, boolean updateEnabled) {
         for (int i = 0; i < n; ++i) {
             executeSingleStep(updateEnabled);
         }
     }
 
+    /**
+     * Executes one simulation update (if enabled) and renders the result, independent of the time passed. Used for
+     * single-stepping while the game is paused.
+     *
+     * @param updateEnabled if the simulation is updated
+     */
     public void executeSingleStep(boolean updateEnabled) {
-        long tickTime = System.nanoTime();
+        long frameStartTime = System.nanoTime();
         if (updateEnabled) {
-            runPhase(onTick, "Update phase: {} milliseconds");
-            updateCount++;
+            update();
         }
-        runPhase(onRender, "Render phase: {} milliseconds");
+        render();
+        recordFrameTime(frameStartTime);
+        computeFrameRate(frameStartTime);
+    }
+
+    private void update() {
+        updateTimes.record(runPhase(onTick, "Update phase: {} milliseconds"));
+        ++updateCount;
         ++ticks;
-        computeFrameRate(tickTime);
     }
 
-    private void runPhase(Runnable phase, String logMessage) {
+    private void render() {
+        renderTimes.record(runPhase(onRender, "Render phase: {} milliseconds"));
+        ++frames;
+    }
+
+    private void recordFrameTime(long frameStartTime) {
+        long frameTime = System.nanoTime() - frameStartTime;
+        frameTimes.record(frameTime);
+        if (frameTime > periodNanos()) {
+            ++missedDeadlines;
+        }
+    }
+
+    private long runPhase(Runnable phase, String logMessage) {
+        long startNanos = System.nanoTime();
+        phase.run();
+        long durationNanos = System.nanoTime() - startNanos;
         if (timeMeasuredPy.get()) {
-            double startNanos = System.nanoTime();
-            phase.run();
-            double durationNanos = System.nanoTime() - startNanos;
             Logger.info(logMessage, durationNanos / 1e6);
-        } else {
-            phase.run();
+        }
+        return durationNanos;
+    }
+
+    /**
+     * @return histogram of the update phase durations (nanoseconds)
+     */
+    public LatencyHistogram updateTimes() {
+        return updateTimes;
+    }
+
+    /**
+     * @return histogram of the render phase durations (nanoseconds)
+     */
+    public LatencyHistogram renderTimes() {
+        return renderTimes;
+    }
+
+    /**
+     * @return histogram of the frame durations (update + render, nanoseconds)
+     */
+    public LatencyHistogram frameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * @return number of frames that took longer than the target frame period
+     */
+    public long missedDeadlines() {
+        return missedDeadlines;
+    }
+
+    public void resetLatencyStatistics() {
+        updateTimes.reset();
+        renderTimes.reset();
+        frameTimes.reset();
+        missedDeadlines = 0;
+    }
+
+    /**
+     * Writes the latency statistics (summary and percentile distribution of each phase) to the given file.
+     *
+     * @param file output file
+     */
+    public void writeLatencyReport(Path file) {
+        try (var out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.printf("Target frame rate: %d Hz, frames: %d, missed deadlines: %d, dropped updates: %d%n",
+                targetFrameRatePy.get(), frameTimes.count(), missedDeadlines, droppedUpdates);
+            out.printf("%nUpdate phase: %s%n", updateTimes.summary());
+            updateTimes.printPercentileDistribution(out);
+            out.printf("%nRender phase: %s%n", renderTimes.summary());
+            renderTimes.printPercentileDistribution(out);
+            out.printf("%nFrame: %s%n", frameTimes.summary());
+            frameTimes.printPercentileDistribution(out);
+            Logger.info("Latency report written to {}", file);
+        } catch (IOException x) {
+            Logger.error("Could not write latency report to {}: {}", file, x.getMessage());
         }
     }
 
     private void computeFrameRate(long time) {
         if (time - countTicksStartTime > 1e9) {
             ticksPerSec = ticks;
+            framesPerSec = frames;
             ticks = 0;
+            frames = 0;
             countTicksStartTime = time;
         }
     }
@@ -12,6 +12,7 @@ import javafx.scene.input.KeyEvent;
 import org.tinylog.Logger;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author Armin Reichert
@@ -19,7 +20,8 @@ import java.util.*;
 public class Keyboard {
 
     private static final Set<KeyCodeCombination> registeredCombinations = new HashSet<>();
-    private static final List<KeyCodeCombination> matchingCombinations = new ArrayList<>(3);
+    // read by the keyboard steering which may run on the simulation thread
+    private static final List<KeyCodeCombination> matchingCombinations = new CopyOnWriteArrayList<>();
 
     public static void handleKeyEventsFor(EventTarget target) {
         target.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.util;
 
+import de.amr.games.pacman.controller.GameSnapshot.CreatureSnapshot;
 import de.amr.games.pacman.model.actors.Animations;
 import javafx.geometry.Rectangle2D;
 import org.tinylog.Logger;
@@ -28,6 +29,31 @@ public abstract class SpriteAnimations implements Animations {
 
     public abstract SpriteAnimation animation(String name);
 
+    /**
+     * Returns the sprite shown for a snapshot of the creature owning these animations. Unlike {@link #select} and
+     * {@link #currentSprite()}, this changes neither the selected animation nor its sprites, so the application thread
+     * can call it while the simulation thread selects animations.
+     *
+     * @param snapshot creature snapshot
+     * @return current frame of the snapshot's animation or <code>null</code> if no animation is selected
+     */
+    public Rectangle2D sprite(CreatureSnapshot snapshot) {
+        if (snapshot.animation() == null) {
+            return null;
+        }
+        var animation = animation(snapshot.animation());
+        return animation != null ? frame(animation, animation.getSprites()) : null;
+    }
+
+    /**
+     * @param animation animation providing the frame index
+     * @param sprites   sprites of the animation, e.g. for a specific direction
+     * @return sprite at the frame index of the animation
+     */
+    protected static Rectangle2D frame(SpriteAnimation animation, Rectangle2D[] sprites) {
+        return sprites[Math.min(animation.frameIndex(), sprites.length - 1)];
+    }
+
     @Override
     public void select(String name, int index) {
         if (!name.equals(currentAnimationName)) {
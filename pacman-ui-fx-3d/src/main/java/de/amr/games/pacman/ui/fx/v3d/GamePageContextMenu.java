@@ -1,6 +1,5 @@
 package de.amr.games.pacman.ui.fx.v3d;
 
-import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.ui.fx.GameScene;
 import de.amr.games.pacman.ui.fx.GameSceneContext;
 import de.amr.games.pacman.ui.fx.scene2d.PlayScene2D;
@@ -88,7 +87,7 @@ public class GamePageContextMenu extends ContextMenu {
             autopilotItem.setSelected(PY_USE_AUTOPILOT.get());
         }
         if (immunityItem != null) {
-            immunityItem.setSelected(GameController.it().isPacImmune());
+            immunityItem.setSelected(sceneContext.gameController().isPacImmune());
         }
     }
 }
\ No newline at end of file
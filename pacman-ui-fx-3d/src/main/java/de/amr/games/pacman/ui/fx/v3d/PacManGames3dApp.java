@@ -5,7 +5,6 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.ui.fx.v3d;
 
 import de.amr.games.pacman.controller.GameController;
-import de.amr.games.pacman.event.GameEventManager;
 import de.amr.games.pacman.ui.fx.Settings;
 import javafx.application.Application;
 import javafx.stage.Stage;
@@ -22,6 +21,7 @@ import static de.amr.games.pacman.ui.fx.v3d.PacManGames3dUI.PY_3D_NIGHT_MODE;
 public class PacManGames3dApp extends Application {
 
     private final Settings settings = new Settings();
+    private GameController gameController;
     private PacManGames3dUI ui;
 
     @Override
@@ -29,7 +29,7 @@ public class PacManGames3dApp extends Application {
         if (getParameters() != null) {
             settings.merge(getParameters().getNamed());
         }
-        GameController.it().newGame(settings.variant);
+        gameController = new GameController(settings.variant);
         Logger.info("Game initialized: {}, locale: {}", settings, Locale.getDefault());
         Logger.info("Java version is {}", Runtime.version());
         Logger.info("JavaFX version is {}", System.getProperty("javafx.runtime.version"));
@@ -37,8 +37,8 @@ public class PacManGames3dApp extends Application {
 
     @Override
     public void start(Stage stage) {
-        ui = new PacManGames3dUI(stage, settings);
-        GameEventManager.addListener(ui);
+        ui = new PacManGames3dUI(stage, settings, gameController);
+        ui.subscribeToGameEvents(settings);
         int hour = LocalTime.now().getHour();
         PY_3D_NIGHT_MODE.set(hour >= 20 || hour <= 5);
         ui.showStartPage();
@@ -48,6 +48,9 @@ public class PacManGames3dApp extends Application {
     @Override
     public void stop() {
         ui.gameClock().stop();
+        ui.stopSimulationThread();
+        ui.stopRecording();
+        ui.reportLatencies(settings);
         Logger.info("Game stopped.");
     }
 }
\ No newline at end of file
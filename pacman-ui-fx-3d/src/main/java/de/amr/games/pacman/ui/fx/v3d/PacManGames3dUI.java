@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.v3d;
 
+import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.model.GameVariant;
 import de.amr.games.pacman.model.world.ArcadeWorld;
 import de.amr.games.pacman.ui.fx.GameScene;
@@ -222,8 +223,8 @@ public class PacManGames3dUI extends PacManGames2dUI implements ActionHandler3D
         Logger.info("3D assets added to 2D theme.");
     }
 
-    public PacManGames3dUI(Stage stage, Settings settings) {
-        super(stage, settings);
+    public PacManGames3dUI(Stage stage, Settings settings, GameController gameController) {
+        super(stage, settings, gameController);
         for (var gameVariant : GameVariant.values()) {
             var playScene3D = new PlayScene3D();
             playScene3D.setParentScene(mainScene);
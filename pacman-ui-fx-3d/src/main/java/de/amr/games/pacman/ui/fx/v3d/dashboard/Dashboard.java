@@ -20,6 +20,9 @@ public class Dashboard extends VBox {
     public Dashboard(GameSceneContext sceneContext) {
         infoBoxes.add(new InfoBoxGeneral(sceneContext.theme(), sceneContext.tt("infobox.general.title")));
         infoBoxes.add(new InfoBoxGameControl(sceneContext.theme(), sceneContext.tt("infobox.game_control.title")));
+        if (sceneContext.gameController().rewindBuffer().isPresent()) {
+            infoBoxes.add(new InfoBoxRewind(sceneContext.theme(), sceneContext.tt("infobox.rewind.title")));
+        }
         infoBoxes.add(new InfoBox3D(sceneContext.theme(), sceneContext.tt("infobox.3D_settings.title")));
         infoBoxes.add(new InfoBoxGameInfo(sceneContext.theme(), sceneContext.tt("infobox.game_info.title")));
         infoBoxes.add(new InfoBoxGhostsInfo(sceneContext.theme(), sceneContext.tt("infobox.ghosts_info.title")));
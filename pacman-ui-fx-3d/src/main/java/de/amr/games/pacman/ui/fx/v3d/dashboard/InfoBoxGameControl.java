@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.v3d.dashboard;
 
+import de.amr.games.pacman.controller.GameAction;
 import de.amr.games.pacman.controller.GameState;
 import de.amr.games.pacman.lib.Globals;
 import de.amr.games.pacman.model.GameModel;
@@ -40,6 +41,8 @@ public class InfoBoxGameControl extends InfoBox {
     private final Spinner<Integer> spinnerGameCredit;
     private final CheckBox cbAutopilot;
     private final CheckBox cbImmunity;
+    // set while the controls show the game state, so their listeners do not write it back
+    private boolean updatingControls;
 
     public InfoBoxGameControl(Theme theme, String title) {
         super(theme, title);
@@ -59,21 +62,41 @@ public class InfoBoxGameControl extends InfoBox {
         super.init(sceneContext);
         comboGameVariant.setOnAction(e -> {
             var selectedVariant = comboGameVariant.getValue();
-            if (selectedVariant != sceneContext.game().variant()) {
-                sceneContext.gameController().newGame(selectedVariant);
-                sceneContext.gameController().restart(GameState.BOOT);
-            }
+            sceneContext.runExclusively(() -> {
+                if (selectedVariant != sceneContext.game().variant()) {
+                    actionHandler().stopRecording();
+                    sceneContext.gameController().newGame(selectedVariant);
+                    sceneContext.gameController().restart(GameState.BOOT);
+                }
+            });
         });
         buttonsIntermissionTest[INTERMISSION_TEST_START].setOnAction(e -> actionHandler().startCutscenesTest());
         buttonsIntermissionTest[INTERMISSION_TEST_QUIT].setOnAction(e -> actionHandler().restartIntro());
-        comboInitialLives.setOnAction(e -> sceneContext.game().setInitialLives((comboInitialLives.getValue().shortValue())));
+        comboInitialLives.setOnAction(e -> {
+            if (!updatingControls) {
+                sceneContext.runExclusively(() -> {
+                    short lives = comboInitialLives.getValue().shortValue();
+                    if (lives != sceneContext.game().initialLives()) {
+                        // not a game action, so a recording could not be replayed
+                        actionHandler().stopRecording();
+                        sceneContext.game().setInitialLives(lives);
+                    }
+                });
+            }
+        });
         buttonsGameLevel[GAME_LEVEL_START].setOnAction(e -> actionHandler().startGame());
         buttonsGameLevel[GAME_LEVEL_QUIT].setOnAction(e -> actionHandler().restartIntro());
         buttonsGameLevel[GAME_LEVEL_NEXT].setOnAction(e -> sceneContext.actionHandler().cheatEnterNextLevel());
         spinnerGameLevel.valueProperty().addListener((py, ov, nv) -> actionHandler().enterLevel(nv));
         spinnerGameLevel.getValueFactory().setValue(sceneContext.gameLevel().isPresent() ? sceneContext.gameLevel().get().number() : 1);
-        spinnerGameCredit.valueProperty().addListener((py, ov, nv) -> sceneContext.gameController().setCredit(nv));
+        spinnerGameCredit.valueProperty().addListener((py, ov, nv) -> {
+            if (!updatingControls) {
+                sceneContext.runExclusively(() -> sceneContext.gameController().execute(GameAction.SET_CREDIT, nv));
+            }
+        });
+        updatingControls = true;
         spinnerGameCredit.getValueFactory().setValue(sceneContext.gameController().credit());
+        updatingControls = false;
         cbAutopilot.setOnAction(e -> actionHandler().toggleAutopilot());
         cbImmunity.setOnAction(e -> actionHandler().toggleImmunity());
     }
@@ -84,7 +107,9 @@ public class InfoBoxGameControl extends InfoBox {
 
         comboGameVariant.setValue(sceneContext.game().variant());
         comboGameVariant.setDisable(sceneContext.gameState() != GameState.INTRO);
+        updatingControls = true;
         comboInitialLives.setValue((int) sceneContext.game().initialLives());
+        updatingControls = false;
         cbAutopilot.setSelected(PY_USE_AUTOPILOT.get());
         cbImmunity.setSelected(sceneContext.gameController().isPacImmune());
         buttonsGameLevel[GAME_LEVEL_START].setDisable(!canStartLevel());
@@ -101,7 +126,9 @@ public class InfoBoxGameControl extends InfoBox {
                 && sceneContext.gameState() != GameState.HUNTING
                 && sceneContext.gameState() != GameState.CHANGING_TO_NEXT_LEVEL);
         }
+        updatingControls = true;
         spinnerGameCredit.getValueFactory().setValue(sceneContext.gameController().credit());
+        updatingControls = false;
     }
 
     private boolean canStartLevel() {
@@ -22,9 +22,9 @@ public class InfoBoxGameInfo extends InfoBox {
         addInfo("Game Scene", () -> sceneContext.currentGameScene().isPresent()
             ? sceneContext.currentGameScene().get().getClass().getSimpleName() : "n/a");
         addInfo("Game State", () -> "%s".formatted(sceneContext.gameState()));
-        addInfo("", () -> "Running:   %s%s".formatted(sceneContext.gameState().timer().tick(),
-            sceneContext.gameState().timer().isStopped() ? " (STOPPED)" : ""));
-        addInfo("", () -> "Remaining: %s".formatted(ticksToString(sceneContext.gameState().timer().remaining())));
+        addInfo("", () -> "Running:   %s%s".formatted(sceneContext.gameController().timer().tick(),
+            sceneContext.gameController().timer().isStopped() ? " (STOPPED)" : ""));
+        addInfo("", () -> "Remaining: %s".formatted(ticksToString(sceneContext.gameController().timer().remaining())));
 
         addInfo("Hunting Phase", ifLevelExists(this::fmtHuntingPhase));
         addInfo("", ifLevelExists(this::fmtHuntingTicksRunning));
@@ -4,6 +4,7 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.v3d.dashboard;
 
+import de.amr.games.pacman.lib.LatencyHistogram;
 import de.amr.games.pacman.ui.fx.GameSceneContext;
 import de.amr.games.pacman.ui.fx.util.Theme;
 import de.amr.games.pacman.ui.fx.util.Ufx;
@@ -66,15 +67,26 @@ public class InfoBoxGeneral extends InfoBox {
         sliderTargetFPS.setShowTickLabels(false);
         sliderTargetFPS.setShowTickMarks(false);
 
-        addInfo("", () -> String.format("Target %dHz Actual %dHz",
-            sceneContext.gameClock().targetFrameRatePy.get(), sceneContext.gameClock().getFPS()));
+        addInfo("", () -> String.format("Target %dHz Actual %dHz Render %dfps",
+            sceneContext.gameClock().targetFrameRatePy.get(), sceneContext.gameClock().getFPS(),
+            sceneContext.gameClock().getRenderFPS()));
         addInfo("Total Updates", () -> sceneContext.gameClock().getUpdateCount());
+        addInfo("Update p50/p99/max", () -> latencies(sceneContext.gameClock().updateTimes()));
+        addInfo("Render p50/p99/max", () -> latencies(sceneContext.gameClock().renderTimes()));
+        addInfo("Frame p50/p99/max", () -> latencies(sceneContext.gameClock().frameTimes()));
+        addInfo("Missed Deadlines", () -> sceneContext.gameClock().missedDeadlines());
+        addInfo("Dropped Updates", () -> sceneContext.gameClock().getDroppedUpdates());
 
         cbUsePlayScene3D = addCheckBox("3D Play Scene");
         cbDebugUI = addCheckBox("Show Debug Info");
         cbTimeMeasured = addCheckBox("Time Measured");
     }
 
+    private static String latencies(LatencyHistogram histogram) {
+        return String.format("%.2f / %.2f / %.2f ms", histogram.valueAtPercentile(50) / 1e6,
+            histogram.valueAtPercentile(99) / 1e6, histogram.max() / 1e6);
+    }
+
     @Override
     public void init(GameSceneContext sceneContext) {
         super.init(sceneContext);
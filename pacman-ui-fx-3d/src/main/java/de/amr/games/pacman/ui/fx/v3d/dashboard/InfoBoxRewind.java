@@ -0,0 +1,78 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.v3d.dashboard;
+
+import de.amr.games.pacman.controller.RewindBuffer;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.ui.fx.GameSceneContext;
+import de.amr.games.pacman.ui.fx.util.Theme;
+import javafx.scene.control.Button;
+import javafx.scene.control.Slider;
+
+/**
+ * Stepping back and scrubbing through the recent game history (see setting <code>rewindSeconds</code>). The controls
+ * are enabled while the game is paused. When the game is continued, the history after the restored tick is dropped.
+ *
+ * @author Armin Reichert
+ */
+public class InfoBoxRewind extends InfoBox {
+
+    private static final int[] STEP_BACK_TICKS = {1, GameModel.FPS, 5 * GameModel.FPS};
+
+    private final Button[] buttonsStepBack;
+    private final Slider sliderPosition;
+    private boolean updating;
+
+    public InfoBoxRewind(Theme theme, String title) {
+        super(theme, title);
+
+        addInfo("History", () -> rewindBuffer() == null ? InfoText.NO_INFO : String.format("%.1f sec (%d KB)",
+            (float) rewindBuffer().size() / GameModel.FPS, rewindBuffer().bytesUsed() / 1024));
+        addInfo("Position", () -> rewindBuffer() == null ? InfoText.NO_INFO : String.format("-%.2f sec",
+            (float) (rewindBuffer().size() - 1 - rewindBuffer().position()) / GameModel.FPS));
+        buttonsStepBack = addButtonList("Step Back", "1 Tick", "1 sec", "5 sec");
+        sliderPosition = addSlider("Scrub", 0, 1, 1);
+    }
+
+    private RewindBuffer rewindBuffer() {
+        return sceneContext.gameController().rewindBuffer().orElse(null);
+    }
+
+    @Override
+    public void init(GameSceneContext sceneContext) {
+        super.init(sceneContext);
+        for (int i = 0; i < buttonsStepBack.length; ++i) {
+            int ticks = STEP_BACK_TICKS[i];
+            buttonsStepBack[i].setOnAction(e -> {
+                if (rewindBuffer() != null) {
+                    actionHandler().rewind(Math.max(0, rewindBuffer().position() - ticks));
+                }
+            });
+        }
+        sliderPosition.valueProperty().addListener((py, ov, nv) -> {
+            if (!updating && rewindBuffer() != null && nv.intValue() != rewindBuffer().position()) {
+                actionHandler().rewind(nv.intValue());
+            }
+        });
+    }
+
+    @Override
+    public void update() {
+        super.update();
+        var rewindBuffer = rewindBuffer();
+        boolean paused = sceneContext.gameClock().pausedPy.get();
+        boolean canStepBack = paused && rewindBuffer != null && rewindBuffer.position() > 0;
+        for (var button : buttonsStepBack) {
+            button.setDisable(!canStepBack);
+        }
+        sliderPosition.setDisable(!paused || rewindBuffer == null || rewindBuffer.size() < 2);
+        if (rewindBuffer != null && !sliderPosition.isValueChanging()) {
+            updating = true;
+            sliderPosition.setMax(Math.max(1, rewindBuffer.size() - 1));
+            sliderPosition.setValue(rewindBuffer.position());
+            updating = false;
+        }
+    }
+}
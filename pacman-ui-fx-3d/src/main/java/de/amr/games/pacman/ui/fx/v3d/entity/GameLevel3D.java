@@ -341,8 +341,8 @@ public class GameLevel3D extends Group {
     }
 
     public void update() {
-        GameState gameState = GameController.it().state();
-        boolean hasCredit = GameController.it().hasCredit();
+        GameState gameState = context.gameState();
+        boolean hasCredit = context.gameController().hasCredit();
 
         pac3D.update();
         ghosts3D().forEach(Ghost3D::update);
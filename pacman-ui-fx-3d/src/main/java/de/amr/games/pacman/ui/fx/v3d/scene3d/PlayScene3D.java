@@ -4,10 +4,12 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.v3d.scene3d;
 
+import de.amr.games.pacman.controller.GameAction;
 import de.amr.games.pacman.controller.GameState;
 import de.amr.games.pacman.event.GameEvent;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.actors.Ghost;
 import de.amr.games.pacman.model.actors.GhostState;
 import de.amr.games.pacman.ui.fx.GameScene;
@@ -121,6 +123,11 @@ public class PlayScene3D implements GameScene {
         Logger.info("3D play scene ended. {}", this);
     }
 
+    /**
+     * Updates the 3D level from the live game model, not from a snapshot. With a simulation thread, this runs while
+     * holding the simulation lock (see {@link GameSceneContext#runExclusively(Runnable)}), so a slow frame delays the
+     * next tick. Rendering the 3D scene from snapshots is not supported yet.
+     */
     @Override
     public void update() {
         context.gameLevel().ifPresent(level -> {
@@ -128,7 +135,10 @@ public class PlayScene3D implements GameScene {
                 level3D.update();
                 currentCamController().update(fxSubScene.getCamera(), level3D.pac3D());
             }
-            level.pac().setUseAutopilot(level.isDemoLevel() || PY_USE_AUTOPILOT.get());
+            boolean autopilot = level.isDemoLevel() || PY_USE_AUTOPILOT.get();
+            if (level.pac().isUsingAutopilot() != autopilot) {
+                context.gameController().execute(GameAction.SET_AUTOPILOT, autopilot ? 1 : 0);
+            }
             updateSound(level);
         });
         scores3D.setScores(
@@ -272,7 +282,7 @@ public class PlayScene3D implements GameScene {
             case GAME_OVER -> {
                 assertLevel3DExists();
                 context.stopAllSounds();
-                context.gameState().timer().restartSeconds(3);
+                context.gameController().execute(GameAction.RESTART_STATE_TIMER, 3 * GameModel.FPS);
                 level3D.stopEnergizerAnimation();
                 level3D.bonus3D().ifPresent(bonus3D -> bonus3D.setVisible(false));
                 level3D.livesCounter3D().stopAnimation();
@@ -287,7 +297,7 @@ public class PlayScene3D implements GameScene {
                         case MS_PACMAN -> context.<MsPacManGameSpriteSheet>spriteSheet().ghostNumberSprites();
                         case PACMAN    -> context.<PacManGameSpriteSheet>spriteSheet().ghostNumberSprites();
                     };
-                    level.eventLog().killedGhosts.forEach(ghost -> {
+                    level.eventLog().killedGhosts().forEach(ghost -> {
                         int index = level.pac().victims().indexOf(ghost);
                         var numberImage = context.spriteSheet().subImage(sprites[index]);
                         level3D.ghosts3D().get(ghost.id()).setNumberImage(numberImage);
@@ -309,7 +319,7 @@ public class PlayScene3D implements GameScene {
             case CHANGING_TO_NEXT_LEVEL -> {
                 assertLevel3DExists();
                 context.gameLevel().ifPresent(level -> {
-                    context.gameState().timer().restartSeconds(3);
+                    context.gameController().execute(GameAction.RESTART_STATE_TIMER, 3 * GameModel.FPS);
                     replaceGameLevel3D(level);
                     level3D.pac3D().init();
                     currentCamController().reset(fxSubScene.getCamera());
@@ -474,9 +484,10 @@ public class PlayScene3D implements GameScene {
     }
 
     private void lockGameStateAndPlayAfterSeconds(double seconds, Animation animation) {
-        context.gameState().timer().resetIndefinitely();
+        context.gameController().execute(GameAction.LOCK_STATE_TIMER);
         animation.setDelay(Duration.seconds(seconds));
-        animation.setOnFinished(e -> context.gameState().timer().expire());
+        animation.setOnFinished(e -> context.runExclusively(
+            () -> context.gameController().execute(GameAction.EXPIRE_STATE_TIMER)));
         animation.play();
     }
 